@@ -0,0 +1,12 @@
+package com.cornholio.database.connection;
+
+/**
+ * The session state of a connection that a pooled connection can serve from a local cache instead of asking the driver. The cache is kept current by
+ * the setters of the pooled connection, so leave out every property that the application (or the server) changes some other way, for example
+ * through sql like SET search_path or on a connection taken out with unwrap.
+ * 
+ * @author nikhilagarwal
+ */
+public enum SessionProperty {
+	AUTO_COMMIT, CATALOG, HOLDABILITY, METADATA, READ_ONLY, SCHEMA, TRANSACTION_ISOLATION
+}
@@ -0,0 +1,90 @@
+package com.cornholio.database.connection.event;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Values are counted in log-linear buckets: every power of two is split into eight buckets, so a
+ * percentile read from the histogram is at most 12.5% above the real value. Recording a value is one atomic increment into a preallocated array;
+ * reading a percentile walks the 488 buckets and never blocks the recording threads.
+ *
+ * @author nikhilagarwal
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	private final AtomicLongArray counts;
+
+	public LatencyHistogram() {
+		super();
+		this.counts = new AtomicLongArray(BUCKETS);
+	}
+
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) Math.max(value, 0L);
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the highest value that is counted in the bucket
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		long count = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the value at the percentile in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0L) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return highestValueOf(i);
+			}
+		}
+		return highestValueOf(BUCKETS - 1);
+	}
+
+	/**
+	 * Counts one value. Does not allocate and does not block.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		this.counts.incrementAndGet(bucketOf(nanos));
+	}
+}
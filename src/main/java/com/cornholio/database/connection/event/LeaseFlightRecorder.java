@@ -0,0 +1,171 @@
+package com.cornholio.database.connection.event;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free ring buffer of binary pool events. Every event is five longs (wall clock time, connection id, event code, thread id and a
+ * value such as a wait or lease duration) written into preallocated arrays, so recording an event does not allocate and does not block. When the
+ * buffer is full the oldest events are overwritten. The buffer is turned into text only when it is dumped.
+ * <p>
+ * A writer claims a sequence number, writes its slot and then publishes the sequence number for that slot. A reader only accepts a slot whose
+ * published sequence number is the one it expects before and after it read the slot, so a dump never shows half written or overwritten events.
+ *
+ * @author nikhilagarwal
+ */
+public class LeaseFlightRecorder implements PoolEventRecorder {
+
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+	private static final int FIELD_CODE = 2;
+	private static final int FIELD_CONNECTION_ID = 1;
+	private static final int FIELD_THREAD_ID = 3;
+	private static final int FIELD_TIME = 0;
+	private static final int FIELD_VALUE = 4;
+	private static final int FIELDS = 5;
+	private static final long NO_CONNECTION = 0L;
+	private final AtomicLongArray entries;
+	private final int mask;
+	private final AtomicLongArray published;
+	private final AtomicLong sequence;
+
+	/**
+	 * @param capacity
+	 *            the number of events kept. Rounded up to a power of two
+	 */
+	public LeaseFlightRecorder(int capacity) {
+		super();
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.mask = size - 1;
+		this.entries = new AtomicLongArray(size * FIELDS);
+		this.published = new AtomicLongArray(size);
+		this.sequence = new AtomicLong();
+	}
+
+	@Override
+	public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+		this.record(PoolEventCode.BORROWED, connectionId, waitNanos);
+	}
+
+	@Override
+	public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+		this.record(PoolEventCode.CREATED, connectionId, connectNanos);
+	}
+
+	@Override
+	public void connectionCreateFailed(long connectNanos) {
+		this.record(PoolEventCode.CREATE_FAILED, NO_CONNECTION, connectNanos);
+	}
+
+	@Override
+	public void connectionDisposed(long connectionId) {
+		this.record(PoolEventCode.DISPOSED, connectionId, 0L);
+	}
+
+	@Override
+	public void connectionErrorOccurred(long connectionId) {
+		this.record(PoolEventCode.ERROR_OCCURRED, connectionId, 0L);
+	}
+
+	@Override
+	public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+		this.record(PoolEventCode.LEASED, connectionId, leaseNanos);
+	}
+
+	@Override
+	public void connectionLimitReached() {
+		this.record(PoolEventCode.LIMIT_REACHED, NO_CONNECTION, 0L);
+	}
+
+	@Override
+	public void connectionValidated(long connectionId, boolean valid) {
+		this.record(valid ? PoolEventCode.VALIDATED : PoolEventCode.VALIDATION_FAILED, connectionId, 0L);
+	}
+
+	@Override
+	public void connectionWaitTimedOut(long waitNanos) {
+		this.record(PoolEventCode.WAIT_TIMED_OUT, NO_CONNECTION, waitNanos);
+	}
+
+	/**
+	 * Writes the events that are still in the buffer, oldest first, one per line.
+	 *
+	 * @param out
+	 *            where to write the events to
+	 */
+	public void dump(StringBuilder out) {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+		long end = this.sequence.get();
+		long start = Math.max(0L, end - this.published.length());
+		for (long next = start; next < end; next++) {
+			int slot = (int) (next & this.mask);
+			int base = slot * FIELDS;
+			if (this.published.get(slot) != next + 1) {
+				continue;
+			}
+			long time = this.entries.get(base + FIELD_TIME);
+			long connectionId = this.entries.get(base + FIELD_CONNECTION_ID);
+			long code = this.entries.get(base + FIELD_CODE);
+			long threadId = this.entries.get(base + FIELD_THREAD_ID);
+			long value = this.entries.get(base + FIELD_VALUE);
+			if (this.published.get(slot) != next + 1) {
+				// overwritten while it was read
+				continue;
+			}
+			out.append(dateFormat.format(new Date(time))).append(" [thread ").append(threadId).append("] ")
+					.append(PoolEventCode.valueOf((int) code));
+			if (connectionId != NO_CONNECTION) {
+				out.append(" connection=").append(connectionId);
+			}
+			if (value != 0L) {
+				out.append(" value=").append(value).append("ns");
+			}
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * @return the events that are still in the buffer, oldest first, one per line
+	 */
+	public String dump() {
+		StringBuilder out = new StringBuilder();
+		this.dump(out);
+		return out.toString();
+	}
+
+	/**
+	 * @return the number of events recorded since the recorder was created, including the ones that were overwritten
+	 */
+	public long getRecordedCount() {
+		return this.sequence.get();
+	}
+
+	@Override
+	public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+		this.record(PoolEventCode.LEASE_TIMED_OUT, connectionId, leaseNanos);
+	}
+
+	@Override
+	public void maintenanceRun(long durationNanos, int invalidConnections) {
+		this.record(PoolEventCode.MAINTENANCE, NO_CONNECTION, durationNanos);
+	}
+
+	/**
+	 * Records one event. Does not allocate.
+	 */
+	public void record(PoolEventCode code, long connectionId, long value) {
+		long next = this.sequence.getAndIncrement();
+		int slot = (int) (next & this.mask);
+		int base = slot * FIELDS;
+
+		// unpublish the slot while it is rewritten
+		this.published.set(slot, 0L);
+		this.entries.lazySet(base + FIELD_TIME, System.currentTimeMillis());
+		this.entries.lazySet(base + FIELD_CONNECTION_ID, connectionId);
+		this.entries.lazySet(base + FIELD_CODE, code.intValue());
+		this.entries.lazySet(base + FIELD_THREAD_ID, Thread.currentThread().getId());
+		this.entries.lazySet(base + FIELD_VALUE, value);
+		this.published.set(slot, next + 1);
+	}
+}
@@ -0,0 +1,33 @@
+package com.cornholio.database.connection.event;
+
+/**
+ * The binary codes of the events kept by the lease flight recorder.
+ * 
+ * @author nikhilagarwal
+ */
+public enum PoolEventCode {
+	BORROWED(0), CREATED(1), DISPOSED(2), ERROR_OCCURRED(3), LEASE_TIMED_OUT(4), LEASED(5), LIMIT_REACHED(6), MAINTENANCE(7), VALIDATED(8),
+	VALIDATION_FAILED(9), WAIT_TIMED_OUT(10), CREATE_FAILED(11);
+
+	private static final PoolEventCode[] CODES = new PoolEventCode[values().length];
+
+	static {
+		for (PoolEventCode code : values()) {
+			CODES[code.intValue()] = code;
+		}
+	}
+
+	private int code;
+
+	PoolEventCode(int code) {
+		this.code = code;
+	}
+
+	public static PoolEventCode valueOf(int code) {
+		return code >= 0 && code < CODES.length ? CODES[code] : null;
+	}
+
+	public int intValue() {
+		return this.code;
+	}
+}
@@ -0,0 +1,33 @@
+package com.cornholio.database.connection.event;
+
+/**
+ * Receives the notable things that happen to a connection pool and its connections so that they can be recorded by a profiler. A recorder belongs to
+ * one pool. All arguments are primitives or strings that already exist, so a recorder that is switched off costs a call and a branch.
+ *
+ * @see PoolEventRecorders
+ * @author nikhilagarwal
+ */
+public interface PoolEventRecorder {
+
+	void connectionBorrowed(long connectionId, long waitNanos, boolean created);
+
+	void connectionCreated(long connectionId, long connectNanos, long initNanos);
+
+	void connectionCreateFailed(long connectNanos);
+
+	void connectionDisposed(long connectionId);
+
+	void connectionErrorOccurred(long connectionId);
+
+	void connectionLeased(long connectionId, long leaseNanos, String borrowSite);
+
+	void connectionLimitReached();
+
+	void connectionValidated(long connectionId, boolean valid);
+
+	void connectionWaitTimedOut(long waitNanos);
+
+	void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite);
+
+	void maintenanceRun(long durationNanos, int invalidConnections);
+}
@@ -0,0 +1,209 @@
+package com.cornholio.database.connection.event;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Creates pool event recorders. The project targets 1.8, where JDK Flight Recorder may not be there, so the JFR backed recorder is loaded
+ * reflectively and only if the jdk.jfr api is present. Otherwise the pool gets a recorder that does nothing.
+ *
+ * @author nikhilagarwal
+ */
+public final class PoolEventRecorders {
+
+	private static final String JFR_FLIGHT_RECORDER_CLASS = "jdk.jfr.FlightRecorder";
+	private static final String JFR_POOL_EVENT_RECORDER_CLASS = "com.cornholio.database.connection.jfr.JfrPoolEventRecorder";
+	private static final String LOG_MESSAGE_JFR_NOT_AVAILABLE = "JDK Flight Recorder is not available. Pool events will not be recorded";
+	private static final PoolEventRecorder NO_OP = new NoOpPoolEventRecorder();
+	private static volatile Boolean jfrAvailable;
+	private static Logger logger;
+
+	private PoolEventRecorders() {
+		super();
+	}
+
+	/**
+	 * @return a recorder that hands every event to both recorders
+	 */
+	public static PoolEventRecorder compose(PoolEventRecorder first, PoolEventRecorder second) {
+		if (first == NO_OP) {
+			return second;
+		} else if (second == NO_OP) {
+			return first;
+		}
+		return new CompositePoolEventRecorder(first, second);
+	}
+
+	/**
+	 * @param poolName
+	 *            the name the events of this pool are tagged with
+	 * @return a JFR backed recorder if JFR is available, else a recorder that does nothing
+	 */
+	public static PoolEventRecorder forPool(String poolName) {
+		if (isJfrAvailable()) {
+			try {
+				return (PoolEventRecorder) Class.forName(JFR_POOL_EVENT_RECORDER_CLASS).getConstructor(String.class).newInstance(poolName);
+			} catch (ReflectiveOperationException | LinkageError e) {
+				getLogger().log(Level.DEBUG, LOG_MESSAGE_JFR_NOT_AVAILABLE, e);
+				jfrAvailable = Boolean.FALSE;
+			}
+		}
+		return NO_OP;
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(PoolEventRecorders.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	private static boolean isJfrAvailable() {
+		if (jfrAvailable == null) {
+			try {
+				Class.forName(JFR_FLIGHT_RECORDER_CLASS);
+				jfrAvailable = Boolean.TRUE;
+			} catch (ClassNotFoundException | LinkageError e) {
+				getLogger().log(Level.DEBUG, LOG_MESSAGE_JFR_NOT_AVAILABLE);
+				jfrAvailable = Boolean.FALSE;
+			}
+		}
+		return jfrAvailable;
+	}
+
+	/**
+	 * @return a recorder that does nothing
+	 */
+	public static PoolEventRecorder noOp() {
+		return NO_OP;
+	}
+
+	/**
+	 * Hands every event to two recorders.
+	 */
+	private static final class CompositePoolEventRecorder implements PoolEventRecorder {
+		private final PoolEventRecorder first;
+		private final PoolEventRecorder second;
+
+		CompositePoolEventRecorder(PoolEventRecorder first, PoolEventRecorder second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+			this.first.connectionBorrowed(connectionId, waitNanos, created);
+			this.second.connectionBorrowed(connectionId, waitNanos, created);
+		}
+
+		@Override
+		public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+			this.first.connectionCreated(connectionId, connectNanos, initNanos);
+			this.second.connectionCreated(connectionId, connectNanos, initNanos);
+		}
+
+		@Override
+		public void connectionCreateFailed(long connectNanos) {
+			this.first.connectionCreateFailed(connectNanos);
+			this.second.connectionCreateFailed(connectNanos);
+		}
+
+		@Override
+		public void connectionDisposed(long connectionId) {
+			this.first.connectionDisposed(connectionId);
+			this.second.connectionDisposed(connectionId);
+		}
+
+		@Override
+		public void connectionErrorOccurred(long connectionId) {
+			this.first.connectionErrorOccurred(connectionId);
+			this.second.connectionErrorOccurred(connectionId);
+		}
+
+		@Override
+		public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+			this.first.connectionLeased(connectionId, leaseNanos, borrowSite);
+			this.second.connectionLeased(connectionId, leaseNanos, borrowSite);
+		}
+
+		@Override
+		public void connectionLimitReached() {
+			this.first.connectionLimitReached();
+			this.second.connectionLimitReached();
+		}
+
+		@Override
+		public void connectionValidated(long connectionId, boolean valid) {
+			this.first.connectionValidated(connectionId, valid);
+			this.second.connectionValidated(connectionId, valid);
+		}
+
+		@Override
+		public void connectionWaitTimedOut(long waitNanos) {
+			this.first.connectionWaitTimedOut(waitNanos);
+			this.second.connectionWaitTimedOut(waitNanos);
+		}
+
+		@Override
+		public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+			this.first.leaseTimedOut(connectionId, leaseNanos, borrowSite);
+			this.second.leaseTimedOut(connectionId, leaseNanos, borrowSite);
+		}
+
+		@Override
+		public void maintenanceRun(long durationNanos, int invalidConnections) {
+			this.first.maintenanceRun(durationNanos, invalidConnections);
+			this.second.maintenanceRun(durationNanos, invalidConnections);
+		}
+	}
+
+	/**
+	 * The recorder used when there is nothing to record to.
+	 */
+	private static final class NoOpPoolEventRecorder implements PoolEventRecorder {
+
+		@Override
+		public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+		}
+
+		@Override
+		public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+		}
+
+		@Override
+		public void connectionCreateFailed(long connectNanos) {
+		}
+
+		@Override
+		public void connectionDisposed(long connectionId) {
+		}
+
+		@Override
+		public void connectionErrorOccurred(long connectionId) {
+		}
+
+		@Override
+		public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+		}
+
+		@Override
+		public void connectionLimitReached() {
+		}
+
+		@Override
+		public void connectionValidated(long connectionId, boolean valid) {
+		}
+
+		@Override
+		public void connectionWaitTimedOut(long waitNanos) {
+		}
+
+		@Override
+		public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+		}
+
+		@Override
+		public void maintenanceRun(long durationNanos, int invalidConnections) {
+		}
+	}
+}
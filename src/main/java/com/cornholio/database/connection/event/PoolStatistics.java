@@ -0,0 +1,219 @@
+package com.cornholio.database.connection.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the events of one pool with lock-free counters and histograms, so that monitoring can read them at any time without touching the pool
+ * monitor or the idle queue. All durations are in nanoseconds.
+ *
+ * @author nikhilagarwal
+ */
+public class PoolStatistics implements PoolEventRecorder {
+
+	private final LongAdder borrowCount;
+	private final LongAdder connectBorrowCount;
+	private final LatencyHistogram connectTimes;
+	private final LatencyHistogram initTimes;
+	private final LongAdder createCount;
+	private final LongAdder createFailedCount;
+	private final LongAdder disposeCount;
+	private final LongAdder errorCount;
+	private final AtomicLong lastMaintenanceNanos;
+	private final LatencyHistogram leaseTimes;
+	private final LongAdder leaseTimeOutCount;
+	private final LongAdder limitReachedCount;
+	private final LongAdder maintenanceCount;
+	private final AtomicLong maxMaintenanceNanos;
+	private final LongAdder totalMaintenanceNanos;
+	private final LongAdder validationFailedCount;
+	private final LatencyHistogram waitTimes;
+	private final LongAdder waitTimeOutCount;
+
+	public PoolStatistics() {
+		super();
+		this.borrowCount = new LongAdder();
+		this.connectBorrowCount = new LongAdder();
+		this.connectTimes = new LatencyHistogram();
+		this.initTimes = new LatencyHistogram();
+		this.createCount = new LongAdder();
+		this.createFailedCount = new LongAdder();
+		this.disposeCount = new LongAdder();
+		this.errorCount = new LongAdder();
+		this.lastMaintenanceNanos = new AtomicLong();
+		this.leaseTimes = new LatencyHistogram();
+		this.leaseTimeOutCount = new LongAdder();
+		this.limitReachedCount = new LongAdder();
+		this.maintenanceCount = new LongAdder();
+		this.maxMaintenanceNanos = new AtomicLong();
+		this.totalMaintenanceNanos = new LongAdder();
+		this.validationFailedCount = new LongAdder();
+		this.waitTimes = new LatencyHistogram();
+		this.waitTimeOutCount = new LongAdder();
+	}
+
+	@Override
+	public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+		this.borrowCount.increment();
+		if (created) {
+			this.connectBorrowCount.increment();
+		}
+		this.waitTimes.record(waitNanos);
+	}
+
+	@Override
+	public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+		this.createCount.increment();
+		this.connectTimes.record(connectNanos);
+		this.initTimes.record(initNanos);
+	}
+
+	@Override
+	public void connectionCreateFailed(long connectNanos) {
+		this.createFailedCount.increment();
+	}
+
+	@Override
+	public void connectionDisposed(long connectionId) {
+		this.disposeCount.increment();
+	}
+
+	@Override
+	public void connectionErrorOccurred(long connectionId) {
+		this.errorCount.increment();
+	}
+
+	@Override
+	public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+		this.leaseTimes.record(leaseNanos);
+	}
+
+	@Override
+	public void connectionLimitReached() {
+		this.limitReachedCount.increment();
+	}
+
+	@Override
+	public void connectionValidated(long connectionId, boolean valid) {
+		if (!valid) {
+			this.validationFailedCount.increment();
+		}
+	}
+
+	@Override
+	public void connectionWaitTimedOut(long waitNanos) {
+		this.waitTimeOutCount.increment();
+	}
+
+	public long getBorrowCount() {
+		return this.borrowCount.sum();
+	}
+
+	/**
+	 * @return the number of borrows that had to wait while a connection was established for them
+	 */
+	public long getConnectBorrowCount() {
+		return this.connectBorrowCount.sum();
+	}
+
+	/**
+	 * @return the fraction of borrows that found a connection without waiting for one to be established, or 1 if nothing was borrowed yet
+	 */
+	public double getConnectFreeBorrowRatio() {
+		long borrowCount = this.borrowCount.sum();
+		return borrowCount == 0 ? 1D : 1D - (double) this.connectBorrowCount.sum() / borrowCount;
+	}
+
+	/**
+	 * @return the time it took to establish the connections created by the pool
+	 */
+	public LatencyHistogram getConnectTimes() {
+		return connectTimes;
+	}
+
+	public long getCreateCount() {
+		return this.createCount.sum();
+	}
+
+	public long getCreateFailedCount() {
+		return this.createFailedCount.sum();
+	}
+
+	public long getDisposeCount() {
+		return this.disposeCount.sum();
+	}
+
+	public long getErrorCount() {
+		return this.errorCount.sum();
+	}
+
+	/**
+	 * @return the time the init pipeline took on the connections created by the pool, apart from the time to establish them
+	 */
+	public LatencyHistogram getInitTimes() {
+		return initTimes;
+	}
+
+	public long getLastMaintenanceNanos() {
+		return this.lastMaintenanceNanos.get();
+	}
+
+	/**
+	 * @return the time connections were held by their borrowers, including the leases that timed out
+	 */
+	public LatencyHistogram getLeaseTimes() {
+		return leaseTimes;
+	}
+
+	public long getLeaseTimeOutCount() {
+		return this.leaseTimeOutCount.sum();
+	}
+
+	public long getLimitReachedCount() {
+		return this.limitReachedCount.sum();
+	}
+
+	public long getMaintenanceCount() {
+		return this.maintenanceCount.sum();
+	}
+
+	public long getMaxMaintenanceNanos() {
+		return this.maxMaintenanceNanos.get();
+	}
+
+	public long getTotalMaintenanceNanos() {
+		return this.totalMaintenanceNanos.sum();
+	}
+
+	public long getValidationFailedCount() {
+		return this.validationFailedCount.sum();
+	}
+
+	/**
+	 * @return the time borrowers waited for a connection, including the time it took to establish a new one
+	 */
+	public LatencyHistogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	public long getWaitTimeOutCount() {
+		return this.waitTimeOutCount.sum();
+	}
+
+	@Override
+	public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+		this.leaseTimeOutCount.increment();
+		this.leaseTimes.record(leaseNanos);
+	}
+
+	@Override
+	public void maintenanceRun(long durationNanos, int invalidConnections) {
+		this.maintenanceCount.increment();
+		this.totalMaintenanceNanos.add(durationNanos);
+		this.lastMaintenanceNanos.set(durationNanos);
+		long max = this.maxMaintenanceNanos.get();
+		while (durationNanos > max && !this.maxMaintenanceNanos.compareAndSet(max, durationNanos)) {
+			max = this.maxMaintenanceNanos.get();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.cornholio.database.connection.event;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs one message at most once per interval, with the number of times it happened since the last line. Occurrences in between only bump a counter,
+ * so a burst of limit hits or timeouts under stress costs an atomic increment each instead of a formatted log line each. The occurrences counted
+ * after the last line are reported by the next occurrence, or by flush once the interval has passed, so the tail of a burst is not lost.
+ *
+ * @author nikhilagarwal
+ */
+public class RateLimitedLogger {
+
+	private final AtomicLong count;
+	private final long intervalNanos;
+	private final AtomicLong lastLogNanos;
+	private final Level level;
+	private final Logger logger;
+	private final String message;
+
+	/**
+	 * @param logger
+	 * @param level
+	 * @param message
+	 *            the constant message to log
+	 * @param interval
+	 *            the minimum time between two log lines in milliseconds
+	 */
+	public RateLimitedLogger(Logger logger, Level level, String message, long interval) {
+		super();
+		this.logger = logger;
+		this.level = level;
+		this.message = message;
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+		this.count = new AtomicLong();
+
+		// the first occurrence is logged right away
+		this.lastLogNanos = new AtomicLong(System.nanoTime() - this.intervalNanos);
+	}
+
+	/**
+	 * Logs the occurrences counted since the last line if the interval has passed. Called periodically, so that the last occurrences of a burst are
+	 * reported even if nothing happens afterwards.
+	 *
+	 * @return true if a line was logged by this call
+	 */
+	public boolean flush() {
+		if (this.count.get() == 0L) {
+			return false;
+		}
+		return this.tryLog();
+	}
+
+	/**
+	 * Counts one occurrence and logs the aggregated line if the interval has passed.
+	 *
+	 * @return true if a line was logged by this call
+	 */
+	public boolean log() {
+		this.count.incrementAndGet();
+		return this.tryLog();
+	}
+
+	private boolean tryLog() {
+		long now = System.nanoTime();
+		long last = this.lastLogNanos.get();
+		if (now - last < this.intervalNanos || !this.lastLogNanos.compareAndSet(last, now)) {
+			return false;
+		}
+		long occurrences = this.count.getAndSet(0L);
+		if (occurrences == 0L || !this.logger.isEnabledFor(this.level)) {
+			return false;
+		}
+		this.logger.log(this.level, this.message + " (" + occurrences + " times in the last " + TimeUnit.NANOSECONDS.toMillis(now - last) + " ms)");
+		return true;
+	}
+}
@@ -19,92 +19,92 @@ public class AbstractConnectionDecorator implements Connection {
 	// overridden methods that just do whatever a connection is supposed to do
 	@Override
 	public void abort(Executor executor) throws SQLException {
-		connection.abort(executor);
+		delegate().abort(executor);
 	}
 
 	@Override
 	public void clearWarnings() throws SQLException {
-		connection.clearWarnings();
+		delegate().clearWarnings();
 	}
 
 	@Override
 	public void close() throws SQLException {
-		connection.close();
+		delegate().close();
 	}
 
 	@Override
 	public void commit() throws SQLException {
-		connection.commit();
+		delegate().commit();
 	}
 
 	@Override
 	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
-		return connection.createArrayOf(typeName, elements);
+		return delegate().createArrayOf(typeName, elements);
 	}
 
 	@Override
 	public Blob createBlob() throws SQLException {
-		return connection.createBlob();
+		return delegate().createBlob();
 	}
 
 	@Override
 	public Clob createClob() throws SQLException {
-		return connection.createClob();
+		return delegate().createClob();
 	}
 
 	@Override
 	public NClob createNClob() throws SQLException {
-		return connection.createNClob();
+		return delegate().createNClob();
 	}
 
 	@Override
 	public SQLXML createSQLXML() throws SQLException {
-		return connection.createSQLXML();
+		return delegate().createSQLXML();
 	}
 
 	@Override
 	public Statement createStatement() throws SQLException {
-		return connection.createStatement();
+		return delegate().createStatement();
 	}
 
 	@Override
 	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
-		return connection.createStatement(resultSetType, resultSetConcurrency);
+		return delegate().createStatement(resultSetType, resultSetConcurrency);
 	}
 
 	@Override
 	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-		return connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+		return delegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
 	}
 
 	@Override
 	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
-		return connection.createStruct(typeName, attributes);
+		return delegate().createStruct(typeName, attributes);
 	}
 
 	@Override
 	public boolean getAutoCommit() throws SQLException {
-		return connection.getAutoCommit();
+		return delegate().getAutoCommit();
 	}
 
 	@Override
 	public void setAutoCommit(boolean autoCommit) throws SQLException {
-		connection.setAutoCommit(autoCommit);
+		delegate().setAutoCommit(autoCommit);
 	}
 
 	@Override
 	public String getCatalog() throws SQLException {
-		return connection.getCatalog();
+		return delegate().getCatalog();
 	}
 
 	@Override
 	public void setCatalog(String catalog) throws SQLException {
-		connection.setCatalog(catalog);
+		delegate().setCatalog(catalog);
 	}
 
 	@Override
 	public Properties getClientInfo() throws SQLException {
-		return connection.getClientInfo();
+		return delegate().getClientInfo();
 	}
 
 	@Override
@@ -114,7 +114,19 @@ public class AbstractConnectionDecorator implements Connection {
 
 	@Override
 	public String getClientInfo(String name) throws SQLException {
-		return connection.getClientInfo(name);
+		return delegate().getClientInfo(name);
+	}
+
+	/**
+	 * The connection every call is handed to. Subclasses override this to refuse calls, e.g. after the connection was taken away from its
+	 * borrower.
+	 *
+	 * @return the decorated connection
+	 * @throws SQLException
+	 *             if the call must not reach the decorated connection
+	 */
+	protected Connection delegate() throws SQLException {
+		return connection;
 	}
 
 	protected Connection getConnection() {
@@ -127,147 +139,147 @@ public class AbstractConnectionDecorator implements Connection {
 
 	@Override
 	public int getHoldability() throws SQLException {
-		return connection.getHoldability();
+		return delegate().getHoldability();
 	}
 
 	@Override
 	public void setHoldability(int holdability) throws SQLException {
-		connection.setHoldability(holdability);
+		delegate().setHoldability(holdability);
 	}
 
 	@Override
 	public DatabaseMetaData getMetaData() throws SQLException {
-		return connection.getMetaData();
+		return delegate().getMetaData();
 	}
 
 	@Override
 	public int getNetworkTimeout() throws SQLException {
-		return connection.getNetworkTimeout();
+		return delegate().getNetworkTimeout();
 	}
 
 	@Override
 	public String getSchema() throws SQLException {
-		return connection.getSchema();
+		return delegate().getSchema();
 	}
 
 	@Override
 	public void setSchema(String schema) throws SQLException {
-		connection.setSchema(schema);
+		delegate().setSchema(schema);
 	}
 
 	@Override
 	public int getTransactionIsolation() throws SQLException {
-		return connection.getTransactionIsolation();
+		return delegate().getTransactionIsolation();
 	}
 
 	@Override
 	public void setTransactionIsolation(int level) throws SQLException {
-		connection.setTransactionIsolation(level);
+		delegate().setTransactionIsolation(level);
 	}
 
 	@Override
 	public Map<String, Class<?>> getTypeMap() throws SQLException {
-		return connection.getTypeMap();
+		return delegate().getTypeMap();
 	}
 
 	@Override
 	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
-		connection.setTypeMap(map);
+		delegate().setTypeMap(map);
 	}
 
 	@Override
 	public SQLWarning getWarnings() throws SQLException {
-		return connection.getWarnings();
+		return delegate().getWarnings();
 	}
 
 	@Override
 	public boolean isClosed() throws SQLException {
-		return connection.isClosed();
+		return delegate().isClosed();
 	}
 
 	@Override
 	public boolean isReadOnly() throws SQLException {
-		return connection.isReadOnly();
+		return delegate().isReadOnly();
 	}
 
 	@Override
 	public void setReadOnly(boolean readOnly) throws SQLException {
-		connection.setReadOnly(readOnly);
+		delegate().setReadOnly(readOnly);
 	}
 
 	@Override
 	public boolean isValid(int timeout) throws SQLException {
-		return connection.isValid(timeout);
+		return delegate().isValid(timeout);
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
-		return connection.isWrapperFor(iface);
+		return delegate().isWrapperFor(iface);
 	}
 
 	@Override
 	public String nativeSQL(String sql) throws SQLException {
-		return connection.nativeSQL(sql);
+		return delegate().nativeSQL(sql);
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql) throws SQLException {
-		return connection.prepareCall(sql);
+		return delegate().prepareCall(sql);
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-		return connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+		return delegate().prepareCall(sql, resultSetType, resultSetConcurrency);
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-		return connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+		return delegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql) throws SQLException {
-		return connection.prepareStatement(sql);
+		return delegate().prepareStatement(sql);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-		return connection.prepareStatement(sql, autoGeneratedKeys);
+		return delegate().prepareStatement(sql, autoGeneratedKeys);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-		return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+		return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-		return connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+		return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-		return connection.prepareStatement(sql, columnIndexes);
+		return delegate().prepareStatement(sql, columnIndexes);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-		return connection.prepareStatement(sql, columnNames);
+		return delegate().prepareStatement(sql, columnNames);
 	}
 
 	@Override
 	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
-		connection.releaseSavepoint(savepoint);
+		delegate().releaseSavepoint(savepoint);
 	}
 
 	@Override
 	public void rollback() throws SQLException {
-		connection.rollback();
+		delegate().rollback();
 	}
 
 	@Override
 	public void rollback(Savepoint savepoint) throws SQLException {
-		connection.rollback(savepoint);
+		delegate().rollback(savepoint);
 	}
 
 	@Override
@@ -278,17 +290,17 @@ public class AbstractConnectionDecorator implements Connection {
 
 	@Override
 	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
-		connection.setNetworkTimeout(executor, milliseconds);
+		delegate().setNetworkTimeout(executor, milliseconds);
 	}
 
 	@Override
 	public Savepoint setSavepoint() throws SQLException {
-		return connection.setSavepoint();
+		return delegate().setSavepoint();
 	}
 
 	@Override
 	public Savepoint setSavepoint(String name) throws SQLException {
-		return connection.setSavepoint(name);
+		return delegate().setSavepoint(name);
 	}
 
 	@Override
@@ -298,6 +310,6 @@ public class AbstractConnectionDecorator implements Connection {
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
-		return connection.unwrap(iface);
+		return delegate().unwrap(iface);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.cornholio.database.connection.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The proxy behind a statement handed out during a lease whose statements are tracked. Closing the statement takes it off the lease's statements,
+ * so that a long lease that opens and closes many statements does not hold on to them; every other method goes straight to the driver's
+ * statement.
+ *
+ * @author nikhilagarwal
+ */
+class LeaseStatementHandler implements InvocationHandler {
+
+	private static final String METHOD_CLOSE = "close";
+	private final List<Statement> leaseStatements;
+	private final Statement statement;
+
+	LeaseStatementHandler(Statement statement, List<Statement> leaseStatements) {
+		super();
+		this.statement = statement;
+		this.leaseStatements = leaseStatements;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		Object result;
+		try {
+			result = method.invoke(this.statement, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+		if (METHOD_CLOSE.equals(method.getName()) && method.getParameterCount() == 0) {
+			synchronized (this.leaseStatements) {
+				this.leaseStatements.remove(this.statement);
+			}
+		}
+		return result;
+	}
+}
@@ -1,71 +1,265 @@
 package com.cornholio.database.connection.impl;
 
 import com.cornholio.database.connection.ConnectionState;
+import com.cornholio.database.connection.SessionProperty;
 import com.cornholio.database.connection.event.ConnectionEvent;
 import com.cornholio.database.connection.event.ConnectionEventListener;
+import com.cornholio.database.connection.event.PoolEventRecorder;
+import com.cornholio.database.connection.event.PoolEventRecorders;
+import com.cornholio.database.connection.profile.StatementProfiler;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * A wrapper around connection/connection decorator. This connection implementation has overridden methods to keep track of the connection state and
  * connection events. The connection state is maintained so that connections may be recycled. Connection events like timeouts and connection close are
  * handled.
+ * <p>
+ * A borrow and return does not allocate: the lease is kept in preallocated fields of the connection, the connection reuses one connection event,
+ * and the lease time out is a deadline that the pool's lease reaper checks instead of a timer per lease.
+ * <p>
+ * The session getters (autocommit, isolation, catalog, schema, read only, holdability) and the database meta data can be served from a cache that
+ * lives as long as the physical connection, so that code asking for them on every borrow does not go to the server each time. The cache is kept
+ * current by the setters of this connection.
  * 
  * @author nikhilagarwal
  */
 public class PooledConnectionImpl extends AbstractConnectionDecorator {
+	private static final String CONNECTION_PACKAGE = "com.cornholio.database.connection.";
+	private static final String CONNECTION_POOL_PACKAGE = "com.cornholio.database.connectionpool";
+	private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+	private static final String LOG_MESSAGE_ABORT_FAILED = "Timed out connection could not be aborted";
+	private static final String LOG_MESSAGE_CONNECTION_DISPOSED = "Connection is disposed";
 	private static final String LOG_MESSAGE_CONNECTION_INVALIDATED = "Connection invalidated";
-	private static Logger logger;
+	private static final String LOG_MESSAGE_LEASE_ABORTED = "The lease of this connection timed out and the connection was aborted";
+	private static final String LOG_MESSAGE_STATEMENT_CANCEL_FAILED = "Statement of a timed out lease could not be cancelled";
+	private static final Logger logger = Logger.getLogger(PooledConnectionImpl.class.getSimpleName());
+	private final long id;
+	private Throwable borrowSite;
+	private final ConnectionEvent connectionEvent;
+	private final long createdNanos;
 	private ConnectionEventListener connectionEventListener;
 	private ConnectionState connectionState;
-	private TimerTask timerTask;
+	private volatile boolean fenced;
+	private int generation;
+	private String host;
+	private volatile long idleSinceNanos;
+	private volatile long leaseDeadline;
+	private long leaseNumber;
+	private List<Statement> leaseStatements;
+	private long leaseStartNanos;
+	private Thread leaseThread;
+	private PoolEventRecorder poolEventRecorder;
+	private Consumer<String> preparedStatementListener;
+	private boolean recordBorrowSite;
+	private volatile boolean retiring;
+	private boolean scoped;
+	private volatile String sessionContext;
+	private SessionStateCache sessionStateCache;
+	private StatementProfiler statementProfiler;
+
 	public PooledConnectionImpl(Connection connection) {
+		this.id = ID_SEQUENCE.incrementAndGet();
+		this.createdNanos = System.nanoTime();
+		this.idleSinceNanos = this.createdNanos;
+		this.connectionEvent = new ConnectionEvent(this);
+		this.poolEventRecorder = PoolEventRecorders.noOp();
 		this.setConnection(connection);
-		this.setConnectionState(ConnectionState.OPEN);
-		this.setTimerTask(new PooledConnectionTimerTask());
+
+		// a new connection is idle until the pool hands it out, so that it can be disposed like any other idle connection
+		this.setConnectionState(ConnectionState.CLOSED);
 	}
 
 	private static Logger getLogger() {
-		if (logger == null) {
-			logger = Logger.getLogger(PooledConnectionImpl.class.getSimpleName());
-		}
 		return logger;
 	}
 
+	/**
+	 * Takes the connection away from a borrower whose lease timed out. The statements of the lease are cancelled, this connection is fenced so that
+	 * every later call on it fails fast, and the physical connection is aborted on the executor. The connection is never recycled after this.
+	 *
+	 * @param executor
+	 *            the executor the physical connection is aborted on
+	 */
+	public void abortLease(Executor executor) {
+		Connection connection;
+		List<Statement> statements;
+		synchronized (this) {
+			if (this.fenced || this.isDisposed()) {
+				return;
+			}
+			this.fenced = true;
+			this.setConnectionState(ConnectionState.DISPOSED);
+			this.leaseDeadline = 0L;
+			connection = this.getConnection();
+			this.setConnection(null);
+			this.clearSessionState();
+			statements = this.takeLeaseStatements();
+		}
+
+		// cancel the statements first so that the borrower's thread is not left waiting on the database while the connection is aborted
+		for (Statement statement : statements) {
+			try {
+				statement.cancel();
+			} catch (SQLException | RuntimeException e) {
+				getLogger().log(Level.DEBUG, LOG_MESSAGE_STATEMENT_CANCEL_FAILED, e);
+			}
+		}
+		try {
+			connection.abort(executor);
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_ABORT_FAILED, e);
+		}
+		this.getPoolEventRecorder().connectionDisposed(this.getId());
+	}
+
+	/**
+	 * Binds the current lease to a connection scope. A bound lease ignores close until the scope releases it; the next lease starts unbound.
+	 *
+	 * @return the number of the lease, which the scope passes to isLease and closeLease
+	 */
+	public synchronized long bindScope() {
+		this.scoped = true;
+		return this.leaseNumber;
+	}
+
 	/**
 	 * Doesn't really close the connection. Just mark's it as closed so that it can be recycled. Only the connection pool can close the connection.
-	 * The dispose method is the one you're looking for.
+	 * The dispose method is the one you're looking for. While the connection is bound to a connection scope, closing it does nothing; the pool
+	 * releases it when the scope ends.
 	 */
 	@Override
 	public synchronized void close() throws SQLException {
 
 		// don't close the connection. just mark the state as closed and put it in the pool
-		if (this.isOpen()) {
+		if (this.isOpen() && !this.scoped) {
 			this.setConnectionState(ConnectionState.CLOSED);
-			ConnectionEvent event = new ConnectionEvent(this);
-			this.getConnectionEventListener().connectionClosed(event);
+			this.leaseDeadline = 0L;
+			this.clearLeaseStatements();
+			this.idleSinceNanos = System.nanoTime();
+			this.getPoolEventRecorder().connectionLeased(this.getId(), this.idleSinceNanos - this.leaseStartNanos, this.describeBorrowSite());
+			this.getConnectionEventListener().connectionClosed(this.connectionEvent);
 		}
 	}
 
+	/**
+	 * Closes the given lease, unbinding it from its connection scope if it has one. Does nothing if that lease already ended, so that a holder whose
+	 * lease timed out never closes the lease of the next borrower.
+	 *
+	 * @param leaseNumber
+	 *            the number getLeaseNumber (or bindScope) returned during the lease
+	 * @throws SQLException
+	 */
+	public synchronized void closeLease(long leaseNumber) throws SQLException {
+		if (this.leaseNumber == leaseNumber) {
+			this.scoped = false;
+			this.close();
+		}
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		Statement statement = super.createStatement();
+		return this.handOut(statement, null);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		Statement statement = super.createStatement(resultSetType, resultSetConcurrency);
+		return this.handOut(statement, null);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		Statement statement = super.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+		return this.handOut(statement, null);
+	}
+
 	/**
 	 * Actually close the connection. Mark it as disposed so that this is not recycled.
 	 *
 	 * @throws SQLException
 	 */
 	public synchronized void dispose() throws SQLException {
-		if (!this.isOpen()) {
+		if (!this.isOpen() && !this.isDisposed()) {
 			this.setConnectionState(ConnectionState.DISPOSED);
-			if (this.getTimerTask() != null) {
-				this.getTimerTask().cancel();
-			}
+			this.leaseDeadline = 0L;
 			this.getConnection().close();
 			this.setConnection(null);
+			this.clearSessionState();
+			this.getPoolEventRecorder().connectionDisposed(this.getId());
+		}
+	}
+
+	/**
+	 * Refuses every call once the lease was aborted. The physical connection is taken away right after the lease is fenced, so a call that races
+	 * with the abort may find no connection even though it saw no fence.
+	 */
+	@Override
+	protected Connection delegate() throws SQLException {
+		Connection connection = super.delegate();
+		if (this.fenced) {
+			throw new SQLException(LOG_MESSAGE_LEASE_ABORTED);
+		}
+		if (connection == null) {
+			throw new SQLException(LOG_MESSAGE_CONNECTION_DISPOSED);
+		}
+		return connection;
+	}
+
+	/**
+	 * Describes the code that borrowed this connection: the first stack frame of the borrow that is outside of the pool itself.
+	 *
+	 * @return the borrow site or null if borrow sites are not recorded
+	 */
+	private String describeBorrowSite() {
+		if (this.borrowSite == null) {
+			return null;
 		}
+		for (StackTraceElement element : this.borrowSite.getStackTrace()) {
+			String className = element.getClassName();
+			int packageEnd = className.lastIndexOf('.');
+			String packageName = packageEnd < 0 ? "" : className.substring(0, packageEnd);
+			if (!className.startsWith(CONNECTION_PACKAGE) && !CONNECTION_POOL_PACKAGE.equals(packageName)) {
+				return element.toString();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Describes the current lease of this connection: how long it has been leased, to which thread and, if borrow sites are recorded, from where.
+	 *
+	 * @return the lease description or null if the connection is not leased
+	 */
+	public synchronized String describeLease() {
+		if (!this.isOpen()) {
+			return null;
+		}
+		StringBuilder lease = new StringBuilder("connection=").append(this.getId()).append(" leased for ")
+				.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.leaseStartNanos)).append(" ms by thread ")
+				.append(this.leaseThread.getName());
+		String borrowSite = this.describeBorrowSite();
+		if (borrowSite != null) {
+			lease.append(" at ").append(borrowSite);
+		}
+		return lease.toString();
 	}
 
 	public ConnectionEventListener getConnectionEventListener() {
@@ -76,6 +270,49 @@ public class PooledConnectionImpl extends AbstractConnectionDecorator {
 		this.connectionEventListener = connectionEventListener;
 	}
 
+	/**
+	 * @return the System.nanoTime at which the physical connection was established
+	 */
+	public long getCreatedNanos() {
+		return createdNanos;
+	}
+
+	/**
+	 * @return the System.nanoTime at which the connection was last returned to the pool, or was established if it was never leased
+	 */
+	public long getIdleSinceNanos() {
+		return idleSinceNanos;
+	}
+
+	/**
+	 * @return the generation of the pool's data source this connection was established on
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	public void setGeneration(int generation) {
+		this.generation = generation;
+	}
+
+	/**
+	 * @return the backend host this connection is connected to, or null if it is not known
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	/**
+	 * @return the id of this connection. Ids are unique within the jvm and are used to correlate recorded pool events
+	 */
+	public long getId() {
+		return id;
+	}
+
 	private ConnectionState getConnectionState() {
 		return connectionState;
 	}
@@ -84,12 +321,118 @@ public class PooledConnectionImpl extends AbstractConnectionDecorator {
 		this.connectionState = connectionState;
 	}
 
-	private TimerTask getTimerTask() {
-		return timerTask;
+	public PoolEventRecorder getPoolEventRecorder() {
+		return poolEventRecorder;
+	}
+
+	public void setPoolEventRecorder(PoolEventRecorder poolEventRecorder) {
+		this.poolEventRecorder = poolEventRecorder;
+	}
+
+	/**
+	 * @return the session context (a tenant, a role) the session of this connection was set up for, or null if it was not set up for any
+	 */
+	public String getSessionContext() {
+		return sessionContext;
+	}
+
+	public void setSessionContext(String sessionContext) {
+		this.sessionContext = sessionContext;
 	}
 
-	private void setTimerTask(TimerTask timerTask) {
-		this.timerTask = timerTask;
+	/**
+	 * Keeps track of the statements created during a lease so that they can be cancelled if the lease is aborted.
+	 *
+	 * @param abortTimedOutLeases
+	 */
+	public void setAbortTimedOutLeases(boolean abortTimedOutLeases) {
+		this.leaseStatements = abortTimedOutLeases ? new ArrayList<>() : null;
+	}
+
+	/**
+	 * Serves the given session properties from a cache instead of asking the driver every time. Leave out the properties the driver can change on the
+	 * server side. An empty set (or null) turns the cache off.
+	 *
+	 * @param sessionCache
+	 */
+	public void setSessionCache(Set<SessionProperty> sessionCache) {
+		this.sessionStateCache = sessionCache == null || sessionCache.isEmpty() ? null : new SessionStateCache(sessionCache);
+	}
+
+	/**
+	 * Tells the listener the sql of every statement prepared (or call prepared) through this connection.
+	 *
+	 * @param preparedStatementListener
+	 */
+	public void setPreparedStatementListener(Consumer<String> preparedStatementListener) {
+		this.preparedStatementListener = preparedStatementListener;
+	}
+
+	/**
+	 * Profiles the statements created through this connection. Without a profiler (the default) the driver's statements are handed out as they are.
+	 *
+	 * @param statementProfiler
+	 */
+	public void setStatementProfiler(StatementProfiler statementProfiler) {
+		this.statementProfiler = statementProfiler;
+	}
+
+	/**
+	 * When set, the stack of every borrow is captured so that lease and lease timeout events can tell where the connection was borrowed. Capturing a
+	 * stack is expensive; leave this off unless you are hunting a leak.
+	 *
+	 * @param recordBorrowSite
+	 */
+	public void setRecordBorrowSite(boolean recordBorrowSite) {
+		this.recordBorrowSite = recordBorrowSite;
+	}
+
+	/**
+	 * @return the System.nanoTime at which the current lease times out, or 0 if the connection is not leased or the lease never times out. Read
+	 *         without locking the connection
+	 */
+	public long getLeaseDeadline() {
+		return leaseDeadline;
+	}
+
+	/**
+	 * @return the number of the current lease, or of the last one if the connection is not leased. Every lease gets a new number
+	 */
+	public synchronized long getLeaseNumber() {
+		return leaseNumber;
+	}
+
+	/**
+	 * Times the current lease out if its deadline has passed. Called by the lease reaper of the pool; the deadline is checked again under the lock of
+	 * the connection, so a lease that was returned (or returned and borrowed again) in the meantime is left alone.
+	 *
+	 * @param now
+	 *            the System.nanoTime of the check
+	 * @return true if the lease was timed out
+	 * @throws SQLException
+	 */
+	public synchronized boolean expireLease(long now) throws SQLException {
+		long deadline = this.leaseDeadline;
+		if (deadline == 0L || now - deadline < 0L || !this.isOpen()) {
+			return false;
+		}
+		this.timeout();
+		return true;
+	}
+
+	/**
+	 * Brings the deadline of the current lease forward. A later deadline than the current one is ignored.
+	 *
+	 * @param deadline
+	 *            the System.nanoTime at which the lease should time out
+	 * @return true if the deadline was brought forward
+	 */
+	public synchronized boolean shortenLeaseDeadline(long deadline) {
+		if (!this.isOpen() || (this.leaseDeadline != 0L && deadline - this.leaseDeadline >= 0L)) {
+			return false;
+		}
+		this.leaseDeadline = deadline == 0L ? 1L : deadline;
+		return true;
 	}
 
 	/**
@@ -101,24 +444,51 @@ public class PooledConnectionImpl extends AbstractConnectionDecorator {
 		if (!ConnectionState.ERROR_OCCURED.equals(this.getConnectionState())) {
 			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_INVALIDATED);
 			this.setConnectionState(ConnectionState.ERROR_OCCURED);
-			ConnectionEvent event = new ConnectionEvent(this);
-			this.getConnectionEventListener().connectionErrorOccurred(event);
+			this.getPoolEventRecorder().connectionErrorOccurred(this.getId());
+			this.getConnectionEventListener().connectionErrorOccurred(this.connectionEvent);
 		}
 	}
 
 	@Override
 	public synchronized boolean isClosed() {
-		return ConnectionState.CLOSED.equals(this.getConnectionState());
+		return this.fenced || ConnectionState.CLOSED.equals(this.getConnectionState());
+	}
+
+	/**
+	 * @return true if the lease of this connection timed out and the connection was aborted
+	 */
+	public boolean isFenced() {
+		return fenced;
 	}
 
 	public synchronized boolean isDisposed() {
 		return ConnectionState.DISPOSED.equals(this.getConnectionState());
 	}
 
+	/**
+	 * @param leaseNumber
+	 *            the number getLeaseNumber (or bindScope) returned during the lease
+	 * @return true if the connection is still open under that lease, false if the lease ended and the connection may have been leased again
+	 */
+	public synchronized boolean isLease(long leaseNumber) {
+		return this.isOpen() && this.leaseNumber == leaseNumber;
+	}
+
 	public synchronized boolean isOpen() {
 		return ConnectionState.OPEN.equals(this.getConnectionState());
 	}
 
+	/**
+	 * @return true if the connection is being drained: it is disposed instead of recycled when it is returned
+	 */
+	public boolean isRetiring() {
+		return retiring;
+	}
+
+	public void setRetiring(boolean retiring) {
+		this.retiring = retiring;
+	}
+
 	public synchronized boolean isTimedOut() {
 		return ConnectionState.TIMED_OUT.equals(this.getConnectionState());
 	}
@@ -141,29 +511,299 @@ public class PooledConnectionImpl extends AbstractConnectionDecorator {
 
 	/**
 	 * Mark the connection as open and set a timeout on it. That timeout will be used to close the connection is it has been in use by a thread for
-	 * too long.
+	 * too long. The lease reaper of the pool times the lease out once its deadline has passed.
 	 *
 	 * @param delay
+	 *            the lease time out in milliseconds. A lease with a delay of 0 never times out
 	 * @throws SQLException
 	 */
-	public synchronized void open(Long delay) throws SQLException {
+	public synchronized void open(long delay) throws SQLException {
 		if (!this.isOpen()) {
 			this.setConnectionState(ConnectionState.OPEN);
 		}
-		this.setTimerTask(new PooledConnectionTimerTask());
-		this.startTimer(delay);
+		this.leaseStartNanos = System.nanoTime();
+		this.leaseNumber++;
+		this.scoped = false;
+		this.clearLeaseStatements();
+		this.leaseThread = Thread.currentThread();
+		this.borrowSite = this.recordBorrowSite ? new Throwable() : null;
+		this.leaseDeadline = delay > 0 ? this.leaseStartNanos + TimeUnit.MILLISECONDS.toNanos(delay) : 0L;
+	}
 
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		CallableStatement statement = super.prepareCall(sql);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		CallableStatement statement = super.prepareCall(sql, resultSetType, resultSetConcurrency);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		CallableStatement statement = super.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql, autoGeneratedKeys);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql, columnIndexes);
+		return this.handOut(statement, sql);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		PreparedStatement statement = super.prepareStatement(sql, columnNames);
+		return this.handOut(statement, sql);
 	}
 
 	/**
-	 * Start the connection time out timer.
-	 *
-	 * @param delay
+	 * @return the session state cache if the property is cached, otherwise null
+	 */
+	private SessionStateCache cacheFor(SessionProperty property) throws SQLException {
+		if (this.fenced) {
+			throw new SQLException(LOG_MESSAGE_LEASE_ABORTED);
+		}
+		SessionStateCache cache = this.sessionStateCache;
+		return cache != null && cache.isEnabled(property) ? cache : null;
+	}
+
+	private void clearSessionState() {
+		if (this.sessionStateCache != null) {
+			this.sessionStateCache.clear();
+		}
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.AUTO_COMMIT);
+		if (cache == null) {
+			return super.getAutoCommit();
+		}
+		if (cache.autoCommit == null) {
+			cache.autoCommit = super.getAutoCommit();
+		}
+		return cache.autoCommit;
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.AUTO_COMMIT);
+		if (cache != null) {
+			// unknown until the driver took it, so that a failed setter is not mistaken for a successful one
+			cache.autoCommit = null;
+		}
+		super.setAutoCommit(autoCommit);
+		if (cache != null) {
+			cache.autoCommit = autoCommit;
+		}
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.CATALOG);
+		if (cache == null) {
+			return super.getCatalog();
+		}
+		if (!cache.catalogKnown) {
+			cache.catalog = super.getCatalog();
+			cache.catalogKnown = true;
+		}
+		return cache.catalog;
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.CATALOG);
+		if (cache != null) {
+			cache.catalogKnown = false;
+		}
+		super.setCatalog(catalog);
+		if (cache != null) {
+			cache.catalog = catalog;
+			cache.catalogKnown = true;
+		}
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.HOLDABILITY);
+		if (cache == null) {
+			return super.getHoldability();
+		}
+		if (cache.holdability == null) {
+			cache.holdability = super.getHoldability();
+		}
+		return cache.holdability;
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.HOLDABILITY);
+		if (cache != null) {
+			cache.holdability = null;
+		}
+		super.setHoldability(holdability);
+		if (cache != null) {
+			cache.holdability = holdability;
+		}
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.METADATA);
+		if (cache == null) {
+			return super.getMetaData();
+		}
+		if (cache.metaData == null) {
+			cache.metaData = super.getMetaData();
+		}
+		return cache.metaData;
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.READ_ONLY);
+		if (cache == null) {
+			return super.isReadOnly();
+		}
+		if (cache.readOnly == null) {
+			cache.readOnly = super.isReadOnly();
+		}
+		return cache.readOnly;
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.READ_ONLY);
+		if (cache != null) {
+			cache.readOnly = null;
+		}
+		super.setReadOnly(readOnly);
+		if (cache != null) {
+			cache.readOnly = readOnly;
+		}
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.SCHEMA);
+		if (cache == null) {
+			return super.getSchema();
+		}
+		if (!cache.schemaKnown) {
+			cache.schema = super.getSchema();
+			cache.schemaKnown = true;
+		}
+		return cache.schema;
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.SCHEMA);
+		if (cache != null) {
+			cache.schemaKnown = false;
+		}
+		super.setSchema(schema);
+		if (cache != null) {
+			cache.schema = schema;
+			cache.schemaKnown = true;
+		}
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.TRANSACTION_ISOLATION);
+		if (cache == null) {
+			return super.getTransactionIsolation();
+		}
+		if (cache.transactionIsolation == null) {
+			cache.transactionIsolation = super.getTransactionIsolation();
+		}
+		return cache.transactionIsolation;
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		SessionStateCache cache = this.cacheFor(SessionProperty.TRANSACTION_ISOLATION);
+		if (cache != null) {
+			cache.transactionIsolation = null;
+		}
+		super.setTransactionIsolation(level);
+		if (cache != null) {
+			cache.transactionIsolation = level;
+		}
+	}
+
+	/**
+	 * Hands a statement of the driver out to the borrower, profiled if statements are profiled and tracked if timed out leases are aborted. A
+	 * tracked statement is wrapped so that it is no longer tracked once it is closed.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends Statement> T handOut(T statement, String sql) {
+		if (sql != null && this.preparedStatementListener != null) {
+			this.preparedStatementListener.accept(sql);
+		}
+		T handedOut = statement;
+		List<Statement> leaseStatements = this.leaseStatements;
+		if (leaseStatements != null) {
+			synchronized (leaseStatements) {
+				leaseStatements.add(statement);
+			}
+			Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+					: statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+			handedOut = (T) Proxy.newProxyInstance(PooledConnectionImpl.class.getClassLoader(), new Class<?>[] { type },
+					new LeaseStatementHandler(statement, leaseStatements));
+		}
+		return this.statementProfiler == null ? handedOut : this.statementProfiler.profile(handedOut, sql);
+	}
+
+	private void clearLeaseStatements() {
+		if (this.leaseStatements != null) {
+			synchronized (this.leaseStatements) {
+				this.leaseStatements.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the statements created during the current lease. The lease starts over with no statements
 	 */
-	private void startTimer(Long delay) {
-		if (this.getTimerTask() != null) {
-			Timer timer = new Timer(true);
-			timer.schedule(this.getTimerTask(), delay);
+	private List<Statement> takeLeaseStatements() {
+		if (this.leaseStatements == null) {
+			return Collections.emptyList();
+		}
+		synchronized (this.leaseStatements) {
+			List<Statement> statements = new ArrayList<>(this.leaseStatements);
+			this.leaseStatements.clear();
+			return statements;
 		}
 	}
 
@@ -176,25 +816,9 @@ public class PooledConnectionImpl extends AbstractConnectionDecorator {
 	private synchronized void timeout() throws SQLException {
 		if (this.isOpen()) {
 			this.setConnectionState(ConnectionState.TIMED_OUT);
-			ConnectionEvent event = new ConnectionEvent(this);
-			this.getConnectionEventListener().connectionTimedOut(event);
-		}
-	}
-
-	/**
-	 * This is the connection time out timer task. When a connection is opened, this thread is scheduled to run after a delay of <CONNECTION_TIME_OUT>
-	 * milliseconds. It will check if the connection is open and if so will mark the connection as timed out.
-	 *
-	 * @author nikhilagarwal
-	 */
-	private class PooledConnectionTimerTask extends TimerTask {
-
-		public void run() {
-			try {
-				timeout();
-			} catch (SQLException e) {
-				getLogger().log(Level.ERROR, e.getMessage(), e);
-			}
+			this.leaseDeadline = 0L;
+			this.getPoolEventRecorder().leaseTimedOut(this.getId(), System.nanoTime() - this.leaseStartNanos, this.describeBorrowSite());
+			this.getConnectionEventListener().connectionTimedOut(this.connectionEvent);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.cornholio.database.connection.impl;
+
+import com.cornholio.database.connection.SessionProperty;
+
+import java.sql.DatabaseMetaData;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The cached session state of one physical connection. A value that is not known (never read, or a setter failed) is null and is read from the
+ * driver the next time it is asked for. Guarded by whoever holds the lease of the connection.
+ *
+ * @author nikhilagarwal
+ */
+final class SessionStateCache {
+	Boolean autoCommit;
+	String catalog;
+	boolean catalogKnown;
+	private final Set<SessionProperty> enabled;
+	Integer holdability;
+	DatabaseMetaData metaData;
+	Boolean readOnly;
+	String schema;
+	boolean schemaKnown;
+	Integer transactionIsolation;
+
+	SessionStateCache(Set<SessionProperty> enabled) {
+		this.enabled = EnumSet.noneOf(SessionProperty.class);
+		this.enabled.addAll(enabled);
+	}
+
+	/**
+	 * Forgets everything, for when the physical connection goes away.
+	 */
+	void clear() {
+		this.autoCommit = null;
+		this.catalog = null;
+		this.catalogKnown = false;
+		this.holdability = null;
+		this.metaData = null;
+		this.readOnly = null;
+		this.schema = null;
+		this.schemaKnown = false;
+		this.transactionIsolation = null;
+	}
+
+	boolean isEnabled(SessionProperty property) {
+		return this.enabled.contains(property);
+	}
+}
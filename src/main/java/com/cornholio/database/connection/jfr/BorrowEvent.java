@@ -0,0 +1,29 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A connection was handed out by the pool.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.Borrow")
+@Label("Connection Borrowed")
+@Category({ "Database", "Connection Pool" })
+@Description("A connection was handed out by the pool.")
+class BorrowEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+
+	@Label("Wait Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long waitDuration;
+
+	@Label("Newly Created")
+	boolean created;
+}
@@ -0,0 +1,30 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A new physical connection was established and readied by the init pipeline.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.ConnectionCreate")
+@Label("Connection Created")
+@Category({ "Database", "Connection Pool" })
+@Description("A new physical connection was established.")
+class ConnectionCreateEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+
+	@Label("Connect Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long connectDuration;
+
+	@Label("Init Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long initDuration;
+}
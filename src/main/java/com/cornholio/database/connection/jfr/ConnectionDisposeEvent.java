@@ -0,0 +1,21 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A physical connection was closed for good.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.ConnectionDispose")
+@Label("Connection Disposed")
+@Category({ "Database", "Connection Pool" })
+@Description("A physical connection was closed for good.")
+class ConnectionDisposeEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+}
@@ -0,0 +1,142 @@
+package com.cornholio.database.connection.jfr;
+
+import com.cornholio.database.connection.event.PoolEventRecorder;
+import jdk.jfr.EventType;
+
+/**
+ * Records pool events as JDK Flight Recorder events. Every method checks whether the event type is enabled before it creates the event and
+ * shouldCommit before it commits it, so nothing is allocated or written when the event is not part of the running recording. This class is only
+ * loaded reflectively by PoolEventRecorders when the jdk.jfr api is present.
+ *
+ * @author nikhilagarwal
+ */
+public class JfrPoolEventRecorder implements PoolEventRecorder {
+
+	private static final EventType BORROW = EventType.getEventType(BorrowEvent.class);
+	private static final EventType CONNECTION_CREATE = EventType.getEventType(ConnectionCreateEvent.class);
+	private static final EventType CONNECTION_DISPOSE = EventType.getEventType(ConnectionDisposeEvent.class);
+	private static final EventType LEASE = EventType.getEventType(LeaseEvent.class);
+	private static final EventType LEASE_TIMEOUT = EventType.getEventType(LeaseTimeoutEvent.class);
+	private static final EventType MAINTENANCE = EventType.getEventType(MaintenanceEvent.class);
+	private static final EventType VALIDATION = EventType.getEventType(ValidationEvent.class);
+	private final String poolName;
+
+	public JfrPoolEventRecorder(String poolName) {
+		super();
+		this.poolName = poolName;
+	}
+
+	@Override
+	public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+		if (BORROW.isEnabled()) {
+			BorrowEvent event = new BorrowEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			event.waitDuration = waitNanos;
+			event.created = created;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+		if (CONNECTION_CREATE.isEnabled()) {
+			ConnectionCreateEvent event = new ConnectionCreateEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			event.connectDuration = connectNanos;
+			event.initDuration = initNanos;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void connectionCreateFailed(long connectNanos) {
+		// not a flight recorder event. The exception is thrown to the borrower
+	}
+
+	@Override
+	public void connectionDisposed(long connectionId) {
+		if (CONNECTION_DISPOSE.isEnabled()) {
+			ConnectionDisposeEvent event = new ConnectionDisposeEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void connectionErrorOccurred(long connectionId) {
+		// not a flight recorder event. The connection shows up in the next validation event
+	}
+
+	@Override
+	public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+		if (LEASE.isEnabled()) {
+			LeaseEvent event = new LeaseEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			event.leaseDuration = leaseNanos;
+			event.borrowSite = borrowSite;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void connectionLimitReached() {
+		// not a flight recorder event. The wait shows up in the borrow event
+	}
+
+	@Override
+	public void connectionValidated(long connectionId, boolean valid) {
+		if (VALIDATION.isEnabled()) {
+			ValidationEvent event = new ValidationEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			event.valid = valid;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void connectionWaitTimedOut(long waitNanos) {
+		// not a flight recorder event. Only borrows that got a connection are recorded
+	}
+
+	@Override
+	public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+		if (LEASE_TIMEOUT.isEnabled()) {
+			LeaseTimeoutEvent event = new LeaseTimeoutEvent();
+			event.poolName = this.poolName;
+			event.connectionId = connectionId;
+			event.leaseDuration = leaseNanos;
+			event.borrowSite = borrowSite;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void maintenanceRun(long durationNanos, int invalidConnections) {
+		if (MAINTENANCE.isEnabled()) {
+			MaintenanceEvent event = new MaintenanceEvent();
+			event.poolName = this.poolName;
+			event.maintenanceDuration = durationNanos;
+			event.invalidConnections = invalidConnections;
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A connection was given back to the pool. The duration is how long it was leased.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.Lease")
+@Label("Connection Lease")
+@Category({ "Database", "Connection Pool" })
+@Description("A connection was given back to the pool. The duration is how long it was leased.")
+class LeaseEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+
+	@Label("Lease Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long leaseDuration;
+
+	@Label("Borrow Site")
+	String borrowSite;
+}
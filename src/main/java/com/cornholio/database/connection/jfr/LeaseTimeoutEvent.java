@@ -0,0 +1,29 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A connection was leased for longer than CONNECTION_TIME_OUT.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.LeaseTimeout")
+@Label("Lease Timed Out")
+@Category({ "Database", "Connection Pool" })
+@Description("A connection was leased for longer than CONNECTION_TIME_OUT.")
+class LeaseTimeoutEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+
+	@Label("Lease Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long leaseDuration;
+
+	@Label("Borrow Site")
+	String borrowSite;
+}
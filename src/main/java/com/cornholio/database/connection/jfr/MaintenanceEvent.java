@@ -0,0 +1,26 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A pool maintenance run.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.Maintenance")
+@Label("Pool Maintenance")
+@Category({ "Database", "Connection Pool" })
+@Description("A pool maintenance run.")
+class MaintenanceEvent extends PoolEvent {
+
+	@Label("Maintenance Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long maintenanceDuration;
+
+	@Label("Invalid Connections")
+	int invalidConnections;
+}
@@ -0,0 +1,15 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The base class of the connection pool flight recorder events. Every event carries the name of the pool it came from.
+ * 
+ * @author nikhilagarwal
+ */
+abstract class PoolEvent extends Event {
+
+	@Label("Pool")
+	String poolName;
+}
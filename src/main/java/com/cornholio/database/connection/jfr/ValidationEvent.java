@@ -0,0 +1,24 @@
+package com.cornholio.database.connection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An idle connection was checked by the pool maintenance.
+ * 
+ * @author nikhilagarwal
+ */
+@Name("com.cornholio.database.connectionpool.Validation")
+@Label("Connection Validated")
+@Category({ "Database", "Connection Pool" })
+@Description("An idle connection was checked by the pool maintenance.")
+class ValidationEvent extends PoolEvent {
+
+	@Label("Connection Id")
+	long connectionId;
+
+	@Label("Valid")
+	boolean valid;
+}
@@ -0,0 +1,55 @@
+package com.cornholio.database.connection.profile;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+
+/**
+ * The proxy behind the result set of a profiled query. Counts the rows fetched with next and the time from the start of the execution to the first
+ * row, and hands them to the statistics of the query's shape once the result set is exhausted or closed.
+ *
+ * @author nikhilagarwal
+ */
+class ProfiledResultSetHandler implements InvocationHandler {
+
+	private static final String METHOD_CLOSE = "close";
+	private static final String METHOD_NEXT = "next";
+	private final long executionStartNanos;
+	private boolean recorded;
+	private final ResultSet resultSet;
+	private long rows;
+	private final StatementStatistics statistics;
+
+	ProfiledResultSetHandler(ResultSet resultSet, StatementStatistics statistics, long executionStartNanos) {
+		super();
+		this.resultSet = resultSet;
+		this.statistics = statistics;
+		this.executionStartNanos = executionStartNanos;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (METHOD_NEXT.equals(name)) {
+			Object next = ProfiledStatementHandler.invokeTarget(this.resultSet, method, args);
+			if (Boolean.TRUE.equals(next)) {
+				if (++this.rows == 1L) {
+					this.statistics.recordFirstRow(System.nanoTime() - this.executionStartNanos);
+				}
+			} else {
+				this.recordFetch();
+			}
+			return next;
+		} else if (METHOD_CLOSE.equals(name)) {
+			this.recordFetch();
+		}
+		return ProfiledStatementHandler.invokeTarget(this.resultSet, method, args);
+	}
+
+	private void recordFetch() {
+		if (!this.recorded) {
+			this.recorded = true;
+			this.statistics.recordFetch(this.rows);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.cornholio.database.connection.profile;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * The proxy behind a profiled statement. Every execute method is timed against the shape of its sql; every other method goes straight to the
+ * driver's statement.
+ *
+ * @author nikhilagarwal
+ */
+class ProfiledStatementHandler implements InvocationHandler {
+
+	private static final String METHOD_ADD_BATCH = "addBatch";
+	private static final String METHOD_EXECUTE = "execute";
+	private static final String METHOD_GET_RESULT_SET = "getResultSet";
+	private String batchSql;
+	private long lastExecutionStartNanos;
+	private StatementStatistics lastStatistics;
+	private final String preparedShape;
+	private final String preparedSql;
+	private final StatementProfiler profiler;
+	private final Statement statement;
+
+	ProfiledStatementHandler(StatementProfiler profiler, Statement statement, String preparedSql) {
+		super();
+		this.profiler = profiler;
+		this.statement = statement;
+		this.preparedSql = preparedSql;
+
+		// a prepared statement always has the same shape
+		this.preparedShape = preparedSql == null ? null : SqlShapes.normalize(preparedSql);
+	}
+
+	static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * @return the number of rows an execute method reported as updated
+	 */
+	private static long rowsUpdated(Object result) {
+		long updated = 0L;
+		if (result instanceof Number) {
+			updated = ((Number) result).longValue();
+		} else if (result instanceof int[]) {
+			for (int count : (int[]) result) {
+				updated += Math.max(count, 0);
+			}
+		} else if (result instanceof long[]) {
+			for (long count : (long[]) result) {
+				updated += Math.max(count, 0L);
+			}
+		}
+		return Math.max(updated, 0L);
+	}
+
+	private Object execute(Method method, Object[] args) throws Throwable {
+		String sql;
+		String shape;
+		if (args != null && args.length > 0 && args[0] instanceof String) {
+			sql = (String) args[0];
+			shape = SqlShapes.normalize(sql);
+		} else if (this.preparedSql != null) {
+			sql = this.preparedSql;
+			shape = this.preparedShape;
+		} else {
+			// a batch of plain statements is profiled under the last sql added to it
+			sql = this.batchSql;
+			shape = SqlShapes.normalize(sql);
+		}
+		StatementStatistics statistics = this.profiler.statisticsFor(shape);
+		long startNanos = System.nanoTime();
+		Object result;
+		try {
+			result = invokeTarget(this.statement, method, args);
+		} catch (Throwable e) {
+			statistics.recordError(System.nanoTime() - startNanos);
+			this.profiler.recorded(statistics);
+			throw e;
+		}
+		long executionNanos = System.nanoTime() - startNanos;
+		statistics.recordExecution(executionNanos, rowsUpdated(result));
+		this.profiler.recorded(statistics);
+		this.profiler.checkSlowStatement(sql, executionNanos);
+		this.lastStatistics = statistics;
+		this.lastExecutionStartNanos = startNanos;
+		if (result instanceof ResultSet) {
+			return this.profiler.profile((ResultSet) result, statistics, startNanos);
+		}
+		return result;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (name.startsWith(METHOD_EXECUTE)) {
+			return this.execute(method, args);
+		} else if (METHOD_ADD_BATCH.equals(name) && args != null && args.length == 1) {
+			this.batchSql = (String) args[0];
+		}
+		Object result = invokeTarget(this.statement, method, args);
+		if (METHOD_GET_RESULT_SET.equals(name) && result != null && this.lastStatistics != null) {
+			return this.profiler.profile((ResultSet) result, this.lastStatistics, this.lastExecutionStartNanos);
+		}
+		return result;
+	}
+}
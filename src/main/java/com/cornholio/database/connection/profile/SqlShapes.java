@@ -0,0 +1,83 @@
+package com.cornholio.database.connection.profile;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalises sql into its shape so that statements that only differ in their literals are profiled together: string and number literals become ?,
+ * comments are dropped, whitespace is collapsed and lists of ? (like the ones of an in clause) become a single ?.
+ *
+ * @author nikhilagarwal
+ */
+public final class SqlShapes {
+
+	private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+	private static final String UNKNOWN_SQL = "<unknown>";
+
+	private SqlShapes() {
+		super();
+	}
+
+	private static void append(StringBuilder shape, char c, boolean space) {
+		if (space && shape.length() > 0) {
+			shape.append(' ');
+		}
+		shape.append(c);
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * @param sql
+	 * @return the shape of the sql
+	 */
+	public static String normalize(String sql) {
+		if (sql == null) {
+			return UNKNOWN_SQL;
+		}
+		int length = sql.length();
+		StringBuilder shape = new StringBuilder(length);
+		boolean space = false;
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = true;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				while (i < length && sql.charAt(i) != '\n') {
+					i++;
+				}
+				space = true;
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 1;
+				space = true;
+			} else if (c == '\'') {
+				// skip the literal, including doubled quotes inside it
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				append(shape, '?', space);
+				space = false;
+			} else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+				while (i + 1 < length && (isIdentifierPart(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+					i++;
+				}
+				append(shape, '?', space);
+				space = false;
+			} else {
+				append(shape, c, space);
+				space = false;
+			}
+		}
+		return PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+	}
+}
@@ -0,0 +1,217 @@
+package com.cornholio.database.connection.profile;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles the statements of a pool per sql shape (see SqlShapes). Statements handed out by a pooled connection are wrapped in a proxy that times
+ * every execution and counts the rows it updated, and the result sets of queries are wrapped to count the rows fetched and the time to the first
+ * row. Only the most expensive shapes are kept. Once the table is full a new shape is profiled on probation, outside the table, and takes the place
+ * of the shape with the least total execution time only once it has taken more time than that shape; shapes on probation that are not executed
+ * again are forgotten, least recently used first. A burst of one-off statements therefore neither pushes the expensive shapes out nor scans the
+ * table. Executions slower than the slow statement threshold are captured with their sql text.
+ * <p>
+ * A pooled connection without a profiler hands out the driver's statements as they are, so profiling costs nothing when it is switched off.
+ *
+ * @author nikhilagarwal
+ */
+public class StatementProfiler {
+
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+
+	/**
+	 * A lower bound of the least total execution time in the table. A shape on probation below it cannot be admitted, so the table is only scanned
+	 * for the cheapest shape when a shape on probation passes it
+	 */
+	private volatile long admissionThresholdNanos;
+	private final int capacity;
+	private final Map<String, StatementStatistics> probation;
+	private final ArrayDeque<String> slowStatements;
+	private final long slowStatementThresholdNanos;
+	private final ConcurrentHashMap<String, StatementStatistics> statements;
+
+	/**
+	 * @param capacity
+	 *            the number of sql shapes, and of slow statements, kept
+	 * @param slowStatementThreshold
+	 *            executions that take at least this many milliseconds are captured
+	 */
+	public StatementProfiler(int capacity, long slowStatementThreshold) {
+		super();
+		this.capacity = Math.max(capacity, 1);
+		this.slowStatementThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowStatementThreshold);
+		this.slowStatements = new ArrayDeque<>(this.capacity);
+		this.statements = new ConcurrentHashMap<>();
+		this.probation = new LinkedHashMap<String, StatementStatistics>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, StatementStatistics> eldest) {
+				if (this.size() <= StatementProfiler.this.capacity) {
+					return false;
+				}
+				eldest.getValue().setOnProbation(false);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Moves a shape on probation into the table in place of the shape with the least total execution time, if it has taken more time than that
+	 * shape.
+	 */
+	private void admit(StatementStatistics candidate) {
+		synchronized (this.statements) {
+			if (!candidate.isOnProbation()) {
+				return;
+			}
+			StatementStatistics cheapest = null;
+			long cheapestNanos = Long.MAX_VALUE;
+			long nextNanos = Long.MAX_VALUE;
+			for (StatementStatistics resident : this.statements.values()) {
+				long nanos = resident.getExecutionNanos();
+				if (nanos < cheapestNanos) {
+					nextNanos = cheapestNanos;
+					cheapestNanos = nanos;
+					cheapest = resident;
+				} else if (nanos < nextNanos) {
+					nextNanos = nanos;
+				}
+			}
+			long candidateNanos = candidate.getExecutionNanos();
+			if (cheapest == null || candidateNanos <= cheapestNanos) {
+				this.admissionThresholdNanos = cheapestNanos;
+				return;
+			}
+			this.statements.remove(cheapest.getShape());
+			this.probation.remove(candidate.getShape());
+			candidate.setOnProbation(false);
+			this.statements.put(candidate.getShape(), candidate);
+			this.admissionThresholdNanos = Math.min(nextNanos, candidateNanos);
+		}
+	}
+
+	/**
+	 * Captures the execution if it was slow.
+	 */
+	void checkSlowStatement(String sql, long executionNanos) {
+		if (executionNanos < this.slowStatementThresholdNanos) {
+			return;
+		}
+		String slowStatement = new SimpleDateFormat(DATE_FORMAT).format(new Date()) + " [" + Thread.currentThread().getName() + "] "
+				+ TimeUnit.NANOSECONDS.toMillis(executionNanos) + " ms " + sql;
+		synchronized (this.slowStatements) {
+			if (this.slowStatements.size() == this.capacity) {
+				this.slowStatements.removeFirst();
+			}
+			this.slowStatements.addLast(slowStatement);
+		}
+	}
+
+	/**
+	 * @return the summaries of the profiled sql shapes, most total execution time first
+	 */
+	public List<String> dumpStatements() {
+		List<String> dump = new ArrayList<>();
+		for (StatementStatistics statistics : this.getTopStatements()) {
+			dump.add(statistics.describe());
+		}
+		return dump;
+	}
+
+	/**
+	 * @return the captured slow statements, oldest first
+	 */
+	public List<String> getSlowStatements() {
+		synchronized (this.slowStatements) {
+			return new ArrayList<>(this.slowStatements);
+		}
+	}
+
+	/**
+	 * @return the profiled sql shapes, most total execution time first
+	 */
+	public List<StatementStatistics> getTopStatements() {
+		List<StatementStatistics> top = new ArrayList<>(this.statements.values());
+		Collections.sort(top, Comparator.comparingLong(StatementStatistics::getExecutionNanos).reversed());
+		return top;
+	}
+
+	/**
+	 * Wraps a statement so that its executions are profiled.
+	 *
+	 * @param statement
+	 *            the statement of the driver
+	 * @param sql
+	 *            the sql the statement was prepared with or null for a plain statement
+	 * @return the profiled statement
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Statement> T profile(T statement, String sql) {
+		Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+				: statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+		return (T) Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(), new Class<?>[] { type },
+				new ProfiledStatementHandler(this, statement, sql));
+	}
+
+	/**
+	 * Wraps the result set of a query so that the rows fetched and the time to the first row are counted.
+	 */
+	ResultSet profile(ResultSet resultSet, StatementStatistics statistics, long executionStartNanos) {
+		return (ResultSet) Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				new ProfiledResultSetHandler(resultSet, statistics, executionStartNanos));
+	}
+
+	/**
+	 * Called after an execution was recorded. Admits the shape into the table if it is on probation and may have taken more time than the cheapest
+	 * shape in it.
+	 */
+	void recorded(StatementStatistics statistics) {
+		if (statistics.isOnProbation() && statistics.getExecutionNanos() > this.admissionThresholdNanos) {
+			this.admit(statistics);
+		}
+	}
+
+	/**
+	 * @param shape
+	 * @return the profile of the sql shape. A new shape is profiled on probation if the table is full
+	 */
+	StatementStatistics statisticsFor(String shape) {
+		StatementStatistics statistics = this.statements.get(shape);
+		if (statistics != null) {
+			return statistics;
+		}
+		synchronized (this.statements) {
+			statistics = this.statements.get(shape);
+			if (statistics != null) {
+				return statistics;
+			}
+			if (this.statements.size() < this.capacity) {
+				statistics = new StatementStatistics(shape);
+				this.statements.put(shape, statistics);
+				return statistics;
+			}
+			statistics = this.probation.get(shape);
+			if (statistics == null) {
+				statistics = new StatementStatistics(shape);
+				statistics.setOnProbation(true);
+				this.probation.put(shape, statistics);
+			}
+			return statistics;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.cornholio.database.connection.profile;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The profile of one sql shape: how often it was executed, how long the executions took, how many rows were fetched and updated and how long it took
+ * to get the first row of a query. Updated with lock-free counters by every statement of that shape. Durations are in nanoseconds.
+ *
+ * @author nikhilagarwal
+ */
+public class StatementStatistics {
+
+	private final LongAdder errorCount;
+	private final LongAdder executionCount;
+	private final LongAdder executionNanos;
+	private final LongAdder firstRowCount;
+	private final LongAdder firstRowNanos;
+	private final AtomicLong maxExecutionNanos;
+	private volatile boolean onProbation;
+	private final LongAdder rowsFetched;
+	private final LongAdder rowsUpdated;
+	private final String shape;
+
+	StatementStatistics(String shape) {
+		super();
+		this.shape = shape;
+		this.errorCount = new LongAdder();
+		this.executionCount = new LongAdder();
+		this.executionNanos = new LongAdder();
+		this.firstRowCount = new LongAdder();
+		this.firstRowNanos = new LongAdder();
+		this.maxExecutionNanos = new AtomicLong();
+		this.rowsFetched = new LongAdder();
+		this.rowsUpdated = new LongAdder();
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+	}
+
+	/**
+	 * @return a one line summary of the profile, times in milliseconds
+	 */
+	public String describe() {
+		long executions = this.getExecutionCount();
+		return String.format("executions=%d errors=%d total=%.3fms mean=%.3fms max=%.3fms rowsFetched=%d rowsUpdated=%d meanTimeToFirstRow=%.3fms %s",
+				executions, this.getErrorCount(), toMillis(this.getExecutionNanos()),
+				executions == 0L ? 0.0 : toMillis(this.getExecutionNanos() / executions), toMillis(this.getMaxExecutionNanos()),
+				this.getRowsFetched(), this.getRowsUpdated(), toMillis(this.getMeanTimeToFirstRowNanos()), this.shape);
+	}
+
+	public long getErrorCount() {
+		return this.errorCount.sum();
+	}
+
+	public long getExecutionCount() {
+		return this.executionCount.sum();
+	}
+
+	public long getExecutionNanos() {
+		return this.executionNanos.sum();
+	}
+
+	public long getMaxExecutionNanos() {
+		return this.maxExecutionNanos.get();
+	}
+
+	/**
+	 * @return the mean time from the start of the execution to the first row, over the queries that returned at least one row
+	 */
+	public long getMeanTimeToFirstRowNanos() {
+		long firstRows = this.firstRowCount.sum();
+		return firstRows == 0L ? 0L : this.firstRowNanos.sum() / firstRows;
+	}
+
+	public long getRowsFetched() {
+		return this.rowsFetched.sum();
+	}
+
+	public long getRowsUpdated() {
+		return this.rowsUpdated.sum();
+	}
+
+	public String getShape() {
+		return shape;
+	}
+
+	/**
+	 * @return true if the shape is not in the profiler's table yet, because it has not taken more execution time than the cheapest shape in it
+	 */
+	boolean isOnProbation() {
+		return onProbation;
+	}
+
+	void setOnProbation(boolean onProbation) {
+		this.onProbation = onProbation;
+	}
+
+	void recordError(long executionNanos) {
+		this.errorCount.increment();
+		this.recordExecution(executionNanos, 0L);
+	}
+
+	void recordExecution(long executionNanos, long updated) {
+		this.executionCount.increment();
+		this.executionNanos.add(executionNanos);
+		if (updated > 0L) {
+			this.rowsUpdated.add(updated);
+		}
+		long max = this.maxExecutionNanos.get();
+		while (executionNanos > max && !this.maxExecutionNanos.compareAndSet(max, executionNanos)) {
+			max = this.maxExecutionNanos.get();
+		}
+	}
+
+	void recordFetch(long rows) {
+		this.rowsFetched.add(rows);
+	}
+
+	void recordFirstRow(long nanos) {
+		this.firstRowCount.increment();
+		this.firstRowNanos.add(nanos);
+	}
+}
@@ -0,0 +1,323 @@
+package com.cornholio.database.connectionpool;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A budget of connections shared by the pools of one JVM that connect to the same database server, so that their combined connections stay under
+ * the server's connection limit even though their MAX_SIZE values add up to more. A pool built with a budget takes a share of it and leases
+ * capacity from its share for every connection it establishes; the capacity is given back when the connection is disposed.
+ * <p>
+ * Every share has a guaranteed minimum, which is held for its pool whether it uses it or not, and a weight. The capacity over the guarantees goes
+ * to whichever pool asks for it first. Once it is all used, a borrower that is denied capacity waits while it is reclaimed: the pool that holds
+ * the most capacity over its guarantee, relative to its weight, disposes one of its idle connections, and the borrower's pool establishes a
+ * connection with the capacity given back. Leased connections are never reclaimed. The reclaiming and the retries run on the budget's own
+ * thread, never under a pool's lock.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionBudget {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_BUDGET_CALLBACK_FAILED = "Connection budget callback failed";
+	private static final String THREAD_NAME_ARBITER = "connection-budget-arbiter";
+	private static final Logger logger = Logger.getLogger(ConnectionBudget.class.getSimpleName());
+	private ExecutorService arbiter;
+	private int guaranteed;
+	private final int maxConnections;
+	private final LongAdder reclaimed;
+	private boolean reclaiming;
+	private final List<Share> shares;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxConnections
+	 *            the number of connections the pools sharing the budget may hold together
+	 */
+	public ConnectionBudget(int maxConnections) {
+		super();
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("A connection budget needs at least one connection");
+		}
+		this.maxConnections = maxConnections;
+		this.reclaimed = new LongAdder();
+		this.shares = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Runs the callback on the arbiter thread.
+	 */
+	private synchronized void arbitrate(Runnable callback) {
+		if (this.arbiter == null) {
+			this.arbiter = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, THREAD_NAME_ARBITER);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		this.arbiter.execute(() -> {
+			try {
+				callback.run();
+			} catch (RuntimeException e) {
+				logger.log(Level.ERROR, LOG_MESSAGE_BUDGET_CALLBACK_FAILED, e);
+			}
+		});
+	}
+
+	/**
+	 * Closes the share of a pool that was shut down. The share leaves the budget once its last connection is disposed.
+	 */
+	synchronized void close(Share share) {
+		share.closed = true;
+		if (share.used == 0) {
+			this.shares.remove(share);
+			this.guaranteed -= share.guaranteed;
+		}
+	}
+
+	/**
+	 * @return the capacity held by the shares: the capacity they use, or their guarantee if they use less
+	 */
+	private int committed() {
+		int committed = 0;
+		for (Share share : this.shares) {
+			committed += Math.max(share.used, share.guaranteed);
+		}
+		return committed;
+	}
+
+	/**
+	 * @return the capacity no share uses or is guaranteed
+	 */
+	public synchronized int getAvailable() {
+		return this.maxConnections - this.committed();
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @return how many idle connections were disposed to lend their capacity to another pool
+	 */
+	public long getReclaimedCount() {
+		return reclaimed.sum();
+	}
+
+	public List<Share> getShares() {
+		return Collections.unmodifiableList(shares);
+	}
+
+	/**
+	 * Tells the first share with a borrower waiting for capacity to try again, if there is capacity. A share whose borrowers no longer wait is not
+	 * starved any more, and the capacity goes to the next one.
+	 */
+	private void growStarved() {
+		if (this.committed() >= this.maxConnections) {
+			return;
+		}
+		for (Share starved : this.shares) {
+			if (starved.starved > 0 && !starved.closed) {
+				starved.starved--;
+				this.arbitrate(() -> {
+					if (!starved.grower.getAsBoolean()) {
+						synchronized (this) {
+							starved.starved = 0;
+							this.growStarved();
+						}
+					}
+				});
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reclaims an idle connection from the share with the most capacity over its guarantee relative to its weight, if that is more than the
+	 * denied share would hold with one connection more. One reclaim runs at a time.
+	 */
+	private void reclaimFor(Share denied) {
+		if (this.reclaiming) {
+			return;
+		}
+		Share victim = null;
+		for (Share share : this.shares) {
+			if (share != denied && share.used > share.guaranteed && (victim == null || share.isAheadOf(victim, 0))) {
+				victim = share;
+			}
+		}
+		if (victim == null || !victim.isAheadOf(denied, 1)) {
+			return;
+		}
+		this.reclaiming = true;
+		Share reclaimFrom = victim;
+		this.arbitrate(() -> {
+			boolean reclaimed = false;
+			try {
+				reclaimed = reclaimFrom.reclaimer.getAsBoolean();
+			} finally {
+				synchronized (this) {
+					this.reclaiming = false;
+					if (reclaimed) {
+						this.reclaimed.increment();
+						this.reclaimForStarved();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reclaims for the first share that still has borrowers waiting for capacity, if the budget is used up.
+	 */
+	private void reclaimForStarved() {
+		if (this.committed() < this.maxConnections) {
+			return;
+		}
+		for (Share share : this.shares) {
+			if (share.starved > 0 && !share.closed) {
+				this.reclaimFor(share);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds a share for a pool.
+	 *
+	 * @param name
+	 *            the name of the pool
+	 * @param guaranteed
+	 *            the capacity held for the pool whether it uses it or not
+	 * @param weight
+	 *            the weight of the pool when capacity over the guarantees is reclaimed
+	 * @param grower
+	 *            called for every borrower that waits for capacity, once capacity may have become available. Returns false if the pool has no
+	 *            borrower waiting any more, because they were served by a returned connection or timed out
+	 * @param reclaimer
+	 *            called to dispose one idle connection of the pool, returns false if the pool had none
+	 * @return the share
+	 */
+	synchronized Share register(String name, int guaranteed, int weight, BooleanSupplier grower, BooleanSupplier reclaimer) {
+		if (guaranteed < 0 || weight <= 0) {
+			throw new IllegalArgumentException("Invalid share of the connection budget for " + name);
+		}
+		if (this.guaranteed + guaranteed > this.maxConnections) {
+			throw new IllegalArgumentException("The guarantees of the connection budget exceed its " + this.maxConnections + " connections");
+		}
+		Share share = new Share(name, guaranteed, weight, grower, reclaimer);
+		this.guaranteed += guaranteed;
+		this.shares.add(share);
+		return share;
+	}
+
+	/**
+	 * Gives back the capacity of a disposed connection. If there is capacity, the first share with a borrower waiting for it is told to try again.
+	 */
+	synchronized void release(Share share) {
+		share.used--;
+		if (share.closed && share.used == 0) {
+			this.close(share);
+		}
+		this.growStarved();
+	}
+
+	/**
+	 * Records that a borrower of the share waits for capacity it was denied, and reclaims capacity for it if another share holds more than it
+	 * should. The share's grower is called once capacity is given back.
+	 */
+	synchronized void starve(Share share) {
+		share.starved++;
+		this.reclaimFor(share);
+	}
+
+	/**
+	 * Leases capacity for one connection. It is granted if the share uses less than its guarantee, or if there is capacity no share uses or is
+	 * guaranteed.
+	 *
+	 * @return false if the capacity was denied
+	 */
+	synchronized boolean tryAcquire(Share share) {
+		if (share.used < share.guaranteed || this.committed() < this.maxConnections) {
+			share.used++;
+			return true;
+		}
+		share.denied.increment();
+		return false;
+	}
+
+	/**
+	 * The share of the budget of one pool.
+	 *
+	 * @author nikhilagarwal
+	 */
+	public static final class Share {
+
+		private boolean closed;
+		private final LongAdder denied;
+		private final BooleanSupplier grower;
+		private final int guaranteed;
+		private final String name;
+		private final BooleanSupplier reclaimer;
+		private int starved;
+		private volatile int used;
+		private final int weight;
+
+		private Share(String name, int guaranteed, int weight, BooleanSupplier grower, BooleanSupplier reclaimer) {
+			super();
+			this.name = name;
+			this.guaranteed = guaranteed;
+			this.weight = weight;
+			this.grower = grower;
+			this.reclaimer = reclaimer;
+			this.denied = new LongAdder();
+		}
+
+		/**
+		 * @return how many times the pool was denied capacity
+		 */
+		public long getDeniedCount() {
+			return denied.sum();
+		}
+
+		public int getGuaranteed() {
+			return guaranteed;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of connections the pool holds
+		 */
+		public int getUsed() {
+			return used;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		/**
+		 * @return true if this share holds more capacity over its guarantee, relative to its weight, than the other would with more connections
+		 */
+		private boolean isAheadOf(Share other, int more) {
+			return (long) (this.used - this.guaranteed) * other.weight > (long) (other.used + more - other.guaranteed) * this.weight;
+		}
+
+		@Override
+		public String toString() {
+			return this.name + " (" + this.used + " used, " + this.guaranteed + " guaranteed, weight " + this.weight + ")";
+		}
+	}
+}
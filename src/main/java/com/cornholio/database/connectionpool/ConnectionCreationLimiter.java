@@ -0,0 +1,174 @@
+package com.cornholio.database.connectionpool;
+
+import com.cornholio.database.connection.event.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles the establishment of physical connections, so that a cold start or a failover does not send every waiting borrower to the database
+ * at once. Two limits apply: a token bucket that lets a burst of connections through and then refills at the creation rate, and a maximum number
+ * of connections being established at the same time. Either limit can be off.
+ * <p>
+ * A borrower never waits here: if a connection cannot be established right away, the pool establishes it in the background as soon as the limits
+ * let it, and the borrower takes whichever connection becomes available first. The time creations spend waiting for the limits is recorded.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionCreationLimiter {
+
+	private static final String LOG_MESSAGE_INTERRUPTED = "Interrupted while waiting to establish a connection";
+	private final double burst;
+	private final Semaphore creations;
+	private final int maxConcurrentCreations;
+	private final double ratePerNano;
+	private long refilledNanos;
+	private final LongAdder throttled;
+	private final LatencyHistogram throttleTimes;
+	private double tokens;
+
+	/**
+	 * Constructor
+	 *
+	 * @param creationRate
+	 *            the connections per second the bucket refills with, or 0 for no rate limit
+	 * @param creationBurst
+	 *            the connections that can be established at once when the bucket is full
+	 * @param maxConcurrentCreations
+	 *            the connections that can be established at the same time, or 0 for no limit
+	 */
+	ConnectionCreationLimiter(double creationRate, int creationBurst, int maxConcurrentCreations) {
+		super();
+		this.ratePerNano = creationRate / TimeUnit.SECONDS.toNanos(1);
+		this.burst = Math.max(1, creationBurst);
+		this.tokens = this.burst;
+		this.refilledNanos = System.nanoTime();
+		this.maxConcurrentCreations = maxConcurrentCreations;
+		this.creations = maxConcurrentCreations > 0 ? new Semaphore(maxConcurrentCreations, true) : null;
+		this.throttled = new LongAdder();
+		this.throttleTimes = new LatencyHistogram();
+	}
+
+	/**
+	 * Waits until the limits let a connection be established. Every acquire must be followed by a release once the connection is established (or
+	 * failed). Only the pool's own threads that establish connections one after the other wait here; the background creations for borrowers are
+	 * deferred instead.
+	 *
+	 * @throws SQLException
+	 *             if the thread was interrupted while waiting
+	 */
+	void acquire() throws SQLException {
+		if (this.tryAcquire()) {
+			return;
+		}
+		long throttleStartNanos = System.nanoTime();
+		this.throttled.increment();
+		boolean permitted = false;
+		try {
+			if (this.creations != null) {
+				this.creations.acquire();
+			}
+			permitted = true;
+			long waitNanos;
+			while ((waitNanos = this.takeToken()) > 0) {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			}
+		} catch (InterruptedException e) {
+			if (permitted) {
+				this.release();
+			}
+			Thread.currentThread().interrupt();
+			throw new SQLException(LOG_MESSAGE_INTERRUPTED, e);
+		} finally {
+			this.throttleTimes.record(System.nanoTime() - throttleStartNanos);
+		}
+	}
+
+	/**
+	 * @return the number of connections being established right now, or 0 if their number is not limited
+	 */
+	public int getActiveCreations() {
+		return this.creations == null ? 0 : this.maxConcurrentCreations - this.creations.availablePermits();
+	}
+
+	/**
+	 * @return how long until the bucket has a token, or 0 if it has one now or the rate is not limited
+	 */
+	synchronized long getNextTokenNanos() {
+		if (this.ratePerNano <= 0) {
+			return 0L;
+		}
+		long now = System.nanoTime();
+		this.tokens = Math.min(this.burst, this.tokens + (now - this.refilledNanos) * this.ratePerNano);
+		this.refilledNanos = now;
+		if (this.tokens >= 1) {
+			return 0L;
+		}
+		return Math.max(1L, (long) Math.ceil((1 - this.tokens) / this.ratePerNano));
+	}
+
+	/**
+	 * @return the number of connections that had to wait for the limits before they could be established
+	 */
+	public long getThrottledCount() {
+		return throttled.sum();
+	}
+
+	/**
+	 * @return how long the throttled connections waited for the limits
+	 */
+	public LatencyHistogram getThrottleTimes() {
+		return throttleTimes;
+	}
+
+	/**
+	 * Gives back the concurrent creation taken by acquire or tryAcquire.
+	 */
+	void release() {
+		if (this.creations != null) {
+			this.creations.release();
+		}
+	}
+
+	/**
+	 * Takes a token from the bucket if there is one.
+	 *
+	 * @return 0 if a token was taken, else how long until the next token
+	 */
+	private synchronized long takeToken() {
+		long waitNanos = this.getNextTokenNanos();
+		if (waitNanos == 0 && this.ratePerNano > 0) {
+			this.tokens--;
+		}
+		return waitNanos;
+	}
+
+	/**
+	 * Records a connection that was deferred because the limits did not let it be established right away, once they let it.
+	 *
+	 * @param throttleNanos
+	 *            how long the connection waited for the limits
+	 */
+	void throttled(long throttleNanos) {
+		this.throttled.increment();
+		this.throttleTimes.record(throttleNanos);
+	}
+
+	/**
+	 * Lets a connection be established if the limits allow it right away. Must be followed by a release if it returns true.
+	 *
+	 * @return false if the connection would have to wait
+	 */
+	boolean tryAcquire() {
+		if (this.creations != null && !this.creations.tryAcquire()) {
+			return false;
+		}
+		if (this.takeToken() > 0) {
+			this.release();
+			return false;
+		}
+		return true;
+	}
+}
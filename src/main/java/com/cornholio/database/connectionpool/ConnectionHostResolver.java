@@ -0,0 +1,20 @@
+package com.cornholio.database.connectionpool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells which backend host a newly established connection is connected to. Used by the ROUND_ROBIN idle ordering.
+ *
+ * @author nikhilagarwal
+ */
+public interface ConnectionHostResolver {
+
+	/**
+	 * @param connection
+	 *            the physical connection
+	 * @return a key that is equal for connections to the same host, or null if the host is unknown
+	 * @throws SQLException
+	 */
+	String resolveHost(Connection connection) throws SQLException;
+}
@@ -0,0 +1,137 @@
+package com.cornholio.database.connectionpool;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Readies a new physical connection before the pool hands it out, so that the first borrower of a new connection does not pay for its warm up. The
+ * init sql (SET statements, search_path, time zone) is run in one batch, then every warm statement is prepared once and closed again, which puts it
+ * in the driver's statement cache (and the server's plan cache) for the borrowers to come.
+ * <p>
+ * The warm statements are the configured ones plus, when learning is on, the statements prepared most often through the pool's connections so far.
+ * A connection whose init sql fails is not used; a warm statement that fails to prepare is skipped.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionInitializer {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_WARM_UP_FAILED = "Statement could not be prepared while warming up a new connection: ";
+	private static final Logger logger = Logger.getLogger(ConnectionInitializer.class.getSimpleName());
+
+	/**
+	 * The most distinct statements counted for learning. Sql with inlined literals would otherwise fill the map with statements that never repeat.
+	 */
+	private static final int MAX_COUNTED_STATEMENTS = 1000;
+	private final List<String> initSql;
+	private final int learnedStatements;
+	private final Map<String, LongAdder> prepareCounts;
+	private final List<String> warmStatements;
+
+	/**
+	 * Constructor
+	 *
+	 * @param initSql
+	 *            the sql run on every new connection, or null for none
+	 * @param warmStatements
+	 *            the statements prepared on every new connection, or null for none
+	 * @param learnedStatements
+	 *            how many of the statements prepared most often are prepared on every new connection as well. 0 turns learning off
+	 */
+	ConnectionInitializer(List<String> initSql, List<String> warmStatements, int learnedStatements) {
+		super();
+		this.initSql = initSql == null ? Collections.<String>emptyList() : new ArrayList<>(initSql);
+		this.warmStatements = warmStatements == null ? Collections.<String>emptyList() : new ArrayList<>(warmStatements);
+		this.learnedStatements = Math.max(0, learnedStatements);
+		this.prepareCounts = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the statements the next new connection will be warmed up with: the configured ones first, then the learned ones by how often they
+	 *         were prepared
+	 */
+	public List<String> getWarmStatements() {
+		List<String> statements = new ArrayList<>(this.warmStatements);
+		if (this.learnedStatements > 0) {
+			List<Map.Entry<String, LongAdder>> counts = new ArrayList<>(this.prepareCounts.entrySet());
+			counts.sort((first, second) -> Long.compare(second.getValue().sum(), first.getValue().sum()));
+			int learned = 0;
+			for (Map.Entry<String, LongAdder> count : counts) {
+				if (learned == this.learnedStatements) {
+					break;
+				}
+				if (!statements.contains(count.getKey())) {
+					statements.add(count.getKey());
+					learned++;
+				}
+			}
+		}
+		return statements;
+	}
+
+	/**
+	 * Runs the init sql and prepares the warm statements on a new physical connection.
+	 *
+	 * @param connection
+	 *            the driver's connection
+	 * @throws SQLException
+	 *             if the init sql failed
+	 */
+	void initialize(Connection connection) throws SQLException {
+		if (!this.initSql.isEmpty()) {
+			try (Statement statement = connection.createStatement()) {
+				for (String sql : this.initSql) {
+					statement.addBatch(sql);
+				}
+				statement.executeBatch();
+			}
+		}
+		for (String sql : this.getWarmStatements()) {
+			try {
+				connection.prepareStatement(sql).close();
+			} catch (SQLException e) {
+				logger.log(Level.DEBUG, LOG_MESSAGE_WARM_UP_FAILED + sql, e);
+			}
+		}
+	}
+
+	/**
+	 * @return true if there is anything to do for a new connection
+	 */
+	boolean isEnabled() {
+		return !this.initSql.isEmpty() || !this.warmStatements.isEmpty() || this.learnedStatements > 0;
+	}
+
+	/**
+	 * @return true if the statements prepared through the pool's connections are counted
+	 */
+	boolean isLearning() {
+		return this.learnedStatements > 0;
+	}
+
+	/**
+	 * Counts a statement prepared through one of the pool's connections. Does not allocate for a statement counted before.
+	 *
+	 * @param sql
+	 */
+	void statementPrepared(String sql) {
+		LongAdder count = this.prepareCounts.get(sql);
+		if (count == null) {
+			if (this.prepareCounts.size() >= MAX_COUNTED_STATEMENTS) {
+				return;
+			}
+			count = this.prepareCounts.computeIfAbsent(sql, key -> new LongAdder());
+		}
+		count.increment();
+	}
+}
@@ -1,7 +1,12 @@
 package com.cornholio.database.connectionpool;
 
+import com.cornholio.database.connection.SessionProperty;
+
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is the connection pool builder. The purpose is to build a connection pool instance using configuration properties.
@@ -10,41 +15,242 @@ import java.sql.SQLException;
  */
 public class ConnectionPoolBuilder {
 
+	private Boolean abortTimedOutLeases = Boolean.FALSE;
+	private ConnectionBudget budget;
+	private Integer budgetGuarantee;
+	private Integer budgetWeight = 1;
+	private Long burstIdleTimeOut = 0L;
+	private Long burstLingerTime = 0L;
 	private Long connectionTimeOut;
+	private Integer creationBurst = 1;
+	private Double creationRate = 0D;
 	private DataSource dataSource;
+	private Boolean fairWaiters = Boolean.TRUE;
+	private Integer flightRecorderSize = 1024;
+	private ConnectionHostResolver hostResolver;
+	private IdleOrdering idleOrdering = IdleOrdering.FIFO;
+	private Long idleTimeOut = 0L;
+	private List<String> initSql;
+	private Integer learnedWarmStatements = 0;
+	private Long logAggregationInterval = 10000L;
+	private Integer maxConcurrentCreations = 0;
 	private Integer maxIdle;
 	private Integer maxSize;
 	private Integer minSize;
+	private String name;
+	private Boolean profileStatements = Boolean.FALSE;
+	private Boolean recordBorrowSite = Boolean.FALSE;
+	private Boolean registerMBean = Boolean.TRUE;
+	private Integer replenishHeadroom = 0;
+	private Set<SessionProperty> sessionCache = EnumSet.noneOf(SessionProperty.class);
+	private Long slowStatementThreshold = 1000L;
+	private Integer statementProfileSize = 100;
 	private Long timeBetweenPoolMaintenance;
-
+	private WaitStrategy waitStrategy = WaitStrategy.PARK;
 	private Long waitTimeOut;
+	private List<String> warmStatements;
 
 	public ConnectionPoolBuilder() {
 		super();
 	}
 
+	/**
+	 * Take a connection away from its borrower when its lease passes CONNECTION_TIME_OUT: the running statements are cancelled, the physical
+	 * connection is aborted, the lease is fenced so that later calls on it fail fast, and a replacement is established in the background. Off by
+	 * default, in which case a timed out connection is put back in the pool.
+	 */
+	public ConnectionPoolBuilder abortTimedOutLeases(Boolean abortTimedOutLeases) {
+		this.abortTimedOutLeases = abortTimedOutLeases;
+		return this;
+	}
+
+	/**
+	 * Lease the capacity for every connection from a budget shared with the other pools that connect to the same database server, so that
+	 * together they stay under its connection limit. No budget by default.
+	 */
+	public ConnectionPoolBuilder budget(ConnectionBudget budget) {
+		this.budget = budget;
+		return this;
+	}
+
+	/**
+	 * The capacity of the budget held for this pool whether it uses it or not. MIN_SIZE by default.
+	 */
+	public ConnectionPoolBuilder budgetGuarantee(Integer budgetGuarantee) {
+		this.budgetGuarantee = budgetGuarantee;
+		return this;
+	}
+
+	/**
+	 * The weight of this pool when the budget reclaims the capacity over the guarantees: a pool holding more than its weighted share gives up idle
+	 * connections to a pool that is denied capacity. 1 by default.
+	 */
+	public ConnectionPoolBuilder budgetWeight(Integer budgetWeight) {
+		this.budgetWeight = budgetWeight;
+		return this;
+	}
+
 	public ConnectionPool build() throws SQLException {
 		return new ConnectionPoolImpl(this);
 	}
 
+	/**
+	 * Keep the connections returned while MAX_IDLE_SIZE connections are already idle in a burst tier instead of closing them, and close a burst
+	 * connection once it has been idle this many milliseconds. Burst connections are reused before new connections are established, and they are
+	 * closed one at a time. 0 (the default) turns the burst tier off, in which case connections over MAX_IDLE_SIZE are closed when they come back.
+	 */
+	public ConnectionPoolBuilder burstIdleTimeOut(Long burstIdleTimeOut) {
+		this.burstIdleTimeOut = burstIdleTimeOut;
+		return this;
+	}
+
+	/**
+	 * A connection older than this many milliseconds is not kept in the burst tier, so that connections established for a burst do not linger on.
+	 * 0 (the default) puts no limit on the age of burst connections.
+	 */
+	public ConnectionPoolBuilder burstLingerTime(Long burstLingerTime) {
+		this.burstLingerTime = burstLingerTime;
+		return this;
+	}
+
+	/**
+	 * Builds an immutable configuration snapshot from the properties set on this builder. Use it to reconfigure a running pool.
+	 *
+	 * @return the configuration snapshot
+	 */
+	public ConnectionPoolConfiguration buildConfiguration() {
+		return new ConnectionPoolConfiguration(this);
+	}
+
+	/**
+	 * Copies all the sizes and timeouts of the given snapshot into this builder.
+	 *
+	 * @param configuration
+	 * @return this builder
+	 */
+	public ConnectionPoolBuilder configuration(ConnectionPoolConfiguration configuration) {
+		this.connectionTimeOut = configuration.getConnectionTimeOut();
+		this.maxIdle = configuration.getMaxIdle();
+		this.maxSize = configuration.getMaxSize();
+		this.minSize = configuration.getMinSize();
+		this.timeBetweenPoolMaintenance = configuration.getTimeBetweenPoolMaintenance();
+		this.waitTimeOut = configuration.getWaitTimeOut();
+		return this;
+	}
+
 	public ConnectionPoolBuilder connectionTimeOut(Long connectionTimeOut) {
 		this.connectionTimeOut = connectionTimeOut;
 		return this;
 	}
 
+	/**
+	 * How many connections can be established back to back before the creation rate applies. 1 by default.
+	 */
+	public ConnectionPoolBuilder creationBurst(Integer creationBurst) {
+		this.creationBurst = creationBurst;
+		return this;
+	}
+
+	/**
+	 * Limit the establishment of new connections to this many per second, so that a cold start or a failover does not send every waiting borrower
+	 * to the database at once. A borrower that would have to wait for the limit waits for whichever connection becomes available first instead,
+	 * returned or newly established. 0 (the default) turns the limit off.
+	 */
+	public ConnectionPoolBuilder creationRate(Double creationRate) {
+		this.creationRate = creationRate;
+		return this;
+	}
+
 	public ConnectionPoolBuilder dataSource(DataSource dataSource) {
 		this.dataSource = dataSource;
 		return this;
 	}
 
+	/**
+	 * Serve the threads waiting for a connection in the order they started waiting. On by default. Unfair waiting has more throughput under
+	 * contention; it does not change which idle connection is handed out.
+	 */
+	public ConnectionPoolBuilder fairWaiters(Boolean fairWaiters) {
+		this.fairWaiters = fairWaiters;
+		return this;
+	}
+
+	public Boolean getAbortTimedOutLeases() {
+		return abortTimedOutLeases;
+	}
+
+	public ConnectionBudget getBudget() {
+		return budget;
+	}
+
+	public Integer getBudgetGuarantee() {
+		return budgetGuarantee;
+	}
+
+	public Integer getBudgetWeight() {
+		return budgetWeight;
+	}
+
+	public Long getBurstIdleTimeOut() {
+		return burstIdleTimeOut;
+	}
+
+	public Long getBurstLingerTime() {
+		return burstLingerTime;
+	}
+
 	public Long getConnectionTimeOut() {
 		return connectionTimeOut;
 	}
 
+	public Integer getCreationBurst() {
+		return creationBurst;
+	}
+
+	public Double getCreationRate() {
+		return creationRate;
+	}
+
 	public DataSource getDataSource() {
 		return dataSource;
 	}
 
+	public Boolean getFairWaiters() {
+		return fairWaiters;
+	}
+
+	public Integer getFlightRecorderSize() {
+		return flightRecorderSize;
+	}
+
+	public ConnectionHostResolver getHostResolver() {
+		return hostResolver;
+	}
+
+	public IdleOrdering getIdleOrdering() {
+		return idleOrdering;
+	}
+
+	public Long getIdleTimeOut() {
+		return idleTimeOut;
+	}
+
+	public List<String> getInitSql() {
+		return initSql;
+	}
+
+	public Integer getLearnedWarmStatements() {
+		return learnedWarmStatements;
+	}
+
+	public Long getLogAggregationInterval() {
+		return logAggregationInterval;
+	}
+
+	public Integer getMaxConcurrentCreations() {
+		return maxConcurrentCreations;
+	}
+
 	public Integer getMaxIdle() {
 		return maxIdle;
 	}
@@ -57,14 +263,123 @@ public class ConnectionPoolBuilder {
 		return minSize;
 	}
 
+	public String getName() {
+		return name;
+	}
+
+	public Boolean getProfileStatements() {
+		return profileStatements;
+	}
+
+	public Boolean getRecordBorrowSite() {
+		return recordBorrowSite;
+	}
+
+	public Boolean getRegisterMBean() {
+		return registerMBean;
+	}
+
+	public Integer getReplenishHeadroom() {
+		return replenishHeadroom;
+	}
+
+	public Set<SessionProperty> getSessionCache() {
+		return sessionCache;
+	}
+
+	public Long getSlowStatementThreshold() {
+		return slowStatementThreshold;
+	}
+
+	public Integer getStatementProfileSize() {
+		return statementProfileSize;
+	}
+
 	public Long getTimeBetweenPoolMaintenance() {
 		return timeBetweenPoolMaintenance;
 	}
 
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
 	public Long getWaitTimeOut() {
 		return waitTimeOut;
 	}
 
+	public List<String> getWarmStatements() {
+		return warmStatements;
+	}
+
+	/**
+	 * The number of recent pool events kept in memory by the lease flight recorder.
+	 */
+	public ConnectionPoolBuilder flightRecorderSize(Integer flightRecorderSize) {
+		this.flightRecorderSize = flightRecorderSize;
+		return this;
+	}
+
+	/**
+	 * Tells the ROUND_ROBIN idle ordering which host a connection is connected to. By default the host is taken from the url in the connection's
+	 * database meta data. Ignored over a FailoverDataSource, which tells the endpoint of a connection itself.
+	 */
+	public ConnectionPoolBuilder hostResolver(ConnectionHostResolver hostResolver) {
+		this.hostResolver = hostResolver;
+		return this;
+	}
+
+	/**
+	 * The order in which idle connections are handed out. FIFO by default.
+	 */
+	public ConnectionPoolBuilder idleOrdering(IdleOrdering idleOrdering) {
+		this.idleOrdering = idleOrdering;
+		return this;
+	}
+
+	/**
+	 * Close an idle connection once it has been idle this many milliseconds, as long as the pool keeps MIN_SIZE connections. The pool maintenance
+	 * closes them, the one idle longest first, so with LIFO ordering the connections at the bottom of the stack age out and the pool shrinks to the
+	 * connections it actually uses. 0 (the default) keeps idle connections until the pool is shrunk.
+	 */
+	public ConnectionPoolBuilder idleTimeOut(Long idleTimeOut) {
+		this.idleTimeOut = idleTimeOut;
+		return this;
+	}
+
+	/**
+	 * Sql run in one batch on every new connection before it is handed out, to set up the session (SET statements, search_path, time zone). A
+	 * connection whose init sql fails is not used.
+	 */
+	public ConnectionPoolBuilder initSql(List<String> initSql) {
+		this.initSql = initSql;
+		return this;
+	}
+
+	/**
+	 * Learn the statements prepared most often through the pool's connections and warm up every new connection with this many of them, besides
+	 * the configured warm statements. 0 (the default) turns learning off.
+	 */
+	public ConnectionPoolBuilder learnedWarmStatements(Integer learnedWarmStatements) {
+		this.learnedWarmStatements = learnedWarmStatements;
+		return this;
+	}
+
+	/**
+	 * Limit hits, timeouts and connection errors are logged at most once per this many milliseconds, with a count.
+	 */
+	public ConnectionPoolBuilder logAggregationInterval(Long logAggregationInterval) {
+		this.logAggregationInterval = logAggregationInterval;
+		return this;
+	}
+
+	/**
+	 * Limit how many connections are established at the same time. 0 (the default) turns the limit off.
+	 */
+	public ConnectionPoolBuilder maxConcurrentCreations(Integer maxConcurrentCreations) {
+		this.maxConcurrentCreations = maxConcurrentCreations;
+		return this;
+	}
+
 	public ConnectionPoolBuilder maxIdle(Integer maxIdle) {
 		this.maxIdle = maxIdle;
 		return this;
@@ -80,13 +395,99 @@ public class ConnectionPoolBuilder {
 		return this;
 	}
 
+	/**
+	 * The name of the pool. Recorded pool events are tagged with it.
+	 */
+	public ConnectionPoolBuilder name(String name) {
+		this.name = name;
+		return this;
+	}
+
+	/**
+	 * Profile the statements of the pool's connections per sql shape: execution time, rows fetched and updated and time to first row. Off by
+	 * default.
+	 */
+	public ConnectionPoolBuilder profileStatements(Boolean profileStatements) {
+		this.profileStatements = profileStatements;
+		return this;
+	}
+
+	/**
+	 * Capture the stack of every borrow so that lease events can tell where a connection was borrowed. Expensive; meant for leak hunting.
+	 */
+	public ConnectionPoolBuilder recordBorrowSite(Boolean recordBorrowSite) {
+		this.recordBorrowSite = recordBorrowSite;
+		return this;
+	}
+
+	/**
+	 * Register a ConnectionPoolMXBean for the pool with the platform MBean server, named after the pool. On by default.
+	 */
+	public ConnectionPoolBuilder registerMBean(Boolean registerMBean) {
+		this.registerMBean = registerMBean;
+		return this;
+	}
+
+	/**
+	 * Establish connections ahead of demand, so that this many connections are still idle by the time a connection established now would be ready.
+	 * The pool projects the idle connections from the moving averages of the borrow rate, the lease time and the connect latency, and establishes
+	 * the missing ones in the background, within MAX_IDLE_SIZE and MAX_SIZE. 0 (the default) turns replenishing off.
+	 */
+	public ConnectionPoolBuilder replenishHeadroom(Integer replenishHeadroom) {
+		this.replenishHeadroom = replenishHeadroom;
+		return this;
+	}
+
+	/**
+	 * The session properties (and the database meta data) the pool's connections serve from a cache kept current by their setters, instead of asking
+	 * the driver every time. None by default, so the cache is opt in. Leave out the ones your driver or your sql changes on the server side.
+	 */
+	public ConnectionPoolBuilder sessionCache(Set<SessionProperty> sessionCache) {
+		this.sessionCache = sessionCache;
+		return this;
+	}
+
+	/**
+	 * Profiled statements that take at least this many milliseconds to execute are captured with their sql text.
+	 */
+	public ConnectionPoolBuilder slowStatementThreshold(Long slowStatementThreshold) {
+		this.slowStatementThreshold = slowStatementThreshold;
+		return this;
+	}
+
+	/**
+	 * The number of sql shapes (and of slow statements) kept by the statement profiler. The shapes with the most total execution time are kept.
+	 */
+	public ConnectionPoolBuilder statementProfileSize(Integer statementProfileSize) {
+		this.statementProfileSize = statementProfileSize;
+		return this;
+	}
+
 	public ConnectionPoolBuilder timeBetweenPoolMaintenance(Long timeBetweenPoolMaintenance) {
 		this.timeBetweenPoolMaintenance = timeBetweenPoolMaintenance;
 		return this;
 	}
 
+	/**
+	 * How a borrower waits when no connection is idle and no new one can be established: park right away (PARK, the default), or spin briefly
+	 * first (SPIN_THEN_PARK), which saves the park and unpark when leases are short. See WaitStrategy.
+	 */
+	public ConnectionPoolBuilder waitStrategy(WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+		return this;
+	}
+
 	public ConnectionPoolBuilder waitTimeOut(Long connectionTimeOut) {
 		this.waitTimeOut = connectionTimeOut;
 		return this;
 	}
+
+	/**
+	 * Statements prepared once (and closed again) on every new connection before it is handed out, so that they are in the driver's statement cache
+	 * for the first borrower.
+	 */
+	public ConnectionPoolBuilder warmStatements(List<String> warmStatements) {
+		this.warmStatements = warmStatements;
+		return this;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.cornholio.database.connectionpool;
+
+/**
+ * An immutable, already parsed snapshot of the connection pool configuration. The pool holds one snapshot at a time and replaces it as a whole when
+ * it is reconfigured, so the hot paths read plain primitive fields and never see half of an update.
+ *
+ * @author nikhilagarwal
+ */
+public final class ConnectionPoolConfiguration {
+
+	private static final String LOG_MESSAGE_INVALID_CONFIGURATION = "Invalid connection pool configuration: ";
+	private static final String LOG_MESSAGE_MISSING_PROPERTY = "Missing connection pool property: ";
+
+	private final long connectionTimeOut;
+	private final int maxIdle;
+	private final int maxSize;
+	private final int minSize;
+	private final long timeBetweenPoolMaintenance;
+	private final long waitTimeOut;
+
+	ConnectionPoolConfiguration(ConnectionPoolBuilder builder) {
+		this.connectionTimeOut = required(builder.getConnectionTimeOut(), "CONNECTION_TIME_OUT");
+		this.maxIdle = required(builder.getMaxIdle(), "MAX_IDLE_SIZE");
+		this.maxSize = required(builder.getMaxSize(), "MAX_SIZE");
+		this.minSize = required(builder.getMinSize(), "MIN_SIZE");
+		this.timeBetweenPoolMaintenance = required(builder.getTimeBetweenPoolMaintenance(), "TIME_BETWEEN_POOL_MAINTENANCE");
+		this.waitTimeOut = required(builder.getWaitTimeOut(), "WAIT_TIME_OUT");
+
+		// the pool is filled up to MIN_SIZE idle connections, so MIN_SIZE has to fit into the idle queue
+		if (this.minSize < 0 || this.minSize > this.maxIdle || this.maxIdle > this.maxSize || this.maxSize <= 0) {
+			throw new IllegalArgumentException(LOG_MESSAGE_INVALID_CONFIGURATION + this);
+		}
+	}
+
+	private static <T> T required(T value, String property) {
+		if (value == null) {
+			throw new IllegalArgumentException(LOG_MESSAGE_MISSING_PROPERTY + property);
+		}
+		return value;
+	}
+
+	public long getConnectionTimeOut() {
+		return connectionTimeOut;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public long getTimeBetweenPoolMaintenance() {
+		return timeBetweenPoolMaintenance;
+	}
+
+	public long getWaitTimeOut() {
+		return waitTimeOut;
+	}
+
+	@Override
+	public String toString() {
+		return "CONNECTION_TIME_OUT=" + connectionTimeOut + ", MAX_IDLE_SIZE=" + maxIdle + ", MAX_SIZE=" + maxSize + ", MIN_SIZE=" + minSize
+				+ ", TIME_BETWEEN_POOL_MAINTENANCE=" + timeBetweenPoolMaintenance + ", WAIT_TIME_OUT=" + waitTimeOut;
+	}
+}
@@ -1,371 +1,1929 @@
 package com.cornholio.database.connectionpool;
 
+import com.cornholio.database.connection.SessionProperty;
 import com.cornholio.database.connection.event.ConnectionEvent;
 import com.cornholio.database.connection.event.ConnectionEventListener;
+import com.cornholio.database.connection.event.LeaseFlightRecorder;
+import com.cornholio.database.connection.event.PoolEventRecorder;
+import com.cornholio.database.connection.event.PoolEventRecorders;
+import com.cornholio.database.connection.event.PoolStatistics;
+import com.cornholio.database.connection.event.RateLimitedLogger;
 import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connection.profile.StatementProfiler;
+import com.cornholio.database.connectionpool.failover.Endpoint;
+import com.cornholio.database.connectionpool.failover.FailoverDataSource;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The max number of connections available in the connection pool is configured by MAX_IDLE_SIZE. But pool can always keep produce connections until
- * the total connection count reaches MAX_SIZE. A connection pool will be initialized with MIN_SIZE number of connection.
- * 
+ * the total connection count reaches MAX_SIZE. A connection pool will be initialized with MIN_SIZE number of connection. The sizes and timeouts can
+ * be changed while the pool is running through the reconfigure method. Unless switched off in the builder, every pool registers a
+ * ConnectionPoolMXBean so that it can be inspected and operated over JMX.
+ *
  * @author nikhilagarwal
  */
 public class ConnectionPoolImpl implements ConnectionPool {
 
 	// loggers and messages
-	private static final String LOG_MESSAGE_CONNECTION_CLOSED = "Connection closed";
-	private static final String LOG_MESSAGE_CONNECTION_DISPOSED = "Connection disposed. Total Connections Active: ";
+	private static final long CONNECTION_DRAIN_INTERVAL = 100L;
+	private static final String LOG_MESSAGE_AVAILABILITY_LISTENER_FAILED = "Availability listener failed";
+	private static final String LOG_MESSAGE_CONNECTION_ABORTED = "Timed out lease aborted and replaced. Total Connections Active: ";
+	private static final String LOG_MESSAGE_CONNECTION_DRAINED = "Surplus idle connection drained. Total Connections Active: ";
 	private static final String LOG_MESSAGE_CONNECTION_ERROR_OCCURED = "Connection error occurred";
 	private static final String LOG_MESSAGE_CONNECTION_LIMIT_REACHED = "Connection limit reached";
 	private static final String LOG_MESSAGE_CONNECTION_POOL_MAINTENANCE_END = "Ending connection pool maintenance";
 	private static final String LOG_MESSAGE_CONNECTION_POOL_MAINTENANCE_INVALID_FOUND = "Invalid connection found";
 	private static final String LOG_MESSAGE_CONNECTION_POOL_MAINTENANCE_START = "Starting connection pool maintenance";
-	private static final String LOG_MESSAGE_CONNECTION_RECYCLED = "Connection recycled";
-	private static final String LOG_MESSAGE_CONNECTION_TAKEN = "Connection taken";
+	private static final String LOG_MESSAGE_CONNECTION_POOL_RECENT_EVENTS = "Recent connection pool events:\n";
+	private static final String LOG_MESSAGE_CONNECTION_POOL_RECONFIGURED = "Connection pool reconfigured: ";
+	private static final String LOG_MESSAGE_CONNECTION_POOL_RESUMED = "Connection pool borrowing resumed";
+	private static final String LOG_MESSAGE_CONNECTION_POOL_SUSPENDED = "Connection pool suspended";
 	private static final String LOG_MESSAGE_CONNECTION_TIMED_OUT = "Connection timed out";
 	private static final String LOG_MESSAGE_CONNECTION_WAIT_TIMED_OUT = "Connection wait timed out";
-	private static final String LOG_MESSAGE_NEW_CONNECTION_ESTABLISHED = "New connection established. Total Connections Active: ";
+	private static final String LOG_MESSAGE_CONNECTIONS_DRAINED = "Connections drained: ";
+	private static final String LOG_MESSAGE_DATA_SOURCE_SWAPPED = "Data source swapped. Generation: ";
+	private static final String LOG_MESSAGE_HOST_UNKNOWN = "Host of new connection could not be resolved";
+	private static final String LOG_MESSAGE_IDLE_CONNECTIONS_EVICTED = "Idle connections evicted: ";
+	private static final String LOG_MESSAGE_NEW_CONNECTION_FAILED = "New connection could not be established";
+	private static final String LOG_MESSAGE_SCOPE_LEASE_ENDED = "The lease of this connection scope ended: it timed out or was aborted";
+	private static final String LOG_MESSAGE_SCOPE_SESSION_CONTEXT = "A connection scope serves one session context: ";
 	private static final String LOG_MESSAGE_UNKNOWN_ERROR = "Unknown error.\n";
-	private static Logger logger;
-	private BlockingQueue<PooledConnectionImpl> availableConnections;
-	private Long connectionTimeOut;
-	private DataSource dataSource;
-	private Integer maxIdle;
-	private Integer maxSize;
-	private Integer minSize;
+	private static final String POOL_NAME_PREFIX = "connection-pool-";
+	private static final long REPLENISH_INTERVAL = 100L;
+	private static final AtomicInteger POOL_NAME_SEQUENCE = new AtomicInteger();
+	private static final String THREAD_NAME_CONNECTION_CREATOR = "connection-pool-creator";
+	private static final String THREAD_NAME_LEASE_REAPER = "connection-pool-lease-reaper";
+	private static final String THREAD_NAME_POOL_TIMER = "connection-pool-timer";
+	private static final Logger logger = Logger.getLogger(ConnectionPoolImpl.class.getSimpleName());
+	private boolean abortTimedOutLeases;
+	private volatile Runnable[] availabilityListeners;
+	private IdleConnectionQueue availableConnections;
+	private final ConnectionBudget budget;
+	private final ConnectionBudget.Share budgetShare;
+	private IdleConnectionQueue burstConnections;
+	private final long burstIdleTimeOutNanos;
+	private final long burstLingerNanos;
+	private volatile ConnectionPoolConfiguration configuration;
+	private ExecutorService connectionCreator;
+	private final ConnectionInitializer connectionInitializer;
+	private final Set<PooledConnectionImpl> connections;
+	private final ConnectionCreationLimiter creationLimiter;
+	private TimerTask creationTimerTask;
+	private volatile DataSource dataSource;
+	private volatile int dataSourceGeneration;
+	private final Queue<DeferredCreation> deferredCreations;
+	private TimerTask drainTimerTask;
+	private RateLimitedLogger errorOccurredLog;
+	private final Consumer<Endpoint> failoverListener;
+	private final boolean fairWaiters;
+	private LeaseFlightRecorder flightRecorder;
+	private final ConnectionHostResolver hostResolver;
+	private final IdleOrdering idleOrdering;
+	private final long idleTimeOutNanos;
+	private final Thread leaseReaper;
+	private RateLimitedLogger limitReachedLog;
+	private ObjectName mbeanName;
+	private String name;
+	private PoolEventRecorder poolEventRecorder;
 	private PooledConnectionEventListener pooledConnectionEventListener;
-	private Long timeBetweenPoolMaintenance;
+	private Timer poolTimer;
+	private boolean recordBorrowSite;
+	private final IdleConnectionReplenisher replenisher;
+	private final ThreadLocal<ConnectionScope> scopes;
+	private final Set<SessionProperty> sessionCache;
+	private volatile boolean shutDown;
+	private final AtomicInteger starvedWaiters;
+	private StatementProfiler statementProfiler;
+	private final PoolStatistics statistics;
+	private volatile boolean suspended;
+	private final Object suspendedMonitor;
+	private RateLimitedLogger timedOutLog;
 	private TimerTask timerTask;
-	private Integer totalConnectionCount;
-	private Long waitTimeOut;
+	private final AtomicInteger totalConnectionCount;
+	private final WaitStrategy waitStrategy;
+	private RateLimitedLogger waitTimedOutLog;
+
 	/**
 	 * Constructor
 	 */
 	ConnectionPoolImpl(ConnectionPoolBuilder builder) throws SQLException {
 		super();
-		this.setConnectionTimeOut(builder.getConnectionTimeOut());
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.deferredCreations = new ConcurrentLinkedQueue<>();
+		this.suspendedMonitor = new Object();
+		this.scopes = new ThreadLocal<>();
+		this.starvedWaiters = new AtomicInteger();
+		this.availabilityListeners = new Runnable[0];
+		this.totalConnectionCount = new AtomicInteger();
+		this.setConfiguration(builder.buildConfiguration());
 		this.setDataSource(builder.getDataSource());
-		this.setMaxIdle(builder.getMaxIdle());
-		this.setMaxSize(builder.getMaxSize());
-		this.setMinSize(builder.getMinSize());
-		this.setTimeBetweenPoolMaintenance(builder.getTimeBetweenPoolMaintenance());
-		this.setWaitTimeOut(builder.getWaitTimeOut());
+		this.setName(builder.getName() != null ? builder.getName() : POOL_NAME_PREFIX + POOL_NAME_SEQUENCE.incrementAndGet());
+		this.flightRecorder = new LeaseFlightRecorder(builder.getFlightRecorderSize());
+		this.statistics = new PoolStatistics();
+		this.setPoolEventRecorder(PoolEventRecorders.compose(
+				PoolEventRecorders.compose(PoolEventRecorders.forPool(this.getName()), this.flightRecorder), this.statistics));
+		int replenishHeadroom = builder.getReplenishHeadroom() != null ? builder.getReplenishHeadroom() : 0;
+		this.replenisher = replenishHeadroom > 0 ? new IdleConnectionReplenisher(replenishHeadroom) : null;
+		if (this.replenisher != null) {
+			this.setPoolEventRecorder(PoolEventRecorders.compose(this.getPoolEventRecorder(), this.replenisher));
+		}
+		long logInterval = builder.getLogAggregationInterval();
+		this.limitReachedLog = new RateLimitedLogger(getLogger(), Level.WARN, LOG_MESSAGE_CONNECTION_LIMIT_REACHED, logInterval);
+		this.waitTimedOutLog = new RateLimitedLogger(getLogger(), Level.ERROR, LOG_MESSAGE_CONNECTION_WAIT_TIMED_OUT, logInterval);
+		this.timedOutLog = new RateLimitedLogger(getLogger(), Level.WARN, LOG_MESSAGE_CONNECTION_TIMED_OUT, logInterval);
+		this.errorOccurredLog = new RateLimitedLogger(getLogger(), Level.WARN, LOG_MESSAGE_CONNECTION_ERROR_OCCURED, logInterval);
+		this.recordBorrowSite = Boolean.TRUE.equals(builder.getRecordBorrowSite());
+		this.abortTimedOutLeases = Boolean.TRUE.equals(builder.getAbortTimedOutLeases());
+		this.fairWaiters = !Boolean.FALSE.equals(builder.getFairWaiters());
+		this.idleOrdering = builder.getIdleOrdering() != null ? builder.getIdleOrdering() : IdleOrdering.FIFO;
+		this.waitStrategy = builder.getWaitStrategy() != null ? builder.getWaitStrategy() : WaitStrategy.PARK;
+		this.burstIdleTimeOutNanos = TimeUnit.MILLISECONDS.toNanos(builder.getBurstIdleTimeOut() != null ? builder.getBurstIdleTimeOut() : 0L);
+		this.idleTimeOutNanos = TimeUnit.MILLISECONDS.toNanos(builder.getIdleTimeOut() != null ? builder.getIdleTimeOut() : 0L);
+		this.burstLingerNanos = TimeUnit.MILLISECONDS.toNanos(builder.getBurstLingerTime() != null ? builder.getBurstLingerTime() : 0L);
+		this.creationLimiter = new ConnectionCreationLimiter(builder.getCreationRate() != null ? builder.getCreationRate() : 0D,
+				builder.getCreationBurst() != null ? builder.getCreationBurst() : 1,
+				builder.getMaxConcurrentCreations() != null ? builder.getMaxConcurrentCreations() : 0);
+		this.connectionInitializer = new ConnectionInitializer(builder.getInitSql(), builder.getWarmStatements(),
+				builder.getLearnedWarmStatements() != null ? builder.getLearnedWarmStatements() : 0);
+		this.sessionCache = EnumSet.noneOf(SessionProperty.class);
+		if (builder.getSessionCache() != null) {
+			this.sessionCache.addAll(builder.getSessionCache());
+		}
+		this.hostResolver = builder.getHostResolver() != null ? builder.getHostResolver() : ConnectionPoolImpl::resolveUrlHost;
+		if (Boolean.TRUE.equals(builder.getProfileStatements())) {
+			this.statementProfiler = new StatementProfiler(builder.getStatementProfileSize(), builder.getSlowStatementThreshold());
+		}
+		this.budget = builder.getBudget();
+		this.budgetShare = this.budget == null ? null
+				: this.budget.register(this.getName(),
+						builder.getBudgetGuarantee() != null ? builder.getBudgetGuarantee() : this.getConfiguration().getMinSize(),
+						builder.getBudgetWeight() != null ? builder.getBudgetWeight() : 1, this::addBudgetedConnection, this::reclaimIdleConnection);
+		this.failoverListener = this::drainToEndpoint;
+		if (this.getDataSource() instanceof FailoverDataSource) {
+			((FailoverDataSource) this.getDataSource()).addFailoverListener(this.failoverListener);
+		}
 		this.initializeConnectionPool();
-	}
-
-	private static Logger getLogger() {
-		if (logger == null) {
-			logger = Logger.getLogger(ConnectionPoolImpl.class.getSimpleName());
+		if (this.replenisher != null) {
+			this.getPoolTimer().schedule(new IdleConnectionReplenishTimerTask(), REPLENISH_INTERVAL, REPLENISH_INTERVAL);
+		}
+		if (logInterval > 0L) {
+			this.getPoolTimer().schedule(new RateLimitedLogFlushTimerTask(), logInterval, logInterval);
+		}
+		if (!Boolean.FALSE.equals(builder.getRegisterMBean())) {
+			this.mbeanName = ConnectionPoolManagement.register(this);
 		}
-		return logger;
-	}
 
-	private synchronized void addConnectionToPool(PooledConnectionImpl poolconnectionImpl) {
-		this.getAvailableConnections().offer(poolconnectionImpl);
-		this.incTotalConnectionCount();
+		// the reaper thread is started last so that it is not left running if anything before it fails
+		this.leaseReaper = new Thread(new LeaseReaper(), THREAD_NAME_LEASE_REAPER);
+		this.leaseReaper.setDaemon(true);
+		this.leaseReaper.start();
 	}
 
-	private void decTotalConnectionCount() {
-		this.totalConnectionCount--;
+	private static Logger getLogger() {
+		return logger;
 	}
 
 	/**
-	 * Removes the connection from the pool and closes the connection (for real!)
+	 * Takes a connection away from a borrower whose lease timed out instead of recycling it while the borrower may still be using it: the lease's
+	 * statements are cancelled, the physical connection is aborted on the connection creator and the pooled connection is fenced. A replacement is
+	 * established in the background so that the pool does not lose capacity. Runs on the connection creator, never under the lock of the connection
+	 * that timed out.
 	 *
 	 * @param connection
-	 * @throws SQLException
 	 */
-	void disposeConnection(PooledConnectionImpl connection) throws SQLException {
-		this.removeConnectionFromPool(connection);
-		connection.dispose();
+	private void abortTimedOutLease(PooledConnectionImpl connection) {
+		this.connections.remove(connection);
+		connection.abortLease(this.getConnectionCreator());
+		this.decTotalConnectionCount();
+		if (this.reserveConnection()) {
+			this.addConnectionInBackground();
+		}
+		if (getLogger().isDebugEnabled()) {
+			getLogger().log(Level.DEBUG, LOG_MESSAGE_CONNECTION_ABORTED + this.getTotalConnectionCount());
+		}
 	}
 
-	public BlockingQueue<PooledConnectionImpl> getAvailableConnections() {
-		return availableConnections;
+	/**
+	 * Establishes a new connection for a slot that has already been reserved on the connection creator and adds it to the pool.
+	 */
+	private void addConnectionInBackground() {
+		this.addConnectionInBackground(null);
 	}
 
-	private void setAvailableConnections(BlockingQueue<PooledConnectionImpl> availableConnections) {
-		this.availableConnections = availableConnections;
+	/**
+	 * Establishes a new connection for a slot that has already been reserved on the connection creator and adds it to the pool. If the creation
+	 * limiter does not let it be established right away, it is deferred: no thread waits for the limiter, the deferred creations are started in
+	 * order when a creation ends or from the pool timer when the bucket refills.
+	 *
+	 * @param added
+	 *            called with true once the connection is in the pool, or with false if it could not be established. May be null
+	 */
+	private void addConnectionInBackground(Consumer<Boolean> added) {
+		if (this.deferredCreations.isEmpty() && this.creationLimiter.tryAcquire()) {
+			this.addPermittedConnectionInBackground(added);
+		} else {
+			this.deferredCreations.offer(new DeferredCreation(added));
+			this.startDeferredCreations();
+		}
 	}
 
-	@Override
-	public synchronized PooledConnectionImpl getConnection() throws SQLException {
-		PooledConnectionImpl connection = null;
-		try {
-			// if there are no available connections then
-			if (this.getAvailableConnections().isEmpty()) {
+	private void addConnectionToPool(PooledConnectionImpl poolconnectionImpl) throws SQLException {
+		boolean queued;
+		synchronized (this) {
+			queued = this.getAvailableConnections().offer(poolconnectionImpl);
+			if (!queued) {
+				this.decTotalConnectionCount();
+			}
+		}
 
-				// check if the total number of connections floating in the system exceed the max pool size
-				if (this.getTotalConnectionCount() < this.getMaxSize()) {
+		// a connection is never disposed under the pool's lock: its close takes the connection's lock and then the pool's
+		if (!queued) {
+			this.retireConnection(poolconnectionImpl);
+		}
+		this.notifyAvailable();
+	}
 
-					// if not then add a new connection
-					this.addConnectionToPool(newConnection());
-					if (getLogger().isTraceEnabled()) {
-						getLogger().log(Level.TRACE, LOG_MESSAGE_NEW_CONNECTION_ESTABLISHED + this.getTotalConnectionCount());
-					}
-				} else {
-					getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_LIMIT_REACHED);
+	/**
+	 * Establishes a new connection for a reserved slot on the connection creator, once the creation limiter let it, and adds it to the pool.
+	 */
+	private void addPermittedConnectionInBackground(Consumer<Boolean> added) {
+		this.getConnectionCreator().execute(() -> {
+			boolean inPool = false;
+			try {
+				addConnectionToPool(newPermittedConnection());
+				inPool = true;
+			} catch (SQLException e) {
+				getLogger().log(Level.ERROR, LOG_MESSAGE_NEW_CONNECTION_FAILED, e);
+			} finally {
+				if (added != null) {
+					added.accept(inPool);
 				}
 			}
+		});
+	}
 
-			// ask for a connection and wait for the connection time out if the total connection limit is reached
-			connection = this.getAvailableConnections().poll(this.getWaitTimeOut(), TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			getLogger().log(Level.ERROR, LOG_MESSAGE_UNKNOWN_ERROR, e);
+	/**
+	 * Schedules the deferred creations on the pool timer for when the bucket of the creation limiter has a token again. One timer task serves all
+	 * of them. Creations that wait for a concurrent creation to end are started when it ends instead.
+	 */
+	private synchronized void scheduleDeferredCreations() {
+		long delayNanos = this.creationLimiter.getNextTokenNanos();
+		if (this.creationTimerTask == null && !this.shutDown && delayNanos > 0) {
+			this.creationTimerTask = new DeferredConnectionCreationTimerTask();
+			this.getPoolTimer().schedule(this.creationTimerTask, TimeUnit.NANOSECONDS.toMillis(delayNanos) + 1);
 		}
+	}
 
-		// if queue.poll timed out then the connection will be null. Throw an exception
-		if (connection == null) {
-			SQLException e = new SQLException(LOG_MESSAGE_CONNECTION_WAIT_TIMED_OUT);
-			getLogger().log(Level.ERROR, e.getMessage(), e);
-			throw e;
+	/**
+	 * Starts the deferred creations, oldest first, as long as the creation limiter lets them, and schedules the rest.
+	 */
+	private void startDeferredCreations() {
+		if (this.shutDown) {
+			this.cancelDeferredCreations();
+			return;
 		}
-
-		// mark the connection open and set a connection time out on it
-		connection.open(this.getConnectionTimeOut());
-		if (getLogger().isTraceEnabled()) {
-			getLogger().log(Level.TRACE, LOG_MESSAGE_CONNECTION_TAKEN);
+		while (!this.deferredCreations.isEmpty() && this.creationLimiter.tryAcquire()) {
+			DeferredCreation creation = this.deferredCreations.poll();
+			if (creation == null) {
+				this.creationLimiter.release();
+				break;
+			}
+			this.creationLimiter.throttled(System.nanoTime() - creation.deferredNanos);
+			this.addPermittedConnectionInBackground(creation.added);
+		}
+		if (!this.deferredCreations.isEmpty()) {
+			this.scheduleDeferredCreations();
 		}
-		return connection;
 	}
 
-	public Long getConnectionTimeOut() {
-		return connectionTimeOut;
+	/**
+	 * Registers a hook that is run whenever a connection may have become available without waiting: a connection was returned to the pool, a slot
+	 * was freed or a new idle connection was established. The hook runs on the thread that returned or established the connection, so it must be
+	 * quick; it typically calls tryGetIdleConnection.
+	 *
+	 * @param listener
+	 */
+	public synchronized void addAvailabilityListener(Runnable listener) {
+		Runnable[] listeners = Arrays.copyOf(this.availabilityListeners, this.availabilityListeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+		this.availabilityListeners = listeners;
 	}
 
-	public void setConnectionTimeOut(Long connectionTimeOut) {
-		this.connectionTimeOut = connectionTimeOut;
+	/**
+	 * Blocks a borrower while borrowing is suspended, up to the wait time out.
+	 *
+	 * @param waitTimeOut
+	 * @return false if borrowing was still suspended when the wait timed out
+	 */
+	private boolean awaitResume(long waitTimeOut) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeOut);
+		synchronized (this.suspendedMonitor) {
+			long remaining;
+			while (this.suspended && (remaining = deadline - System.nanoTime()) > 0) {
+				try {
+					TimeUnit.NANOSECONDS.timedWait(this.suspendedMonitor, remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return !this.suspended;
+		}
 	}
 
-	private DataSource getDataSource() {
-		return dataSource;
+	/**
+	 * Gives back a slot reserved with reserveConnection when the connection for it could not be established.
+	 */
+	private synchronized void cancelReservation() {
+		this.decTotalConnectionCount();
 	}
 
-	private void setDataSource(DataSource dataSource) {
-		this.dataSource = dataSource;
+	/**
+	 * Gives back the slots of the deferred creations when the pool shuts down.
+	 */
+	private void cancelDeferredCreations() {
+		DeferredCreation creation;
+		while ((creation = this.deferredCreations.poll()) != null) {
+			this.cancelReservation();
+			if (creation.added != null) {
+				creation.added.accept(Boolean.FALSE);
+			}
+		}
 	}
 
-	private Integer getMaxIdle() {
-		return maxIdle;
+	private synchronized void decTotalConnectionCount() {
+		this.totalConnectionCount.decrementAndGet();
+		if (this.budgetShare != null) {
+			this.budget.release(this.budgetShare);
+		}
 	}
 
-	private void setMaxIdle(Integer maxIdle) {
-		this.maxIdle = maxIdle;
+	/**
+	 * Disposes a connection that was invalidated instead of recycling it: its state is unknown, so it is never handed out again. A replacement is
+	 * established in the background if the pool would stay below MIN_SIZE otherwise.
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	private void discardConnection(PooledConnectionImpl connection) throws SQLException {
+		if (!this.removeConnectionFromPool(connection)) {
+			// it was leased
+			this.decTotalConnectionCount();
+		}
+		this.retireConnection(connection);
+		if (!this.shutDown && this.totalConnectionCount.get() < this.getConfiguration().getMinSize() && this.reserveConnection()) {
+			this.addConnectionInBackground();
+		}
+		this.notifyAvailable();
 	}
 
-	private Integer getMaxSize() {
-		return maxSize;
+	/**
+	 * Removes the connection from the pool and closes the connection (for real!)
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	void disposeConnection(PooledConnectionImpl connection) throws SQLException {
+		if (this.removeConnectionFromPool(connection)) {
+			this.retireConnection(connection);
+		}
 	}
 
-	private void setMaxSize(Integer maxSize) {
-		this.maxSize = maxSize;
+	/**
+	 * Disposes idle connections over MAX_IDLE_SIZE (or over MAX_SIZE in total) one at a time, so a pool that was shrunk drains gradually instead of
+	 * dropping its idle connections all at once. Burst connections are retired the same way once they expire. Leased connections are left alone;
+	 * they are disposed when they come back if the pool is still over its limits.
+	 */
+	private synchronized void drainSurplusConnections() {
+		if (this.drainTimerTask == null && !this.shutDown && (this.hasSurplusConnections() || !this.burstConnections.isEmpty())) {
+			this.drainTimerTask = new PooledConnectionDrainTimerTask();
+			this.getPoolTimer().schedule(this.drainTimerTask, CONNECTION_DRAIN_INTERVAL, CONNECTION_DRAIN_INTERVAL);
+		}
 	}
 
-	private Integer getMinSize() {
-		return minSize;
+	/**
+	 * Drains the connections that match the predicate: the idle ones are disposed right away and the leased ones when they are returned. The pool
+	 * then establishes MIN_SIZE connections again in the background.
+	 *
+	 * @param predicate
+	 *            the test a connection has to pass to be drained
+	 * @return the number of idle connections disposed
+	 * @throws SQLException
+	 */
+	public int drainConnections(Predicate<PooledConnectionImpl> predicate) throws SQLException {
+		int disposed = 0;
+		for (PooledConnectionImpl connection : this.connections) {
+			if (predicate.test(connection)) {
+				// mark the connection before taking it out of the idle queue, so that it is retired if it is being returned right now
+				connection.setRetiring(true);
+				if (this.removeConnectionFromPool(connection)) {
+					this.retireConnection(connection);
+					disposed++;
+				}
+			}
+		}
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTIONS_DRAINED + disposed);
+		}
+		this.growConnectionPool();
+		return disposed;
 	}
 
-	private void setMinSize(Integer minSize) {
-		this.minSize = minSize;
+	/**
+	 * The failover listener: drains the connections on every endpoint but the active one. Listeners run outside the data source's lock, so two
+	 * changes in quick succession may be told in either order; the active endpoint is read when the drain runs, never taken from the event.
+	 */
+	private void drainToEndpoint(Endpoint changedTo) {
+		DataSource dataSource = this.getDataSource();
+		if (!(dataSource instanceof FailoverDataSource)) {
+			return;
+		}
+		Endpoint activeEndpoint = ((FailoverDataSource) dataSource).getActiveEndpoint();
+		try {
+			this.drainConnections(connection -> !activeEndpoint.getName().equals(connection.getHost()));
+		} catch (SQLException e) {
+			getLogger().log(Level.ERROR, e.getMessage(), e);
+		}
 	}
 
-	public PooledConnectionEventListener getPooledConnectionEventListener() {
-		return pooledConnectionEventListener;
+	/**
+	 * Describes every connection that is currently leased, see PooledConnectionImpl.describeLease. Borrow sites are only included if the pool
+	 * records them.
+	 *
+	 * @return one line per leased connection
+	 */
+	public List<String> dumpLeases() {
+		List<String> leases = new ArrayList<>();
+		for (PooledConnectionImpl connection : this.connections) {
+			String lease = connection.describeLease();
+			if (lease != null) {
+				leases.add(lease);
+			}
+		}
+		return leases;
 	}
 
-	public void setPooledConnectionEventListener(PooledConnectionEventListener pooledConnectionEventListener) {
-		this.pooledConnectionEventListener = pooledConnectionEventListener;
+	/**
+	 * Disposes every idle connection and then establishes MIN_SIZE connections again in the background. Leased connections are left alone.
+	 *
+	 * @return the number of connections disposed
+	 * @throws SQLException
+	 */
+	public int evictIdleConnections() throws SQLException {
+		int evicted = this.disposeIdleConnections();
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_IDLE_CONNECTIONS_EVICTED + evicted);
+		}
+		this.growConnectionPool();
+		return evicted;
 	}
 
-	public Long getTimeBetweenPoolMaintenance() {
-		return timeBetweenPoolMaintenance;
+	private int disposeIdleConnections() throws SQLException {
+		int disposed = 0;
+		PooledConnectionImpl connection;
+		while ((connection = this.pollIdleConnection()) != null) {
+			this.retireConnection(connection);
+			disposed++;
+		}
+		return disposed;
 	}
 
-	public void setTimeBetweenPoolMaintenance(Long timeBetweenPoolMaintenance) {
-		this.timeBetweenPoolMaintenance = timeBetweenPoolMaintenance;
+	/**
+	 * Disposes the idle connections that have been idle for the idle time out, the one idle longest first, as long as the pool keeps MIN_SIZE
+	 * connections. Whatever the idle ordering, the connections nobody borrows age out this way, so a LIFO pool shrinks to the connections it uses.
+	 *
+	 * @throws SQLException
+	 */
+	private void evictExpiredIdleConnections() throws SQLException {
+		if (this.idleTimeOutNanos == 0) {
+			return;
+		}
+		PooledConnectionImpl connection;
+		while ((connection = this.pollExpiredIdleConnection()) != null) {
+			this.retireConnection(connection);
+		}
 	}
 
-	public TimerTask getTimerTask() {
-		return timerTask;
+	public IdleConnectionQueue getAvailableConnections() {
+		return availableConnections;
 	}
 
-	public void setTimerTask(TimerTask timerTask) {
-		this.timerTask = timerTask;
+	private void setAvailableConnections(IdleConnectionQueue availableConnections) {
+		this.availableConnections = availableConnections;
 	}
 
-	public Integer getTotalConnectionCount() {
-		return totalConnectionCount;
+	/**
+	 * @return the idle connections of the burst tier: connections that came back while MAX_IDLE_SIZE connections were already idle. Always empty if
+	 *         the burst tier is off
+	 */
+	public IdleConnectionQueue getBurstConnections() {
+		return burstConnections;
 	}
 
-	private void setTotalConnectionCount(Integer availableConnectionCount) {
-		this.totalConnectionCount = availableConnectionCount;
+	/**
+	 * @return how many burst connections may be idle at once: the connections the pool may have over MAX_IDLE_SIZE, or none if the burst tier is
+	 *         off
+	 */
+	private int getBurstCapacity(ConnectionPoolConfiguration configuration) {
+		return this.burstIdleTimeOutNanos > 0 ? Math.max(0, configuration.getMaxSize() - configuration.getMaxIdle()) : 0;
 	}
 
-	private Long getWaitTimeOut() {
-		return waitTimeOut;
+	/**
+	 * @return the configuration snapshot the pool is currently running with
+	 */
+	public ConnectionPoolConfiguration getConfiguration() {
+		return configuration;
 	}
 
-	private void setWaitTimeOut(Long connectionTimeOut) {
-		this.waitTimeOut = connectionTimeOut;
+	private void setConfiguration(ConnectionPoolConfiguration configuration) {
+		this.configuration = configuration;
 	}
 
-	private void incTotalConnectionCount() {
-		this.totalConnectionCount++;
+	@Override
+	public PooledConnectionImpl getConnection() throws SQLException {
+		return this.getConnection(null);
 	}
 
 	/**
-	 * Initialize the connection pool:
-	 * <ol>
-	 * <li>Set the count of floating connections to 0</li>
-	 * <li>Instantiate the blocking queue</li>
-	 * <li>Instantiate connections</li>
-	 * </ol>
+	 * Gets a connection from the pool, preferring an idle connection whose session context is the given one. Layers that set up the session of a
+	 * connection (a role, a schema) tag the connection with its session context so that they can skip setting it up again.
 	 *
+	 * @param sessionContext
+	 *            the preferred session context, or null for no preference
+	 * @return a valid connection from the pool
 	 * @throws SQLException
 	 */
-	private void initializeConnectionPool() throws SQLException {
-
-		// set the available connections count to 0
-		this.setTotalConnectionCount(0);
-
-		this.setPooledConnectionEventListener(new PooledConnectionEventListener());
+	public PooledConnectionImpl getConnection(String sessionContext) throws SQLException {
+		return this.getConnection(sessionContext, this.getConfiguration().getWaitTimeOut());
+	}
 
-		// initialize the pool size to Max Idle. If there are more connections that are being released than the MAX_IDLE_SIZE the pool will dispose
-		BlockingQueue<PooledConnectionImpl> availableConnections = new ArrayBlockingQueue<>(this.getMaxIdle(), Boolean.TRUE);
-		this.setAvailableConnections(availableConnections);
+	/**
+	 * Gets a connection from the pool like getConnection(sessionContext), but waits at most the given time instead of the pool's wait time out.
+	 * Layers that wait for something of their own before they borrow pass on what is left of their wait.
+	 *
+	 * @param sessionContext
+	 *            the preferred session context, or null for no preference
+	 * @param waitTimeOut
+	 *            how many milliseconds to wait for a connection to be returned
+	 * @return a valid connection from the pool
+	 * @throws SQLException
+	 */
+	public PooledConnectionImpl getConnection(String sessionContext, long waitTimeOut) throws SQLException {
+		ConnectionScope scope = this.scopes.get();
+		if (scope != null) {
+			if (scope.connection == null) {
+				scope.connection = this.borrowConnection(sessionContext, true, waitTimeOut);
+				scope.leaseNumber = scope.connection.bindScope();
+				scope.sessionContext = sessionContext;
+				return scope.connection;
+			}
 
-		this.initializeConnections();
+			// the scope's lease may have timed out and the connection gone to another borrower
+			if (!scope.connection.isLease(scope.leaseNumber)) {
+				throw new SQLException(LOG_MESSAGE_SCOPE_LEASE_ENDED);
+			}
+			if (sessionContext != null && scope.sessionContext != null && !sessionContext.equals(scope.sessionContext)) {
+				throw new SQLException(LOG_MESSAGE_SCOPE_SESSION_CONTEXT + scope.sessionContext);
+			}
+			if (scope.sessionContext == null) {
+				scope.sessionContext = sessionContext;
+			}
+			return scope.connection;
+		}
+		return this.borrowConnection(sessionContext, true, waitTimeOut);
 	}
 
 	/**
-	 * Find the minimum size of the connection pool and instantiate as many connections. Also increment the total connections count.
+	 * Borrows a connection: an idle one (from the core, then from the burst tier), else a new one if the pool is under MAX_SIZE, else one that is
+	 * returned within the wait time out.
 	 *
+	 * @param sessionContext
+	 *            the preferred session context, or null for no preference
+	 * @param wait
+	 *            false to return null instead of waiting for a connection to be returned (or for borrowing to be resumed)
+	 * @param waitTimeOut
+	 *            how many milliseconds to wait if wait is true
+	 * @return the connection, or null if there was none and wait is false
 	 * @throws SQLException
 	 */
-	private synchronized void initializeConnections() throws SQLException {
-		while (this.getAvailableConnections().size() < this.getMinSize()) {
-			this.addConnectionToPool(newConnection());
+	private PooledConnectionImpl borrowConnection(String sessionContext, boolean wait, long waitTimeOut) throws SQLException {
+		ConnectionPoolConfiguration configuration = this.getConfiguration();
+		long borrowStartNanos = System.nanoTime();
+		boolean created = false;
+		if (this.suspended && !wait) {
+			return null;
 		}
-	}
+		if (this.suspended && !this.awaitResume(waitTimeOut)) {
+			this.getPoolEventRecorder().connectionWaitTimedOut(System.nanoTime() - borrowStartNanos);
+			throw new SQLException(LOG_MESSAGE_CONNECTION_POOL_SUSPENDED);
+		}
+		PooledConnectionImpl connection =
+				sessionContext == null ? this.getAvailableConnections().poll() : this.getAvailableConnections().poll(sessionContext);
 
-	private synchronized void maintainConnectionPool() throws SQLException {
-		for (PooledConnectionImpl temp : this.getAvailableConnections()) {
-			if (!temp.isValid(0)) {
-				if (getLogger().isInfoEnabled()) {
-					getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTION_POOL_MAINTENANCE_INVALID_FOUND);
+		// reuse a burst connection before establishing a new one
+		if (connection == null && !this.burstConnections.isEmpty()) {
+			connection = sessionContext == null ? this.burstConnections.poll() : this.burstConnections.poll(sessionContext);
+		}
+
+		// if there are no available connections then
+		if (connection == null) {
+
+			// check if the total number of connections floating in the system exceed the max pool size
+			boolean reserved = this.reserveConnection();
+			if (reserved && this.creationLimiter.tryAcquire()) {
+
+				// if not then establish a new connection for this thread
+				connection = this.newPermittedConnection();
+				created = true;
+			} else {
+				if (reserved) {
+
+					// creation is throttled: the connection is established in the background once the limiter lets it, and this thread takes
+					// whichever connection becomes available first, returned or new
+					this.addConnectionInBackground();
+				}
+				if (!wait) {
+					return null;
+				}
+				boolean starved = false;
+				if (!reserved) {
+					if (this.budgetShare != null && this.totalConnectionCount.get() < configuration.getMaxSize()) {
+
+						// the connection budget denied the connection: it is established once capacity is given back or reclaimed for this pool
+						starved = true;
+						this.starvedWaiters.incrementAndGet();
+						this.budget.starve(this.budgetShare);
+					}
+					this.getPoolEventRecorder().connectionLimitReached();
+					this.limitReachedLog.log();
+				}
+				try {
+					// wait for the connection time out for a connection to be released. The pool is not locked while waiting
+					connection = this.getAvailableConnections().poll(waitTimeOut, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					getLogger().log(Level.ERROR, LOG_MESSAGE_UNKNOWN_ERROR, e);
+					Thread.currentThread().interrupt();
+				} finally {
+					if (starved) {
+						this.starvedWaiters.decrementAndGet();
+					}
 				}
-				disposeConnection(temp);
 			}
 		}
 
-		// initialize the connections so that the min_size is maintained
-		initializeConnections();
+		// if queue.poll timed out then the connection will be null. Throw an exception
+		if (connection == null) {
+			this.getPoolEventRecorder().connectionWaitTimedOut(System.nanoTime() - borrowStartNanos);
+			if (this.waitTimedOutLog.log()) {
+				this.logFlightRecorder(Level.ERROR);
+			}
+			throw new SQLException(LOG_MESSAGE_CONNECTION_WAIT_TIMED_OUT);
+		}
+
+		// mark the connection open and set a connection time out on it
+		connection.open(configuration.getConnectionTimeOut());
+		this.getPoolEventRecorder().connectionBorrowed(connection.getId(), System.nanoTime() - borrowStartNanos, created);
+		return connection;
+	}
+
+	private synchronized ExecutorService getConnectionCreator() {
+		if (this.connectionCreator == null) {
+			this.connectionCreator = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, THREAD_NAME_CONNECTION_CREATOR);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.connectionCreator;
 	}
 
 	/**
-	 * Gets a new connection from the data source and sets the pooled connection even listener to it.
-	 *
-	 * @return a new PooledConnectionImpl
-	 * @throws SQLException
+	 * @return the in-memory ring buffer of the most recent pool events
 	 */
-	private PooledConnectionImpl newConnection() throws SQLException {
-		PooledConnectionImpl pooledConnection = new PooledConnectionImpl(this.getDataSource().getConnection());
-		pooledConnection.setConnectionEventListener(this.getPooledConnectionEventListener());
-		return pooledConnection;
+	public LeaseFlightRecorder getFlightRecorder() {
+		return flightRecorder;
 	}
 
 	/**
-	 * Recycles the connection if the connection pool releases the connection or a consumer closes it.
-	 *
-	 * @param connection
-	 * @throws SQLException
+	 * @return the name the pool's ConnectionPoolMXBean is registered under, or null if it is not registered
 	 */
-	private synchronized void recycleConnection(PooledConnectionImpl connection) throws SQLException {
+	public ObjectName getMBeanName() {
+		return mbeanName;
+	}
 
-		// if the max idle pool size is exceeded then
-		if (!this.getAvailableConnections().offer(connection)) {
+	/**
+	 * @return the limiter that throttles the establishment of new connections, and measures the throttling
+	 */
+	public ConnectionCreationLimiter getCreationLimiter() {
+		return creationLimiter;
+	}
 
-			// dispose of the connection (for good!)
-			connection.dispose();
+	/**
+	 * @return the replenisher that establishes connections ahead of demand, or null if replenishing is off
+	 */
+	public IdleConnectionReplenisher getReplenisher() {
+		return replenisher;
+	}
 
-			// decrease the count of the total number of connections floating in the system
-			decTotalConnectionCount();
-			if (getLogger().isTraceEnabled()) {
-				getLogger().log(Level.TRACE, LOG_MESSAGE_CONNECTION_DISPOSED + this.getTotalConnectionCount());
-			}
-		} else {
-			if (getLogger().isTraceEnabled()) {
-				getLogger().log(Level.TRACE, LOG_MESSAGE_CONNECTION_RECYCLED);
-			}
-		}
+	/**
+	 * @return the pool's share of the connection budget, or null if the pool has no budget
+	 */
+	public ConnectionBudget.Share getBudgetShare() {
+		return budgetShare;
 	}
 
-	@Override
-	public void releaseConnection(Connection connection) throws SQLException {
-		// just releases the connection and marks it closed. The connection is actually closed when you call the dispose method
-		connection.close();
+	/**
+	 * @return the statement profiler of the pool or null if statements are not profiled
+	 */
+	public StatementProfiler getStatementProfiler() {
+		return statementProfiler;
 	}
 
 	/**
-	 * Removes the connection from connection pool and decreases the connection count.
-	 *
-	 * @param
+	 * @return the init pipeline run on every new connection
 	 */
-	synchronized void removeConnectionFromPool(PooledConnectionImpl connection) {
-		this.getAvailableConnections().remove(connection);
-		this.decTotalConnectionCount();
+	public ConnectionInitializer getConnectionInitializer() {
+		return connectionInitializer;
 	}
 
-	public void setAutoMaintain(boolean isAutoMaintain) {
-		if (isAutoMaintain && this.getTimeBetweenPoolMaintenance() > 0) {
-			this.setTimerTask(new PooledConnectionMaintenanceTimerTask());
-			Timer timer = new Timer(true);
-			timer.scheduleAtFixedRate(this.getTimerTask(), this.getTimeBetweenPoolMaintenance(), this.getTimeBetweenPoolMaintenance());
-		} else {
-			if (this.getTimerTask() != null) {
-				this.getTimerTask().cancel();
-				this.setTimerTask(null);
-			}
-		}
+	/**
+	 * @return the lock-free counters and histograms of this pool
+	 */
+	public PoolStatistics getStatistics() {
+		return statistics;
 	}
 
 	/**
-	 * When a connection.close method is called or if there is a timeout or an error event in the connection, the methods implemented by this class
-	 * are called. I am using this primarily to actively connections that have been leased out beyond the connection time out.
-	 *
-	 * @author nikhilagarwal
+	 * @return the most recent pool events, oldest first, one per line
 	 */
-	private class PooledConnectionEventListener implements ConnectionEventListener {
+	public String dumpFlightRecorder() {
+		return this.getFlightRecorder().dump();
+	}
 
-		@Override
-		public void connectionClosed(ConnectionEvent event) throws SQLException {
-			if (getLogger().isTraceEnabled()) {
-				getLogger().log(Level.TRACE, LOG_MESSAGE_CONNECTION_CLOSED);
-			}
-			recycleConnection((PooledConnectionImpl) event.getConnection());
-		}
+	public Long getConnectionTimeOut() {
+		return this.getConfiguration().getConnectionTimeOut();
+	}
 
-		@Override
-		public void connectionErrorOccurred(ConnectionEvent event) throws SQLException {
-			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_ERROR_OCCURED);
+	public void setConnectionTimeOut(Long connectionTimeOut) {
+		this.reconfigure(new ConnectionPoolBuilder().configuration(this.getConfiguration()).connectionTimeOut(connectionTimeOut).buildConfiguration());
+	}
+
+	private DataSource getDataSource() {
+		return dataSource;
+	}
+
+	private void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * @return how many times the data source was swapped. Connections are stamped with the generation of the data source they were established on
+	 */
+	public int getDataSourceGeneration() {
+		return dataSourceGeneration;
+	}
+
+	/**
+	 * @return the name of the pool. Recorded pool events are tagged with it
+	 */
+	public String getName() {
+		return name;
+	}
+
+	private void setName(String name) {
+		this.name = name;
+	}
+
+	public PoolEventRecorder getPoolEventRecorder() {
+		return poolEventRecorder;
+	}
+
+	private void setPoolEventRecorder(PoolEventRecorder poolEventRecorder) {
+		this.poolEventRecorder = poolEventRecorder;
+	}
+
+	public PooledConnectionEventListener getPooledConnectionEventListener() {
+		return pooledConnectionEventListener;
+	}
+
+	public void setPooledConnectionEventListener(PooledConnectionEventListener pooledConnectionEventListener) {
+		this.pooledConnectionEventListener = pooledConnectionEventListener;
+	}
+
+	private synchronized Timer getPoolTimer() {
+		if (this.poolTimer == null) {
+			this.poolTimer = new Timer(THREAD_NAME_POOL_TIMER, true);
+		}
+		return this.poolTimer;
+	}
+
+	public Long getTimeBetweenPoolMaintenance() {
+		return this.getConfiguration().getTimeBetweenPoolMaintenance();
+	}
+
+	public void setTimeBetweenPoolMaintenance(Long timeBetweenPoolMaintenance) {
+		this.reconfigure(new ConnectionPoolBuilder().configuration(this.getConfiguration())
+				.timeBetweenPoolMaintenance(timeBetweenPoolMaintenance).buildConfiguration());
+	}
+
+	public TimerTask getTimerTask() {
+		return timerTask;
+	}
+
+	public void setTimerTask(TimerTask timerTask) {
+		this.timerTask = timerTask;
+	}
+
+	/**
+	 * @return the number of connections floating in the system, idle or leased. Read without locking the pool
+	 */
+	public Integer getTotalConnectionCount() {
+		return totalConnectionCount.get();
+	}
+
+	private void setTotalConnectionCount(Integer availableConnectionCount) {
+		this.totalConnectionCount.set(availableConnectionCount);
+	}
+
+	/**
+	 * Grows the pool in the background after a reconfiguration: enough connections to get back to MIN_SIZE idle connections, or to serve the threads
+	 * that are already waiting if MAX_SIZE was raised. The connections are established in parallel.
+	 */
+	private void growConnectionPool() {
+		IdleConnectionQueue availableConnections = this.getAvailableConnections();
+		int needed =
+				Math.max(this.getConfiguration().getMinSize() - availableConnections.size(), availableConnections.getWaitingCount());
+		for (int i = 0; i < needed && this.reserveConnection(); i++) {
+			this.addConnectionInBackground();
+		}
+	}
+
+	/**
+	 * Disposes the eldest idle connection, burst connections first, so that its capacity in the connection budget can be lent to another pool.
+	 *
+	 * @return false if there was no idle connection
+	 */
+	private boolean reclaimIdleConnection() {
+		PooledConnectionImpl connection;
+		synchronized (this) {
+			connection = this.burstConnections.pollEldest();
+			if (connection == null) {
+				connection = this.getAvailableConnections().pollEldest();
+			}
+			if (connection == null) {
+				return false;
+			}
+			this.decTotalConnectionCount();
+		}
+		try {
+			this.retireConnection(connection);
+		} catch (SQLException e) {
+			getLogger().log(Level.ERROR, e.getMessage(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * Establishes the connections the replenisher projects to be missing in the background. No more are established than fit in the core idle
+	 * queue or under MAX_SIZE. Nothing is established while borrowing is suspended.
+	 */
+	private void replenishIdleConnections() {
+		if (this.suspended || this.shutDown) {
+			return;
+		}
+		int missing;
+		synchronized (this) {
+			IdleConnectionQueue availableConnections = this.getAvailableConnections();
+			int idle = availableConnections.size() + this.burstConnections.size();
+			missing = this.replenisher.tick(idle, this.totalConnectionCount.get(),
+					availableConnections.getCapacity() - availableConnections.size());
+		}
+		for (int i = 0; i < missing; i++) {
+			if (!this.reserveConnection()) {
+				this.replenisher.cancel(missing - i);
+				return;
+			}
+			this.addConnectionInBackground(this.replenisher::replenished);
+		}
+	}
+
+	/**
+	 * Establishes a connection in the background for a borrower that waits for capacity the connection budget denied, once the budget may have it.
+	 *
+	 * @return false if no borrower waits for capacity any more: they were served by a returned connection or timed out
+	 */
+	private boolean addBudgetedConnection() {
+		if (this.shutDown || this.starvedWaiters.get() == 0) {
+			return false;
+		}
+		if (this.reserveConnection()) {
+			this.addConnectionInBackground();
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if there are idle connections over MAX_IDLE_SIZE (or over the burst capacity in the burst tier), or over MAX_SIZE in total
+	 */
+	private synchronized boolean hasSurplusConnections() {
+		ConnectionPoolConfiguration configuration = this.getConfiguration();
+		int idle = this.getAvailableConnections().size();
+		int burst = this.burstConnections.size();
+		return idle > configuration.getMaxIdle() || burst > this.burstConnections.getCapacity()
+				|| (idle + burst > 0 && this.totalConnectionCount.get() > configuration.getMaxSize());
+	}
+
+	/**
+	 * @return true if the returning connection may be kept in the burst tier: the tier is on and the connection is younger than the linger time
+	 */
+	private boolean isBurstEligible(PooledConnectionImpl connection) {
+		return this.burstIdleTimeOutNanos > 0
+				&& (this.burstLingerNanos == 0 || System.nanoTime() - connection.getCreatedNanos() < this.burstLingerNanos);
+	}
+
+	/**
+	 * @return true if the burst connection has been idle for the burst idle time out, or has outlived the linger time
+	 */
+	private boolean isBurstExpired(PooledConnectionImpl connection) {
+		long now = System.nanoTime();
+		return now - connection.getIdleSinceNanos() >= this.burstIdleTimeOutNanos
+				|| (this.burstLingerNanos > 0 && now - connection.getCreatedNanos() >= this.burstLingerNanos);
+	}
+
+	/**
+	 * @return true if the idle connection has been idle for the idle time out
+	 */
+	private boolean isIdleExpired(PooledConnectionImpl connection) {
+		return System.nanoTime() - connection.getIdleSinceNanos() >= this.idleTimeOutNanos;
+	}
+
+	private synchronized void incTotalConnectionCount() {
+		this.totalConnectionCount.incrementAndGet();
+	}
+
+	/**
+	 * Runs a logical operation in a connection scope bound to the current thread. The first getConnection call inside the scope borrows a connection
+	 * from the pool; every later call, however deeply nested, gets the same connection back, and closing it inside the scope does nothing. The
+	 * connection is returned to the pool once, when the outermost scope ends. So a deep call stack costs one borrow, and a transaction can span all
+	 * of its calls. Nested inScope calls join the scope that is already open.
+	 * <p>
+	 * A scope serves one session context; a nested call that asks for another one fails. So does a nested call after the scope's lease timed out,
+	 * since the connection may be leased to another borrower by then, and the end of the scope leaves that borrower's lease alone.
+	 * <p>
+	 * The scope is held in a ThreadLocal, since the project targets 1.8; it does not follow the operation to other threads.
+	 *
+	 * @param operation
+	 * @return the result of the operation
+	 * @throws SQLException
+	 *             if the operation fails
+	 */
+	public <T> T inScope(ScopedOperation<T> operation) throws SQLException {
+		ConnectionScope scope = this.scopes.get();
+		if (scope != null) {
+			return operation.run();
+		}
+		scope = new ConnectionScope();
+		this.scopes.set(scope);
+		try {
+			return operation.run();
+		} finally {
+			this.scopes.remove();
+			if (scope.connection != null) {
+				scope.connection.closeLease(scope.leaseNumber);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the current thread is running inside a connection scope of this pool
+	 */
+	public boolean isInScope() {
+		return this.scopes.get() != null;
+	}
+
+	/**
+	 * Runs the availability listeners. The listeners are kept in an array that is replaced as a whole, so that returning a connection does not
+	 * allocate an iterator.
+	 */
+	private void notifyAvailable() {
+		Runnable[] listeners = this.availabilityListeners;
+		for (int i = 0; i < listeners.length; i++) {
+			try {
+				listeners[i].run();
+			} catch (RuntimeException e) {
+				getLogger().log(Level.ERROR, LOG_MESSAGE_AVAILABILITY_LISTENER_FAILED, e);
+			}
+		}
+	}
+
+	/**
+	 * @return true if borrowing is suspended
+	 */
+	public boolean isSuspended() {
+		return suspended;
+	}
+
+	/**
+	 * Initialize the connection pool:
+	 * <ol>
+	 * <li>Set the count of floating connections to 0</li>
+	 * <li>Instantiate the idle connection queue</li>
+	 * <li>Instantiate connections</li>
+	 * </ol>
+	 *
+	 * @throws SQLException
+	 */
+	private void initializeConnectionPool() throws SQLException {
+
+		// set the available connections count to 0
+		this.setTotalConnectionCount(0);
+
+		this.setPooledConnectionEventListener(new PooledConnectionEventListener());
+
+		// initialize the pool size to Max Idle. If there are more connections that are being released than the MAX_IDLE_SIZE the pool will dispose
+		IdleConnectionQueue availableConnections =
+				new IdleConnectionQueue(this.getConfiguration().getMaxIdle(), this.fairWaiters, this.idleOrdering, this.waitStrategy);
+		this.setAvailableConnections(availableConnections);
+
+		// the burst tier hands out the connection returned last, so that the others stay idle and are retired
+		this.burstConnections = new IdleConnectionQueue(this.getBurstCapacity(this.getConfiguration()), this.fairWaiters, IdleOrdering.LIFO);
+
+		// nobody else can use the pool yet, so the constructor may wait for the creation limiter
+		while (availableConnections.size() < this.getConfiguration().getMinSize() && this.reserveConnection()) {
+			this.addConnectionToPool(this.newReservedConnection());
+		}
+	}
+
+	/**
+	 * Find the minimum size of the connection pool and instantiate as many connections. Also increment the total connections count. The
+	 * connections the creation limiter lets through right away are established on the calling thread, the others are deferred like the ones for
+	 * borrowers; the pool's lock is never held while connecting, and nothing waits for the limiter.
+	 *
+	 * @throws SQLException
+	 */
+	private void initializeConnections() throws SQLException {
+		int missing = this.getConfiguration().getMinSize() - this.getAvailableConnections().size() - this.deferredCreations.size();
+		for (; missing > 0 && this.reserveConnection(); missing--) {
+			if (this.creationLimiter.tryAcquire()) {
+				this.addConnectionToPool(this.newPermittedConnection());
+			} else {
+				this.addConnectionInBackground();
+			}
+		}
+	}
+
+	/**
+	 * Runs the pool maintenance right away instead of waiting for the maintenance timer: invalid idle connections are disposed, so are the ones idle
+	 * for the idle time out above MIN_SIZE, and MIN_SIZE is restored.
+	 *
+	 * @throws SQLException
+	 */
+	public void maintain() throws SQLException {
+		this.maintainConnectionPool();
+	}
+
+	/**
+	 * Validates the idle connections, disposes the ones idle for the idle time out above MIN_SIZE and restores MIN_SIZE. Runs without the pool's
+	 * lock, because a connection that is closed takes its own lock and then the pool's: the pool must never wait for a connection's lock while it
+	 * holds its own.
+	 *
+	 * @throws SQLException
+	 */
+	private void maintainConnectionPool() throws SQLException {
+		long maintenanceStartNanos = System.nanoTime();
+		int invalidConnections = this.disposeInvalidConnections(this.getAvailableConnections())
+				+ this.disposeInvalidConnections(this.burstConnections);
+		this.evictExpiredIdleConnections();
+
+		// initialize the connections so that the min_size is maintained
+		initializeConnections();
+		this.getPoolEventRecorder().maintenanceRun(System.nanoTime() - maintenanceStartNanos, invalidConnections);
+	}
+
+	/**
+	 * Validates a snapshot of the idle connections in the queue and disposes the invalid ones. An invalid connection is taken out of the pool
+	 * under the pool's lock and disposed after it; one that was borrowed in the meantime is left to its borrower.
+	 *
+	 * @param connections
+	 * @return the number of invalid connections found
+	 * @throws SQLException
+	 */
+	private int disposeInvalidConnections(IdleConnectionQueue connections) throws SQLException {
+		int invalidConnections = 0;
+		for (PooledConnectionImpl temp : connections) {
+			boolean valid = temp.isValid(0);
+			this.getPoolEventRecorder().connectionValidated(temp.getId(), valid);
+			if (!valid) {
+				if (getLogger().isInfoEnabled()) {
+					getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTION_POOL_MAINTENANCE_INVALID_FOUND);
+				}
+				invalidConnections++;
+				disposeConnection(temp);
+			}
+		}
+		return invalidConnections;
+	}
+
+	/**
+	 * Gets a new connection from the data source, runs the init pipeline on it and sets the pooled connection even listener to it.
+	 *
+	 * @return a new PooledConnectionImpl
+	 * @throws SQLException
+	 */
+	private PooledConnectionImpl newConnection() throws SQLException {
+		long connectStartNanos = System.nanoTime();
+
+		// swapDataSource sets the data source before the generation, so a connection is never stamped newer than its data source
+		int generation = this.dataSourceGeneration;
+		DataSource dataSource = this.getDataSource();
+		Connection connection;
+		try {
+			connection = dataSource.getConnection();
+		} catch (SQLException | RuntimeException e) {
+			this.getPoolEventRecorder().connectionCreateFailed(System.nanoTime() - connectStartNanos);
+			throw e;
+		}
+		long initStartNanos = System.nanoTime();
+		if (this.connectionInitializer.isEnabled()) {
+			try {
+				this.connectionInitializer.initialize(connection);
+			} catch (SQLException | RuntimeException e) {
+				this.getPoolEventRecorder().connectionCreateFailed(System.nanoTime() - connectStartNanos);
+				try {
+					connection.close();
+				} catch (SQLException | RuntimeException closeFailed) {
+					e.addSuppressed(closeFailed);
+				}
+				throw e;
+			}
+		}
+		long initNanos = System.nanoTime() - initStartNanos;
+		PooledConnectionImpl pooledConnection = new PooledConnectionImpl(connection);
+		this.connections.add(pooledConnection);
+		pooledConnection.setConnectionEventListener(this.getPooledConnectionEventListener());
+		pooledConnection.setPoolEventRecorder(this.getPoolEventRecorder());
+		pooledConnection.setRecordBorrowSite(this.recordBorrowSite);
+		pooledConnection.setStatementProfiler(this.statementProfiler);
+		pooledConnection.setAbortTimedOutLeases(this.abortTimedOutLeases);
+		pooledConnection.setSessionCache(this.sessionCache);
+		if (this.connectionInitializer.isLearning()) {
+			pooledConnection.setPreparedStatementListener(this.connectionInitializer::statementPrepared);
+		}
+		pooledConnection.setGeneration(generation);
+		if (dataSource instanceof FailoverDataSource) {
+			FailoverDataSource failoverDataSource = (FailoverDataSource) dataSource;
+
+			// the failover data source tells the endpoint of a connection, which is what the connections are drained by
+			pooledConnection.setHost(failoverDataSource.resolveHost(connection));
+
+			// a connection established on an endpoint that failed over while it was connecting serves this lease only
+			if (!failoverDataSource.getActiveEndpoint().getName().equals(pooledConnection.getHost())) {
+				pooledConnection.setRetiring(true);
+			}
+		} else if (this.idleOrdering == IdleOrdering.ROUND_ROBIN) {
+			pooledConnection.setHost(this.resolveHost(connection));
+		}
+
+		// likewise a connection established on a data source that was swapped out while it was connecting
+		if (generation != this.dataSourceGeneration) {
+			pooledConnection.setRetiring(true);
+		}
+		this.getPoolEventRecorder().connectionCreated(pooledConnection.getId(), initStartNanos - connectStartNanos, initNanos);
+		return pooledConnection;
+	}
+
+	/**
+	 * Logs the most recent pool events. Called when an aggregated error line is logged so that the error comes with the events that led to it.
+	 *
+	 * @param level
+	 */
+	private void logFlightRecorder(Level level) {
+		if (getLogger().isEnabledFor(level)) {
+			getLogger().log(level, LOG_MESSAGE_CONNECTION_POOL_RECENT_EVENTS + this.dumpFlightRecorder());
+		}
+	}
+
+	/**
+	 * Establishes a new connection for a slot that has already been reserved, waiting for the creation limiter first. The reservation is cancelled
+	 * if the connection cannot be established. Never called under the pool's lock.
+	 *
+	 * @return a new PooledConnectionImpl
+	 * @throws SQLException
+	 */
+	private PooledConnectionImpl newReservedConnection() throws SQLException {
+		try {
+			this.creationLimiter.acquire();
+		} catch (SQLException e) {
+			this.cancelReservation();
+			throw e;
+		}
+		return this.newPermittedConnection();
+	}
+
+	/**
+	 * Establishes a new connection for a slot that has already been reserved, once the creation limiter let it. The limiter is released when the
+	 * connection is established, and the reservation is cancelled if it cannot be.
+	 *
+	 * @return a new PooledConnectionImpl
+	 * @throws SQLException
+	 */
+	private PooledConnectionImpl newPermittedConnection() throws SQLException {
+		PooledConnectionImpl connection;
+		try {
+			connection = this.newConnection();
+		} catch (SQLException | RuntimeException e) {
+			// the limiter is released before the reservation is cancelled, which takes the pool's lock
+			this.releaseCreation();
+			this.cancelReservation();
+			throw e;
+		}
+		this.releaseCreation();
+		return connection;
+	}
+
+	/**
+	 * Gives back the creation the limiter let through, and starts the deferred creations it may let through now.
+	 */
+	private void releaseCreation() {
+		this.creationLimiter.release();
+		if (!this.deferredCreations.isEmpty()) {
+			this.startDeferredCreations();
+		}
+	}
+
+	/**
+	 * Applies a new configuration to the running pool. New timeouts apply to the next borrow, the idle queue capacity follows MAX_IDLE_SIZE right
+	 * away, the pool grows in the background when MIN_SIZE (or MAX_SIZE with threads waiting) goes up, and surplus idle connections are drained
+	 * gradually when the limits go down. Active leases are never interrupted.
+	 *
+	 * @param configuration
+	 *            the new configuration snapshot
+	 */
+	public void reconfigure(ConnectionPoolConfiguration configuration) {
+		ConnectionPoolConfiguration previous;
+		synchronized (this) {
+			previous = this.getConfiguration();
+			this.setConfiguration(configuration);
+			this.getAvailableConnections().setCapacity(configuration.getMaxIdle());
+			this.burstConnections.setCapacity(this.getBurstCapacity(configuration));
+
+			// reschedule the maintenance thread if it is running and the interval changed
+			if (this.getTimerTask() != null && previous.getTimeBetweenPoolMaintenance() != configuration.getTimeBetweenPoolMaintenance()) {
+				this.setAutoMaintain(true);
+			}
+		}
+		// the lease reaper sleeps for up to a lease time out, which may just have been lowered
+		LockSupport.unpark(this.leaseReaper);
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTION_POOL_RECONFIGURED + configuration);
+		}
+		this.drainSurplusConnections();
+		this.growConnectionPool();
+
+		// a raised MAX_SIZE frees slots
+		this.notifyAvailable();
+	}
+
+	/**
+	 * Recycles the connection if the connection pool releases the connection or a consumer closes it.
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	private void recycleConnection(PooledConnectionImpl connection) throws SQLException {
+
+		// if the pool was shrunk below its current size or the max idle pool size is exceeded then
+		if (!this.returnConnectionToPool(connection)) {
+
+			// dispose of the connection (for good!)
+			this.retireConnection(connection);
+
+			// a lease that outlived a swap or a drain is replaced on the current data source if the pool would stay below MIN_SIZE otherwise
+			if (connection.isRetiring() && !this.shutDown && this.totalConnectionCount.get() < this.getConfiguration().getMinSize()
+					&& this.reserveConnection()) {
+				this.addConnectionInBackground();
+			}
+		}
+		this.notifyAvailable();
+	}
+
+	/**
+	 * Takes an idle connection out of the pool and decreases the connection count, so that it can be disposed.
+	 *
+	 * @return the idle connection or null if there is none
+	 */
+	private synchronized PooledConnectionImpl pollIdleConnection() {
+		PooledConnectionImpl connection = this.getAvailableConnections().poll();
+		if (connection == null) {
+			connection = this.burstConnections.poll();
+		}
+		if (connection != null) {
+			this.decTotalConnectionCount();
+		}
+		return connection;
+	}
+
+	/**
+	 * Takes the connection idle longest out of the pool if it has been idle for the idle time out and the pool is above MIN_SIZE, and decreases the
+	 * connection count, so that it can be disposed.
+	 *
+	 * @return the expired idle connection or null if there is none
+	 */
+	private synchronized PooledConnectionImpl pollExpiredIdleConnection() {
+		if (this.totalConnectionCount.get() <= this.getConfiguration().getMinSize()) {
+			return null;
+		}
+		PooledConnectionImpl connection = this.getAvailableConnections().pollEldest(this::isIdleExpired);
+		if (connection != null) {
+			this.decTotalConnectionCount();
+		}
+		return connection;
+	}
+
+	@Override
+	public void releaseConnection(Connection connection) throws SQLException {
+		// just releases the connection and marks it closed. The connection is actually closed when you call the dispose method
+		connection.close();
+	}
+
+	/**
+	 * Removes the connection from connection pool and decreases the connection count.
+	 *
+	 * @param connection
+	 * @return false if the connection was not in the pool (it was borrowed in the meantime)
+	 */
+	synchronized boolean removeConnectionFromPool(PooledConnectionImpl connection) {
+		if (this.getAvailableConnections().remove(connection) || this.burstConnections.remove(connection)) {
+			this.decTotalConnectionCount();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Disposes a connection that is no longer counted by the pool and forgets about it.
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	private void retireConnection(PooledConnectionImpl connection) throws SQLException {
+		this.connections.remove(connection);
+		connection.dispose();
+	}
+
+	/**
+	 * @return the host of the connection, or null if the host resolver could not tell
+	 */
+	private String resolveHost(Connection connection) {
+		try {
+			return this.hostResolver.resolveHost(connection);
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.DEBUG, LOG_MESSAGE_HOST_UNKNOWN, e);
+			return null;
+		}
+	}
+
+	/**
+	 * The default host resolver: the host and port of the url in the database meta data.
+	 */
+	private static String resolveUrlHost(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		String url = metaData == null ? null : metaData.getURL();
+		if (url == null) {
+			return null;
+		}
+
+		// jdbc:subprotocol://host:port/database
+		int start = url.indexOf("//");
+		if (start < 0) {
+			return url;
+		}
+		int end = url.indexOf('/', start + 2);
+		return end < 0 ? url.substring(start + 2) : url.substring(start + 2, end);
+	}
+
+	public synchronized void removeAvailabilityListener(Runnable listener) {
+		Runnable[] listeners = this.availabilityListeners;
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				Runnable[] remaining = new Runnable[listeners.length - 1];
+				System.arraycopy(listeners, 0, remaining, 0, i);
+				System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+				this.availabilityListeners = remaining;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Resumes borrowing after suspend and wakes up the borrowers waiting for it.
+	 */
+	public void resume() {
+		synchronized (this.suspendedMonitor) {
+			this.suspended = false;
+			this.suspendedMonitor.notifyAll();
+		}
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTION_POOL_RESUMED);
+		}
+		this.notifyAvailable();
+	}
+
+	/**
+	 * Puts a returning connection back into the idle queue, or into the burst tier if the idle queue is full. If the pool is over MAX_SIZE, the
+	 * connection is being drained or neither queue takes it, the connection is not queued and the count of the total number of connections
+	 * floating in the system is decreased instead.
+	 *
+	 * @param connection
+	 * @return false if the returning connection has to be disposed
+	 */
+	private synchronized boolean returnConnectionToPool(PooledConnectionImpl connection) {
+		if (this.totalConnectionCount.get() <= this.getConfiguration().getMaxSize() && !connection.isRetiring()) {
+			if (this.getAvailableConnections().offer(connection)) {
+				return true;
+			}
+			if (this.isBurstEligible(connection) && this.burstConnections.offer(connection)) {
+				// the drain task retires the burst connections once they have been idle for the burst idle time out
+				this.drainSurplusConnections();
+				return true;
+			}
+		}
+		this.decTotalConnectionCount();
+		return false;
+	}
+
+	/**
+	 * Reserves a slot for a new connection if the total number of connections is below MAX_SIZE.
+	 *
+	 * @return true if a slot was reserved
+	 */
+	private synchronized boolean reserveConnection() {
+		if (this.totalConnectionCount.get() < this.getConfiguration().getMaxSize()
+				&& (this.budgetShare == null || this.budget.tryAcquire(this.budgetShare))) {
+			this.incTotalConnectionCount();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Makes a leased connection time out at a deadline earlier than its lease time out, for work that has a deadline of its own.
+	 *
+	 * @param connection
+	 *            a connection leased from this pool
+	 * @param deadline
+	 *            the System.nanoTime at which the lease should time out
+	 */
+	public void setLeaseDeadline(PooledConnectionImpl connection, long deadline) {
+		if (connection.shortenLeaseDeadline(deadline)) {
+			// the lease reaper may be asleep until a later deadline
+			LockSupport.unpark(this.leaseReaper);
+		}
+	}
+
+	public synchronized void setAutoMaintain(boolean isAutoMaintain) {
+		if (this.getTimerTask() != null) {
+			this.getTimerTask().cancel();
+			this.setTimerTask(null);
+		}
+		long timeBetweenPoolMaintenance = this.getConfiguration().getTimeBetweenPoolMaintenance();
+		if (isAutoMaintain && timeBetweenPoolMaintenance > 0) {
+			this.setTimerTask(new PooledConnectionMaintenanceTimerTask());
+			this.getPoolTimer().scheduleAtFixedRate(this.getTimerTask(), timeBetweenPoolMaintenance, timeBetweenPoolMaintenance);
+		}
+	}
+
+	/**
+	 * Stops the pool: the maintenance and drain timers and the connection creator are stopped, the MBean is unregistered and the idle connections are
+	 * disposed. Leased connections are disposed when they are closed by their borrowers.
+	 *
+	 * @throws SQLException
+	 */
+	public void shutdown() throws SQLException {
+		this.shutDown = true;
+		LockSupport.unpark(this.leaseReaper);
+		synchronized (this) {
+			this.setAutoMaintain(false);
+			if (this.drainTimerTask != null) {
+				this.drainTimerTask.cancel();
+				this.drainTimerTask = null;
+			}
+			if (this.creationTimerTask != null) {
+				this.creationTimerTask.cancel();
+				this.creationTimerTask = null;
+			}
+			if (this.poolTimer != null) {
+				this.poolTimer.cancel();
+				this.poolTimer = null;
+			}
+			if (this.connectionCreator != null) {
+				this.connectionCreator.shutdown();
+				this.connectionCreator = null;
+			}
+			this.getAvailableConnections().setCapacity(0);
+			this.burstConnections.setCapacity(0);
+		}
+		this.cancelDeferredCreations();
+		if (this.getDataSource() instanceof FailoverDataSource) {
+			((FailoverDataSource) this.getDataSource()).removeFailoverListener(this.failoverListener);
+		}
+		if (this.mbeanName != null) {
+			ConnectionPoolManagement.unregister(this.mbeanName);
+			this.mbeanName = null;
+		}
+		this.disposeIdleConnections();
+		if (this.budgetShare != null) {
+			this.budget.close(this.budgetShare);
+		}
+	}
+
+	/**
+	 * Suspends borrowing. Borrowers block until resume is called or the wait time out passes. Leased connections can still be returned.
+	 */
+	public void suspend() {
+		this.suspended = true;
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_CONNECTION_POOL_SUSPENDED);
+		}
+	}
+
+	/**
+	 * Swaps the data source of the running pool, e.g. to rotate credentials or to move to a new endpoint. New connections are established on the
+	 * new data source right away. The connections to the old one are drained according to the drain policy; leased connections finish their lease
+	 * undisturbed and are disposed when they are returned, and replaced on the new data source while the pool is below MIN_SIZE.
+	 *
+	 * @param dataSource
+	 *            the new data source
+	 * @param drainPolicy
+	 *            how the idle connections to the old data source are drained
+	 * @throws SQLException
+	 */
+	public void swapDataSource(DataSource dataSource, DrainPolicy drainPolicy) throws SQLException {
+		DataSource previous;
+		int generation;
+		synchronized (this) {
+			previous = this.getDataSource();
+			this.setDataSource(dataSource);
+			generation = this.dataSourceGeneration + 1;
+			this.dataSourceGeneration = generation;
+		}
+		if (previous instanceof FailoverDataSource) {
+			((FailoverDataSource) previous).removeFailoverListener(this.failoverListener);
+		}
+		if (dataSource instanceof FailoverDataSource) {
+			((FailoverDataSource) dataSource).addFailoverListener(this.failoverListener);
+		}
+		if (getLogger().isInfoEnabled()) {
+			getLogger().log(Level.INFO, LOG_MESSAGE_DATA_SOURCE_SWAPPED + generation);
+		}
+		Predicate<PooledConnectionImpl> stale = connection -> connection.getGeneration() < generation;
+		if (drainPolicy == DrainPolicy.IMMEDIATE) {
+			this.drainConnections(stale);
+			return;
+		}
+
+		// the leases finish undisturbed and their connections are disposed when they are returned, and replaced while the pool is below
+		// MIN_SIZE; the idle connections are replaced now
+		this.retireLeasedConnections(stale);
+		this.getConnectionCreator().execute(() -> this.replaceIdleConnections(generation));
+	}
+
+	/**
+	 * Marks the leased connections that match the predicate, so that they are disposed when they are returned (and replaced while the pool is
+	 * below MIN_SIZE).
+	 */
+	private void retireLeasedConnections(Predicate<PooledConnectionImpl> predicate) {
+		for (PooledConnectionImpl connection : this.connections) {
+			if (connection.isOpen() && predicate.test(connection)) {
+				connection.setRetiring(true);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the idle connections to an old data source one at a time. A replacement is established on the current data source before an old
+	 * idle connection is taken out of the pool, so the number of idle connections does not dip. An old connection that is borrowed in the
+	 * meantime goes back to the pool when it is returned and is replaced then; once no old connection is idle, the ones still leased are disposed
+	 * when they are returned, and replaced while the pool is below MIN_SIZE. Stops early if the data source is swapped again, since the next swap
+	 * replaces the connections of both generations. If a replacement cannot be established, the remaining old connections keep serving.
+	 *
+	 * @param generation
+	 *            the generation of the current data source
+	 */
+	private void replaceIdleConnections(int generation) {
+		PooledConnectionImpl replacement = null;
+		try {
+			while (generation == this.dataSourceGeneration && !this.shutDown) {
+				PooledConnectionImpl stale = this.findIdleConnection(generation);
+				if (stale == null) {
+					this.retireLeasedConnections(connection -> connection.getGeneration() < generation);
+
+					// a connection returned just before it was marked is idle again
+					stale = this.findIdleConnection(generation);
+					if (stale == null) {
+						break;
+					}
+				}
+				if (replacement == null && this.reserveConnection()) {
+					replacement = this.newReservedConnection();
+				}
+				if (!this.removeConnectionFromPool(stale)) {
+					// borrowed in the meantime, the replacement is kept for the next one
+					continue;
+				}
+				this.retireConnection(stale);
+
+				// at MAX_SIZE the old connection has to go before its replacement can be established
+				if (replacement == null && this.reserveConnection()) {
+					replacement = this.newReservedConnection();
+				}
+				if (replacement != null) {
+					this.addConnectionToPool(replacement);
+					replacement = null;
+				}
+			}
+			if (replacement != null) {
+				this.addConnectionToPool(replacement);
+			}
+		} catch (SQLException e) {
+			getLogger().log(Level.ERROR, LOG_MESSAGE_NEW_CONNECTION_FAILED, e);
+		}
+	}
+
+	/**
+	 * @return an idle connection established before the given generation, or null if there is none
+	 */
+	private PooledConnectionImpl findIdleConnection(int generation) {
+		for (PooledConnectionImpl connection : this.getAvailableConnections()) {
+			if (connection.getGeneration() < generation) {
+				return connection;
+			}
+		}
+		for (PooledConnectionImpl connection : this.burstConnections) {
+			if (connection.getGeneration() < generation) {
+				return connection;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Borrows a connection if one can be had without waiting: an idle connection, or a new one if the pool is under MAX_SIZE. Establishing a new
+	 * connection still takes the time it takes to connect. Connection scopes are ignored.
+	 *
+	 * @return the connection, or null if every connection is leased (or borrowing is suspended)
+	 * @throws SQLException
+	 *             if a new connection could not be established
+	 */
+	public PooledConnectionImpl tryGetConnection() throws SQLException {
+		return this.borrowConnection(null, false, 0L);
+	}
+
+	/**
+	 * Borrows an idle connection if there is one. Unlike tryGetConnection it never connects on the calling thread: if the pool is under MAX_SIZE a
+	 * new connection is established on the connection creator instead, and the availability listeners are run once it is idle in the pool. For
+	 * callers that must not block, such as availability listeners themselves.
+	 *
+	 * @return the connection, or null if no connection is idle (or borrowing is suspended)
+	 * @throws SQLException
+	 */
+	public PooledConnectionImpl tryGetIdleConnection() throws SQLException {
+		if (this.suspended) {
+			return null;
+		}
+		long borrowStartNanos = System.nanoTime();
+		PooledConnectionImpl connection = this.getAvailableConnections().poll();
+		if (connection == null && !this.burstConnections.isEmpty()) {
+			connection = this.burstConnections.poll();
+		}
+		if (connection == null) {
+			if (this.reserveConnection()) {
+				this.addConnectionInBackground();
+			}
+			return null;
+		}
+		connection.open(this.getConfiguration().getConnectionTimeOut());
+		this.getPoolEventRecorder().connectionBorrowed(connection.getId(), System.nanoTime() - borrowStartNanos, false);
+		return connection;
+	}
+
+	/**
+	 * The timer task that drains surplus idle connections one at a time after the pool was shrunk, and retires the expired burst connections one at
+	 * a time. Surplus burst connections go before core ones. It cancels itself once the pool is within its limits and the burst tier is empty.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class PooledConnectionDrainTimerTask extends TimerTask {
+
+		@Override
+		public void run() {
+			try {
+				PooledConnectionImpl connection = null;
+				synchronized (ConnectionPoolImpl.this) {
+					if (hasSurplusConnections()) {
+						connection = burstConnections.pollEldest();
+						if (connection == null) {
+							connection = getAvailableConnections().pollEldest();
+						}
+						if (connection != null) {
+							decTotalConnectionCount();
+						}
+					} else if (!burstConnections.isEmpty()) {
+						connection = burstConnections.pollEldest(ConnectionPoolImpl.this::isBurstExpired);
+						if (connection != null) {
+							decTotalConnectionCount();
+						}
+					} else {
+						this.cancel();
+						drainTimerTask = null;
+					}
+				}
+				if (connection != null) {
+					retireConnection(connection);
+					if (getLogger().isTraceEnabled()) {
+						getLogger().log(Level.TRACE, LOG_MESSAGE_CONNECTION_DRAINED + getTotalConnectionCount());
+					}
+				}
+			} catch (SQLException e) {
+				getLogger().log(Level.ERROR, e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * The timer task that starts the deferred connection creations once the bucket of the creation limiter has refilled. It runs once; the next one
+	 * is scheduled if creations are still deferred.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class DeferredConnectionCreationTimerTask extends TimerTask {
+
+		@Override
+		public void run() {
+			try {
+				synchronized (ConnectionPoolImpl.this) {
+					creationTimerTask = null;
+				}
+				startDeferredCreations();
+			} catch (RuntimeException e) {
+				getLogger().log(Level.ERROR, e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * A connection creation for a reserved slot that waits for the creation limiter.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private static final class DeferredCreation {
+
+		private final Consumer<Boolean> added;
+		private final long deferredNanos;
+
+		private DeferredCreation(Consumer<Boolean> added) {
+			super();
+			this.added = added;
+			this.deferredNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * The timer task that lets the replenisher project the idle connections and establishes the missing ones.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class IdleConnectionReplenishTimerTask extends TimerTask {
+
+		@Override
+		public void run() {
+			try {
+				replenishIdleConnections();
+			} catch (RuntimeException e) {
+				getLogger().log(Level.ERROR, e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * The timer task that reports the occurrences the rate limited logs counted after their last line, so that the end of a burst is logged even if
+	 * nothing happens after it.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class RateLimitedLogFlushTimerTask extends TimerTask {
+
+		@Override
+		public void run() {
+			limitReachedLog.flush();
+			timedOutLog.flush();
+			errorOccurredLog.flush();
+			if (waitTimedOutLog.flush()) {
+				logFlightRecorder(Level.ERROR);
+			}
+		}
+	}
+
+	/**
+	 * Times out the leases whose deadline has passed. One reaper thread per pool replaces a timer per borrow: it checks the deadlines of the
+	 * connections of the pool and then sleeps until the earliest deadline still ahead. A lease that starts while the reaper sleeps cannot time out
+	 * before it wakes up, because its deadline is at least one lease time out away.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class LeaseReaper implements Runnable {
+
+		@Override
+		public void run() {
+			while (!shutDown) {
+				long now = System.nanoTime();
+				long connectionTimeOut = TimeUnit.MILLISECONDS.toNanos(getConfiguration().getConnectionTimeOut());
+				long next = connectionTimeOut > 0 ? now + connectionTimeOut : 0L;
+				for (PooledConnectionImpl connection : connections) {
+					long deadline = connection.getLeaseDeadline();
+					if (deadline == 0L) {
+						continue;
+					}
+					try {
+						if (!connection.expireLease(now) && (next == 0L || deadline - next < 0L)) {
+							next = deadline;
+						}
+					} catch (SQLException | RuntimeException e) {
+						getLogger().log(Level.ERROR, e.getMessage(), e);
+					}
+				}
+				if (next == 0L) {
+					LockSupport.park(this);
+				} else {
+					LockSupport.parkNanos(this, next - now);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The connection scope of one thread: the connection borrowed for it, if any yet, the number of its lease and the session context the scope
+	 * serves.
+	 */
+	private static final class ConnectionScope {
+		private PooledConnectionImpl connection;
+		private long leaseNumber;
+		private String sessionContext;
+	}
+
+	/**
+	 * When a connection.close method is called or if there is a timeout or an error event in the connection, the methods implemented by this class
+	 * are called. I am using this primarily to actively connections that have been leased out beyond the connection time out.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class PooledConnectionEventListener implements ConnectionEventListener {
+
+		@Override
+		public void connectionClosed(ConnectionEvent event) throws SQLException {
 			recycleConnection((PooledConnectionImpl) event.getConnection());
 		}
 
+		@Override
+		public void connectionErrorOccurred(ConnectionEvent event) throws SQLException {
+			errorOccurredLog.log();
+			discardConnection((PooledConnectionImpl) event.getConnection());
+		}
+
 		@Override
 		public void connectionTimedOut(ConnectionEvent event) throws SQLException {
-			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_TIMED_OUT);
-			recycleConnection((PooledConnectionImpl) event.getConnection());
+			timedOutLog.log();
+			if (abortTimedOutLeases) {
+				// the time out is told under the connection's lock: the abort cancels statements and takes the pool's lock for the replacement
+				PooledConnectionImpl connection = (PooledConnectionImpl) event.getConnection();
+				getConnectionCreator().execute(() -> abortTimedOutLease(connection));
+			} else {
+				recycleConnection((PooledConnectionImpl) event.getConnection());
+			}
 		}
 	}
 
@@ -393,4 +1951,4 @@ public class ConnectionPoolImpl implements ConnectionPool {
 			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.cornholio.database.connectionpool;
+
+import java.sql.SQLException;
+
+/**
+ * The JMX view of a connection pool. Every pool registers one under com.cornholio.database.connectionpool:type=ConnectionPool,name=&lt;pool
+ * name&gt;. The attributes are read from lock-free counters, so reading them never blocks the pool. Times are in milliseconds.
+ *
+ * @author nikhilagarwal
+ */
+public interface ConnectionPoolMXBean {
+
+	int getActiveConnections();
+
+	long getBorrowCount();
+
+	long getConnectionTimeOut();
+
+	long getCreateCount();
+
+	long getCreateFailedCount();
+
+	long getDisposeCount();
+
+	long getErrorCount();
+
+	int getIdleConnections();
+
+	double getLastMaintenanceTime();
+
+	double getLeaseTime50thPercentile();
+
+	double getLeaseTime999thPercentile();
+
+	double getLeaseTime99thPercentile();
+
+	long getLeaseTimeOutCount();
+
+	long getLimitReachedCount();
+
+	long getMaintenanceCount();
+
+	int getMaxIdle();
+
+	double getMaxMaintenanceTime();
+
+	int getMaxSize();
+
+	int getMinSize();
+
+	String getName();
+
+	int getTotalConnections();
+
+	long getValidationFailedCount();
+
+	int getWaitingThreads();
+
+	double getWaitTime50thPercentile();
+
+	double getWaitTime999thPercentile();
+
+	double getWaitTime99thPercentile();
+
+	long getWaitTimeOut();
+
+	long getWaitTimeOutCount();
+
+	boolean isSuspended();
+
+	/**
+	 * @return one line per leased connection: its id, how long it has been leased, the borrowing thread and, if recorded, the borrow site
+	 */
+	String[] dumpLeases();
+
+	/**
+	 * @return the most recent pool events, oldest first, one per line
+	 */
+	String dumpRecentEvents();
+
+	/**
+	 * @return the captured slow statements, oldest first. Empty unless statements are profiled
+	 */
+	String[] dumpSlowStatements();
+
+	/**
+	 * @return the profiled sql shapes, most total execution time first. Empty unless statements are profiled
+	 */
+	String[] dumpStatementProfile();
+
+	/**
+	 * Disposes every idle connection. MIN_SIZE is restored in the background.
+	 *
+	 * @return the number of connections disposed
+	 */
+	int evictIdleConnections() throws SQLException;
+
+	/**
+	 * Disposes invalid idle connections and restores MIN_SIZE right away.
+	 */
+	void maintain() throws SQLException;
+
+	/**
+	 * Changes the sizes of the running pool, see ConnectionPoolImpl.reconfigure.
+	 */
+	void resize(int minSize, int maxIdle, int maxSize);
+
+	void resume();
+
+	/**
+	 * Borrowers block until resume is called or their wait time out passes.
+	 */
+	void suspend();
+}
@@ -0,0 +1,265 @@
+package com.cornholio.database.connectionpool;
+
+import com.cornholio.database.connection.event.PoolStatistics;
+import com.cornholio.database.connection.profile.StatementProfiler;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConnectionPoolMXBean of one pool. The counts come from the pool's atomic connection count and the idle queue's volatile size, and the times
+ * from the pool statistics, so nothing here takes the pool monitor or iterates the idle queue.
+ *
+ * @author nikhilagarwal
+ */
+class ConnectionPoolManagement implements ConnectionPoolMXBean {
+
+	private static final String LOG_MESSAGE_MBEAN_NOT_REGISTERED = "Connection pool MBean could not be registered: ";
+	private static final String LOG_MESSAGE_MBEAN_NOT_UNREGISTERED = "Connection pool MBean could not be unregistered: ";
+	private static final String OBJECT_NAME_PREFIX = "com.cornholio.database.connectionpool:type=ConnectionPool,name=";
+	private static final Logger logger = Logger.getLogger(ConnectionPoolManagement.class.getSimpleName());
+	private final ConnectionPoolImpl connectionPool;
+
+	ConnectionPoolManagement(ConnectionPoolImpl connectionPool) {
+		super();
+		this.connectionPool = connectionPool;
+	}
+
+	private static Logger getLogger() {
+		return logger;
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+	}
+
+	/**
+	 * Registers the MBean of the pool with the platform MBean server. A pool that cannot be registered (usually because another pool has the same
+	 * name) works all the same; the failure is logged.
+	 *
+	 * @param connectionPool
+	 * @return the name the MBean was registered under or null if it was not registered
+	 */
+	static ObjectName register(ConnectionPoolImpl connectionPool) {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(connectionPool.getName()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new ConnectionPoolManagement(connectionPool), name);
+			return name;
+		} catch (JMException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_MBEAN_NOT_REGISTERED + connectionPool.getName(), e);
+			return null;
+		}
+	}
+
+	static void unregister(ObjectName name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_MBEAN_NOT_UNREGISTERED + name, e);
+		}
+	}
+
+	@Override
+	public String[] dumpLeases() {
+		List<String> leases = this.connectionPool.dumpLeases();
+		return leases.toArray(new String[leases.size()]);
+	}
+
+	@Override
+	public String dumpRecentEvents() {
+		return this.connectionPool.dumpFlightRecorder();
+	}
+
+	@Override
+	public String[] dumpSlowStatements() {
+		StatementProfiler profiler = this.connectionPool.getStatementProfiler();
+		return profiler == null ? new String[0] : profiler.getSlowStatements().toArray(new String[0]);
+	}
+
+	@Override
+	public String[] dumpStatementProfile() {
+		StatementProfiler profiler = this.connectionPool.getStatementProfiler();
+		return profiler == null ? new String[0] : profiler.dumpStatements().toArray(new String[0]);
+	}
+
+	@Override
+	public int evictIdleConnections() throws SQLException {
+		return this.connectionPool.evictIdleConnections();
+	}
+
+	@Override
+	public int getActiveConnections() {
+		return Math.max(0, this.getTotalConnections() - this.getIdleConnections());
+	}
+
+	@Override
+	public long getBorrowCount() {
+		return this.getStatistics().getBorrowCount();
+	}
+
+	@Override
+	public long getConnectionTimeOut() {
+		return this.connectionPool.getConfiguration().getConnectionTimeOut();
+	}
+
+	@Override
+	public long getCreateCount() {
+		return this.getStatistics().getCreateCount();
+	}
+
+	@Override
+	public long getCreateFailedCount() {
+		return this.getStatistics().getCreateFailedCount();
+	}
+
+	@Override
+	public long getDisposeCount() {
+		return this.getStatistics().getDisposeCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return this.getStatistics().getErrorCount();
+	}
+
+	@Override
+	public int getIdleConnections() {
+		return this.connectionPool.getAvailableConnections().size() + this.connectionPool.getBurstConnections().size();
+	}
+
+	@Override
+	public double getLastMaintenanceTime() {
+		return toMillis(this.getStatistics().getLastMaintenanceNanos());
+	}
+
+	@Override
+	public double getLeaseTime50thPercentile() {
+		return toMillis(this.getStatistics().getLeaseTimes().getValueAtPercentile(50.0));
+	}
+
+	@Override
+	public double getLeaseTime999thPercentile() {
+		return toMillis(this.getStatistics().getLeaseTimes().getValueAtPercentile(99.9));
+	}
+
+	@Override
+	public double getLeaseTime99thPercentile() {
+		return toMillis(this.getStatistics().getLeaseTimes().getValueAtPercentile(99.0));
+	}
+
+	@Override
+	public long getLeaseTimeOutCount() {
+		return this.getStatistics().getLeaseTimeOutCount();
+	}
+
+	@Override
+	public long getLimitReachedCount() {
+		return this.getStatistics().getLimitReachedCount();
+	}
+
+	@Override
+	public long getMaintenanceCount() {
+		return this.getStatistics().getMaintenanceCount();
+	}
+
+	@Override
+	public int getMaxIdle() {
+		return this.connectionPool.getConfiguration().getMaxIdle();
+	}
+
+	@Override
+	public double getMaxMaintenanceTime() {
+		return toMillis(this.getStatistics().getMaxMaintenanceNanos());
+	}
+
+	@Override
+	public int getMaxSize() {
+		return this.connectionPool.getConfiguration().getMaxSize();
+	}
+
+	@Override
+	public int getMinSize() {
+		return this.connectionPool.getConfiguration().getMinSize();
+	}
+
+	@Override
+	public String getName() {
+		return this.connectionPool.getName();
+	}
+
+	private PoolStatistics getStatistics() {
+		return this.connectionPool.getStatistics();
+	}
+
+	@Override
+	public int getTotalConnections() {
+		return this.connectionPool.getTotalConnectionCount();
+	}
+
+	@Override
+	public long getValidationFailedCount() {
+		return this.getStatistics().getValidationFailedCount();
+	}
+
+	@Override
+	public int getWaitingThreads() {
+		return this.connectionPool.getAvailableConnections().getWaitingCount();
+	}
+
+	@Override
+	public double getWaitTime50thPercentile() {
+		return toMillis(this.getStatistics().getWaitTimes().getValueAtPercentile(50.0));
+	}
+
+	@Override
+	public double getWaitTime999thPercentile() {
+		return toMillis(this.getStatistics().getWaitTimes().getValueAtPercentile(99.9));
+	}
+
+	@Override
+	public double getWaitTime99thPercentile() {
+		return toMillis(this.getStatistics().getWaitTimes().getValueAtPercentile(99.0));
+	}
+
+	@Override
+	public long getWaitTimeOut() {
+		return this.connectionPool.getConfiguration().getWaitTimeOut();
+	}
+
+	@Override
+	public long getWaitTimeOutCount() {
+		return this.getStatistics().getWaitTimeOutCount();
+	}
+
+	@Override
+	public boolean isSuspended() {
+		return this.connectionPool.isSuspended();
+	}
+
+	@Override
+	public void maintain() throws SQLException {
+		this.connectionPool.maintain();
+	}
+
+	@Override
+	public void resize(int minSize, int maxIdle, int maxSize) {
+		this.connectionPool.reconfigure(new ConnectionPoolBuilder().configuration(this.connectionPool.getConfiguration()).minSize(minSize)
+				.maxIdle(maxIdle).maxSize(maxSize).buildConfiguration());
+	}
+
+	@Override
+	public void resume() {
+		this.connectionPool.resume();
+	}
+
+	@Override
+	public void suspend() {
+		this.connectionPool.suspend();
+	}
+}
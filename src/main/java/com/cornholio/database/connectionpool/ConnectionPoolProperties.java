@@ -1,11 +1,14 @@
 package com.cornholio.database.connectionpool;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 
 /**
- * The connection pool properties that are needed to initialize the connection pool.
+ * The connection pool properties that are needed to initialize the connection pool. The file is parsed once into an immutable configuration
+ * snapshot; load the file again to pick up changes.
  */
 public class ConnectionPoolProperties {
 
@@ -17,32 +20,67 @@ public class ConnectionPoolProperties {
 	private static final String CONNECTION_POOL_PROPERTY_WAIT_TIME_OUT = "WAIT_TIME_OUT";
 	private static final String CONNECTION_PROPERTIES_FILE_LOCATION = "./connection-pool.properties";
 
-	private Properties properties;
+	private final ConnectionPoolConfiguration configuration;
+	private final File file;
+	private final Properties properties;
 
 	public ConnectionPoolProperties() throws IOException {
-		properties = new Properties();
-		properties.load(new FileInputStream(this.getClass().getClassLoader().getResource(CONNECTION_PROPERTIES_FILE_LOCATION).getPath()));
+		this(CONNECTION_PROPERTIES_FILE_LOCATION);
 	}
 
 	public ConnectionPoolProperties(String fileLocation) throws IOException {
-		properties = new Properties();
-		properties.load(new FileInputStream(this.getClass().getClassLoader().getResource(fileLocation).getPath()));
+		this(new File(ConnectionPoolProperties.class.getClassLoader().getResource(fileLocation).getPath()));
+	}
+
+	public ConnectionPoolProperties(File file) throws IOException {
+		this.file = file;
+		this.properties = new Properties();
+		try (InputStream inputStream = new FileInputStream(file)) {
+			this.properties.load(inputStream);
+		}
+		this.configuration =
+				new ConnectionPoolBuilder().connectionTimeOut(parseLong(CONNECTION_POOL_PROPERTY_CONNECTION_TIME_OUT))
+						.maxIdle(parseInteger(CONNECTION_POOL_PROPERTY_MAX_IDLE_SIZE)).maxSize(parseInteger(CONNECTION_POOL_PROPERTY_MAX_SIZE))
+						.minSize(parseInteger(CONNECTION_POOL_PROPERTY_MIN_SIZE))
+						.timeBetweenPoolMaintenance(parseLong(CONNECTION_POOL_PROPERTY_TIME_BETWEEN_POOL_MAINTENANCE))
+						.waitTimeOut(parseLong(CONNECTION_POOL_PROPERTY_WAIT_TIME_OUT)).buildConfiguration();
+	}
+
+	private Integer parseInteger(String property) {
+		String value = this.properties.getProperty(property);
+		return value == null ? null : Integer.valueOf(value.trim());
+	}
+
+	private Long parseLong(String property) {
+		String value = this.properties.getProperty(property);
+		return value == null ? null : Long.valueOf(value.trim());
+	}
+
+	public ConnectionPoolConfiguration getConfiguration() {
+		return configuration;
 	}
 
 	public Long getConnectionTimeOut() {
-		return Long.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_CONNECTION_TIME_OUT));
+		return this.getConfiguration().getConnectionTimeOut();
+	}
+
+	/**
+	 * @return the properties file these properties were loaded from
+	 */
+	public File getFile() {
+		return file;
 	}
 
 	public Integer getMaxIdle() {
-		return Integer.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_MAX_IDLE_SIZE));
+		return this.getConfiguration().getMaxIdle();
 	}
 
 	public Integer getMaxSize() {
-		return Integer.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_MAX_SIZE));
+		return this.getConfiguration().getMaxSize();
 	}
 
 	public Integer getMinSize() {
-		return Integer.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_MIN_SIZE));
+		return this.getConfiguration().getMinSize();
 	}
 
 	public Properties getProperties() {
@@ -50,10 +88,10 @@ public class ConnectionPoolProperties {
 	}
 
 	public Long getTimeBetweenPoolMaintenance() {
-		return Long.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_TIME_BETWEEN_POOL_MAINTENANCE));
+		return this.getConfiguration().getTimeBetweenPoolMaintenance();
 	}
 
 	public Long getWaitTimeOut() {
-		return Long.valueOf(this.getProperties().getProperty(CONNECTION_POOL_PROPERTY_WAIT_TIME_OUT));
+		return this.getConfiguration().getWaitTimeOut();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.cornholio.database.connectionpool;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Watches a connection pool properties file and reconfigures the running pool whenever the file changes. The file is parsed into a new
+ * configuration snapshot first; if it cannot be read or does not make a valid configuration the pool keeps running with the old one.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionPoolPropertiesWatcher implements Runnable {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_PROPERTIES_INVALID = "Connection pool properties could not be reloaded. Keeping the old configuration";
+	private static final String LOG_MESSAGE_PROPERTIES_RELOADED = "Connection pool properties reloaded from ";
+	private static final String THREAD_NAME_WATCHER = "connection-pool-properties-watcher";
+	private static Logger logger;
+	private final ConnectionPoolImpl connectionPool;
+	private final File file;
+	private final WatchService watchService;
+
+	/**
+	 * @param connectionPool
+	 *            the pool to reconfigure
+	 * @param connectionPoolProperties
+	 *            the properties the pool was built from. Their file is the one that is watched
+	 * @throws IOException
+	 */
+	public ConnectionPoolPropertiesWatcher(ConnectionPoolImpl connectionPool, ConnectionPoolProperties connectionPoolProperties) throws IOException {
+		super();
+		this.connectionPool = connectionPool;
+		this.file = connectionPoolProperties.getFile().getAbsoluteFile();
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.file.getParentFile().toPath().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(ConnectionPoolPropertiesWatcher.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	/**
+	 * Stops watching the file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		this.watchService.close();
+	}
+
+	/**
+	 * Loads the file again and hands the new snapshot to the pool.
+	 */
+	public void reload() {
+		try {
+			ConnectionPoolConfiguration configuration = new ConnectionPoolProperties(this.file).getConfiguration();
+			if (getLogger().isInfoEnabled()) {
+				getLogger().log(Level.INFO, LOG_MESSAGE_PROPERTIES_RELOADED + this.file);
+			}
+			this.connectionPool.reconfigure(configuration);
+		} catch (IOException | IllegalArgumentException e) {
+			getLogger().log(Level.ERROR, LOG_MESSAGE_PROPERTIES_INVALID, e);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = this.watchService.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path && this.file.getName().equals(((Path) event.context()).getFileName().toString())) {
+						changed = true;
+					}
+				}
+				key.reset();
+				if (changed) {
+					this.reload();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// the watcher was closed
+		}
+	}
+
+	/**
+	 * Starts watching the file on a daemon thread.
+	 */
+	public void start() {
+		Thread thread = new Thread(this, THREAD_NAME_WATCHER);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
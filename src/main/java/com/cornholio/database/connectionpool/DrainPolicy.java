@@ -0,0 +1,17 @@
+package com.cornholio.database.connectionpool;
+
+/**
+ * How the connections to the old data source are drained when the data source of a running pool is swapped. Leased connections are never
+ * interrupted: whatever the policy, they are disposed when their borrowers return them.
+ * <ul>
+ * <li>GRADUAL replaces the idle connections one at a time in the background. Each replacement is established on the new data source before an old
+ * idle connection is disposed, so borrowers keep finding idle connections throughout the swap and there is no connect storm.</li>
+ * <li>IMMEDIATE disposes the idle connections right away and re-establishes MIN_SIZE connections in the background. Use it when the old data source
+ * must not be used any more, e.g. its credentials were revoked.</li>
+ * </ul>
+ *
+ * @author nikhilagarwal
+ */
+public enum DrainPolicy {
+	GRADUAL, IMMEDIATE
+}
@@ -0,0 +1,541 @@
+package com.cornholio.database.connectionpool;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * The idle connections of a connection pool. This is a bounded FIFO queue like the ArrayBlockingQueue it replaces, except that its capacity can be
+ * changed while the pool is running. Lowering the capacity never drops connections that are already queued; it only makes offer refuse connections
+ * until the queue is back under the new capacity. The backing array is only reallocated when the capacity grows, so offer and poll do not allocate.
+ * <p>
+ * Connections are always queued at the tail. Which one poll takes depends on the idle ordering: the head (FIFO) or the tail (LIFO). ROUND_ROBIN
+ * queues the connections per host instead, and poll takes the connection idle longest on the next host in the rotation, so that it never has to
+ * search the queue. Whether waiting threads are served in order is a separate choice, and so is whether they spin before they park, see
+ * WaitStrategy.
+ *
+ * @author nikhilagarwal
+ */
+public class IdleConnectionQueue implements Iterable<PooledConnectionImpl> {
+
+	/**
+	 * Handoffs slower than this are left to parking: a park and unpark costs about as much
+	 */
+	private static final long MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+	private static final long MIN_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(1L);
+	private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+	/**
+	 * While the handoffs are too slow to spin for, one wait in this many spins anyway, so that the queue notices when they become fast again. A
+	 * power of two
+	 */
+	private static final int SPIN_PROBE_INTERVAL = 64;
+	private volatile long handoffNanos;
+	private final ReentrantLock lock;
+	private final Condition notEmpty;
+	private volatile int capacity;
+	private volatile int count;
+	private int head;
+
+	/**
+	 * The connections per host, for ROUND_ROBIN only
+	 */
+	private final Map<String, HostQueue> hostQueues;
+
+	/**
+	 * The hosts with queued connections in the order poll takes them, for ROUND_ROBIN only. A host whose connections were all removed out of turn
+	 * stays in the rotation until poll skips it
+	 */
+	private final ArrayDeque<HostQueue> hostRotation;
+	private PooledConnectionImpl[] items;
+	private final IdleOrdering ordering;
+	private final LongAdder parkedWaits;
+	private final boolean spin;
+	private final LongAdder spinHandoffs;
+	private final AtomicInteger spinning;
+	private final AtomicInteger unspunWaits;
+	private volatile int waiting;
+
+	IdleConnectionQueue(int capacity, boolean fair) {
+		this(capacity, fair, IdleOrdering.FIFO);
+	}
+
+	/**
+	 * @param capacity
+	 * @param fair
+	 *            true to serve waiting threads in the order they started waiting
+	 * @param ordering
+	 *            which idle connection poll takes
+	 */
+	IdleConnectionQueue(int capacity, boolean fair, IdleOrdering ordering) {
+		this(capacity, fair, ordering, WaitStrategy.PARK);
+	}
+
+	/**
+	 * @param capacity
+	 * @param fair
+	 *            true to serve waiting threads in the order they started waiting
+	 * @param ordering
+	 *            which idle connection poll takes
+	 * @param waitStrategy
+	 *            whether threads waiting in poll spin before they park
+	 */
+	IdleConnectionQueue(int capacity, boolean fair, IdleOrdering ordering, WaitStrategy waitStrategy) {
+		this.lock = new ReentrantLock(fair);
+		this.spin = waitStrategy == WaitStrategy.SPIN_THEN_PARK;
+		this.handoffNanos = MAX_SPIN_NANOS / 2;
+		this.parkedWaits = new LongAdder();
+		this.spinHandoffs = new LongAdder();
+		this.spinning = new AtomicInteger();
+		this.unspunWaits = new AtomicInteger();
+		this.ordering = ordering;
+		this.hostQueues = ordering == IdleOrdering.ROUND_ROBIN ? new HashMap<>() : null;
+		this.hostRotation = ordering == IdleOrdering.ROUND_ROBIN ? new ArrayDeque<>() : null;
+		this.notEmpty = this.lock.newCondition();
+		this.capacity = capacity;
+		this.items = new PooledConnectionImpl[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Takes the connection the ordering picks out of the queue. Must be called with the lock held and the queue not empty.
+	 */
+	private PooledConnectionImpl dequeue() {
+		switch (this.ordering) {
+		case LIFO:
+			return this.removeAt(this.count - 1);
+		case ROUND_ROBIN:
+			while (true) {
+				HostQueue hostQueue = this.hostRotation.pollFirst();
+				PooledConnectionImpl connection = hostQueue.connections.pollFirst();
+				if (hostQueue.connections.isEmpty()) {
+					hostQueue.inRotation = false;
+				} else {
+					this.hostRotation.addLast(hostQueue);
+				}
+				if (connection != null) {
+					this.count--;
+					return connection;
+				}
+			}
+		default:
+			return this.removeAt(0);
+		}
+	}
+
+	/**
+	 * @return the connection that has been idle longest, or the first one that has the session context if it is not null, without taking it out
+	 *         of the queue. Must be called with the lock held
+	 */
+	private PooledConnectionImpl eldest(String sessionContext) {
+		if (this.hostQueues == null) {
+			for (int i = 0; i < this.count; i++) {
+				PooledConnectionImpl connection = this.items[(this.head + i) % this.items.length];
+				if (sessionContext == null || sessionContext.equals(connection.getSessionContext())) {
+					return connection;
+				}
+			}
+			return null;
+		}
+		PooledConnectionImpl eldest = null;
+		for (HostQueue hostQueue : this.hostQueues.values()) {
+			for (PooledConnectionImpl connection : hostQueue.connections) {
+				if (sessionContext == null || sessionContext.equals(connection.getSessionContext())) {
+					if (eldest == null || connection.getIdleSinceNanos() - eldest.getIdleSinceNanos() < 0) {
+						eldest = connection;
+					}
+
+					// the connections of a host are queued oldest first
+					break;
+				}
+			}
+		}
+		return eldest;
+	}
+
+	/**
+	 * @return Thread.onSpinWait if the runtime has it, else null
+	 */
+	private static MethodHandle findOnSpinWait() {
+		try {
+			return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	public IdleOrdering getOrdering() {
+		return ordering;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return the number of waits in poll that had to park, whether they got a connection or timed out
+	 */
+	public long getParkedWaitCount() {
+		return parkedWaits.sum();
+	}
+
+	/**
+	 * @return the number of waits in poll that got a connection while spinning
+	 */
+	public long getSpinHandoffCount() {
+		return spinHandoffs.sum();
+	}
+
+	/**
+	 * @return how long a thread waiting in poll spins before it parks: twice the moving average of the recent handoff times, or 0 if the queue does
+	 *         not spin or the recent handoffs took longer than a park
+	 */
+	public long getSpinLimitNanos() {
+		long handoffNanos = this.handoffNanos;
+		if (!this.spin || handoffNanos > MAX_SPIN_NANOS) {
+			return 0L;
+		}
+		return Math.max(MIN_SPIN_NANOS, Math.min(MAX_SPIN_NANOS, 2 * handoffNanos));
+	}
+
+	/**
+	 * @return the number of threads currently waiting in poll for a connection, spinning or parked. Read without locking the queue
+	 */
+	public int getWaitingCount() {
+		return this.waiting + this.spinning.get();
+	}
+
+	public boolean isEmpty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * @return a snapshot of the queued connections. Changes to the queue after this call are not reflected by the iterator.
+	 */
+	@Override
+	public Iterator<PooledConnectionImpl> iterator() {
+		this.lock.lock();
+		try {
+			if (this.hostQueues != null) {
+				List<PooledConnectionImpl> snapshot = new ArrayList<>(this.count);
+				for (HostQueue hostQueue : this.hostQueues.values()) {
+					snapshot.addAll(hostQueue.connections);
+				}
+				return snapshot.iterator();
+			}
+			PooledConnectionImpl[] snapshot = new PooledConnectionImpl[this.count];
+			for (int i = 0; i < this.count; i++) {
+				snapshot[i] = this.items[(this.head + i) % this.items.length];
+			}
+			return Arrays.asList(snapshot).iterator();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the connection at the tail of the queue if the queue is under its capacity.
+	 *
+	 * @param connection
+	 * @return false if the queue is at (or over) its capacity
+	 */
+	public boolean offer(PooledConnectionImpl connection) {
+		this.lock.lock();
+		try {
+			if (this.count >= this.capacity) {
+				return false;
+			}
+			if (this.hostQueues != null) {
+				HostQueue hostQueue = this.hostQueues.computeIfAbsent(connection.getHost(), host -> new HostQueue());
+				hostQueue.connections.addLast(connection);
+				if (!hostQueue.inRotation) {
+					hostQueue.inRotation = true;
+					this.hostRotation.addLast(hostQueue);
+				}
+			} else {
+				this.items[(this.head + this.count) % this.items.length] = connection;
+			}
+			this.count++;
+			this.notEmpty.signal();
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the connection at the head of the queue or null if the queue is empty
+	 */
+	public PooledConnectionImpl poll() {
+		this.lock.lock();
+		try {
+			return this.count == 0 ? null : this.dequeue();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param sessionContext
+	 *            the preferred session context
+	 * @return the connection that has been idle longest among those with the given session context, else the connection the ordering picks, or
+	 *         null if the queue is empty
+	 */
+	public PooledConnectionImpl poll(String sessionContext) {
+		this.lock.lock();
+		try {
+			PooledConnectionImpl connection = this.eldest(sessionContext);
+			if (connection != null) {
+				this.removeQueued(connection);
+				return connection;
+			}
+			return this.count == 0 ? null : this.dequeue();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the connection that has been idle longest, whatever the ordering, or null if the queue is empty. Used to drain surplus connections
+	 */
+	public PooledConnectionImpl pollEldest() {
+		this.lock.lock();
+		try {
+			PooledConnectionImpl connection = this.eldest(null);
+			if (connection != null) {
+				this.removeQueued(connection);
+			}
+			return connection;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param predicate
+	 *            the test the connection that has been idle longest has to pass
+	 * @return the connection that has been idle longest if it passes the test, else null. Used to retire idle connections one at a time
+	 */
+	public PooledConnectionImpl pollEldest(Predicate<PooledConnectionImpl> predicate) {
+		this.lock.lock();
+		try {
+			PooledConnectionImpl connection = this.eldest(null);
+			if (connection == null || !predicate.test(connection)) {
+				return null;
+			}
+			this.removeQueued(connection);
+			return connection;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits up to the timeout for a connection. If the queue spins, the thread spins for the spin limit before it parks. While the spin limit is 0
+	 * because the handoffs were slow, every SPIN_PROBE_INTERVAL-th wait spins for MAX_SPIN_NANOS as a probe; a probe that gets a connection starts
+	 * the moving average over from its handoff time, since the parked waits alone would never bring it back down.
+	 *
+	 * @return the connection at the head of the queue or null if the wait timed out
+	 * @throws InterruptedException
+	 */
+	public PooledConnectionImpl poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long waitStartNanos = System.nanoTime();
+		long nanos = unit.toNanos(timeout);
+		if (this.spin) {
+			long spinNanos = this.getSpinLimitNanos();
+			boolean probe = spinNanos == 0 && (this.unspunWaits.incrementAndGet() & (SPIN_PROBE_INTERVAL - 1)) == 0;
+			PooledConnectionImpl connection = this.spinPoll(waitStartNanos, Math.min(nanos, probe ? MAX_SPIN_NANOS : spinNanos));
+			if (connection != null) {
+				if (probe) {
+					this.handoffNanos = System.nanoTime() - waitStartNanos;
+				}
+				return connection;
+			}
+			nanos -= System.nanoTime() - waitStartNanos;
+		}
+		this.lock.lockInterruptibly();
+		try {
+			this.waiting++;
+			try {
+				while (this.count == 0) {
+					if (nanos <= 0) {
+						if (this.spin) {
+							this.parkedWaits.increment();
+						}
+						return null;
+					}
+					nanos = this.notEmpty.awaitNanos(nanos);
+				}
+			} finally {
+				this.waiting--;
+			}
+			if (this.spin) {
+				this.parkedWaits.increment();
+				this.recordHandoff(System.nanoTime() - waitStartNanos);
+			}
+			return this.dequeue();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Folds a handoff time into the moving average the spin limit follows. Concurrent updates may lose a sample, which a heuristic can afford.
+	 */
+	private void recordHandoff(long nanos) {
+		long handoffNanos = this.handoffNanos;
+		this.handoffNanos = handoffNanos + ((nanos - handoffNanos) >> 3);
+	}
+
+	public boolean remove(PooledConnectionImpl connection) {
+		this.lock.lock();
+		try {
+			return this.removeQueued(connection);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the connection out of the queue. Must be called with the lock held.
+	 *
+	 * @return false if the connection was not queued
+	 */
+	private boolean removeQueued(PooledConnectionImpl connection) {
+		if (this.hostQueues != null) {
+			HostQueue hostQueue = this.hostQueues.get(connection.getHost());
+			if (hostQueue == null || !hostQueue.connections.remove(connection)) {
+				return false;
+			}
+			this.count--;
+			return true;
+		}
+		for (int i = 0; i < this.count; i++) {
+			if (this.items[(this.head + i) % this.items.length] == connection) {
+				this.removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes the connection at the given position from the head out of the queue. Must be called with the lock held.
+	 */
+	private PooledConnectionImpl removeAt(int position) {
+		PooledConnectionImpl connection = this.items[(this.head + position) % this.items.length];
+		if (position == 0) {
+			this.items[this.head] = null;
+			this.head = (this.head + 1) % this.items.length;
+		} else {
+			// close the gap by shifting the connections behind it one slot forward
+			for (int j = position; j < this.count - 1; j++) {
+				this.items[(this.head + j) % this.items.length] = this.items[(this.head + j + 1) % this.items.length];
+			}
+			this.items[(this.head + this.count - 1) % this.items.length] = null;
+		}
+		this.count--;
+		return connection;
+	}
+
+	/**
+	 * Changes the capacity of the queue. Connections over a lowered capacity stay queued until they are polled or removed.
+	 *
+	 * @param capacity
+	 */
+	public void setCapacity(int capacity) {
+		this.lock.lock();
+		try {
+			if (capacity > this.items.length) {
+				PooledConnectionImpl[] resized = new PooledConnectionImpl[capacity];
+				for (int i = 0; i < this.count; i++) {
+					resized[i] = this.items[(this.head + i) % this.items.length];
+				}
+				this.items = resized;
+				this.head = 0;
+			}
+			this.capacity = capacity;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Spins until a connection can be taken or the spin time has passed: the first half with Thread.onSpinWait, the second half yielding the
+	 * processor to other threads.
+	 *
+	 * @return the connection or null if none came back in time
+	 * @throws InterruptedException
+	 */
+	private PooledConnectionImpl spinPoll(long waitStartNanos, long spinNanos) throws InterruptedException {
+		if (spinNanos <= 0) {
+			return null;
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		long yieldAt = waitStartNanos + spinNanos / 2;
+		long deadline = waitStartNanos + spinNanos;
+		this.spinning.incrementAndGet();
+		try {
+			long now;
+			while ((now = System.nanoTime()) - deadline < 0) {
+				if (this.count > 0) {
+					PooledConnectionImpl connection = this.poll();
+					if (connection != null) {
+						this.spinHandoffs.increment();
+						this.recordHandoff(now - waitStartNanos);
+						return connection;
+					}
+				}
+				if (now - yieldAt < 0) {
+					onSpinWait();
+				} else {
+					Thread.yield();
+				}
+			}
+			return null;
+		} finally {
+			this.spinning.decrementAndGet();
+		}
+	}
+
+	private static void onSpinWait() {
+		if (ON_SPIN_WAIT != null) {
+			try {
+				ON_SPIN_WAIT.invokeExact();
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of queued connections. Read without locking the queue
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * The idle connections to one host, oldest first, for ROUND_ROBIN.
+	 */
+	private static final class HostQueue {
+		private final ArrayDeque<PooledConnectionImpl> connections = new ArrayDeque<>();
+		private boolean inRotation;
+	}
+}
@@ -0,0 +1,192 @@
+package com.cornholio.database.connectionpool;
+
+import com.cornholio.database.connection.event.PoolEventRecorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Establishes connections ahead of demand, so that borrowers find an idle connection instead of paying for a connect. It listens to the pool's
+ * events for the borrow rate, the lease time and the connect latency, and keeps a moving average of each. Every tick it projects how many
+ * connections will be idle once a connection established now would be ready: the idle ones, plus the leases expected to end in that time, minus
+ * the borrows expected in that time. If the projection falls short of the headroom, the missing connections are established in the background.
+ * The pool keeps them within MAX_IDLE_SIZE and MAX_SIZE.
+ *
+ * @author nikhilagarwal
+ */
+public class IdleConnectionReplenisher implements PoolEventRecorder {
+
+	/**
+	 * The weight of the latest tick in the moving averages
+	 */
+	private static final double EWMA_WEIGHT = 0.3;
+	private double borrowRate;
+	private final LongAdder borrows;
+	private double connectNanos;
+	private final LongAdder connectNanosTotal;
+	private final LongAdder connects;
+	private final int headroom;
+	private long lastTickNanos;
+	private double leaseNanos;
+	private final LongAdder leaseNanosTotal;
+	private final LongAdder leases;
+	private final AtomicInteger pending;
+	private final LongAdder replenished;
+
+	/**
+	 * Constructor
+	 *
+	 * @param headroom
+	 *            the number of connections that should still be idle once a connection established now would be ready
+	 */
+	IdleConnectionReplenisher(int headroom) {
+		super();
+		this.headroom = headroom;
+		this.borrows = new LongAdder();
+		this.connectNanosTotal = new LongAdder();
+		this.connects = new LongAdder();
+		this.leaseNanosTotal = new LongAdder();
+		this.leases = new LongAdder();
+		this.pending = new AtomicInteger();
+		this.replenished = new LongAdder();
+		this.lastTickNanos = System.nanoTime();
+	}
+
+	/**
+	 * Gives back connections tick asked for that could not be reserved.
+	 */
+	void cancel(int connections) {
+		this.pending.addAndGet(-connections);
+	}
+
+	@Override
+	public void connectionBorrowed(long connectionId, long waitNanos, boolean created) {
+		this.borrows.increment();
+	}
+
+	@Override
+	public void connectionCreated(long connectionId, long connectNanos, long initNanos) {
+		this.connectNanosTotal.add(connectNanos + initNanos);
+		this.connects.increment();
+	}
+
+	@Override
+	public void connectionCreateFailed(long connectNanos) {
+	}
+
+	@Override
+	public void connectionDisposed(long connectionId) {
+	}
+
+	@Override
+	public void connectionErrorOccurred(long connectionId) {
+	}
+
+	@Override
+	public void connectionLeased(long connectionId, long leaseNanos, String borrowSite) {
+		this.leaseNanosTotal.add(leaseNanos);
+		this.leases.increment();
+	}
+
+	@Override
+	public void connectionLimitReached() {
+	}
+
+	@Override
+	public void connectionValidated(long connectionId, boolean valid) {
+	}
+
+	@Override
+	public void connectionWaitTimedOut(long waitNanos) {
+	}
+
+	/**
+	 * @return the moving average of the borrows per second
+	 */
+	public synchronized double getBorrowRate() {
+		return this.borrowRate * TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the moving average of the time it takes to establish and initialize a connection, in milliseconds
+	 */
+	public synchronized double getConnectLatency() {
+		return this.connectNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the moving average of the lease time, in milliseconds
+	 */
+	public synchronized double getLeaseTime() {
+		return this.leaseNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the number of connections established ahead of demand
+	 */
+	public long getReplenishedCount() {
+		return replenished.sum();
+	}
+
+	@Override
+	public void leaseTimedOut(long connectionId, long leaseNanos, String borrowSite) {
+		this.connectionLeased(connectionId, leaseNanos, borrowSite);
+	}
+
+	@Override
+	public void maintenanceRun(long durationNanos, int invalidConnections) {
+	}
+
+	/**
+	 * Called when a connection established ahead of demand is in the pool, or could not be established.
+	 */
+	void replenished(boolean success) {
+		this.pending.decrementAndGet();
+		if (success) {
+			this.replenished.increment();
+		}
+	}
+
+	/**
+	 * Folds the events since the last tick into the moving averages and projects the idle connections.
+	 *
+	 * @param idle
+	 *            the number of idle connections
+	 * @param total
+	 *            the number of connections in the pool, idle, leased or being established
+	 * @param room
+	 *            the number of connections the idle queue has room for
+	 * @return the number of connections to establish ahead of demand. The caller must call replenished or cancel for each of them
+	 */
+	synchronized int tick(int idle, int total, int room) {
+		long now = System.nanoTime();
+		long elapsedNanos = Math.max(1L, now - this.lastTickNanos);
+		this.lastTickNanos = now;
+		this.borrowRate += EWMA_WEIGHT * ((double) this.borrows.sumThenReset() / elapsedNanos - this.borrowRate);
+		long connects = this.connects.sumThenReset();
+		long connectNanosTotal = this.connectNanosTotal.sumThenReset();
+		if (connects > 0) {
+			this.connectNanos = this.connectNanos == 0 ? (double) connectNanosTotal / connects
+					: this.connectNanos + EWMA_WEIGHT * ((double) connectNanosTotal / connects - this.connectNanos);
+		}
+		long leases = this.leases.sumThenReset();
+		long leaseNanosTotal = this.leaseNanosTotal.sumThenReset();
+		if (leases > 0) {
+			this.leaseNanos = this.leaseNanos == 0 ? (double) leaseNanosTotal / leases
+					: this.leaseNanos + EWMA_WEIGHT * ((double) leaseNanosTotal / leases - this.leaseNanos);
+		}
+
+		// the connections idle by the time a connection established now is ready
+		int pending = this.pending.get();
+		int leased = Math.max(0, total - idle - pending);
+		double returns = this.leaseNanos == 0 ? 0 : leased * Math.min(1, this.connectNanos / this.leaseNanos);
+		double projected = idle + pending + returns - this.borrowRate * this.connectNanos;
+		int missing = Math.min((int) Math.ceil(this.headroom - projected), room - pending);
+		if (missing <= 0) {
+			return 0;
+		}
+		this.pending.addAndGet(missing);
+		return missing;
+	}
+}
@@ -0,0 +1,18 @@
+package com.cornholio.database.connectionpool;
+
+/**
+ * The order in which idle connections are handed out. The order is independent of how fairly waiting borrowers are served.
+ * <ul>
+ * <li>FIFO hands out the connection that has been idle longest. Use is spread evenly and every connection is kept warm.</li>
+ * <li>LIFO hands out the connection that was returned last. The same few connections stay hot (and so do their server side caches). The
+ * connections at the bottom of the stack stay idle; with an idle time out (ConnectionPoolBuilder.idleTimeOut) the pool maintenance closes them
+ * once they have been idle that long, down to MIN_SIZE, so the pool shrinks to the connections it actually uses.</li>
+ * <li>ROUND_ROBIN takes the backend hosts behind the data source in turn and hands out the connection that has been idle longest on the next one,
+ * so that load rotates across the hosts.</li>
+ * </ul>
+ *
+ * @author nikhilagarwal
+ */
+public enum IdleOrdering {
+	FIFO, LIFO, ROUND_ROBIN
+}
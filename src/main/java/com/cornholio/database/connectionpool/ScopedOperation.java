@@ -0,0 +1,16 @@
+package com.cornholio.database.connectionpool;
+
+import java.sql.SQLException;
+
+/**
+ * A logical operation that runs inside a connection scope of the pool. Every getConnection call of the operation, however deeply nested, gets the
+ * one connection bound to the scope.
+ *
+ * @param <T>
+ *            the result of the operation
+ * @author nikhilagarwal
+ */
+public interface ScopedOperation<T> {
+
+	T run() throws SQLException;
+}
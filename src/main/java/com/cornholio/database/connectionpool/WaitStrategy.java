@@ -0,0 +1,18 @@
+package com.cornholio.database.connectionpool;
+
+/**
+ * How a borrower waits for a connection when none is idle and no new one can be established.
+ * <ul>
+ * <li>PARK parks the borrower right away until a connection is returned or the wait times out. No processor time is spent waiting, but every
+ * handoff pays for waking a parked thread.</li>
+ * <li>SPIN_THEN_PARK first spins on the idle queue, then yields the processor, and parks only if no connection came back meanwhile. With short
+ * leases a connection usually comes back within microseconds, well before a park and unpark would be over. The spin is bounded by twice the recent
+ * handoff time, and is skipped altogether while handoffs take longer than a park, so a busy pool does not burn processors on waits that end up
+ * parking anyway. Spinning borrowers take a returned connection ahead of parked ones, whether waiters are served fairly or not.</li>
+ * </ul>
+ *
+ * @author nikhilagarwal
+ */
+public enum WaitStrategy {
+	PARK, SPIN_THEN_PARK
+}
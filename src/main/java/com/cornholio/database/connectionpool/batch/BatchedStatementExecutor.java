@@ -0,0 +1,129 @@
+package com.cornholio.database.connectionpool.batch;
+
+import com.cornholio.database.connectionpool.ConnectionPool;
+import com.cornholio.database.connectionpool.coalesce.CoalescingExecutor;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalesces small parameterised statements submitted by many threads into jdbc batches. Statements are grouped by their sql text and a group is
+ * flushed with addBatch/executeBatch on a single pooled connection when it reaches MAX_BATCH_SIZE rows or when the oldest row has waited for the
+ * linger time, whichever comes first. Every submitter gets its own future that completes with the update count of its row or with the error that
+ * row ran into.
+ *
+ * @author nikhilagarwal
+ */
+public class BatchedStatementExecutor extends CoalescingExecutor<String, StatementBatch> {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_BATCH_FAILED = "Batch failed: ";
+	private static final String LOG_MESSAGE_BATCH_FLUSHED = "Batch flushed. Rows: ";
+	private static final String LOG_MESSAGE_EXECUTOR_CLOSED = "Batched statement executor is closed";
+	private static final String THREAD_NAME_FLUSHER = "batched-statement-flusher";
+	private static final String THREAD_NAME_LINGER = "batched-statement-linger";
+	private static Logger logger;
+	private final ConnectionPool connectionPool;
+
+	/**
+	 * Constructor
+	 */
+	BatchedStatementExecutor(BatchedStatementExecutorBuilder builder) {
+		super(builder.getMaxBatchSize(), builder.getLingerTime(), builder.getFlushThreads(), THREAD_NAME_FLUSHER, THREAD_NAME_LINGER,
+				LOG_MESSAGE_EXECUTOR_CLOSED);
+		this.connectionPool = builder.getConnectionPool();
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(BatchedStatementExecutor.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	/**
+	 * Completes the futures of a failed batch. If the driver reported per row update counts then the rows that went through get their counts and the
+	 * rest get the error. Otherwise every row gets the error.
+	 *
+	 * @param batch
+	 * @param e
+	 */
+	private static void completeExceptionally(StatementBatch batch, SQLException e) {
+		int[] updateCounts = e instanceof BatchUpdateException ? ((BatchUpdateException) e).getUpdateCounts() : null;
+		List<CompletableFuture<Integer>> results = batch.getResults();
+		for (int i = 0; i < results.size(); i++) {
+			if (updateCounts != null && i < updateCounts.length && updateCounts[i] != Statement.EXECUTE_FAILED) {
+				results.get(i).complete(updateCounts[i]);
+			} else {
+				results.get(i).completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Borrows one connection from the pool and executes the whole batch on it.
+	 *
+	 * @param batch
+	 */
+	void flush(StatementBatch batch) {
+		try (Connection connection = this.connectionPool.getConnection();
+				PreparedStatement statement = connection.prepareStatement(batch.getSql())) {
+			for (Object[] row : batch.getRows()) {
+				for (int i = 0; i < row.length; i++) {
+					statement.setObject(i + 1, row[i]);
+				}
+				statement.addBatch();
+			}
+			int[] updateCounts = statement.executeBatch();
+			List<CompletableFuture<Integer>> results = batch.getResults();
+			for (int i = 0; i < results.size(); i++) {
+				results.get(i).complete(i < updateCounts.length ? updateCounts[i] : Statement.SUCCESS_NO_INFO);
+			}
+			if (getLogger().isTraceEnabled()) {
+				getLogger().log(Level.TRACE, LOG_MESSAGE_BATCH_FLUSHED + batch.size());
+			}
+		} catch (SQLException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_BATCH_FAILED + e.getMessage());
+			completeExceptionally(batch, e);
+		} catch (RuntimeException e) {
+			for (CompletableFuture<Integer> result : batch.getResults()) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+
+	@Override
+	protected void fail(StatementBatch batch, SQLException e) {
+		completeExceptionally(batch, e);
+	}
+
+	@Override
+	protected StatementBatch newGroup(String sql, int expectedSize) {
+		return new StatementBatch(sql, expectedSize);
+	}
+
+	@Override
+	protected void run(StatementBatch batch) {
+		this.flush(batch);
+	}
+
+	/**
+	 * Queues a parameterised statement for batched execution.
+	 *
+	 * @param sql
+	 *            the sql text. Statements are grouped on this text so it should be the same string for the same statement shape
+	 * @param parameters
+	 *            the positional parameters of the statement
+	 * @return a future that completes with the update count of this row
+	 */
+	public CompletableFuture<Integer> submit(String sql, Object... parameters) {
+		return this.enqueue(sql, batch -> batch.add(parameters));
+	}
+}
@@ -0,0 +1,73 @@
+package com.cornholio.database.connectionpool.batch;
+
+import com.cornholio.database.connectionpool.ConnectionPool;
+
+/**
+ * This is the batched statement executor builder. The purpose is to build a batched statement executor on top of an existing connection pool.
+ * 
+ * @author nikhilagarwal
+ */
+public class BatchedStatementExecutorBuilder {
+
+	private static final String LOG_MESSAGE_INVALID_CONFIGURATION = "Invalid batched statement executor configuration: ";
+	private ConnectionPool connectionPool;
+	private Integer flushThreads = 1;
+	private Long lingerTime = 5L;
+	private Integer maxBatchSize = 100;
+
+	public BatchedStatementExecutorBuilder() {
+		super();
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the batch size, the linger time or the number of threads is not positive: a batch whose linger time is negative is never flushed
+	 */
+	public BatchedStatementExecutor build() {
+		if (!isPositive(this.flushThreads) || !isPositive(this.lingerTime) || !isPositive(this.maxBatchSize)) {
+			throw new IllegalArgumentException(LOG_MESSAGE_INVALID_CONFIGURATION + "MAX_BATCH_SIZE=" + this.maxBatchSize + ", LINGER_TIME="
+					+ this.lingerTime + ", FLUSH_THREADS=" + this.flushThreads);
+		}
+		return new BatchedStatementExecutor(this);
+	}
+
+	public BatchedStatementExecutorBuilder connectionPool(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+		return this;
+	}
+
+	public BatchedStatementExecutorBuilder flushThreads(Integer flushThreads) {
+		this.flushThreads = flushThreads;
+		return this;
+	}
+
+	public ConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+
+	public Integer getFlushThreads() {
+		return flushThreads;
+	}
+
+	public Long getLingerTime() {
+		return lingerTime;
+	}
+
+	public Integer getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	private static boolean isPositive(Number value) {
+		return value != null && value.longValue() > 0;
+	}
+
+	public BatchedStatementExecutorBuilder lingerTime(Long lingerTime) {
+		this.lingerTime = lingerTime;
+		return this;
+	}
+
+	public BatchedStatementExecutorBuilder maxBatchSize(Integer maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+}
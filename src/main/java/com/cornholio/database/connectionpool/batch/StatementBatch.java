@@ -0,0 +1,49 @@
+package com.cornholio.database.connectionpool.batch;
+
+import com.cornholio.database.connectionpool.coalesce.PendingGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A batch of rows that share the same sql text. Rows are collected by the batched statement executor until the batch is full or the linger time
+ * has passed, and are then flushed together on one connection.
+ * 
+ * @author nikhilagarwal
+ */
+class StatementBatch extends PendingGroup<String> {
+
+	private final List<CompletableFuture<Integer>> results;
+	private final List<Object[]> rows;
+
+	StatementBatch(String sql, int expectedSize) {
+		super(sql);
+		this.rows = new ArrayList<>(expectedSize);
+		this.results = new ArrayList<>(expectedSize);
+	}
+
+	CompletableFuture<Integer> add(Object[] parameters) {
+		CompletableFuture<Integer> result = new CompletableFuture<>();
+		this.rows.add(parameters);
+		this.results.add(result);
+		return result;
+	}
+
+	List<CompletableFuture<Integer>> getResults() {
+		return results;
+	}
+
+	List<Object[]> getRows() {
+		return rows;
+	}
+
+	String getSql() {
+		return this.getKey();
+	}
+
+	@Override
+	protected int size() {
+		return rows.size();
+	}
+}
@@ -0,0 +1,347 @@
+package com.cornholio.database.connectionpool.bulkhead;
+
+import com.cornholio.database.connection.event.LatencyHistogram;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bulkhead in front of the connection pool. Callers submit tasks that need a connection and get a future back. A task only runs once a
+ * connection is free, with the connection handed to it, so at most as many tasks run as the pool has connections; the rest wait in a queue as task
+ * objects instead of as threads parked in getConnection. The executor is woken by the pool's availability hook whenever a connection is returned
+ * or established. It only ever takes idle connections: new ones are established on the pool's connection creator, never on a submitting thread.
+ * <p>
+ * A task may have a deadline. A task still queued at its deadline is not run and its future fails with a TimeoutException. A running task's lease
+ * times out at the deadline; combine with abortTimedOutLeases to have its statements cancelled then. Without it the connection is recycled while
+ * the task still runs, and the executor only gives back the task's own lease, never the one of the connection's next borrower. The time tasks
+ * spend queued and running is recorded separately.
+ *
+ * @author nikhilagarwal
+ */
+public class BulkheadExecutor {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_CONNECTION_RELEASE_FAILED = "Bulkhead connection could not be released";
+	private static final String LOG_MESSAGE_DEADLINE_PASSED = "Deadline passed before the task could run";
+	private static final String LOG_MESSAGE_EXECUTOR_CLOSED = "Bulkhead executor is closed";
+	private static final String LOG_MESSAGE_QUEUE_FULL = "Bulkhead queue is full";
+	private static final String THREAD_NAME_DEADLINE = "bulkhead-deadline";
+	private static final String THREAD_NAME_WORKER = "bulkhead-worker";
+	private static Logger logger;
+	private final Runnable availabilityListener;
+	private volatile boolean closed;
+	private final LongAdder completed;
+	private final ConnectionPoolImpl connectionPool;
+	private final Timer deadlineTimer;
+	private final LatencyHistogram executionTimes;
+	private final LongAdder expired;
+	private final LongAdder failed;
+	private final int maxQueueSize;
+	private final Queue<BulkheadTask<?>> queue;
+	private final AtomicInteger queued;
+	private final LatencyHistogram queueTimes;
+	private final LongAdder rejected;
+	private final AtomicInteger running;
+	private final AtomicInteger wip;
+	private final ExecutorService workers;
+
+	/**
+	 * Constructor
+	 */
+	BulkheadExecutor(BulkheadExecutorBuilder builder) {
+		super();
+		this.connectionPool = builder.getConnectionPool();
+		this.maxQueueSize = builder.getMaxQueueSize();
+		this.queue = new ConcurrentLinkedQueue<>();
+		this.queued = new AtomicInteger();
+		this.running = new AtomicInteger();
+		this.wip = new AtomicInteger();
+		this.completed = new LongAdder();
+		this.expired = new LongAdder();
+		this.failed = new LongAdder();
+		this.rejected = new LongAdder();
+		this.executionTimes = new LatencyHistogram();
+		this.queueTimes = new LatencyHistogram();
+		this.deadlineTimer = new Timer(THREAD_NAME_DEADLINE, true);
+
+		// no more workers than there are connections are ever busy, so a cached pool stays as small as the connection pool
+		this.workers = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, THREAD_NAME_WORKER);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.availabilityListener = this::dispatch;
+		this.connectionPool.addAvailabilityListener(this.availabilityListener);
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(BulkheadExecutor.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	private static void releaseQuietly(PooledConnectionImpl connection, long leaseNumber) {
+		try {
+			connection.closeLease(leaseNumber);
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_RELEASE_FAILED, e);
+		}
+	}
+
+	/**
+	 * Stops taking tasks. Queued tasks fail with a RejectedExecutionException; running tasks finish.
+	 */
+	public void close() {
+		this.closed = true;
+		this.connectionPool.removeAvailabilityListener(this.availabilityListener);
+		this.deadlineTimer.cancel();
+		BulkheadTask<?> task;
+		while ((task = this.queue.poll()) != null) {
+			this.queued.decrementAndGet();
+			if (task.claim()) {
+				task.getResult().completeExceptionally(new RejectedExecutionException(LOG_MESSAGE_EXECUTOR_CLOSED));
+			}
+		}
+		this.workers.shutdown();
+	}
+
+	/**
+	 * Hands free connections to queued tasks until either runs out. Only ever runs on one thread at a time: a thread that finds it running tells it
+	 * to go round once more.
+	 */
+	private void dispatch() {
+		if (this.wip.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			while (!this.closed && !this.queue.isEmpty()) {
+				PooledConnectionImpl connection;
+				try {
+					connection = this.connectionPool.tryGetIdleConnection();
+				} catch (SQLException e) {
+					// the connection could not be opened. Fail the task that would have had it instead of trying forever
+					this.failNextTask(e);
+					continue;
+				}
+
+				// if the pool can grow a new connection is on its way, and the availability hook dispatches again once it is idle
+				if (connection == null) {
+					break;
+				}
+				long leaseNumber = connection.getLeaseNumber();
+				BulkheadTask<?> task = this.nextTask();
+				if (task == null) {
+					releaseQuietly(connection, leaseNumber);
+					break;
+				}
+				this.running.incrementAndGet();
+				try {
+					this.workers.execute(() -> this.run(task, connection, leaseNumber));
+				} catch (RejectedExecutionException e) {
+					this.running.decrementAndGet();
+					releaseQuietly(connection, leaseNumber);
+					task.getResult().completeExceptionally(e);
+				}
+			}
+		} while (this.wip.decrementAndGet() != 0);
+	}
+
+	private void expire(BulkheadTask<?> task) {
+		if (task.expire()) {
+			if (this.queue.remove(task)) {
+				this.queued.decrementAndGet();
+			}
+			this.expired.increment();
+			task.getResult().completeExceptionally(new TimeoutException(LOG_MESSAGE_DEADLINE_PASSED));
+		}
+	}
+
+	private void failNextTask(SQLException e) {
+		BulkheadTask<?> task = this.nextTask();
+		if (task != null) {
+			this.failed.increment();
+			task.getResult().completeExceptionally(e);
+		}
+	}
+
+	public long getCompletedCount() {
+		return this.completed.sum();
+	}
+
+	/**
+	 * @return how long the tasks ran, from the moment they got their connection until they were done
+	 */
+	public LatencyHistogram getExecutionTimes() {
+		return executionTimes;
+	}
+
+	/**
+	 * @return the number of tasks whose deadline passed before they could run
+	 */
+	public long getExpiredCount() {
+		return this.expired.sum();
+	}
+
+	/**
+	 * @return the number of tasks that threw, or whose connection could not be opened
+	 */
+	public long getFailedCount() {
+		return this.failed.sum();
+	}
+
+	/**
+	 * @return the number of tasks waiting for a connection
+	 */
+	public int getQueuedCount() {
+		return this.queued.get();
+	}
+
+	/**
+	 * @return how long the tasks waited for a connection, from submit until they started running
+	 */
+	public LatencyHistogram getQueueTimes() {
+		return queueTimes;
+	}
+
+	/**
+	 * @return the number of tasks rejected because the queue was full or the executor closed
+	 */
+	public long getRejectedCount() {
+		return this.rejected.sum();
+	}
+
+	/**
+	 * @return the number of tasks running right now. Never more than the pool has connections
+	 */
+	public int getRunningCount() {
+		return this.running.get();
+	}
+
+	/**
+	 * @return the next queued task that can still run, or null if there is none
+	 */
+	private BulkheadTask<?> nextTask() {
+		BulkheadTask<?> task;
+		while ((task = this.queue.poll()) != null) {
+			this.queued.decrementAndGet();
+			if (task.claim()) {
+				return task;
+			}
+		}
+		return null;
+	}
+
+	private <T> void run(BulkheadTask<T> task, PooledConnectionImpl connection, long leaseNumber) {
+		long startNanos = System.nanoTime();
+		this.queueTimes.record(startNanos - task.getSubmitNanos());
+		if (task.getDeadlineTask() != null) {
+			task.getDeadlineTask().cancel();
+		}
+		if (task.hasDeadline() && task.getDeadline() - startNanos <= 0L) {
+			this.running.decrementAndGet();
+			releaseQuietly(connection, leaseNumber);
+			this.expired.increment();
+			task.getResult().completeExceptionally(new TimeoutException(LOG_MESSAGE_DEADLINE_PASSED));
+			return;
+		}
+		T value = null;
+		RuntimeException error = null;
+		try {
+			if (task.hasDeadline()) {
+				this.connectionPool.setLeaseDeadline(connection, task.getDeadline());
+			}
+			value = task.getWork().apply(connection);
+		} catch (RuntimeException e) {
+			error = e;
+		} finally {
+			this.executionTimes.record(System.nanoTime() - startNanos);
+			this.running.decrementAndGet();
+			releaseQuietly(connection, leaseNumber);
+		}
+
+		// complete only once the connection is back, so that the caller sees the task's connection free again
+		if (error != null) {
+			this.failed.increment();
+			task.getResult().completeExceptionally(error);
+		} else {
+			this.completed.increment();
+			task.getResult().complete(value);
+		}
+	}
+
+	/**
+	 * Submits a task without a deadline.
+	 *
+	 * @param work
+	 *            the task. It must not close the connection; the executor returns it to the pool
+	 * @return a future with the task's result
+	 */
+	public <T> CompletableFuture<T> submit(Function<Connection, T> work) {
+		return this.submit(work, 0L);
+	}
+
+	/**
+	 * Submits a task with a deadline.
+	 *
+	 * @param work
+	 *            the task. It must not close the connection; the executor returns it to the pool
+	 * @param timeout
+	 *            milliseconds from now by which the task has to be done, or 0 for no deadline
+	 * @return a future with the task's result. Fails with a TimeoutException if the deadline passes before the task runs, and with a
+	 *         RejectedExecutionException if the queue is full or the executor is closed
+	 */
+	public <T> CompletableFuture<T> submit(Function<Connection, T> work, long timeout) {
+		long deadline = timeout > 0L ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0L;
+		BulkheadTask<T> task = new BulkheadTask<>(work, deadline == 0L && timeout > 0L ? 1L : deadline);
+		if (this.closed) {
+			this.rejected.increment();
+			task.getResult().completeExceptionally(new RejectedExecutionException(LOG_MESSAGE_EXECUTOR_CLOSED));
+			return task.getResult();
+		}
+		if (this.queued.incrementAndGet() > this.maxQueueSize) {
+			this.queued.decrementAndGet();
+			this.rejected.increment();
+			task.getResult().completeExceptionally(new RejectedExecutionException(LOG_MESSAGE_QUEUE_FULL));
+			return task.getResult();
+		}
+		if (task.hasDeadline()) {
+			TimerTask deadlineTask = new TimerTask() {
+				@Override
+				public void run() {
+					expire(task);
+				}
+			};
+			task.setDeadlineTask(deadlineTask);
+			try {
+				this.deadlineTimer.schedule(deadlineTask, timeout);
+			} catch (IllegalStateException e) {
+				// the executor was closed in the meantime
+				this.queued.decrementAndGet();
+				this.rejected.increment();
+				task.getResult().completeExceptionally(new RejectedExecutionException(LOG_MESSAGE_EXECUTOR_CLOSED));
+				return task.getResult();
+			}
+		}
+		this.queue.offer(task);
+		this.dispatch();
+		return task.getResult();
+	}
+}
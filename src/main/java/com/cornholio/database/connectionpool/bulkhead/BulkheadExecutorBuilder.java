@@ -0,0 +1,41 @@
+package com.cornholio.database.connectionpool.bulkhead;
+
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+
+/**
+ * This is the bulkhead executor builder. The max queue size bounds the number of tasks waiting for a connection; tasks submitted beyond it are
+ * rejected right away instead of piling up.
+ *
+ * @author nikhilagarwal
+ */
+public class BulkheadExecutorBuilder {
+
+	private ConnectionPoolImpl connectionPool;
+	private Integer maxQueueSize = 10000;
+
+	public BulkheadExecutorBuilder() {
+		super();
+	}
+
+	public BulkheadExecutor build() {
+		return new BulkheadExecutor(this);
+	}
+
+	public BulkheadExecutorBuilder connectionPool(ConnectionPoolImpl connectionPool) {
+		this.connectionPool = connectionPool;
+		return this;
+	}
+
+	public ConnectionPoolImpl getConnectionPool() {
+		return connectionPool;
+	}
+
+	public Integer getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public BulkheadExecutorBuilder maxQueueSize(Integer maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+		return this;
+	}
+}
@@ -0,0 +1,76 @@
+package com.cornholio.database.connectionpool.bulkhead;
+
+import java.sql.Connection;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A task waiting in the bulkhead queue: the work, its future, its deadline and its timings. A queued task is a small object instead of a parked
+ * thread. Whoever moves the task out of QUEUED first (the dispatcher, the deadline timer or a cancelled future) decides its fate.
+ *
+ * @param <T>
+ *            the result of the task
+ * @author nikhilagarwal
+ */
+class BulkheadTask<T> {
+
+	static final int QUEUED = 0;
+	static final int RUNNING = 1;
+	static final int EXPIRED = 2;
+	private final long deadline;
+	private TimerTask deadlineTask;
+	private final CompletableFuture<T> result;
+	private final AtomicInteger state;
+	private final long submitNanos;
+	private final Function<Connection, T> work;
+
+	/**
+	 * @param deadline
+	 *            the System.nanoTime by which the task has to be done, or 0 for none
+	 */
+	BulkheadTask(Function<Connection, T> work, long deadline) {
+		this.work = work;
+		this.deadline = deadline;
+		this.result = new CompletableFuture<>();
+		this.state = new AtomicInteger(QUEUED);
+		this.submitNanos = System.nanoTime();
+	}
+
+	boolean claim() {
+		return !this.result.isDone() && this.state.compareAndSet(QUEUED, RUNNING);
+	}
+
+	boolean expire() {
+		return this.state.compareAndSet(QUEUED, EXPIRED);
+	}
+
+	long getDeadline() {
+		return deadline;
+	}
+
+	TimerTask getDeadlineTask() {
+		return deadlineTask;
+	}
+
+	CompletableFuture<T> getResult() {
+		return result;
+	}
+
+	long getSubmitNanos() {
+		return submitNanos;
+	}
+
+	Function<Connection, T> getWork() {
+		return work;
+	}
+
+	boolean hasDeadline() {
+		return this.deadline != 0L;
+	}
+
+	void setDeadlineTask(TimerTask deadlineTask) {
+		this.deadlineTask = deadlineTask;
+	}
+}
@@ -0,0 +1,187 @@
+package com.cornholio.database.connectionpool.coalesce;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects submissions from many threads into groups by key, and runs a group on a worker thread when it reaches the max group size or when its
+ * first submission has waited for the linger time, whichever comes first. A full group is taken out of the pending groups right away, so that new
+ * submissions start a new group while it runs. Subclasses decide what a group holds and how it is run.
+ *
+ * @param <K>
+ *            the type of the key the submissions are grouped on
+ * @param <G>
+ *            the type of the groups
+ * @author nikhilagarwal
+ */
+public abstract class CoalescingExecutor<K, G extends PendingGroup<K>> {
+
+	private boolean closed;
+	private final String closedMessage;
+	private final long lingerTime;
+	private final Timer lingerTimer;
+	private final int maxGroupSize;
+	private final Map<K, G> pendingGroups;
+	private final ExecutorService workers;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxGroupSize
+	 *            the number of submissions that starts a group right away
+	 * @param lingerTime
+	 *            how many milliseconds the first submission of a group waits for others
+	 * @param workerThreads
+	 *            the number of threads that run groups
+	 * @param workerThreadName
+	 * @param lingerThreadName
+	 * @param closedMessage
+	 *            the error of submissions made after close
+	 */
+	protected CoalescingExecutor(int maxGroupSize, long lingerTime, int workerThreads, String workerThreadName, String lingerThreadName,
+			String closedMessage) {
+		super();
+		this.maxGroupSize = maxGroupSize;
+		this.lingerTime = lingerTime;
+		this.closedMessage = closedMessage;
+		this.pendingGroups = new HashMap<>();
+		this.lingerTimer = new Timer(lingerThreadName, true);
+		this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+			Thread thread = new Thread(runnable, workerThreadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs all pending groups, waits for them to finish and stops the worker threads. Submissions made after this call are rejected.
+	 */
+	public void close() {
+		List<G> groups;
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			groups = new ArrayList<>(this.pendingGroups.values());
+			this.pendingGroups.clear();
+		}
+		for (G group : groups) {
+			group.cancelLinger();
+			this.schedule(group);
+		}
+		this.lingerTimer.cancel();
+		this.workers.shutdown();
+		try {
+			this.workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Adds a submission to the pending group of the key, starting a new group if there is none, and runs the group if that filled it.
+	 *
+	 * @param key
+	 * @param adder
+	 *            adds the submission to the group and returns its future
+	 * @return the future of the submission, failed if the executor is closed
+	 */
+	protected <R> CompletableFuture<R> enqueue(K key, Function<G, CompletableFuture<R>> adder) {
+		CompletableFuture<R> result;
+		G fullGroup = null;
+		synchronized (this) {
+			if (this.closed) {
+				result = new CompletableFuture<>();
+				result.completeExceptionally(new SQLException(this.closedMessage));
+				return result;
+			}
+			G group = this.pendingGroups.get(key);
+			if (group == null) {
+				final G newGroup = this.newGroup(key, this.maxGroupSize);
+				this.pendingGroups.put(key, newGroup);
+				if (this.maxGroupSize > 1) {
+					TimerTask lingerTask = new TimerTask() {
+						@Override
+						public void run() {
+							lingerExpired(newGroup);
+						}
+					};
+					newGroup.setLingerTask(lingerTask);
+					this.lingerTimer.schedule(lingerTask, this.lingerTime);
+				}
+				group = newGroup;
+			}
+			result = adder.apply(group);
+
+			// the group is full. take it out of the pending groups so that new submissions start a new group
+			if (group.size() >= this.maxGroupSize) {
+				this.pendingGroups.remove(key);
+				group.cancelLinger();
+				fullGroup = group;
+			}
+		}
+		if (fullGroup != null) {
+			this.schedule(fullGroup);
+		}
+		return result;
+	}
+
+	/**
+	 * Fails every submission of a group that cannot be run.
+	 *
+	 * @param group
+	 * @param e
+	 */
+	protected abstract void fail(G group, SQLException e);
+
+	/**
+	 * Called by the linger timer. Detaches the group if it is still pending and runs it.
+	 *
+	 * @param group
+	 */
+	private void lingerExpired(G group) {
+		synchronized (this) {
+			if (this.pendingGroups.get(group.getKey()) != group) {
+				// the group filled up and was started already
+				return;
+			}
+			this.pendingGroups.remove(group.getKey());
+		}
+		this.schedule(group);
+	}
+
+	/**
+	 * @param key
+	 * @param expectedSize
+	 *            the max group size
+	 * @return a new empty group
+	 */
+	protected abstract G newGroup(K key, int expectedSize);
+
+	/**
+	 * Runs a group on a worker thread and completes the futures of its submissions.
+	 *
+	 * @param group
+	 */
+	protected abstract void run(G group);
+
+	private void schedule(G group) {
+		try {
+			this.workers.execute(() -> run(group));
+		} catch (RejectedExecutionException e) {
+			this.fail(group, new SQLException(this.closedMessage, e));
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.cornholio.database.connectionpool.coalesce;
+
+import java.util.TimerTask;
+
+/**
+ * A group of submissions that share a key and are collected by a coalescing executor until the group is full or its linger time has passed.
+ *
+ * @param <K>
+ *            the type of the key the submissions are grouped on
+ * @author nikhilagarwal
+ */
+public abstract class PendingGroup<K> {
+
+	private final K key;
+	private TimerTask lingerTask;
+
+	protected PendingGroup(K key) {
+		super();
+		this.key = key;
+	}
+
+	/**
+	 * Cancels the linger timer task if one was scheduled for this group.
+	 */
+	void cancelLinger() {
+		if (this.lingerTask != null) {
+			this.lingerTask.cancel();
+			this.lingerTask = null;
+		}
+	}
+
+	public K getKey() {
+		return key;
+	}
+
+	void setLingerTask(TimerTask lingerTask) {
+		this.lingerTask = lingerTask;
+	}
+
+	/**
+	 * @return the number of submissions in the group
+	 */
+	protected abstract int size();
+}
@@ -0,0 +1,123 @@
+package com.cornholio.database.connectionpool.failover;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One data source of a failover data source and its health. The health score is computed from a moving average of the connect latency and of the
+ * connect error rate, each new attempt weighing HEALTH_WEIGHT. A score of 1 is a healthy endpoint that connects instantly; an endpoint that
+ * connects in the slow connect time scores 0.5, as does one whose attempts fail half of the time.
+ * <p>
+ * The endpoint fails over when its score drops below the failover score. It is taken back only once its score has stayed at or above the (higher)
+ * recovery score for the failback delay, so that an endpoint that is flapping does not pull connections back and forth.
+ *
+ * @author nikhilagarwal
+ */
+public final class Endpoint {
+
+	/**
+	 * The weight of the latest attempt in the moving averages
+	 */
+	private static final double HEALTH_WEIGHT = 0.3;
+	private double connectNanos;
+	private final DataSource dataSource;
+	private double errorRate;
+	private final long failbackNanos;
+	private boolean failed;
+	private final double failoverScore;
+	private final String name;
+	private long recoveringSinceNanos;
+	private final double recoveryScore;
+	private final long slowConnectNanos;
+
+	Endpoint(String name, DataSource dataSource, FailoverDataSourceBuilder builder) {
+		super();
+		this.name = name;
+		this.dataSource = dataSource;
+		this.failbackNanos = TimeUnit.MILLISECONDS.toNanos(builder.getFailbackDelay());
+		this.failoverScore = builder.getFailoverScore();
+		this.recoveryScore = builder.getRecoveryScore();
+		this.slowConnectNanos = TimeUnit.MILLISECONDS.toNanos(builder.getSlowConnectTime());
+	}
+
+	/**
+	 * @return the moving average of the connect latency in milliseconds
+	 */
+	public synchronized double getConnectLatency() {
+		return this.connectNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * @return the moving average of the share of connect attempts that failed, from 0 to 1
+	 */
+	public synchronized double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * @return the health score, from 0 (down) to 1 (healthy)
+	 */
+	public synchronized double getHealthScore() {
+		return (1 - this.errorRate) * this.slowConnectNanos / (this.slowConnectNanos + this.connectNanos);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return true if the endpoint failed over and has not been taken back yet
+	 */
+	public synchronized boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Records a connect attempt and moves the endpoint in or out of the failed state.
+	 *
+	 * @param connectNanos
+	 *            how long the attempt took
+	 * @param success
+	 *            false if the attempt failed
+	 * @return true if the endpoint failed over or was taken back by this attempt
+	 */
+	synchronized boolean recordAttempt(long connectNanos, boolean success) {
+		this.errorRate += HEALTH_WEIGHT * ((success ? 0 : 1) - this.errorRate);
+
+		// a failed attempt says nothing about the latency of a healthy connect
+		if (success) {
+			this.connectNanos += HEALTH_WEIGHT * (connectNanos - this.connectNanos);
+		}
+		double score = this.getHealthScore();
+		if (!this.failed) {
+			if (score < this.failoverScore) {
+				this.failed = true;
+				this.recoveringSinceNanos = 0L;
+				return true;
+			}
+			return false;
+		}
+		if (score < this.recoveryScore) {
+			this.recoveringSinceNanos = 0L;
+			return false;
+		}
+		long now = System.nanoTime();
+		if (this.recoveringSinceNanos == 0L) {
+			this.recoveringSinceNanos = now;
+		}
+		if (now - this.recoveringSinceNanos >= this.failbackNanos) {
+			this.failed = false;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,24 @@
+package com.cornholio.database.connectionpool.failover;
+
+import com.cornholio.database.connection.impl.AbstractConnectionDecorator;
+
+import java.sql.Connection;
+
+/**
+ * A connection established by a failover data source. It remembers the endpoint it was established on, so that the pool can tell which of its
+ * connections to drain when the data source moves to another endpoint.
+ *
+ * @author nikhilagarwal
+ */
+class EndpointConnection extends AbstractConnectionDecorator {
+	private final Endpoint endpoint;
+
+	EndpointConnection(Connection connection, Endpoint endpoint) {
+		this.endpoint = endpoint;
+		this.setConnection(connection);
+	}
+
+	Endpoint getEndpoint() {
+		return endpoint;
+	}
+}
@@ -0,0 +1,307 @@
+package com.cornholio.database.connectionpool.failover;
+
+import com.cornholio.database.connectionpool.ConnectionHostResolver;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A data source over an ordered set of endpoints, each a data source of its own. New connections are established on the active endpoint: the most
+ * preferred endpoint that has not failed over. If a connect attempt fails, the next endpoint is tried right away, so the borrower only sees an
+ * error if every endpoint fails. Every attempt updates the health score of its endpoint, see Endpoint.
+ * <p>
+ * Failed endpoints get no connect attempts from borrowers while a healthy endpoint is left; a probe timer tries them every probe interval instead,
+ * and stops once no endpoint has failed. The failover listeners are told whenever the active endpoint changes, which a connection pool over this
+ * data source uses to drain the connections it holds on the other endpoints. The pool tells which endpoint a connection is on with resolveHost,
+ * which answers the endpoint name.
+ *
+ * @author nikhilagarwal
+ */
+public class FailoverDataSource implements DataSource, ConnectionHostResolver {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_ACTIVE_ENDPOINT_CHANGED = "Active endpoint changed to ";
+	private static final String LOG_MESSAGE_CONNECT_FAILED = "Connect attempt failed on endpoint ";
+	private static final String LOG_MESSAGE_ENDPOINT_FAILED = "Endpoint failed over: ";
+	private static final String LOG_MESSAGE_ENDPOINT_RECOVERED = "Endpoint taken back: ";
+	private static final String LOG_MESSAGE_FAILOVER_LISTENER_FAILED = "Failover listener failed";
+	private static final String THREAD_NAME_PROBE = "failover-probe";
+	private static final Logger logger = Logger.getLogger(FailoverDataSource.class.getSimpleName());
+	private volatile Endpoint activeEndpoint;
+	private final List<Endpoint> endpoints;
+	private final List<Consumer<Endpoint>> failoverListeners;
+	private final AtomicLong failovers;
+	private final long probeInterval;
+	private TimerTask probeTask;
+	private Timer probeTimer;
+
+	/**
+	 * Constructor
+	 */
+	FailoverDataSource(FailoverDataSourceBuilder builder) {
+		super();
+		if (builder.getEndpoints().isEmpty()) {
+			throw new IllegalArgumentException("A failover data source needs at least one endpoint");
+		}
+		List<Endpoint> endpoints = new ArrayList<>();
+		for (Map.Entry<String, DataSource> endpoint : builder.getEndpoints().entrySet()) {
+			endpoints.add(new Endpoint(endpoint.getKey(), endpoint.getValue(), builder));
+		}
+		this.endpoints = Collections.unmodifiableList(endpoints);
+		this.activeEndpoint = endpoints.get(0);
+		this.failoverListeners = new CopyOnWriteArrayList<>();
+		this.failovers = new AtomicLong();
+		this.probeInterval = builder.getProbeInterval();
+	}
+
+	/**
+	 * Registers a listener that is told the new active endpoint whenever it changes. The listener runs on the thread whose connect attempt (or
+	 * probe) changed it, so it must be quick. It runs outside any lock, so changes in quick succession may be told out of order; a listener that
+	 * acts on the change should read getActiveEndpoint when it does.
+	 *
+	 * @param listener
+	 */
+	public void addFailoverListener(Consumer<Endpoint> listener) {
+		this.failoverListeners.add(listener);
+	}
+
+	public void removeFailoverListener(Consumer<Endpoint> listener) {
+		this.failoverListeners.remove(listener);
+	}
+
+	/**
+	 * Stops probing failed endpoints. Connections can still be established.
+	 */
+	public synchronized void close() {
+		if (this.probeTimer != null) {
+			this.probeTimer.cancel();
+			this.probeTimer = null;
+			this.probeTask = null;
+		}
+	}
+
+	/**
+	 * Tries a connect on the endpoint and records the attempt.
+	 *
+	 * @return the connection, tagged with its endpoint
+	 * @throws SQLException
+	 *             if the attempt failed
+	 */
+	private Connection connect(Endpoint endpoint, String username, String password) throws SQLException {
+		long connectStartNanos = System.nanoTime();
+		Connection connection;
+		try {
+			connection = username == null ? endpoint.getDataSource().getConnection() : endpoint.getDataSource().getConnection(username, password);
+		} catch (SQLException | RuntimeException e) {
+			this.recordAttempt(endpoint, System.nanoTime() - connectStartNanos, false);
+			throw e;
+		}
+		this.recordAttempt(endpoint, System.nanoTime() - connectStartNanos, true);
+		return new EndpointConnection(connection, endpoint);
+	}
+
+	/**
+	 * @return the endpoint new connections are established on first
+	 */
+	public Endpoint getActiveEndpoint() {
+		return activeEndpoint;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return this.getConnection(null, null);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		SQLException failure = null;
+		for (Endpoint endpoint : this.orderEndpoints()) {
+			try {
+				return this.connect(endpoint, username, password);
+			} catch (SQLException e) {
+				logger.log(Level.DEBUG, LOG_MESSAGE_CONNECT_FAILED + endpoint, e);
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * @return the endpoints in the order they are preferred
+	 */
+	public List<Endpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * @return how many times the active endpoint changed
+	 */
+	public long getFailovers() {
+		return failovers.get();
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return this.endpoints.get(0).getDataSource().getLoginTimeout();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return this.endpoints.get(0).getDataSource().getLogWriter();
+	}
+
+	@Override
+	public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	/**
+	 * @return the endpoints in the order a new connection is tried on them: the endpoints that have not failed in the order they are preferred, then
+	 *         the failed ones, healthiest first
+	 */
+	private List<Endpoint> orderEndpoints() {
+		List<Endpoint> ordered = new ArrayList<>(this.endpoints.size());
+		List<Endpoint> failed = new ArrayList<>();
+		for (Endpoint endpoint : this.endpoints) {
+			(endpoint.isFailed() ? failed : ordered).add(endpoint);
+		}
+		failed.sort((first, second) -> Double.compare(second.getHealthScore(), first.getHealthScore()));
+		ordered.addAll(failed);
+		return ordered;
+	}
+
+	/**
+	 * Records a connect attempt on the endpoint. If the endpoint failed over or was taken back, the probe timer is started or stopped and the
+	 * failover listeners are told if the active endpoint changed.
+	 */
+	private void recordAttempt(Endpoint endpoint, long connectNanos, boolean success) {
+		if (!endpoint.recordAttempt(connectNanos, success)) {
+			return;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.log(Level.INFO, (endpoint.isFailed() ? LOG_MESSAGE_ENDPOINT_FAILED : LOG_MESSAGE_ENDPOINT_RECOVERED) + endpoint);
+		}
+		Endpoint activeEndpoint = this.updateActiveEndpoint();
+		if (activeEndpoint != null) {
+			if (logger.isInfoEnabled()) {
+				logger.log(Level.INFO, LOG_MESSAGE_ACTIVE_ENDPOINT_CHANGED + activeEndpoint);
+			}
+			for (Consumer<Endpoint> listener : this.failoverListeners) {
+				try {
+					listener.accept(activeEndpoint);
+				} catch (RuntimeException e) {
+					logger.log(Level.ERROR, LOG_MESSAGE_FAILOVER_LISTENER_FAILED, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the endpoint name of a connection established by this data source, or null for any other connection
+	 */
+	@Override
+	public String resolveHost(Connection connection) {
+		return connection instanceof EndpointConnection ? ((EndpointConnection) connection).getEndpoint().getName() : null;
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		for (Endpoint endpoint : this.endpoints) {
+			endpoint.getDataSource().setLoginTimeout(seconds);
+		}
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		for (Endpoint endpoint : this.endpoints) {
+			endpoint.getDataSource().setLogWriter(out);
+		}
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	/**
+	 * Makes the most preferred endpoint that has not failed the active one, and probes the failed endpoints while there are any. If every endpoint
+	 * has failed, the active endpoint stays as it is: there is nothing better to drain the connections to.
+	 *
+	 * @return the new active endpoint, or null if it did not change
+	 */
+	private synchronized Endpoint updateActiveEndpoint() {
+		Endpoint activeEndpoint = null;
+		boolean anyFailed = false;
+		for (Endpoint endpoint : this.endpoints) {
+			if (endpoint.isFailed()) {
+				anyFailed = true;
+			} else if (activeEndpoint == null) {
+				activeEndpoint = endpoint;
+			}
+		}
+		if (anyFailed && this.probeTask == null) {
+			if (this.probeTimer == null) {
+				this.probeTimer = new Timer(THREAD_NAME_PROBE, true);
+			}
+			this.probeTask = new ProbeTimerTask();
+			this.probeTimer.schedule(this.probeTask, this.probeInterval, this.probeInterval);
+		} else if (!anyFailed && this.probeTask != null) {
+			this.probeTask.cancel();
+			this.probeTask = null;
+		}
+		if (activeEndpoint == null || activeEndpoint == this.activeEndpoint) {
+			return null;
+		}
+		this.activeEndpoint = activeEndpoint;
+		this.failovers.incrementAndGet();
+		return activeEndpoint;
+	}
+
+	/**
+	 * The timer task that tries a connect on every failed endpoint, so that an endpoint can recover without borrowers paying for its failed
+	 * attempts. The probe connections are closed right away.
+	 *
+	 * @author nikhilagarwal
+	 */
+	private class ProbeTimerTask extends TimerTask {
+
+		@Override
+		public void run() {
+			for (Endpoint endpoint : endpoints) {
+				if (endpoint.isFailed()) {
+					try {
+						connect(endpoint, null, null).close();
+					} catch (SQLException | RuntimeException e) {
+						logger.log(Level.DEBUG, LOG_MESSAGE_CONNECT_FAILED + endpoint, e);
+					}
+				}
+			}
+		}
+	}
+}
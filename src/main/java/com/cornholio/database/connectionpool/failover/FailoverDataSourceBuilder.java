@@ -0,0 +1,100 @@
+package com.cornholio.database.connectionpool.failover;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This is the failover data source builder. The endpoints are preferred in the order they are added. An endpoint fails over when its health score
+ * drops below the failover score and is taken back once its score has stayed at or above the recovery score for the failback delay. Failed
+ * endpoints are probed every probe interval.
+ *
+ * @author nikhilagarwal
+ */
+public class FailoverDataSourceBuilder {
+
+	private final Map<String, DataSource> endpoints = new LinkedHashMap<>();
+	private Long failbackDelay = 5000L;
+	private Double failoverScore = 0.5;
+	private Long probeInterval = 1000L;
+	private Double recoveryScore = 0.75;
+	private Long slowConnectTime = 1000L;
+
+	public FailoverDataSourceBuilder() {
+		super();
+	}
+
+	public FailoverDataSource build() {
+		return new FailoverDataSource(this);
+	}
+
+	/**
+	 * Adds an endpoint, preferred after the endpoints added before it.
+	 *
+	 * @param name
+	 *            a name that is unique among the endpoints
+	 * @param dataSource
+	 */
+	public FailoverDataSourceBuilder endpoint(String name, DataSource dataSource) {
+		this.endpoints.put(name, dataSource);
+		return this;
+	}
+
+	/**
+	 * How many milliseconds a failed endpoint has to stay healthy before new connections are established on it again.
+	 */
+	public FailoverDataSourceBuilder failbackDelay(Long failbackDelay) {
+		this.failbackDelay = failbackDelay;
+		return this;
+	}
+
+	public FailoverDataSourceBuilder failoverScore(Double failoverScore) {
+		this.failoverScore = failoverScore;
+		return this;
+	}
+
+	public Map<String, DataSource> getEndpoints() {
+		return endpoints;
+	}
+
+	public Long getFailbackDelay() {
+		return failbackDelay;
+	}
+
+	public Double getFailoverScore() {
+		return failoverScore;
+	}
+
+	public Long getProbeInterval() {
+		return probeInterval;
+	}
+
+	public Double getRecoveryScore() {
+		return recoveryScore;
+	}
+
+	public Long getSlowConnectTime() {
+		return slowConnectTime;
+	}
+
+	/**
+	 * How often, in milliseconds, a failed endpoint is probed with a connect attempt.
+	 */
+	public FailoverDataSourceBuilder probeInterval(Long probeInterval) {
+		this.probeInterval = probeInterval;
+		return this;
+	}
+
+	public FailoverDataSourceBuilder recoveryScore(Double recoveryScore) {
+		this.recoveryScore = recoveryScore;
+		return this;
+	}
+
+	/**
+	 * The connect latency, in milliseconds, that halves the health score of an endpoint.
+	 */
+	public FailoverDataSourceBuilder slowConnectTime(Long slowConnectTime) {
+		this.slowConnectTime = slowConnectTime;
+		return this;
+	}
+}
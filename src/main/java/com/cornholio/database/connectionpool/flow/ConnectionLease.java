@@ -0,0 +1,54 @@
+package com.cornholio.database.connectionpool.flow;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection emitted by a connection lease publisher. Release the lease when the work item that needed it is done; the connection goes back to
+ * the pool and the next lease can be emitted.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionLease implements AutoCloseable {
+
+	private final PooledConnectionImpl connection;
+	private final long leaseNumber;
+	private final AtomicBoolean released;
+
+	ConnectionLease(PooledConnectionImpl connection) {
+		this.connection = connection;
+		this.leaseNumber = connection.getLeaseNumber();
+		this.released = new AtomicBoolean();
+	}
+
+	/**
+	 * Same as release.
+	 */
+	@Override
+	public void close() throws SQLException {
+		this.release();
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	public boolean isReleased() {
+		return released.get();
+	}
+
+	/**
+	 * Returns the connection to the pool. Releasing a lease more than once does nothing, and neither does releasing a lease that already ended (it
+	 * timed out), so that the lease of the connection's next borrower is never closed.
+	 *
+	 * @throws SQLException
+	 */
+	public void release() throws SQLException {
+		if (this.released.compareAndSet(false, true)) {
+			this.connection.closeLease(this.leaseNumber);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.cornholio.database.connectionpool.flow;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the connections of a pool as leases, for pipelines that need a connection per work item. A subscriber gets a lease only when it has
+ * requested one and an idle connection can be had, so the pool becomes the rate limiter of the pipeline and no thread is parked waiting for a
+ * connection. When the pool runs dry the subscription registers for the pool's availability hook, and the next lease is emitted on the thread that
+ * returns a connection. New connections are established on the pool's connection creator, never on a thread that requests or releases, and the
+ * lease is emitted once the connection is idle in the pool. Every subscriber must release each lease when its work item is done.
+ * <p>
+ * The publisher never completes. A connection that cannot be established is logged by the pool; the subscription waits for the next connection
+ * that becomes available.
+ *
+ * @author nikhilagarwal
+ */
+public class ConnectionLeasePublisher implements Flow.Publisher<ConnectionLease> {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_INVALID_REQUEST = "Subscription request must be positive: ";
+	private static final String LOG_MESSAGE_RELEASE_FAILED = "Lease could not be released";
+	private static Logger logger;
+	private final ConnectionPoolImpl connectionPool;
+
+	public ConnectionLeasePublisher(ConnectionPoolImpl connectionPool) {
+		super();
+		this.connectionPool = connectionPool;
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(ConnectionLeasePublisher.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	private static void releaseQuietly(ConnectionLease lease) {
+		try {
+			lease.release();
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_RELEASE_FAILED, e);
+		}
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super ConnectionLease> subscriber) {
+		LeaseSubscription subscription = new LeaseSubscription(subscriber);
+		this.connectionPool.addAvailabilityListener(subscription);
+		subscriber.onSubscribe(subscription);
+	}
+
+	/**
+	 * The subscription of one subscriber. All signals to the subscriber are sent from drain, which only ever runs on one thread at a time: a thread
+	 * that finds drain already running just tells it to go round once more.
+	 */
+	private class LeaseSubscription implements Flow.Subscription, Runnable {
+		private volatile boolean done;
+		private volatile Throwable error;
+		private final AtomicLong requested;
+		private final Flow.Subscriber<? super ConnectionLease> subscriber;
+		private final AtomicInteger wip;
+
+		LeaseSubscription(Flow.Subscriber<? super ConnectionLease> subscriber) {
+			this.subscriber = subscriber;
+			this.requested = new AtomicLong();
+			this.wip = new AtomicInteger();
+		}
+
+		@Override
+		public void cancel() {
+			this.done = true;
+			connectionPool.removeAvailabilityListener(this);
+		}
+
+		private void drain() {
+			if (this.wip.getAndIncrement() != 0) {
+				return;
+			}
+			do {
+				while (!this.done) {
+					if (this.error != null) {
+						this.fail(this.error);
+						break;
+					}
+					if (this.requested.get() == 0L) {
+						break;
+					}
+					PooledConnectionImpl connection;
+					try {
+						connection = connectionPool.tryGetIdleConnection();
+					} catch (SQLException e) {
+						this.fail(e);
+						break;
+					}
+					if (connection == null) {
+						// the availability hook drains again when a connection is returned or a new one is established
+						break;
+					}
+					ConnectionLease lease = new ConnectionLease(connection);
+					if (this.done) {
+						releaseQuietly(lease);
+						break;
+					}
+					if (this.requested.get() != Long.MAX_VALUE) {
+						this.requested.decrementAndGet();
+					}
+					try {
+						this.subscriber.onNext(lease);
+					} catch (RuntimeException e) {
+						releaseQuietly(lease);
+						this.fail(e);
+					}
+				}
+			} while (this.wip.decrementAndGet() != 0);
+		}
+
+		private void fail(Throwable throwable) {
+			this.cancel();
+			this.subscriber.onError(throwable);
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0L) {
+				this.error = new IllegalArgumentException(LOG_MESSAGE_INVALID_REQUEST + n);
+			} else {
+				this.requested.accumulateAndGet(n, (current, added) -> current + added < 0L ? Long.MAX_VALUE : current + added);
+			}
+			this.drain();
+		}
+
+		/**
+		 * The availability hook of the pool.
+		 */
+		@Override
+		public void run() {
+			if (!this.done && this.requested.get() > 0L) {
+				this.drain();
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.cornholio.database.connectionpool.flow;
+
+/**
+ * The reactive streams interfaces, with the same methods and contracts as java.util.concurrent.Flow. The project targets 1.8, where
+ * java.util.concurrent.Flow does not exist yet; on 9+ a subscriber can be adapted to java.util.concurrent.Flow with a one line delegate per method.
+ *
+ * @author nikhilagarwal
+ */
+public final class Flow {
+
+	private Flow() {
+		super();
+	}
+
+	/**
+	 * A producer of items that subscribers receive only as fast as they request them.
+	 *
+	 * @param <T>
+	 *            the item type
+	 */
+	public interface Publisher<T> {
+
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items. onSubscribe is called first; onNext is called at most as many times as were requested; onError or onComplete end the
+	 * subscription. The calls are never concurrent.
+	 *
+	 * @param <T>
+	 *            the item type
+	 */
+	public interface Subscriber<T> {
+
+		void onComplete();
+
+		void onError(Throwable throwable);
+
+		void onNext(T item);
+
+		void onSubscribe(Subscription subscription);
+	}
+
+	/**
+	 * The link between a publisher and one subscriber.
+	 */
+	public interface Subscription {
+
+		void cancel();
+
+		/**
+		 * @param n
+		 *            the number of additional items wanted. Must be positive
+		 */
+		void request(long n);
+	}
+}
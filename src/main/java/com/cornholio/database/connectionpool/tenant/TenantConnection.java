@@ -0,0 +1,63 @@
+package com.cornholio.database.connectionpool.tenant;
+
+import com.cornholio.database.connection.impl.AbstractConnectionDecorator;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The connection handed to a tenant. Closing it returns the pooled connection to the pool and gives the lease back to the tenant's quota. Once
+ * closed, the handle refuses every call, because the pooled connection behind it may already be leased to another tenant. Closing a handle whose
+ * lease already ended (it timed out) leaves the pooled connection alone, so that the lease of its next borrower is never closed.
+ *
+ * @author nikhilagarwal
+ */
+class TenantConnection extends AbstractConnectionDecorator {
+	private static final String LOG_MESSAGE_CLOSED = "Tenant connection is closed";
+
+	private boolean closed;
+	private final long leaseNumber;
+	private final TenantConnectionPool tenantConnectionPool;
+	private final String tenant;
+
+	TenantConnection(TenantConnectionPool tenantConnectionPool, String tenant, PooledConnectionImpl connection) {
+		this.tenantConnectionPool = tenantConnectionPool;
+		this.tenant = tenant;
+		this.leaseNumber = connection.getLeaseNumber();
+		this.setConnection(connection);
+	}
+
+	/**
+	 * Closes the handle's lease and gives it back to the tenant's quota once the lease has ended. A lease that is still open after the close (it
+	 * could not be closed) keeps its place in the quota.
+	 */
+	@Override
+	public synchronized void close() throws SQLException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		PooledConnectionImpl connection = (PooledConnectionImpl) super.getConnection();
+		try {
+			connection.closeLease(this.leaseNumber);
+		} finally {
+			if (!connection.isLease(this.leaseNumber)) {
+				this.tenantConnectionPool.releaseLease(this.tenant);
+			}
+		}
+	}
+
+	@Override
+	protected synchronized Connection delegate() throws SQLException {
+		if (this.closed) {
+			throw new SQLException(LOG_MESSAGE_CLOSED);
+		}
+		return super.delegate();
+	}
+
+	@Override
+	public synchronized boolean isClosed() throws SQLException {
+		return this.closed || super.delegate().isClosed();
+	}
+}
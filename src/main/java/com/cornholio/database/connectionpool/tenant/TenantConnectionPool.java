@@ -0,0 +1,267 @@
+package com.cornholio.database.connectionpool.tenant;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A multi-tenant layer over one shared connection pool. Tenants share the physical connections (and the database user) of the pool instead of each
+ * having a pool of their own, and the session of a connection is set up for the borrowing tenant by a TenantContextApplier (SET ROLE, a schema
+ * switch). A connection remembers the tenant its session was set up for: the pool prefers an idle connection already set up for the borrowing
+ * tenant, and the context is only applied when the connection was last used by someone else.
+ * <p>
+ * Every tenant holds at most its max leases at once. While the pool has no idle connection and cannot grow, fair share also holds every tenant
+ * with leases or waiters to an equal share of MAX_SIZE, so that one busy tenant cannot starve the others. Leases over the share are not taken away;
+ * the tenant just waits until it is back under its share. Waiting tenants are woken up whenever a lease is given back or the pool has a connection
+ * available again, and the time a tenant waited for its lease is taken off its wait for the pool's connection.
+ * <p>
+ * Borrow every connection of the pool through this layer: a connection borrowed straight from the pool may still carry the session context of the
+ * last tenant that used it.
+ *
+ * @author nikhilagarwal
+ */
+public class TenantConnectionPool {
+
+	// loggers and messages
+	private static final String LOG_MESSAGE_CONTEXT_FAILED = "Tenant session context could not be applied: ";
+	private static final String LOG_MESSAGE_INTERRUPTED = "Interrupted while waiting for a tenant lease: ";
+	private static final String LOG_MESSAGE_NO_TENANT = "A connection can only be borrowed for a tenant";
+	private static final String LOG_MESSAGE_QUOTA_WAIT_TIMED_OUT = "Tenant lease wait timed out: ";
+	private static Logger logger;
+	private final LongAdder affinityHits;
+	private final Runnable availabilityListener;
+	private final ConnectionPoolImpl connectionPool;
+	private final TenantContextApplier contextApplier;
+	private final LongAdder contextSwitches;
+	private final int defaultMaxLeases;
+	private final boolean fairShare;
+	private final Map<String, Integer> maxLeases;
+	private final Map<String, TenantLeases> tenants;
+	private volatile int waiting;
+	private final long waitTimeOut;
+
+	/**
+	 * Constructor
+	 */
+	TenantConnectionPool(TenantConnectionPoolBuilder builder) {
+		super();
+		this.connectionPool = builder.getConnectionPool();
+		this.contextApplier = builder.getContextApplier();
+		this.defaultMaxLeases = builder.getDefaultMaxLeases() != null ? builder.getDefaultMaxLeases()
+				: this.connectionPool.getConfiguration().getMaxSize();
+		this.fairShare = !Boolean.FALSE.equals(builder.getFairShare());
+		this.maxLeases = new HashMap<>(builder.getMaxLeases());
+		this.waitTimeOut = builder.getWaitTimeOut() != null ? builder.getWaitTimeOut() : this.connectionPool.getConfiguration().getWaitTimeOut();
+		this.tenants = new HashMap<>();
+		this.affinityHits = new LongAdder();
+		this.contextSwitches = new LongAdder();
+		this.availabilityListener = this::connectionAvailable;
+		this.connectionPool.addAvailabilityListener(this.availabilityListener);
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(TenantConnectionPool.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	/**
+	 * Takes a lease from the tenant's quota, waiting up to the deadline while the tenant is at its quota or over its fair share.
+	 *
+	 * @param tenant
+	 * @param deadline
+	 *            the System.nanoTime the wait times out at
+	 * @throws SQLException
+	 *             if the wait timed out
+	 */
+	private synchronized void acquireLease(String tenant, long deadline) throws SQLException {
+		TenantLeases leases = this.tenants.get(tenant);
+		if (leases == null) {
+			Integer quota = this.maxLeases.get(tenant);
+			leases = new TenantLeases(quota != null ? quota : this.defaultMaxLeases);
+			this.tenants.put(tenant, leases);
+		}
+		leases.waiting++;
+		this.waiting++;
+		try {
+			while (leases.leased >= this.getLimit(leases)) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new SQLException(LOG_MESSAGE_QUOTA_WAIT_TIMED_OUT + tenant);
+				}
+				try {
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException(LOG_MESSAGE_INTERRUPTED + tenant, e);
+				}
+			}
+			leases.leased++;
+		} finally {
+			leases.waiting--;
+			this.waiting--;
+			this.forgetIfIdle(tenant, leases);
+		}
+	}
+
+	/**
+	 * Stops listening to the pool. Call it when the tenant layer is no longer used but the pool is.
+	 */
+	public void close() {
+		this.connectionPool.removeAvailabilityListener(this.availabilityListener);
+	}
+
+	/**
+	 * Called by the pool whenever a connection may have become available. The pool is no longer exhausted, so the tenants held to their fair share
+	 * may take a lease again.
+	 */
+	private void connectionAvailable() {
+		if (this.waiting > 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	private void forgetIfIdle(String tenant, TenantLeases leases) {
+		if (leases.leased == 0 && leases.waiting == 0) {
+			this.tenants.remove(tenant);
+		}
+	}
+
+	/**
+	 * @return the number of borrows that got a connection whose session was already set up for the tenant
+	 */
+	public long getAffinityHitCount() {
+		return this.affinityHits.sum();
+	}
+
+	/**
+	 * Borrows a connection for a tenant. The returned connection has its session set up for the tenant; closing it returns it to the pool and gives
+	 * the lease back to the tenant.
+	 *
+	 * @param tenant
+	 *            the tenant key
+	 * @return a connection set up for the tenant
+	 * @throws SQLException
+	 *             if the tenant is null, the tenant's lease wait and the pool's wait together took longer than the wait time out, or the context could
+	 *             not be applied
+	 */
+	public Connection getConnection(String tenant) throws SQLException {
+		if (tenant == null) {
+			throw new SQLException(LOG_MESSAGE_NO_TENANT);
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.waitTimeOut);
+		this.acquireLease(tenant, deadline);
+		PooledConnectionImpl connection;
+		try {
+			connection = this.connectionPool.getConnection(tenant, Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+		} catch (SQLException | RuntimeException e) {
+			this.releaseLease(tenant);
+			throw e;
+		}
+		if (tenant.equals(connection.getSessionContext())) {
+			this.affinityHits.increment();
+		} else {
+			try {
+				// forget the previous tenant first so that a half applied context is never mistaken for a clean one
+				connection.setSessionContext(null);
+				this.contextApplier.apply(connection, tenant);
+				connection.setSessionContext(tenant);
+				this.contextSwitches.increment();
+			} catch (SQLException | RuntimeException e) {
+				getLogger().log(Level.WARN, LOG_MESSAGE_CONTEXT_FAILED + tenant, e);
+				try {
+					connection.inValidate();
+				} finally {
+					this.releaseLease(tenant);
+				}
+				throw e;
+			}
+		}
+		return new TenantConnection(this, tenant, connection);
+	}
+
+	/**
+	 * @return the number of borrows that had to set up the session for a different tenant
+	 */
+	public long getContextSwitchCount() {
+		return this.contextSwitches.sum();
+	}
+
+	/**
+	 * @return the number of connections the tenant holds right now
+	 */
+	public synchronized int getLeasedCount(String tenant) {
+		TenantLeases leases = this.tenants.get(tenant);
+		return leases == null ? 0 : leases.leased;
+	}
+
+	/**
+	 * @return how many connections the tenant may hold right now: its max leases, or less if it is held to its fair share
+	 */
+	private int getLimit(TenantLeases leases) {
+		if (!this.fairShare || !this.isPoolExhausted()) {
+			return leases.maxLeases;
+		}
+		int activeTenants = 0;
+		for (TenantLeases other : this.tenants.values()) {
+			if (other.leased > 0 || other.waiting > 0) {
+				activeTenants++;
+			}
+		}
+		int share = Math.max(1, this.connectionPool.getConfiguration().getMaxSize() / Math.max(1, activeTenants));
+		return Math.min(leases.maxLeases, share);
+	}
+
+	private boolean isPoolExhausted() {
+		return this.connectionPool.getAvailableConnections().isEmpty() && this.connectionPool.getBurstConnections().isEmpty()
+				&& this.connectionPool.getTotalConnectionCount() >= this.connectionPool.getConfiguration().getMaxSize();
+	}
+
+	/**
+	 * Gives a lease back to the tenant's quota and wakes up the tenants waiting for theirs.
+	 *
+	 * @param tenant
+	 */
+	synchronized void releaseLease(String tenant) {
+		TenantLeases leases = this.tenants.get(tenant);
+		if (leases != null) {
+			leases.leased--;
+			this.forgetIfIdle(tenant, leases);
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * Releases a connection borrowed through this pool.
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public void releaseConnection(Connection connection) throws SQLException {
+		connection.close();
+	}
+
+	/**
+	 * The leases of one tenant. Guarded by the tenant connection pool.
+	 */
+	private static final class TenantLeases {
+		private int leased;
+		private final int maxLeases;
+		private int waiting;
+
+		TenantLeases(int maxLeases) {
+			this.maxLeases = maxLeases;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.cornholio.database.connectionpool.tenant;
+
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is the tenant connection pool builder. Every tenant may hold up to its max leases at once: the default max leases unless a quota was set
+ * for the tenant. With fair share on, a tenant is also held to an equal share of MAX_SIZE while the pool is exhausted.
+ *
+ * @author nikhilagarwal
+ */
+public class TenantConnectionPoolBuilder {
+
+	private ConnectionPoolImpl connectionPool;
+	private TenantContextApplier contextApplier = (connection, tenant) -> connection.setSchema(tenant);
+	private Integer defaultMaxLeases;
+	private Boolean fairShare = Boolean.TRUE;
+	private final Map<String, Integer> maxLeases = new HashMap<>();
+	private Long waitTimeOut;
+
+	public TenantConnectionPoolBuilder() {
+		super();
+	}
+
+	public TenantConnectionPool build() {
+		return new TenantConnectionPool(this);
+	}
+
+	/**
+	 * The shared pool of physical connections.
+	 */
+	public TenantConnectionPoolBuilder connectionPool(ConnectionPoolImpl connectionPool) {
+		this.connectionPool = connectionPool;
+		return this;
+	}
+
+	/**
+	 * Sets up the session of a connection for a tenant. By default the schema is switched to the tenant key.
+	 */
+	public TenantConnectionPoolBuilder contextApplier(TenantContextApplier contextApplier) {
+		this.contextApplier = contextApplier;
+		return this;
+	}
+
+	/**
+	 * The max leases of a tenant without a quota of its own. MAX_SIZE of the pool by default.
+	 */
+	public TenantConnectionPoolBuilder defaultMaxLeases(Integer defaultMaxLeases) {
+		this.defaultMaxLeases = defaultMaxLeases;
+		return this;
+	}
+
+	/**
+	 * Hold each tenant with leases or waiters to an equal share of MAX_SIZE while the pool has no idle connection and cannot grow. On by default.
+	 */
+	public TenantConnectionPoolBuilder fairShare(Boolean fairShare) {
+		this.fairShare = fairShare;
+		return this;
+	}
+
+	public ConnectionPoolImpl getConnectionPool() {
+		return connectionPool;
+	}
+
+	public TenantContextApplier getContextApplier() {
+		return contextApplier;
+	}
+
+	public Integer getDefaultMaxLeases() {
+		return defaultMaxLeases;
+	}
+
+	public Boolean getFairShare() {
+		return fairShare;
+	}
+
+	public Map<String, Integer> getMaxLeases() {
+		return maxLeases;
+	}
+
+	public Long getWaitTimeOut() {
+		return waitTimeOut;
+	}
+
+	/**
+	 * The quota of one tenant: how many connections it may hold at once.
+	 */
+	public TenantConnectionPoolBuilder maxLeases(String tenant, Integer maxLeases) {
+		this.maxLeases.put(tenant, maxLeases);
+		return this;
+	}
+
+	/**
+	 * How long a tenant at its quota waits for one of its leases to be returned. WAIT_TIME_OUT of the pool by default.
+	 */
+	public TenantConnectionPoolBuilder waitTimeOut(Long waitTimeOut) {
+		this.waitTimeOut = waitTimeOut;
+		return this;
+	}
+}
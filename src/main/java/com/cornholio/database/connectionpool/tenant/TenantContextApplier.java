@@ -0,0 +1,22 @@
+package com.cornholio.database.connectionpool.tenant;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sets up the session of a pooled connection for a tenant, for example with SET ROLE or by switching the schema. It is only called when the
+ * connection's session was last set up for a different tenant (or for none), so it has to replace whatever the previous tenant's context was.
+ *
+ * @author nikhilagarwal
+ */
+public interface TenantContextApplier {
+
+	/**
+	 * @param connection
+	 *            the leased connection
+	 * @param tenant
+	 *            the tenant key the connection was borrowed for
+	 * @throws SQLException
+	 */
+	void apply(Connection connection, String tenant) throws SQLException;
+}
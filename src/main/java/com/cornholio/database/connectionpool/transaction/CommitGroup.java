@@ -0,0 +1,44 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connectionpool.coalesce.PendingGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A group of compatible transactional units that will run inside one transaction and be committed together.
+ * 
+ * @author nikhilagarwal
+ */
+class CommitGroup extends PendingGroup<String> {
+
+	private final List<CompletableFuture<Object>> results;
+	private final List<TransactionalUnit<?>> units;
+
+	CommitGroup(String compatibilityKey, int expectedSize) {
+		super(compatibilityKey);
+		this.units = new ArrayList<>(expectedSize);
+		this.results = new ArrayList<>(expectedSize);
+	}
+
+	CompletableFuture<Object> add(TransactionalUnit<?> unit) {
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		this.units.add(unit);
+		this.results.add(result);
+		return result;
+	}
+
+	List<CompletableFuture<Object>> getResults() {
+		return results;
+	}
+
+	List<TransactionalUnit<?>> getUnits() {
+		return units;
+	}
+
+	@Override
+	protected int size() {
+		return units.size();
+	}
+}
@@ -0,0 +1,88 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connection.impl.AbstractConnectionDecorator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.Executor;
+
+/**
+ * The connection handed to a transactional unit. It is shared by the whole commit group, so the calls that end or reshape the transaction are
+ * refused, and so are the savepoint calls (each unit already runs behind its own savepoint) and the calls that change the session of the group's
+ * connection. Everything else goes straight to the pooled connection.
+ * 
+ * @author nikhilagarwal
+ */
+class GroupCommitConnection extends AbstractConnectionDecorator {
+	private static final String LOG_MESSAGE_NOT_ALLOWED = "Not allowed inside a group commit unit: ";
+
+	GroupCommitConnection(Connection connection) {
+		this.setConnection(connection);
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "abort");
+	}
+
+	@Override
+	public void close() throws SQLException {
+		// the connection belongs to the group. closing it is a no-op for the unit
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "commit");
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "releaseSavepoint");
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "rollback");
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "rollback");
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setAutoCommit");
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setCatalog");
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setReadOnly");
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setSavepoint");
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setSavepoint");
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setSchema");
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		throw new SQLException(LOG_MESSAGE_NOT_ALLOWED + "setTransactionIsolation");
+	}
+}
@@ -0,0 +1,211 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPool;
+import com.cornholio.database.connectionpool.coalesce.CoalescingExecutor;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opt-in group commit on top of the connection pool. Short transactional units submitted by concurrent callers are collected into groups of
+ * compatible units (same compatibility key). A group runs on one pooled connection inside one transaction, each unit behind its own savepoint so
+ * that a failing unit is rolled back on its own, and the group is committed once. A group is started when it reaches MAX_GROUP_SIZE units or when
+ * its first unit has waited MAX_COMMIT_DELAY milliseconds. Every caller's future completes only after the commit, with its own result or error.
+ *
+ * @author nikhilagarwal
+ */
+public class GroupCommitExecutor extends CoalescingExecutor<String, CommitGroup> {
+
+	// loggers and messages
+	private static final String DEFAULT_COMPATIBILITY_KEY = "";
+	private static final String LOG_MESSAGE_CONNECTION_NOT_RESTORED = "Group commit connection could not be given back, it is invalidated";
+	private static final String LOG_MESSAGE_EXECUTOR_CLOSED = "Group commit executor is closed";
+	private static final String LOG_MESSAGE_GROUP_COMMITTED = "Group committed. Units: ";
+	private static final String LOG_MESSAGE_GROUP_FAILED = "Group commit failed: ";
+	private static final String LOG_MESSAGE_UNIT_ROLLED_BACK = "Unit rolled back to its savepoint: ";
+	private static final String THREAD_NAME_COMMITTER = "group-commit-committer";
+	private static final String THREAD_NAME_DELAY = "group-commit-delay";
+	private static Logger logger;
+	private final ConnectionPool connectionPool;
+
+	/**
+	 * Constructor
+	 */
+	GroupCommitExecutor(GroupCommitExecutorBuilder builder) {
+		super(builder.getMaxGroupSize(), builder.getMaxCommitDelay(), builder.getCommitThreads(), THREAD_NAME_COMMITTER, THREAD_NAME_DELAY,
+				LOG_MESSAGE_EXECUTOR_CLOSED);
+		this.connectionPool = builder.getConnectionPool();
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(GroupCommitExecutor.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	private static void failAll(CommitGroup group, Throwable e) {
+		for (CompletableFuture<Object> result : group.getResults()) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Runs the whole group in one transaction on one connection and commits it. The callers' futures are completed as soon as the commit succeeds:
+	 * their work is durable then, whatever happens to the connection afterwards.
+	 *
+	 * @param group
+	 */
+	void commit(CommitGroup group) {
+		List<TransactionalUnit<?>> units = group.getUnits();
+		Object[] values = new Object[units.size()];
+		Throwable[] errors = new Throwable[units.size()];
+		Connection connection;
+		try {
+			connection = this.connectionPool.getConnection();
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_GROUP_FAILED + e.getMessage());
+			failAll(group, e);
+			return;
+		}
+		boolean autoCommit = true;
+		try {
+			autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			Connection shared = new GroupCommitConnection(connection);
+			for (int i = 0; i < units.size(); i++) {
+				Savepoint savepoint = connection.setSavepoint();
+				try {
+					values[i] = units.get(i).execute(shared);
+					releaseSavepoint(connection, savepoint);
+				} catch (SQLException | RuntimeException e) {
+					if (getLogger().isDebugEnabled()) {
+						getLogger().log(Level.DEBUG, LOG_MESSAGE_UNIT_ROLLED_BACK + e.getMessage());
+					}
+					connection.rollback(savepoint);
+					errors[i] = e;
+				}
+			}
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			// the transaction as a whole did not make it. nobody's work is durable
+			getLogger().log(Level.WARN, LOG_MESSAGE_GROUP_FAILED + e.getMessage());
+			if (rollback(connection, e)) {
+				release(connection, autoCommit);
+			} else {
+				invalidate(connection);
+			}
+			failAll(group, e);
+			return;
+		}
+
+		List<CompletableFuture<Object>> results = group.getResults();
+		for (int i = 0; i < results.size(); i++) {
+			if (errors[i] != null) {
+				results.get(i).completeExceptionally(errors[i]);
+			} else {
+				results.get(i).complete(values[i]);
+			}
+		}
+		if (getLogger().isTraceEnabled()) {
+			getLogger().log(Level.TRACE, LOG_MESSAGE_GROUP_COMMITTED + group.size());
+		}
+		release(connection, autoCommit);
+	}
+
+	@Override
+	protected void fail(CommitGroup group, SQLException e) {
+		failAll(group, e);
+	}
+
+	@Override
+	protected CommitGroup newGroup(String compatibilityKey, int expectedSize) {
+		return new CommitGroup(compatibilityKey, expectedSize);
+	}
+
+	/**
+	 * Takes a connection whose transaction state is unknown out of the pool, so that it is never handed out again in the middle of a transaction.
+	 */
+	private static void invalidate(Connection connection) {
+		try {
+			if (connection instanceof PooledConnectionImpl) {
+				((PooledConnectionImpl) connection).inValidate();
+			} else {
+				connection.close();
+			}
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_NOT_RESTORED, e);
+		}
+	}
+
+	/**
+	 * Restores the auto commit mode of the connection and gives it back to the pool, or invalidates it if either fails.
+	 */
+	private static void release(Connection connection, boolean autoCommit) {
+		try {
+			connection.setAutoCommit(autoCommit);
+			connection.close();
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_CONNECTION_NOT_RESTORED, e);
+			invalidate(connection);
+		}
+	}
+
+	private void releaseSavepoint(Connection connection, Savepoint savepoint) throws SQLException {
+		try {
+			connection.releaseSavepoint(savepoint);
+		} catch (SQLFeatureNotSupportedException e) {
+			// the savepoint goes away with the transaction anyway
+		}
+	}
+
+	/**
+	 * Rolls the group's transaction back. An error of the rollback is attached to the failure of the group instead of replacing it.
+	 *
+	 * @return false if the rollback failed
+	 */
+	private static boolean rollback(Connection connection, Throwable failure) {
+		try {
+			connection.rollback();
+			return true;
+		} catch (SQLException | RuntimeException e) {
+			failure.addSuppressed(e);
+			return false;
+		}
+	}
+
+	@Override
+	protected void run(CommitGroup group) {
+		this.commit(group);
+	}
+
+	/**
+	 * Submits a unit that may share a transaction with any other unit.
+	 *
+	 * @param unit
+	 * @return a future that completes after the group commit with the unit's result
+	 */
+	public <T> CompletableFuture<T> submit(TransactionalUnit<T> unit) {
+		return this.submit(DEFAULT_COMPATIBILITY_KEY, unit);
+	}
+
+	/**
+	 * Submits a unit that may only share a transaction with units of the same compatibility key, e.g. units that need the same isolation level or
+	 * touch the same tables.
+	 *
+	 * @param compatibilityKey
+	 * @param unit
+	 * @return a future that completes after the group commit with the unit's result
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> submit(String compatibilityKey, TransactionalUnit<T> unit) {
+		return (CompletableFuture<T>) this.enqueue(compatibilityKey, group -> group.add(unit));
+	}
+}
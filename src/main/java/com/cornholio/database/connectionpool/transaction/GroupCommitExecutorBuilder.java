@@ -0,0 +1,74 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connectionpool.ConnectionPool;
+
+/**
+ * This is the group commit executor builder. The max group size and the max commit delay trade throughput against commit latency: bigger groups and
+ * longer delays mean fewer commits, smaller ones mean each caller hears back sooner.
+ * 
+ * @author nikhilagarwal
+ */
+public class GroupCommitExecutorBuilder {
+
+	private static final String LOG_MESSAGE_INVALID_CONFIGURATION = "Invalid group commit executor configuration: ";
+	private ConnectionPool connectionPool;
+	private Integer commitThreads = 1;
+	private Long maxCommitDelay = 2L;
+	private Integer maxGroupSize = 32;
+
+	public GroupCommitExecutorBuilder() {
+		super();
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if a size, the delay or the number of threads is not positive: a group whose delay is negative is never committed
+	 */
+	public GroupCommitExecutor build() {
+		if (!isPositive(this.commitThreads) || !isPositive(this.maxCommitDelay) || !isPositive(this.maxGroupSize)) {
+			throw new IllegalArgumentException(LOG_MESSAGE_INVALID_CONFIGURATION + "MAX_GROUP_SIZE=" + this.maxGroupSize + ", MAX_COMMIT_DELAY="
+					+ this.maxCommitDelay + ", COMMIT_THREADS=" + this.commitThreads);
+		}
+		return new GroupCommitExecutor(this);
+	}
+
+	public GroupCommitExecutorBuilder commitThreads(Integer commitThreads) {
+		this.commitThreads = commitThreads;
+		return this;
+	}
+
+	public GroupCommitExecutorBuilder connectionPool(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+		return this;
+	}
+
+	public Integer getCommitThreads() {
+		return commitThreads;
+	}
+
+	public ConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+
+	public Long getMaxCommitDelay() {
+		return maxCommitDelay;
+	}
+
+	public Integer getMaxGroupSize() {
+		return maxGroupSize;
+	}
+
+	private static boolean isPositive(Number value) {
+		return value != null && value.longValue() > 0;
+	}
+
+	public GroupCommitExecutorBuilder maxCommitDelay(Long maxCommitDelay) {
+		this.maxCommitDelay = maxCommitDelay;
+		return this;
+	}
+
+	public GroupCommitExecutorBuilder maxGroupSize(Integer maxGroupSize) {
+		this.maxGroupSize = maxGroupSize;
+		return this;
+	}
+}
@@ -0,0 +1,408 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connection.impl.AbstractConnectionDecorator;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The connection handed out in transaction mode. It holds no physical connection until one is needed: creating or executing a statement takes a
+ * physical connection from the pool, and the physical connection goes back to the pool as soon as the work on it is done. In autocommit mode that
+ * is after each statement that executes; otherwise it is at commit or rollback. Either way it waits while a statement still has results to read.
+ * Statements stay open across physical connections: the next execute creates the driver's statement again on the next one. Session settings made
+ * on the logical connection are kept and replayed on every physical connection it takes, and undone before the physical connection goes back.
+ * <p>
+ * Other calls that need the database (getMetaData, createClob and the like) also take a physical connection, which is given back at the next of
+ * these points or when the logical connection is closed. Closing the logical connection closes its open statements and rolls back a transaction
+ * that was not committed.
+ *
+ * @author nikhilagarwal
+ */
+class LogicalConnection extends AbstractConnectionDecorator {
+	private static final String LOG_MESSAGE_CLOSED = "Logical connection is closed";
+	private static final String LOG_MESSAGE_RESTORE_FAILED = "Session settings could not be restored, the physical connection is invalidated";
+	private static Logger logger;
+
+	private boolean closed;
+	private boolean inTransaction;
+	private final List<LogicalStatementHandler> openStatements;
+	private PooledConnectionImpl physicalConnection;
+	private SessionSettings restoreSettings;
+	private final SessionSettings settings;
+	private final TransactionModeConnectionPool transactionModeConnectionPool;
+
+	LogicalConnection(TransactionModeConnectionPool transactionModeConnectionPool) {
+		this.transactionModeConnectionPool = transactionModeConnectionPool;
+		this.openStatements = new ArrayList<>();
+		this.settings = new SessionSettings();
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(LogicalConnection.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	/**
+	 * Takes a physical connection from the pool and replays the session settings on it, unless one is held already.
+	 *
+	 * @throws SQLException
+	 */
+	private void attach() throws SQLException {
+		if (this.physicalConnection != null) {
+			return;
+		}
+		PooledConnectionImpl connection = this.transactionModeConnectionPool.acquirePhysicalConnection();
+		try {
+			this.restoreSettings = this.settings.capture(connection);
+			this.settings.apply(connection);
+		} catch (SQLException | RuntimeException e) {
+			// a half replayed session must not go back to the pool
+			this.restoreSettings = null;
+			this.transactionModeConnectionPool.physicalConnectionReleased();
+			connection.inValidate();
+			throw e;
+		}
+		this.physicalConnection = connection;
+	}
+
+	private void checkOpen() throws SQLException {
+		if (this.closed) {
+			throw new SQLException(LOG_MESSAGE_CLOSED);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws SQLException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		for (LogicalStatementHandler statement : this.openStatements) {
+			statement.close();
+		}
+		this.openStatements.clear();
+		boolean rolledBack = false;
+		try {
+			if (this.physicalConnection != null && this.inTransaction) {
+				this.physicalConnection.rollback();
+			}
+			rolledBack = true;
+		} finally {
+			this.inTransaction = false;
+			this.detach(!rolledBack);
+		}
+	}
+
+	@Override
+	public synchronized void commit() throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.commit();
+		}
+		this.inTransaction = false;
+		this.detachIfIdle();
+	}
+
+	@Override
+	public synchronized Statement createStatement() throws SQLException {
+		return this.track(connection -> connection.createStatement(), Statement.class, false);
+	}
+
+	@Override
+	public synchronized Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		return this.track(connection -> connection.createStatement(resultSetType, resultSetConcurrency), Statement.class, false);
+	}
+
+	@Override
+	public synchronized Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return this.track(connection -> connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability), Statement.class,
+				false);
+	}
+
+	/**
+	 * Takes a physical connection if none is held yet.
+	 */
+	@Override
+	protected synchronized Connection delegate() throws SQLException {
+		this.checkOpen();
+		this.attach();
+		return this.physicalConnection;
+	}
+
+	/**
+	 * Undoes the session settings and gives the physical connection back to the pool.
+	 *
+	 * @throws SQLException
+	 */
+	private void detach() throws SQLException {
+		this.detach(false);
+	}
+
+	/**
+	 * Undoes the session settings and gives the physical connection back to the pool, or invalidates it.
+	 *
+	 * @param invalidate
+	 *            true if the physical connection may still have a transaction open (its rollback failed): it must not go back to the pool
+	 * @throws SQLException
+	 */
+	private void detach(boolean invalidate) throws SQLException {
+		PooledConnectionImpl connection = this.physicalConnection;
+		if (connection == null) {
+			return;
+		}
+		for (LogicalStatementHandler statement : this.openStatements) {
+			statement.detach();
+		}
+		this.physicalConnection = null;
+		this.transactionModeConnectionPool.physicalConnectionReleased();
+		if (invalidate) {
+			this.restoreSettings = null;
+			connection.inValidate();
+			return;
+		}
+		try {
+			this.restoreSettings.apply(connection);
+		} catch (SQLException | RuntimeException e) {
+			getLogger().log(Level.WARN, LOG_MESSAGE_RESTORE_FAILED, e);
+			connection.inValidate();
+			return;
+		} finally {
+			this.restoreSettings = null;
+		}
+		connection.close();
+	}
+
+	private void detachIfIdle() throws SQLException {
+		if (this.inTransaction) {
+			return;
+		}
+		for (LogicalStatementHandler statement : this.openStatements) {
+			if (statement.isBusy()) {
+				return;
+			}
+		}
+		this.detach();
+	}
+
+	@Override
+	public synchronized boolean getAutoCommit() throws SQLException {
+		this.checkOpen();
+		return this.settings.isAutoCommit();
+	}
+
+	@Override
+	public synchronized boolean isClosed() {
+		return this.closed;
+	}
+
+	@Override
+	public synchronized boolean isValid(int timeout) throws SQLException {
+		if (this.closed) {
+			return false;
+		}
+
+		// without a physical connection there is nothing that could have gone bad
+		return this.physicalConnection == null || this.physicalConnection.isValid(timeout);
+	}
+
+	@Override
+	public synchronized CallableStatement prepareCall(String sql) throws SQLException {
+		return this.track(connection -> connection.prepareCall(sql), CallableStatement.class, false);
+	}
+
+	@Override
+	public synchronized CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return this.track(connection -> connection.prepareCall(sql, resultSetType, resultSetConcurrency), CallableStatement.class, false);
+	}
+
+	@Override
+	public synchronized CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+			throws SQLException {
+		return this.track(connection -> connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability),
+				CallableStatement.class, false);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql) throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql), PreparedStatement.class, false);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class,
+				autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql, resultSetType, resultSetConcurrency), PreparedStatement.class, false);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+			throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability),
+				PreparedStatement.class, false);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql, columnIndexes), PreparedStatement.class, true);
+	}
+
+	@Override
+	public synchronized PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		return this.track(connection -> connection.prepareStatement(sql, columnNames), PreparedStatement.class, true);
+	}
+
+	@Override
+	public synchronized void rollback() throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.rollback();
+		}
+		this.inTransaction = false;
+		this.detachIfIdle();
+	}
+
+	@Override
+	public synchronized void setAutoCommit(boolean autoCommit) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			// switching autocommit on commits the transaction
+			this.physicalConnection.setAutoCommit(autoCommit);
+		}
+		this.settings.autoCommit = autoCommit;
+		if (autoCommit) {
+			this.inTransaction = false;
+			this.detachIfIdle();
+		}
+	}
+
+	@Override
+	public synchronized void setCatalog(String catalog) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.setCatalog(catalog);
+		}
+		this.settings.catalog = catalog;
+		this.settings.catalogSet = true;
+	}
+
+	@Override
+	public synchronized void setHoldability(int holdability) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.setHoldability(holdability);
+		}
+		this.settings.holdability = holdability;
+	}
+
+	@Override
+	public synchronized void setReadOnly(boolean readOnly) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.setReadOnly(readOnly);
+		}
+		this.settings.readOnly = readOnly;
+	}
+
+	@Override
+	public synchronized Savepoint setSavepoint() throws SQLException {
+		Savepoint savepoint = this.delegate().setSavepoint();
+		this.inTransaction = true;
+		return savepoint;
+	}
+
+	@Override
+	public synchronized Savepoint setSavepoint(String name) throws SQLException {
+		Savepoint savepoint = this.delegate().setSavepoint(name);
+		this.inTransaction = true;
+		return savepoint;
+	}
+
+	@Override
+	public synchronized void setSchema(String schema) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.setSchema(schema);
+		}
+		this.settings.schema = schema;
+		this.settings.schemaSet = true;
+	}
+
+	@Override
+	public synchronized void setTransactionIsolation(int level) throws SQLException {
+		this.checkOpen();
+		if (this.physicalConnection != null) {
+			this.physicalConnection.setTransactionIsolation(level);
+		}
+		this.settings.transactionIsolation = level;
+	}
+
+	/**
+	 * Called by a statement of this connection when it is closed.
+	 *
+	 * @throws SQLException
+	 */
+	synchronized void statementClosed(LogicalStatementHandler statement) throws SQLException {
+		if (this.openStatements.remove(statement) && !this.closed) {
+			this.detachIfIdle();
+		}
+	}
+
+	/**
+	 * Called by a statement of this connection once it has executed, whether it succeeded or not. In autocommit mode the physical connection goes
+	 * back unless a statement still has results to read.
+	 *
+	 * @throws SQLException
+	 */
+	synchronized void statementExecuted() throws SQLException {
+		if (!this.closed && this.settings.isAutoCommit()) {
+			this.detachIfIdle();
+		}
+	}
+
+	/**
+	 * Called by a statement of this connection before it executes. Outside autocommit mode every execute is part of the open transaction.
+	 *
+	 * @throws SQLException
+	 */
+	synchronized void statementExecuting() throws SQLException {
+		this.checkOpen();
+		if (!this.settings.isAutoCommit()) {
+			this.inTransaction = true;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return LogicalConnection.class.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+	}
+
+	private <S extends Statement> S track(StatementFactory factory, Class<S> type, boolean returnsKeys) throws SQLException {
+		Statement statement = factory.create(this.delegate());
+		LogicalStatementHandler handler = new LogicalStatementHandler(this, factory, statement, returnsKeys);
+		this.openStatements.add(handler);
+		return type.cast(Proxy.newProxyInstance(LogicalConnection.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	/**
+	 * Creates the driver's statement of a logical statement on a physical connection, the first time and every time it is created again.
+	 */
+	interface StatementFactory {
+		Statement create(Connection connection) throws SQLException;
+	}
+}
@@ -0,0 +1,271 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The proxy behind a statement of a logical connection. The driver's statement only lives as long as the physical connection it was created on:
+ * when the logical connection gives its physical connection back the driver's statement is closed, and the next call that needs one creates it
+ * again on the next physical connection, with the statement options and parameters set so far. Every execute tells the logical connection, which
+ * then knows a transaction is open, or in autocommit mode may give its physical connection back right away.
+ * <p>
+ * A statement holds on to its physical connection while it has results to read (after executeQuery, execute, or an update that returns generated
+ * keys) or a batch that was not executed yet. getConnection answers the logical connection; every other method goes to the driver's statement.
+ *
+ * @author nikhilagarwal
+ */
+class LogicalStatementHandler implements InvocationHandler {
+
+	private static final String LOG_MESSAGE_CLOSED = "Statement is closed";
+	private static final String LOG_MESSAGE_CLOSE_FAILED = "Statement could not be closed when its physical connection was given back";
+	private static final String METHOD_ADD_BATCH = "addBatch";
+	private static final String METHOD_CANCEL = "cancel";
+	private static final String METHOD_CLEAR_BATCH = "clearBatch";
+	private static final String METHOD_CLEAR_PARAMETERS = "clearParameters";
+	private static final String METHOD_CLOSE = "close";
+	private static final String METHOD_EXECUTE_BATCH = "executeBatch";
+	private static final String METHOD_EXECUTE_LARGE_BATCH = "executeLargeBatch";
+	private static final String METHOD_EXECUTE_LARGE_UPDATE = "executeLargeUpdate";
+	private static final String METHOD_EXECUTE_UPDATE = "executeUpdate";
+	private static final String METHOD_GET_CONNECTION = "getConnection";
+	private static final String METHOD_IS_CLOSED = "isClosed";
+	private static final String METHOD_REGISTER_OUT_PARAMETER = "registerOutParameter";
+	private static final String PREFIX_EXECUTE = "execute";
+	private static final String PREFIX_SET = "set";
+	private static Logger logger;
+	private boolean batched;
+	private boolean closed;
+	private final LogicalConnection.StatementFactory factory;
+	private boolean holdsResults;
+	private final LogicalConnection logicalConnection;
+	private final Map<Object, RecordedCall> options;
+	private final Map<Object, RecordedCall> parameters;
+	private final boolean returnsKeys;
+	private volatile Statement statement;
+
+	/**
+	 * Constructor
+	 *
+	 * @param logicalConnection
+	 * @param factory
+	 *            creates the driver's statement on a physical connection
+	 * @param statement
+	 *            the driver's statement, created on the physical connection the logical connection holds now
+	 * @param returnsKeys
+	 *            true if the statement was prepared to return generated keys, which are read after the update
+	 */
+	LogicalStatementHandler(LogicalConnection logicalConnection, LogicalConnection.StatementFactory factory, Statement statement,
+			boolean returnsKeys) {
+		super();
+		this.logicalConnection = logicalConnection;
+		this.factory = factory;
+		this.statement = statement;
+		this.returnsKeys = returnsKeys;
+		this.options = new LinkedHashMap<>();
+		this.parameters = new LinkedHashMap<>();
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(LogicalStatementHandler.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	/**
+	 * Creates the driver's statement on the logical connection's physical connection, taking one if needed, and replays the options and parameters.
+	 */
+	private Statement attach() throws SQLException {
+		Statement statement = this.factory.create(this.logicalConnection.delegate());
+		try {
+			for (RecordedCall call : this.options.values()) {
+				call.replay(statement);
+			}
+			for (RecordedCall call : this.parameters.values()) {
+				call.replay(statement);
+			}
+		} catch (SQLException | RuntimeException e) {
+			statement.close();
+			throw e;
+		}
+		this.statement = statement;
+		return statement;
+	}
+
+	/**
+	 * Closes this statement. Called by the logical connection when it is closed.
+	 */
+	void close() {
+		this.closed = true;
+		this.detach();
+	}
+
+	/**
+	 * Closes the driver's statement because the logical connection gives its physical connection back. The statement stays open.
+	 */
+	void detach() {
+		Statement statement = this.statement;
+		this.statement = null;
+		this.batched = false;
+		this.holdsResults = false;
+		if (statement != null) {
+			try {
+				statement.close();
+			} catch (SQLException | RuntimeException e) {
+				getLogger().log(Level.WARN, LOG_MESSAGE_CLOSE_FAILED, e);
+			}
+		}
+	}
+
+	private void executed(String name, Object[] args) {
+		boolean batch = METHOD_EXECUTE_BATCH.equals(name) || METHOD_EXECUTE_LARGE_BATCH.equals(name);
+		boolean update = METHOD_EXECUTE_UPDATE.equals(name) || METHOD_EXECUTE_LARGE_UPDATE.equals(name);
+		if (batch) {
+			this.batched = false;
+		}
+
+		// an update answers with its count; generated keys and query results are read from the statement afterwards
+		boolean keys = this.returnsKeys || (args != null && args.length > 1);
+		this.holdsResults = !(batch || update) || keys;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (METHOD_GET_CONNECTION.equals(name) && method.getParameterCount() == 0) {
+			return this.logicalConnection;
+		}
+
+		// cancel comes from another thread while this one executes, so it must not wait for the logical connection
+		if (METHOD_CANCEL.equals(name)) {
+			Statement statement = this.statement;
+			if (statement != null) {
+				statement.cancel();
+			}
+			return null;
+		}
+		synchronized (this.logicalConnection) {
+			return this.invokeLocked(method, args);
+		}
+	}
+
+	private Object invokeLocked(Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		boolean noArgs = method.getParameterCount() == 0;
+		if (METHOD_IS_CLOSED.equals(name) && noArgs) {
+			return this.closed;
+		}
+		if (METHOD_CLOSE.equals(name) && noArgs) {
+			if (!this.closed) {
+				this.close();
+				this.logicalConnection.statementClosed(this);
+			}
+			return null;
+		}
+		if (this.closed) {
+			throw new SQLException(LOG_MESSAGE_CLOSED);
+		}
+
+		// options and parameters are kept for the next driver statement; a detached statement does not need one for them yet
+		if (this.record(method, args) && this.statement == null) {
+			return null;
+		}
+		boolean execute = name.startsWith(PREFIX_EXECUTE);
+		if (execute) {
+			this.logicalConnection.statementExecuting();
+		}
+		Statement statement = this.statement == null ? this.attach() : this.statement;
+		try {
+			Object result = method.invoke(statement, args);
+			if (METHOD_ADD_BATCH.equals(name)) {
+				this.batched = true;
+			} else if (METHOD_CLEAR_BATCH.equals(name)) {
+				this.batched = false;
+			}
+			if (execute) {
+				this.executed(name, args);
+			}
+			return result;
+		} catch (InvocationTargetException e) {
+			if (execute) {
+				this.executed(name, args);
+			}
+			throw e.getCause();
+		} finally {
+			if (execute) {
+				this.logicalConnection.statementExecuted();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the statement holds on to its physical connection: it has results to read or a batch to execute
+	 */
+	boolean isBusy() {
+		return this.statement != null && (this.holdsResults || this.batched);
+	}
+
+	/**
+	 * Keeps a call that sets a statement option or a parameter, so that it can be replayed on the next driver statement.
+	 *
+	 * @return true if the call was kept
+	 */
+	private boolean record(Method method, Object[] args) {
+		String name = method.getName();
+		if (METHOD_CLEAR_PARAMETERS.equals(name)) {
+			this.parameters.clear();
+			return true;
+		}
+		if (args == null || args.length == 0) {
+			return false;
+		}
+		if (name.startsWith(PREFIX_SET)) {
+			if (Statement.class.equals(method.getDeclaringClass())) {
+				this.options.put(name, new RecordedCall(method, args));
+			} else {
+				this.parameters.put(args[0], new RecordedCall(method, args));
+			}
+			return true;
+		}
+		if (METHOD_REGISTER_OUT_PARAMETER.equals(name)) {
+			this.parameters.put(Arrays.asList(name, args[0]), new RecordedCall(method, args));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A call on the statement to replay on the next driver statement.
+	 */
+	private static final class RecordedCall {
+		private final Object[] args;
+		private final Method method;
+
+		RecordedCall(Method method, Object[] args) {
+			this.method = method;
+			this.args = args;
+		}
+
+		void replay(Statement statement) throws SQLException {
+			try {
+				this.method.invoke(statement, this.args);
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof SQLException) {
+					throw (SQLException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
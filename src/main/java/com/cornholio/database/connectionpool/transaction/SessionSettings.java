@@ -0,0 +1,86 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The session settings a logical connection was asked for. Only the settings that were set are kept, and only those are applied to (and later
+ * restored on) the physical connection.
+ *
+ * @author nikhilagarwal
+ */
+final class SessionSettings {
+	Boolean autoCommit;
+	String catalog;
+
+	// catalog and schema may be set to null, so whether they were set is kept apart
+	boolean catalogSet;
+	Integer holdability;
+	Boolean readOnly;
+	String schema;
+	boolean schemaSet;
+	Integer transactionIsolation;
+
+	/**
+	 * Applies the settings that are set.
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	void apply(Connection connection) throws SQLException {
+		if (this.autoCommit != null) {
+			connection.setAutoCommit(this.autoCommit);
+		}
+		if (this.catalogSet) {
+			connection.setCatalog(this.catalog);
+		}
+		if (this.holdability != null) {
+			connection.setHoldability(this.holdability);
+		}
+		if (this.readOnly != null) {
+			connection.setReadOnly(this.readOnly);
+		}
+		if (this.schemaSet) {
+			connection.setSchema(this.schema);
+		}
+		if (this.transactionIsolation != null) {
+			connection.setTransactionIsolation(this.transactionIsolation);
+		}
+	}
+
+	/**
+	 * Reads the current value of every setting that is set here, so that it can be restored after the settings were applied.
+	 *
+	 * @param connection
+	 * @return the settings the connection has now
+	 * @throws SQLException
+	 */
+	SessionSettings capture(Connection connection) throws SQLException {
+		SessionSettings current = new SessionSettings();
+		if (this.autoCommit != null) {
+			current.autoCommit = connection.getAutoCommit();
+		}
+		if (this.catalogSet) {
+			current.catalog = connection.getCatalog();
+			current.catalogSet = true;
+		}
+		if (this.holdability != null) {
+			current.holdability = connection.getHoldability();
+		}
+		if (this.readOnly != null) {
+			current.readOnly = connection.isReadOnly();
+		}
+		if (this.schemaSet) {
+			current.schema = connection.getSchema();
+			current.schemaSet = true;
+		}
+		if (this.transactionIsolation != null) {
+			current.transactionIsolation = connection.getTransactionIsolation();
+		}
+		return current;
+	}
+
+	boolean isAutoCommit() {
+		return this.autoCommit == null || this.autoCommit;
+	}
+}
@@ -0,0 +1,85 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPool;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction mode pooling over a connection pool. getConnection returns a logical connection, which costs nothing until it is used: it takes a
+ * physical connection from the pool when a statement is created or executed and gives it back at the end of the transaction (or, in autocommit
+ * mode, after each statement). A service that borrows a connection at the start of a request and holds it for the whole request then only holds
+ * a physical connection while it actually talks to the database, so many more requests can share each physical connection.
+ * <p>
+ * Session settings (autocommit, read only, isolation, catalog, schema, holdability) made on a logical connection are replayed on every physical
+ * connection it takes. Session state a driver keeps beyond those (temporary tables, session variables set through sql) does not follow the
+ * logical connection; do not use transaction mode for code that relies on it.
+ *
+ * @author nikhilagarwal
+ */
+public class TransactionModeConnectionPool implements ConnectionPool {
+	private final AtomicInteger attached;
+	private final ConnectionPoolImpl connectionPool;
+	private final LongAdder logicalConnections;
+	private final LongAdder physicalAcquires;
+
+	public TransactionModeConnectionPool(ConnectionPoolImpl connectionPool) {
+		super();
+		this.connectionPool = connectionPool;
+		this.attached = new AtomicInteger();
+		this.logicalConnections = new LongAdder();
+		this.physicalAcquires = new LongAdder();
+	}
+
+	PooledConnectionImpl acquirePhysicalConnection() throws SQLException {
+		PooledConnectionImpl connection = this.connectionPool.getConnection();
+		this.physicalAcquires.increment();
+		this.attached.incrementAndGet();
+		return connection;
+	}
+
+	/**
+	 * @return the number of physical connections held by logical connections right now
+	 */
+	public int getAttachedCount() {
+		return this.attached.get();
+	}
+
+	/**
+	 * Gets a logical connection. No physical connection is taken until the logical connection creates a statement.
+	 *
+	 * @return a logical connection
+	 */
+	@Override
+	public Connection getConnection() {
+		this.logicalConnections.increment();
+		return new LogicalConnection(this);
+	}
+
+	/**
+	 * @return the number of logical connections handed out
+	 */
+	public long getLogicalConnectionCount() {
+		return this.logicalConnections.sum();
+	}
+
+	/**
+	 * @return the number of times a logical connection took a physical connection from the pool
+	 */
+	public long getPhysicalAcquireCount() {
+		return this.physicalAcquires.sum();
+	}
+
+	void physicalConnectionReleased() {
+		this.attached.decrementAndGet();
+	}
+
+	@Override
+	public void releaseConnection(Connection connection) throws SQLException {
+		connection.close();
+	}
+}
@@ -0,0 +1,17 @@
+package com.cornholio.database.connectionpool.transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A short unit of transactional work. The unit is given a shared connection that is already inside a transaction; it must not commit, roll back or
+ * close it. The group commit executor does that for the whole group.
+ *
+ * @param <T>
+ *            the result of the unit
+ * @author nikhilagarwal
+ */
+public interface TransactionalUnit<T> {
+
+	T execute(Connection connection) throws SQLException;
+}
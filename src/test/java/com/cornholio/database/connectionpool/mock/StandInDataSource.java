@@ -0,0 +1,412 @@
+package com.cornholio.database.connectionpool.mock;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A stand in data source that hands out in-memory connections. Unlike the easymock based MockInitialContext these connections can prepare statements,
+ * execute batches and run transactions, and the data source counts what was asked of it so the tests can check how many round trips were made.
+ * Connection attempts and rows can be made to fail on command.
+ *
+ * @author nikhilagarwal
+ */
+public class StandInDataSource implements DataSource {
+
+	private final AtomicInteger batchesExecuted = new AtomicInteger();
+	private final AtomicInteger commits = new AtomicInteger();
+	private final AtomicInteger connectionsClosed = new AtomicInteger();
+	private final AtomicInteger connectionsOpened = new AtomicInteger();
+	private final AtomicInteger connectsInFlight = new AtomicInteger();
+	private final AtomicInteger maxConnectsInFlight = new AtomicInteger();
+	private final AtomicInteger rollbacks = new AtomicInteger();
+	private final AtomicInteger sessionReads = new AtomicInteger();
+	private final AtomicInteger statementsCancelled = new AtomicInteger();
+	private final AtomicInteger statementsExecuted = new AtomicInteger();
+	private final AtomicInteger statementsPrepared = new AtomicInteger();
+	private volatile long connectLatency;
+	private volatile boolean failConnect;
+	private volatile Set<String> failingMethods = Collections.emptySet();
+	private volatile Object failingParameter;
+	private volatile int queryRows;
+	private volatile long statementLatency;
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(StandInDataSource.class.getClassLoader(), new Class<?>[] { iface }, handler);
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return Boolean.FALSE;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (type == double.class) {
+			return 0D;
+		} else if (type == float.class) {
+			return 0F;
+		} else if (type == short.class) {
+			return (short) 0;
+		} else if (type == byte.class) {
+			return (byte) 0;
+		}
+		return null;
+	}
+
+	public int getBatchesExecuted() {
+		return batchesExecuted.get();
+	}
+
+	public int getCommits() {
+		return commits.get();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		this.maxConnectsInFlight.accumulateAndGet(this.connectsInFlight.incrementAndGet(), Math::max);
+		try {
+			if (this.connectLatency > 0) {
+				try {
+					Thread.sleep(this.connectLatency);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			// a connect that fails takes the connect latency too, like one that runs into a connect time out
+			if (this.failConnect) {
+				throw new SQLException("Stand in data source is down");
+			}
+		} finally {
+			this.connectsInFlight.decrementAndGet();
+		}
+		this.connectionsOpened.incrementAndGet();
+		return proxy(Connection.class, new StandInConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return this.getConnection();
+	}
+
+	public int getConnectionsClosed() {
+		return connectionsClosed.get();
+	}
+
+	public int getConnectionsOpened() {
+		return connectionsOpened.get();
+	}
+
+	/**
+	 * @return the most connection attempts that were in progress at the same time
+	 */
+	public int getMaxConnectsInFlight() {
+		return maxConnectsInFlight.get();
+	}
+
+	@Override
+	public int getLoginTimeout() {
+		return 0;
+	}
+
+	@Override
+	public PrintWriter getLogWriter() {
+		return null;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	public int getRollbacks() {
+		return rollbacks.get();
+	}
+
+	/**
+	 * @return the number of session getters and meta data calls that reached a connection
+	 */
+	public int getSessionReads() {
+		return sessionReads.get();
+	}
+
+	public int getStatementsCancelled() {
+		return statementsCancelled.get();
+	}
+
+	public int getStatementsExecuted() {
+		return statementsExecuted.get();
+	}
+
+	public int getStatementsPrepared() {
+		return statementsPrepared.get();
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return false;
+	}
+
+	public void setConnectLatency(long connectLatency) {
+		this.connectLatency = connectLatency;
+	}
+
+	public void setFailConnect(boolean failConnect) {
+		this.failConnect = failConnect;
+	}
+
+	/**
+	 * Every connection call to one of these methods fails.
+	 */
+	public void setFailingMethods(String... failingMethods) {
+		this.failingMethods = new HashSet<>(Arrays.asList(failingMethods));
+	}
+
+	/**
+	 * Any row or statement that binds this value as a parameter fails.
+	 */
+	public void setFailingParameter(Object failingParameter) {
+		this.failingParameter = failingParameter;
+	}
+
+	/**
+	 * Every query returns this many rows.
+	 */
+	public void setQueryRows(int queryRows) {
+		this.queryRows = queryRows;
+	}
+
+	/**
+	 * Every statement execution takes at least this many milliseconds.
+	 */
+	public void setStatementLatency(long statementLatency) {
+		this.statementLatency = statementLatency;
+	}
+
+	private void sleepStatementLatency() {
+		if (this.statementLatency > 0) {
+			try {
+				Thread.sleep(this.statementLatency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) {
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) {
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		throw new SQLException("Not a wrapper");
+	}
+
+	/**
+	 * The in-memory connection. Keeps the session state a real connection would keep.
+	 */
+	public class StandInConnection implements InvocationHandler {
+		private boolean autoCommit = true;
+		private String catalog;
+		private boolean closed;
+		private int holdability;
+		private boolean readOnly;
+		private String schema;
+		private int savepointCount;
+		private int transactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+		@Override
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				if (!this.closed) {
+					this.closed = true;
+					connectionsClosed.incrementAndGet();
+				}
+				return null;
+			} else if ("abort".equals(name)) {
+				return this.invoke(proxy, Connection.class.getMethod("close"), null);
+			} else if ("isClosed".equals(name)) {
+				return this.closed;
+			} else if ("isValid".equals(name)) {
+				return !this.closed;
+			} else if ("toString".equals(name)) {
+				return "StandInConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+			} else if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			} else if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if (this.closed) {
+				throw new SQLException("Connection is closed");
+			}
+			if (failingMethods.contains(name)) {
+				throw new SQLException("Failing call: " + name);
+			}
+			switch (name) {
+			case "prepareStatement":
+			case "prepareCall":
+				statementsPrepared.incrementAndGet();
+				return proxy(PreparedStatement.class, new StandInStatement((String) args[0]));
+			case "createStatement":
+				return proxy(Statement.class, new StandInStatement(null));
+			case "commit":
+				commits.incrementAndGet();
+				return null;
+			case "rollback":
+				rollbacks.incrementAndGet();
+				return null;
+			case "setSavepoint":
+				final int id = ++this.savepointCount;
+				return proxy(Savepoint.class, (p, m, a) -> "getSavepointId".equals(m.getName()) ? id : defaultValue(m.getReturnType()));
+			case "getMetaData":
+				sessionReads.incrementAndGet();
+				return proxy(DatabaseMetaData.class, (p, m, a) -> defaultValue(m.getReturnType()));
+			case "getAutoCommit":
+				sessionReads.incrementAndGet();
+				return this.autoCommit;
+			case "setAutoCommit":
+				this.autoCommit = (Boolean) args[0];
+				return null;
+			case "getCatalog":
+				sessionReads.incrementAndGet();
+				return this.catalog;
+			case "setCatalog":
+				this.catalog = (String) args[0];
+				return null;
+			case "getSchema":
+				sessionReads.incrementAndGet();
+				return this.schema;
+			case "setSchema":
+				this.schema = (String) args[0];
+				return null;
+			case "isReadOnly":
+				sessionReads.incrementAndGet();
+				return this.readOnly;
+			case "setReadOnly":
+				this.readOnly = (Boolean) args[0];
+				return null;
+			case "getHoldability":
+				sessionReads.incrementAndGet();
+				return this.holdability;
+			case "setHoldability":
+				this.holdability = (Integer) args[0];
+				return null;
+			case "getTransactionIsolation":
+				sessionReads.incrementAndGet();
+				return this.transactionIsolation;
+			case "setTransactionIsolation":
+				this.transactionIsolation = (Integer) args[0];
+				return null;
+			default:
+				return defaultValue(method.getReturnType());
+			}
+		}
+	}
+
+	/**
+	 * The in-memory statement. Every row updates exactly one row unless it binds the failing parameter.
+	 */
+	public class StandInStatement implements InvocationHandler {
+		private final List<Object[]> batch = new ArrayList<>();
+		private final String sql;
+		private Object[] parameters = new Object[0];
+
+		StandInStatement(String sql) {
+			this.sql = sql;
+		}
+
+		private boolean fails(Object[] row) {
+			Object failing = failingParameter;
+			return failing != null && Arrays.asList(row).contains(failing);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "setObject":
+			case "setString":
+			case "setInt":
+			case "setLong": {
+				int index = (Integer) args[0];
+				if (this.parameters.length < index) {
+					this.parameters = Arrays.copyOf(this.parameters, index);
+				}
+				this.parameters[index - 1] = args[1];
+				return null;
+			}
+			case "cancel":
+				statementsCancelled.incrementAndGet();
+				return null;
+			case "clearParameters":
+				this.parameters = new Object[0];
+				return null;
+			case "addBatch":
+				this.batch.add(this.parameters.clone());
+				return null;
+			case "executeBatch": {
+				batchesExecuted.incrementAndGet();
+				int[] updateCounts = new int[this.batch.size()];
+				boolean failed = false;
+				for (int i = 0; i < updateCounts.length; i++) {
+					failed |= this.fails(this.batch.get(i));
+					updateCounts[i] = this.fails(this.batch.get(i)) ? Statement.EXECUTE_FAILED : 1;
+				}
+				this.batch.clear();
+				if (failed) {
+					throw new BatchUpdateException("Stand in row failed", updateCounts);
+				}
+				return updateCounts;
+			}
+			case "executeQuery": {
+				statementsExecuted.incrementAndGet();
+				sleepStatementLatency();
+				final int rows = queryRows;
+				final int[] row = new int[1];
+				return proxy(ResultSet.class, (p, m, a) -> "next".equals(m.getName()) ? ++row[0] <= rows : defaultValue(m.getReturnType()));
+			}
+			case "execute":
+			case "executeUpdate":
+				statementsExecuted.incrementAndGet();
+				sleepStatementLatency();
+				if (this.fails(this.parameters) || (args != null && args.length > 0 && String.valueOf(args[0]).equals(failingParameter))) {
+					throw new SQLException("Stand in statement failed");
+				}
+				return "execute".equals(method.getName()) ? (Object) Boolean.FALSE : (Object) 1;
+			case "toString":
+				return "StandInStatement[" + this.sql + "]";
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return proxy == args[0];
+			default:
+				return defaultValue(method.getReturnType());
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.cornholio.database.connectionpool.simulation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the simulated clients ask the pool for a connection. Times are virtual nanoseconds since the start of the simulation.
+ *
+ * @author nikhilagarwal
+ */
+public interface ArrivalPattern {
+
+	/**
+	 * A steady stream of clients: exponentially distributed gaps between arrivals.
+	 *
+	 * @param rate
+	 *            arrivals per second
+	 */
+	static ArrivalPattern poisson(double rate) {
+		return new VaryingRate(rate) {
+			@Override
+			double rateAt(long time) {
+				return rate;
+			}
+		};
+	}
+
+	/**
+	 * Bursts of clients on top of a base load.
+	 *
+	 * @param baseRate
+	 *            arrivals per second between the bursts
+	 * @param burstRate
+	 *            arrivals per second during a burst
+	 * @param burstLength
+	 *            how long a burst lasts in milliseconds
+	 * @param period
+	 *            milliseconds from the start of one burst to the start of the next
+	 */
+	static ArrivalPattern bursts(double baseRate, double burstRate, long burstLength, long period) {
+		long burstLengthNanos = TimeUnit.MILLISECONDS.toNanos(burstLength);
+		long periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+		return new VaryingRate(Math.max(baseRate, burstRate)) {
+			@Override
+			double rateAt(long time) {
+				return time % periodNanos < burstLengthNanos ? burstRate : baseRate;
+			}
+		};
+	}
+
+	/**
+	 * A load that rises and falls like a sine wave over the day.
+	 *
+	 * @param meanRate
+	 *            mean arrivals per second
+	 * @param amplitude
+	 *            between 0 and 1, how far the rate swings around the mean
+	 * @param period
+	 *            the length of a "day" in milliseconds
+	 */
+	static ArrivalPattern diurnal(double meanRate, double amplitude, long period) {
+		long periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+		return new VaryingRate(meanRate * (1.0 + amplitude)) {
+			@Override
+			double rateAt(long time) {
+				return meanRate * (1.0 + amplitude * Math.sin(2.0 * Math.PI * (time % periodNanos) / periodNanos));
+			}
+		};
+	}
+
+	/**
+	 * @param now
+	 *            the time of the previous arrival
+	 * @param random
+	 *            the seeded random of the simulation
+	 * @return the time of the next arrival
+	 */
+	long nextArrival(long now, Random random);
+
+	/**
+	 * A Poisson process whose rate changes over time, sampled by thinning: candidate arrivals are drawn at the highest rate and each one is kept with
+	 * the probability rate(t) / highest rate.
+	 */
+	abstract class VaryingRate implements ArrivalPattern {
+		private final double maxRate;
+
+		VaryingRate(double maxRate) {
+			this.maxRate = maxRate;
+		}
+
+		@Override
+		public long nextArrival(long now, Random random) {
+			long time = now;
+			do {
+				time += (long) (-Math.log(1.0 - random.nextDouble()) / this.maxRate * TimeUnit.SECONDS.toNanos(1L)) + 1L;
+			} while (random.nextDouble() * this.maxRate > this.rateAt(time));
+			return time;
+		}
+
+		abstract double rateAt(long time);
+	}
+}
@@ -0,0 +1,52 @@
+package com.cornholio.database.connectionpool.simulation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A distribution of simulated durations, such as the time it takes to connect or to run the queries of a lease.
+ *
+ * @author nikhilagarwal
+ */
+public interface Distribution {
+
+	/**
+	 * @param millis
+	 *            the duration in milliseconds
+	 */
+	static Distribution constant(double millis) {
+		long nanos = toNanos(millis);
+		return random -> nanos;
+	}
+
+	/**
+	 * @param meanMillis
+	 *            the mean duration in milliseconds
+	 */
+	static Distribution exponential(double meanMillis) {
+		return random -> toNanos(-Math.log(1.0 - random.nextDouble()) * meanMillis);
+	}
+
+	/**
+	 * A long tailed distribution: most samples are close to the median, a few are much longer.
+	 *
+	 * @param medianMillis
+	 *            the median duration in milliseconds
+	 * @param sigma
+	 *            the standard deviation of the logarithm of the duration. 0.5 is a moderate tail, 1.5 a heavy one
+	 */
+	static Distribution logNormal(double medianMillis, double sigma) {
+		return random -> toNanos(medianMillis * Math.exp(sigma * random.nextGaussian()));
+	}
+
+	static long toNanos(double millis) {
+		return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1L));
+	}
+
+	/**
+	 * @param random
+	 *            the seeded random of the simulation
+	 * @return a duration in nanoseconds
+	 */
+	long sample(Random random);
+}
@@ -0,0 +1,307 @@
+package com.cornholio.database.connectionpool.simulation;
+
+import com.cornholio.database.connection.event.LatencyHistogram;
+import com.cornholio.database.connection.event.PoolStatistics;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deterministic discrete-event simulation of a connection pool. A real ConnectionPoolImpl runs against a stand-in data source, but all time is
+ * virtual: arrivals, connect latencies, query service times and wait time outs are events on a virtual clock, driven from a single thread by a
+ * seeded random. The simulation only asks the pool for a connection when it can hand one out without blocking (an idle connection is there, or the
+ * pool is under MAX_SIZE and establishes one) and keeps the clients that would block in its own FIFO queue with their own wait time out. A
+ * connection the pool establishes holds its slot for the connect latency before anyone can use it, and so does a connect that fails. Lease time
+ * outs and the pool's maintenance timer are switched off and maintenance runs as an event, so nothing in the pool depends on the wall clock. Hours of
+ * simulated load finish in seconds, and a run is reproducible from its seed.
+ *
+ * @author nikhilagarwal
+ */
+public class PoolSimulation {
+
+	private static final int EVENT_ARRIVAL = 0;
+	private static final int EVENT_CONNECT_FAILED = 1;
+	private static final int EVENT_CONNECTED = 2;
+	private static final int EVENT_MAINTENANCE = 3;
+	private static final int EVENT_RELEASE = 4;
+	private static final int EVENT_WAIT_TIME_OUT = 5;
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1L);
+	private final LatencyHistogram acquireTimes;
+	private long acquired;
+	private long active;
+	private double activeArea;
+	private final ArrivalPattern arrivalPattern;
+	private long arrivals;
+	private final double connectFailureRate;
+	private long connectFailures;
+	private final Distribution connectLatency;
+	private ConnectionPoolImpl connectionPool;
+
+	/**
+	 * The slots held by connects that are going to fail. The pool gives their slots back right away; the simulation holds them for the latency
+	 */
+	private int failingConnects;
+	private final StandInDataSource dataSource;
+	private final long duration;
+	private final PriorityQueue<Event> events;
+	private final long maintenanceInterval;
+	private final int maxIdle;
+	private final int maxSize;
+	private final int minSize;
+	private long now;
+	private int peakCreationsPerSecond;
+	private double poolSizeArea;
+	private final Random random;
+	private final ArrayDeque<Long> recentCreations;
+	private long sequence;
+	private final Distribution serviceTime;
+	private long timeouts;
+	private final ArrayDeque<Request> waiting;
+	private final long waitTimeOut;
+
+	PoolSimulation(PoolSimulationBuilder builder) {
+		super();
+		this.arrivalPattern = builder.getArrivalPattern();
+		this.connectFailureRate = builder.getConnectFailureRate();
+		this.connectLatency = builder.getConnectLatency();
+		this.duration = TimeUnit.MILLISECONDS.toNanos(builder.getDuration());
+		this.maintenanceInterval = TimeUnit.MILLISECONDS.toNanos(builder.getMaintenanceInterval());
+		this.maxIdle = builder.getMaxIdle();
+		this.maxSize = builder.getMaxSize();
+		this.minSize = builder.getMinSize();
+		this.random = new Random(builder.getSeed());
+		this.serviceTime = builder.getServiceTime();
+		this.waitTimeOut = TimeUnit.MILLISECONDS.toNanos(builder.getWaitTimeOut());
+		this.acquireTimes = new LatencyHistogram();
+		this.dataSource = new StandInDataSource();
+		this.events = new PriorityQueue<>();
+		this.recentCreations = new ArrayDeque<>();
+		this.waiting = new ArrayDeque<>();
+	}
+
+	/**
+	 * Hands a connection to the client if the pool can do so without blocking.
+	 *
+	 * @return false if the client has to wait
+	 */
+	private boolean acquire(Request request) {
+		boolean idle = !this.connectionPool.getAvailableConnections().isEmpty();
+		if (!idle && this.getPoolSize() >= this.maxSize) {
+			return false;
+		}
+		request.done = true;
+		long createdBefore = this.getStatistics().getCreateCount();
+		this.dataSource.setFailConnect(!idle && this.random.nextDouble() < this.connectFailureRate);
+		PooledConnectionImpl connection;
+		try {
+			connection = this.connectionPool.getConnection();
+		} catch (SQLException e) {
+			this.failConnect();
+			return true;
+		}
+		long ready = this.now;
+		if (this.getStatistics().getCreateCount() > createdBefore) {
+			ready += this.connectLatency.sample(this.random);
+			this.recordCreation();
+		}
+		this.acquired++;
+		this.active++;
+		this.acquireTimes.record(ready - request.arrival);
+		this.schedule(ready + this.serviceTime.sample(this.random), EVENT_RELEASE, null, connection);
+		return true;
+	}
+
+	private void advanceTo(long time) {
+		long elapsed = time - this.now;
+		this.activeArea += (double) this.active * elapsed;
+		this.poolSizeArea += (double) this.getPoolSize() * elapsed;
+		this.now = time;
+	}
+
+	/**
+	 * Holds a slot for a connect that fails once its latency has passed.
+	 */
+	private void failConnect() {
+		this.failingConnects++;
+		this.schedule(this.now + this.connectLatency.sample(this.random), EVENT_CONNECT_FAILED, null, null);
+	}
+
+	/**
+	 * @return the connections of the pool, including the ones being established, and the slots held by failing connects
+	 */
+	private int getPoolSize() {
+		return this.connectionPool.getTotalConnectionCount() + this.failingConnects;
+	}
+
+	private PoolStatistics getStatistics() {
+		return this.connectionPool.getStatistics();
+	}
+
+	/**
+	 * Runs the pool maintenance. The connections it establishes are held until their connect latency has passed, so that clients cannot use them
+	 * before they would be ready.
+	 */
+	private void maintain() throws SQLException {
+		long createdBefore = this.getStatistics().getCreateCount();
+		this.dataSource.setFailConnect(this.random.nextDouble() < this.connectFailureRate);
+		try {
+			this.connectionPool.maintain();
+		} catch (SQLException e) {
+			this.failConnect();
+		}
+		this.dataSource.setFailConnect(false);
+		for (long i = createdBefore; i < this.getStatistics().getCreateCount(); i++) {
+			this.recordCreation();
+			this.schedule(this.now + this.connectLatency.sample(this.random), EVENT_CONNECTED, null, this.connectionPool.getConnection());
+		}
+	}
+
+	private void recordCreation() {
+		this.recentCreations.addLast(this.now);
+		while (this.recentCreations.getFirst() <= this.now - ONE_SECOND) {
+			this.recentCreations.removeFirst();
+		}
+		this.peakCreationsPerSecond = Math.max(this.peakCreationsPerSecond, this.recentCreations.size());
+	}
+
+	private void release(PooledConnectionImpl connection) throws SQLException {
+		this.active--;
+		connection.close();
+		this.serveWaiting();
+	}
+
+	/**
+	 * Hands the connection that came back, or the slot that was given back, to the client that waited longest.
+	 */
+	private void serveWaiting() {
+		while (!this.waiting.isEmpty()) {
+			Request request = this.waiting.getFirst();
+			if (!request.done && !this.acquire(request)) {
+				break;
+			}
+			this.waiting.removeFirst();
+		}
+	}
+
+	/**
+	 * Runs the simulation until its duration has passed on the virtual clock.
+	 *
+	 * @return the report
+	 * @throws SQLException
+	 *             if the pool could not be built
+	 */
+	public SimulationReport run() throws SQLException {
+		long wallClockStart = System.nanoTime();
+		this.connectionPool = (ConnectionPoolImpl) new ConnectionPoolBuilder().connectionTimeOut(0L).dataSource(this.dataSource).maxIdle(this.maxIdle)
+				.maxSize(this.maxSize).minSize(this.minSize).name("simulation").registerMBean(Boolean.FALSE)
+				.timeBetweenPoolMaintenance(0L)
+				.waitTimeOut(TimeUnit.NANOSECONDS.toMillis(this.waitTimeOut)).build();
+		try {
+			this.schedule(this.arrivalPattern.nextArrival(0L, this.random), EVENT_ARRIVAL, null, null);
+			if (this.maintenanceInterval > 0) {
+				this.schedule(this.maintenanceInterval, EVENT_MAINTENANCE, null, null);
+			}
+			while (!this.events.isEmpty() && this.events.peek().time <= this.duration) {
+				Event event = this.events.poll();
+				this.advanceTo(event.time);
+				switch (event.type) {
+				case EVENT_ARRIVAL:
+					this.arrivals++;
+					Request request = new Request(this.now);
+					if (!this.acquire(request)) {
+						this.waiting.addLast(request);
+						this.schedule(this.now + this.waitTimeOut, EVENT_WAIT_TIME_OUT, request, null);
+					}
+					this.schedule(this.arrivalPattern.nextArrival(this.now, this.random), EVENT_ARRIVAL, null, null);
+					break;
+				case EVENT_CONNECT_FAILED:
+					this.failingConnects--;
+					this.connectFailures++;
+					this.serveWaiting();
+					break;
+				case EVENT_CONNECTED:
+					event.connection.close();
+					this.serveWaiting();
+					break;
+				case EVENT_RELEASE:
+					this.release(event.connection);
+					break;
+				case EVENT_WAIT_TIME_OUT:
+					if (!event.request.done) {
+						event.request.done = true;
+						this.timeouts++;
+					}
+					break;
+				case EVENT_MAINTENANCE:
+					this.maintain();
+					this.schedule(this.now + this.maintenanceInterval, EVENT_MAINTENANCE, null, null);
+					break;
+				default:
+					throw new IllegalStateException();
+				}
+			}
+			this.advanceTo(this.duration);
+			double simulated = this.duration;
+			return new SimulationReport(TimeUnit.NANOSECONDS.toMillis(this.duration),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wallClockStart), this.arrivals, this.acquired, this.timeouts,
+					this.connectFailures, toMillis(this.acquireTimes.getValueAtPercentile(50.0)),
+					toMillis(this.acquireTimes.getValueAtPercentile(99.0)), toMillis(this.acquireTimes.getValueAtPercentile(99.9)),
+					this.activeArea / simulated / this.maxSize, this.poolSizeArea / simulated, this.getStatistics().getCreateCount(),
+					this.getStatistics().getDisposeCount(), this.peakCreationsPerSecond);
+		} finally {
+			this.connectionPool.shutdown();
+		}
+	}
+
+	private void schedule(long time, int type, Request request, PooledConnectionImpl connection) {
+		this.events.add(new Event(time, this.sequence++, type, request, connection));
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+	}
+
+	/**
+	 * Something that happens at a point in virtual time. Events at the same time happen in the order they were scheduled.
+	 */
+	private static final class Event implements Comparable<Event> {
+		private final PooledConnectionImpl connection;
+		private final Request request;
+		private final long sequence;
+		private final long time;
+		private final int type;
+
+		Event(long time, long sequence, int type, Request request, PooledConnectionImpl connection) {
+			this.time = time;
+			this.sequence = sequence;
+			this.type = type;
+			this.request = request;
+			this.connection = connection;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int compared = Long.compare(this.time, other.time);
+			return compared != 0 ? compared : Long.compare(this.sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * A client asking for a connection.
+	 */
+	private static final class Request {
+		private final long arrival;
+		private boolean done;
+
+		Request(long arrival) {
+			this.arrival = arrival;
+		}
+	}
+}
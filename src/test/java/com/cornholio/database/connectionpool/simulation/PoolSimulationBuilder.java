@@ -0,0 +1,141 @@
+package com.cornholio.database.connectionpool.simulation;
+
+/**
+ * Builds a pool simulation: the pool sizes to try, the behaviour of the simulated database and the workload. All times are in milliseconds of
+ * virtual time.
+ *
+ * @author nikhilagarwal
+ */
+public class PoolSimulationBuilder {
+
+	private ArrivalPattern arrivalPattern = ArrivalPattern.poisson(50.0);
+	private double connectFailureRate = 0.0;
+	private Distribution connectLatency = Distribution.constant(20.0);
+	private Long duration = 3600000L;
+	private Long maintenanceInterval = 30000L;
+	private Integer maxIdle = 10;
+	private Integer maxSize = 20;
+	private Integer minSize = 5;
+	private Long seed = 1L;
+	private Distribution serviceTime = Distribution.exponential(50.0);
+	private Long waitTimeOut = 1000L;
+
+	public PoolSimulationBuilder() {
+		super();
+	}
+
+	public PoolSimulationBuilder arrivalPattern(ArrivalPattern arrivalPattern) {
+		this.arrivalPattern = arrivalPattern;
+		return this;
+	}
+
+	public PoolSimulation build() {
+		return new PoolSimulation(this);
+	}
+
+	/**
+	 * The probability that an attempt to establish a connection fails.
+	 */
+	public PoolSimulationBuilder connectFailureRate(double connectFailureRate) {
+		this.connectFailureRate = connectFailureRate;
+		return this;
+	}
+
+	public PoolSimulationBuilder connectLatency(Distribution connectLatency) {
+		this.connectLatency = connectLatency;
+		return this;
+	}
+
+	public PoolSimulationBuilder duration(Long duration) {
+		this.duration = duration;
+		return this;
+	}
+
+	public ArrivalPattern getArrivalPattern() {
+		return arrivalPattern;
+	}
+
+	public double getConnectFailureRate() {
+		return connectFailureRate;
+	}
+
+	public Distribution getConnectLatency() {
+		return connectLatency;
+	}
+
+	public Long getDuration() {
+		return duration;
+	}
+
+	public Long getMaintenanceInterval() {
+		return maintenanceInterval;
+	}
+
+	public Integer getMaxIdle() {
+		return maxIdle;
+	}
+
+	public Integer getMaxSize() {
+		return maxSize;
+	}
+
+	public Integer getMinSize() {
+		return minSize;
+	}
+
+	public Long getSeed() {
+		return seed;
+	}
+
+	public Distribution getServiceTime() {
+		return serviceTime;
+	}
+
+	public Long getWaitTimeOut() {
+		return waitTimeOut;
+	}
+
+	/**
+	 * How often the pool maintenance runs. 0 switches it off.
+	 */
+	public PoolSimulationBuilder maintenanceInterval(Long maintenanceInterval) {
+		this.maintenanceInterval = maintenanceInterval;
+		return this;
+	}
+
+	public PoolSimulationBuilder maxIdle(Integer maxIdle) {
+		this.maxIdle = maxIdle;
+		return this;
+	}
+
+	public PoolSimulationBuilder maxSize(Integer maxSize) {
+		this.maxSize = maxSize;
+		return this;
+	}
+
+	public PoolSimulationBuilder minSize(Integer minSize) {
+		this.minSize = minSize;
+		return this;
+	}
+
+	/**
+	 * Two simulations with the same seed and settings produce the same report.
+	 */
+	public PoolSimulationBuilder seed(Long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * How long a client holds its connection.
+	 */
+	public PoolSimulationBuilder serviceTime(Distribution serviceTime) {
+		this.serviceTime = serviceTime;
+		return this;
+	}
+
+	public PoolSimulationBuilder waitTimeOut(Long waitTimeOut) {
+		this.waitTimeOut = waitTimeOut;
+		return this;
+	}
+}
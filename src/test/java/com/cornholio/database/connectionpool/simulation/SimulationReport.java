@@ -0,0 +1,117 @@
+package com.cornholio.database.connectionpool.simulation;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a pool simulation. Acquire times run from the arrival of a client to the moment its connection is ready, including the time it took
+ * to establish a new connection. Utilisation is the mean number of leased connections over MAX_SIZE.
+ *
+ * @author nikhilagarwal
+ */
+public class SimulationReport {
+
+	private final double acquireP50;
+	private final double acquireP99;
+	private final double acquireP999;
+	private final long acquired;
+	private final long arrivals;
+	private final long connectFailures;
+	private final long created;
+	private final long disposed;
+	private final double meanPoolSize;
+	private final int peakCreationsPerSecond;
+	private final long simulatedMillis;
+	private final long timeouts;
+	private final double utilisation;
+	private final long wallClockMillis;
+
+	SimulationReport(long simulatedMillis, long wallClockMillis, long arrivals, long acquired, long timeouts, long connectFailures, double acquireP50,
+			double acquireP99, double acquireP999, double utilisation, double meanPoolSize, long created, long disposed, int peakCreationsPerSecond) {
+		super();
+		this.simulatedMillis = simulatedMillis;
+		this.wallClockMillis = wallClockMillis;
+		this.arrivals = arrivals;
+		this.acquired = acquired;
+		this.timeouts = timeouts;
+		this.connectFailures = connectFailures;
+		this.acquireP50 = acquireP50;
+		this.acquireP99 = acquireP99;
+		this.acquireP999 = acquireP999;
+		this.utilisation = utilisation;
+		this.meanPoolSize = meanPoolSize;
+		this.created = created;
+		this.disposed = disposed;
+		this.peakCreationsPerSecond = peakCreationsPerSecond;
+	}
+
+	public double getAcquireP50() {
+		return acquireP50;
+	}
+
+	public double getAcquireP99() {
+		return acquireP99;
+	}
+
+	public double getAcquireP999() {
+		return acquireP999;
+	}
+
+	public long getAcquired() {
+		return acquired;
+	}
+
+	public long getArrivals() {
+		return arrivals;
+	}
+
+	public long getConnectFailures() {
+		return connectFailures;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getDisposed() {
+		return disposed;
+	}
+
+	public double getMeanPoolSize() {
+		return meanPoolSize;
+	}
+
+	/**
+	 * @return the most connections established within one second of virtual time: the size of the worst creation storm
+	 */
+	public int getPeakCreationsPerSecond() {
+		return peakCreationsPerSecond;
+	}
+
+	public long getSimulatedMillis() {
+		return simulatedMillis;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public double getUtilisation() {
+		return utilisation;
+	}
+
+	/**
+	 * @return how long the simulation took to run. Not part of toString, so that reports of runs with the same seed are equal
+	 */
+	public long getWallClockMillis() {
+		return wallClockMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"simulated=%dms arrivals=%d acquired=%d timeouts=%d connectFailures=%d acquire p50=%.3fms p99=%.3fms p999=%.3fms "
+						+ "utilisation=%.3f meanPoolSize=%.2f created=%d disposed=%d peakCreationsPerSecond=%d",
+				simulatedMillis, arrivals, acquired, timeouts, connectFailures, acquireP50, acquireP99, acquireP999, utilisation, meanPoolSize, created,
+				disposed, peakCreationsPerSecond);
+	}
+}
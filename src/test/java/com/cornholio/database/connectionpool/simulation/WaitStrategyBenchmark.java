@@ -0,0 +1,133 @@
+package com.cornholio.database.connectionpool.simulation;
+
+import com.cornholio.database.connection.event.LatencyHistogram;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.IdleConnectionQueue;
+import com.cornholio.database.connectionpool.WaitStrategy;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A wall clock benchmark of the wait strategies. Unlike the pool simulation it runs real threads against a real pool, because what it measures is
+ * the cost of the handoff itself: borrower threads borrow from a small pool, hold the connection for a busy lease of a few microseconds and return
+ * it, so that most borrows wait for a connection another thread is about to return. For each load (borrowers per connection) and lease time it
+ * reports the throughput, the acquire times and the processor time the borrower threads spent per borrow, for PARK and SPIN_THEN_PARK.
+ * <p>
+ * Run main with the number of milliseconds per run as the only (optional) argument. The numbers depend on the machine; compare the strategies
+ * on the same one.
+ *
+ * @author nikhilagarwal
+ */
+public class WaitStrategyBenchmark {
+
+	private static final int[] BORROWERS_PER_CONNECTION = { 1, 2, 4 };
+	private static final long[] LEASE_MICROS = { 0L, 20L, 200L };
+	private static final int POOL_SIZE = 4;
+	private static Logger logger;
+	private final LatencyHistogram acquireTimes;
+	private final LongAdder borrows;
+	private final LongAdder cpuNanos;
+	private final long durationMillis;
+	private final long leaseNanos;
+	private final int threads;
+	private final WaitStrategy waitStrategy;
+	private volatile boolean running;
+
+	WaitStrategyBenchmark(WaitStrategy waitStrategy, int threads, long leaseMicros, long durationMillis) {
+		super();
+		this.waitStrategy = waitStrategy;
+		this.threads = threads;
+		this.leaseNanos = TimeUnit.MICROSECONDS.toNanos(leaseMicros);
+		this.durationMillis = durationMillis;
+		this.acquireTimes = new LatencyHistogram();
+		this.borrows = new LongAdder();
+		this.cpuNanos = new LongAdder();
+	}
+
+	public static void main(String[] args) throws Exception {
+		long durationMillis = args.length > 0 ? Long.parseLong(args[0]) : 2000L;
+		for (long leaseMicros : LEASE_MICROS) {
+			for (int borrowersPerConnection : BORROWERS_PER_CONNECTION) {
+				for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+					getLogger().log(Level.INFO, new WaitStrategyBenchmark(waitStrategy, POOL_SIZE * borrowersPerConnection, leaseMicros, durationMillis).run());
+				}
+			}
+		}
+	}
+
+	private static Logger getLogger() {
+		if (logger == null) {
+			logger = Logger.getLogger(WaitStrategyBenchmark.class.getSimpleName());
+		}
+		return logger;
+	}
+
+	private void borrowLoop(ConnectionPoolImpl connectionPool, ThreadMXBean threadMXBean) {
+		long cpuStartNanos = threadMXBean.getCurrentThreadCpuTime();
+		try {
+			while (this.running) {
+				long acquireStartNanos = System.nanoTime();
+				PooledConnectionImpl connection = connectionPool.getConnection();
+				long leaseStartNanos = System.nanoTime();
+				this.acquireTimes.record(leaseStartNanos - acquireStartNanos);
+				while (System.nanoTime() - leaseStartNanos < this.leaseNanos) {
+					// a busy lease, like a short query on a fast network
+				}
+				connection.close();
+				this.borrows.increment();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			this.cpuNanos.add(threadMXBean.getCurrentThreadCpuTime() - cpuStartNanos);
+		}
+	}
+
+	/**
+	 * Runs the borrowers for the duration.
+	 *
+	 * @return a line with the results
+	 */
+	String run() throws Exception {
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) new ConnectionPoolBuilder().connectionTimeOut(0L)
+				.dataSource(new StandInDataSource()).maxIdle(POOL_SIZE).maxSize(POOL_SIZE).minSize(POOL_SIZE).registerMBean(Boolean.FALSE)
+				.timeBetweenPoolMaintenance(0L).waitStrategy(this.waitStrategy).waitTimeOut(10000L).build();
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		CountDownLatch finished = new CountDownLatch(this.threads);
+		this.running = true;
+		for (int i = 0; i < this.threads; i++) {
+			Thread borrower = new Thread(() -> {
+				try {
+					this.borrowLoop(connectionPool, threadMXBean);
+				} finally {
+					finished.countDown();
+				}
+			}, "wait-strategy-benchmark-" + i);
+			borrower.setDaemon(true);
+			borrower.start();
+		}
+		Thread.sleep(this.durationMillis);
+		this.running = false;
+		finished.await();
+		IdleConnectionQueue availableConnections = connectionPool.getAvailableConnections();
+		connectionPool.shutdown();
+		long borrows = this.borrows.sum();
+		return String.format(Locale.ROOT,
+				"%-14s borrowers=%2d lease=%3dus borrows/s=%9.0f acquire p50=%7.1fus p99=%8.1fus cpu/borrow=%6.1fus spinHandoffs=%d parkedWaits=%d",
+				this.waitStrategy, this.threads, TimeUnit.NANOSECONDS.toMicros(this.leaseNanos), borrows * 1000.0 / this.durationMillis,
+				this.acquireTimes.getValueAtPercentile(50.0) / 1000.0, this.acquireTimes.getValueAtPercentile(99.0) / 1000.0,
+				borrows == 0 ? 0.0 : this.cpuNanos.sum() / 1000.0 / borrows, availableConnections.getSpinHandoffCount(),
+				availableConnections.getParkedWaitCount());
+	}
+}
@@ -0,0 +1,49 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Set up shared by the connection pool tests
+ *
+ * @author nikhilagarwal
+ */
+final class PoolTestSupport {
+
+	private static final long WAIT_INTERVAL = 20L;
+	private static final long WAIT_TIME_OUT = 5000L;
+
+	private PoolTestSupport() {
+	}
+
+	/**
+	 * @return a builder with the settings the tests share: time outs long enough not to get in the way, maintenance that does not run during a test
+	 *         and no MBean. The tests set the sizes and whatever else they are about
+	 */
+	static ConnectionPoolBuilder newBuilder(DataSource dataSource) {
+		return new ConnectionPoolBuilder().connectionTimeOut(10000L).dataSource(dataSource).registerMBean(Boolean.FALSE)
+				.timeBetweenPoolMaintenance(10000L).waitTimeOut(1000L);
+	}
+
+	/**
+	 * @return a pool of up to maxSize connections on a new stand-in data source that keeps them all idle and starts with one
+	 */
+	static ConnectionPoolImpl newConnectionPool(int maxSize) throws SQLException {
+		return (ConnectionPoolImpl) newBuilder(new StandInDataSource()).maxIdle(maxSize).maxSize(maxSize).minSize(1).build();
+	}
+
+	/**
+	 * Waits until the condition holds, for five seconds at most. The test asserts the condition afterwards.
+	 */
+	static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_TIME_OUT;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(WAIT_INTERVAL);
+		}
+	}
+}
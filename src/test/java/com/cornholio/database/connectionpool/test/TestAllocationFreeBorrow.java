@@ -0,0 +1,88 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+
+/**
+ * JUnit tests for the allocation free borrow and return cycle
+ *
+ * @author nikhilagarwal
+ */
+public class TestAllocationFreeBorrow {
+
+	/**
+	 * The bytes the measurement itself may allocate, e.g. when a method is recompiled during the measured cycles. Far less than a single 16 byte
+	 * allocation per cycle would add up to
+	 */
+	private static final long ALLOCATION_SLACK = 1024L;
+	private static final int MEASURED_CYCLES = 100000;
+	private static final int WARM_UP_CYCLES = 50000;
+
+	private static void borrowAndReturn(ConnectionPoolImpl connectionPool, int cycles) throws SQLException {
+		for (int i = 0; i < cycles; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			connection.close();
+		}
+	}
+
+	/**
+	 * Borrows and returns a connection in a loop, with lease time outs on. Test is successful if the steady state cycle allocates 0 bytes on the
+	 * borrowing thread.
+	 */
+	@Test
+	public void testBorrowAndReturnDoNotAllocate() throws Exception {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(2);
+		try {
+			borrowAndReturn(connectionPool, WARM_UP_CYCLES);
+
+			long threadId = Thread.currentThread().getId();
+			long before = threadMXBean.getThreadAllocatedBytes(threadId);
+			borrowAndReturn(connectionPool, MEASURED_CYCLES);
+			long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+			Assert.assertTrue("Bytes allocated by " + MEASURED_CYCLES + " borrows and returns: " + allocated, allocated <= ALLOCATION_SLACK);
+			Assert.assertEquals(MEASURED_CYCLES + WARM_UP_CYCLES, connectionPool.getStatistics().getBorrowCount());
+		} finally {
+			connectionPool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns a connection shortly before its lease would have timed out and borrows it again. Test is successful if the deadline of the first lease
+	 * does not time out the second one.
+	 */
+	@Test
+	public void testReturnedLeaseDoesNotTimeOutNextLease() throws Exception {
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).connectionTimeOut(300L)
+				.maxIdle(1).maxSize(1).minSize(1).build();
+		try {
+			PooledConnectionImpl first = connectionPool.getConnection();
+			Thread.sleep(200L);
+			first.close();
+			PooledConnectionImpl second = connectionPool.getConnection();
+			Assert.assertSame(first, second);
+			Thread.sleep(200L);
+			Assert.assertTrue(second.isOpen());
+			Assert.assertEquals(0L, connectionPool.getStatistics().getLeaseTimeOutCount());
+
+			// the second lease still times out on its own deadline
+			Thread.sleep(300L);
+			Assert.assertFalse(second.isOpen());
+			Assert.assertEquals(1L, connectionPool.getStatistics().getLeaseTimeOutCount());
+		} finally {
+			connectionPool.shutdown();
+		}
+	}
+}
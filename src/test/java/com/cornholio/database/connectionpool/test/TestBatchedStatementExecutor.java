@@ -0,0 +1,109 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPool;
+import com.cornholio.database.connectionpool.batch.BatchedStatementExecutor;
+import com.cornholio.database.connectionpool.batch.BatchedStatementExecutorBuilder;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit tests for the batched statement executor
+ *
+ * @author nikhilagarwal
+ */
+public class TestBatchedStatementExecutor {
+
+	private static final String INSERT_SQL = "insert into sample (id) values (?)";
+	private StandInDataSource dataSource;
+	private ConnectionPool connectionPool;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new StandInDataSource();
+		connectionPool = PoolTestSupport.newBuilder(dataSource).maxIdle(5).maxSize(10).minSize(1).build();
+	}
+
+	/**
+	 * Submits rows from several threads. Test is successful if every row completes with its update count and the rows went out in far fewer batches
+	 * than there were rows.
+	 */
+	@Test
+	public void testRowsAreCoalescedAcrossThreads() throws Exception {
+		final BatchedStatementExecutor executor =
+				new BatchedStatementExecutorBuilder().connectionPool(connectionPool).maxBatchSize(50).lingerTime(20L).build();
+		final List<CompletableFuture<Integer>> results = new ArrayList<>();
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 10; t++) {
+			final int offset = t * 100;
+			final Thread thread = new Thread(() -> {
+				for (int i = 0; i < 100; i++) {
+					final CompletableFuture<Integer> result = executor.submit(INSERT_SQL, offset + i);
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		for (final CompletableFuture<Integer> result : results) {
+			Assert.assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+		}
+		executor.close();
+		Assert.assertEquals(1000, results.size());
+		Assert.assertTrue(dataSource.getBatchesExecuted() <= 40);
+	}
+
+	/**
+	 * Submits a batch where one row fails. Test is successful if only that row's future fails and the linger time flushed the partial batch.
+	 */
+	@Test
+	public void testFailedRowOnlyFailsItsOwnFuture() throws Exception {
+		final BatchedStatementExecutor executor =
+				new BatchedStatementExecutorBuilder().connectionPool(connectionPool).maxBatchSize(100).lingerTime(10L).build();
+		dataSource.setFailingParameter(-1);
+		final CompletableFuture<Integer> good = executor.submit(INSERT_SQL, 1);
+		final CompletableFuture<Integer> bad = executor.submit(INSERT_SQL, -1);
+		final CompletableFuture<Integer> alsoGood = executor.submit(INSERT_SQL, 2);
+
+		Assert.assertEquals(Integer.valueOf(1), good.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(Integer.valueOf(1), alsoGood.get(5, TimeUnit.SECONDS));
+		try {
+			bad.get(5, TimeUnit.SECONDS);
+			Assert.fail("Failed row completed normally");
+		} catch (final ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof java.sql.BatchUpdateException);
+		}
+		Assert.assertEquals(1, dataSource.getBatchesExecuted());
+		executor.close();
+	}
+
+	/**
+	 * Test is successful if a linger time or batch size that is not positive is refused when the executor is built.
+	 */
+	@Test
+	public void testInvalidLingerAndBatchSizeAreRefused() throws Exception {
+		final BatchedStatementExecutorBuilder[] builders = { new BatchedStatementExecutorBuilder().connectionPool(connectionPool).lingerTime(-1L),
+				new BatchedStatementExecutorBuilder().connectionPool(connectionPool).lingerTime(0L),
+				new BatchedStatementExecutorBuilder().connectionPool(connectionPool).maxBatchSize(0) };
+		for (final BatchedStatementExecutorBuilder builder : builders) {
+			try {
+				builder.build().close();
+				Assert.fail("Invalid configuration was accepted");
+			} catch (final IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().contains("batched statement executor"));
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.bulkhead.BulkheadExecutor;
+import com.cornholio.database.connectionpool.bulkhead.BulkheadExecutorBuilder;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit tests for the bulkhead executor
+ *
+ * @author nikhilagarwal
+ */
+public class TestBulkheadExecutor {
+
+	/**
+	 * Submits many more tasks than the pool has connections. Test is successful if every task runs with a connection, no more tasks run at once
+	 * than the pool has connections and no caller ever hits the pool's limit.
+	 */
+	@Test
+	public void testConcurrencyFollowsPoolSize() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(3);
+		BulkheadExecutor executor = new BulkheadExecutorBuilder().connectionPool(connectionPool).build();
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+		List<CompletableFuture<Boolean>> results = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			results.add(executor.submit(connection -> {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5L);
+					return connection != null && !connection.isClosed();
+				} catch (InterruptedException | SQLException e) {
+					throw new IllegalStateException(e);
+				} finally {
+					active.decrementAndGet();
+				}
+			}));
+		}
+		for (CompletableFuture<Boolean> result : results) {
+			Assert.assertTrue(result.get(10L, TimeUnit.SECONDS));
+		}
+		Assert.assertTrue("Tasks running at once: " + maxActive.get(), maxActive.get() <= 3);
+		Assert.assertEquals(60L, executor.getCompletedCount());
+		Assert.assertEquals(0, executor.getQueuedCount());
+		Assert.assertEquals(0L, connectionPool.getStatistics().getLimitReachedCount());
+		Assert.assertEquals(60L, executor.getQueueTimes().getCount());
+		Assert.assertEquals(60L, executor.getExecutionTimes().getCount());
+		executor.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Blocks the only connection and submits a task with a short deadline behind it. Test is successful if the queued task fails with a
+	 * TimeoutException without ever running, and the next task runs once the connection is free.
+	 */
+	@Test
+	public void testQueuedTaskExpires() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(1);
+		BulkheadExecutor executor = new BulkheadExecutorBuilder().connectionPool(connectionPool).build();
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> blocker = executor.submit(connection -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return "blocker";
+		});
+		AtomicInteger ran = new AtomicInteger();
+		CompletableFuture<String> expiring = executor.submit(connection -> {
+			ran.incrementAndGet();
+			return "expiring";
+		}, 100L);
+		CompletableFuture<String> waiting = executor.submit(connection -> "waiting");
+		try {
+			expiring.get(5L, TimeUnit.SECONDS);
+			Assert.fail("The task should have expired in the queue");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		Assert.assertEquals(1L, executor.getExpiredCount());
+		Assert.assertEquals(1, executor.getQueuedCount());
+
+		release.countDown();
+		Assert.assertEquals("blocker", blocker.get(5L, TimeUnit.SECONDS));
+		Assert.assertEquals("waiting", waiting.get(5L, TimeUnit.SECONDS));
+		Assert.assertEquals(0, ran.get());
+		executor.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Runs a task that holds its connection past its deadline. Test is successful if the lease times out at the task's deadline instead of the
+	 * pool's connection time out, and the time spent queued is recorded apart from the time spent running.
+	 */
+	@Test
+	public void testDeadlinePropagatesToLease() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(1);
+		BulkheadExecutor executor = new BulkheadExecutorBuilder().connectionPool(connectionPool).build();
+		CompletableFuture<Boolean> result = executor.submit(connection -> {
+			try {
+				Thread.sleep(400L);
+				return !((PooledConnectionImpl) connection).isOpen();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, 150L);
+		Assert.assertTrue(result.get(5L, TimeUnit.SECONDS));
+		Assert.assertEquals(1L, connectionPool.getStatistics().getLeaseTimeOutCount());
+		Assert.assertTrue(executor.getExecutionTimes().getValueAtPercentile(50.0) >= TimeUnit.MILLISECONDS.toNanos(400L));
+		Assert.assertTrue(executor.getQueueTimes().getValueAtPercentile(50.0) < TimeUnit.MILLISECONDS.toNanos(400L));
+		executor.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Lets a running task's lease time out at its deadline while the pool recycles timed out leases, and lends the connection to another borrower.
+	 * Test is successful if the executor leaves that borrower's lease open when the task is done.
+	 */
+	@Test
+	public void testTimedOutTaskLeavesNextLeaseAlone() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(1);
+		BulkheadExecutor executor = new BulkheadExecutorBuilder().connectionPool(connectionPool).build();
+		CountDownLatch lent = new CountDownLatch(1);
+		CompletableFuture<String> result = executor.submit(connection -> {
+			try {
+				lent.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return "late";
+		}, 100L);
+		PooledConnectionImpl next = connectionPool.getConnection();
+		lent.countDown();
+		Assert.assertEquals("late", result.get(5L, TimeUnit.SECONDS));
+		Assert.assertTrue(next.isOpen());
+		next.close();
+		executor.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Submits a task that needs a new connection while connecting is slow. Test is successful if submit returns without waiting for the connect and
+	 * the task runs once the connection is established.
+	 */
+	@Test
+	public void testSubmitDoesNotConnect() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(2).maxSize(2).minSize(1).build();
+		BulkheadExecutor executor = new BulkheadExecutorBuilder().connectionPool(connectionPool).build();
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> blocker = executor.submit(connection -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return "blocker";
+		});
+		dataSource.setConnectLatency(300L);
+		long submitStartNanos = System.nanoTime();
+		CompletableFuture<String> second = executor.submit(connection -> "second");
+		Assert.assertTrue(System.nanoTime() - submitStartNanos < TimeUnit.MILLISECONDS.toNanos(150L));
+		Assert.assertEquals("second", second.get(5L, TimeUnit.SECONDS));
+		Assert.assertEquals(2, dataSource.getConnectionsOpened());
+		release.countDown();
+		Assert.assertEquals("blocker", blocker.get(5L, TimeUnit.SECONDS));
+		executor.close();
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,93 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JUnit tests for the burst tier of the connection pool
+ *
+ * @author nikhilagarwal
+ */
+public class TestBurstTier {
+
+	private static List<PooledConnectionImpl> borrow(ConnectionPoolImpl connectionPool, int count) throws Exception {
+		List<PooledConnectionImpl> connections = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			connections.add(connectionPool.getConnection());
+		}
+		return connections;
+	}
+
+	private static void close(List<PooledConnectionImpl> connections) throws Exception {
+		for (PooledConnectionImpl connection : connections) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Borrows and returns MAX_SIZE connections twice, then lets the pool idle. Test is successful if the connections over MAX_IDLE_SIZE are kept in
+	 * the burst tier and reused without connecting again, and are retired one at a time after the burst idle time out.
+	 */
+	@Test
+	public void testBurstConnectionsReusedThenRetiredGradually() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).burstIdleTimeOut(300L).maxIdle(2).maxSize(5)
+				.minSize(0).build();
+		close(borrow(connectionPool, 5));
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(3, connectionPool.getBurstConnections().size());
+		Assert.assertEquals(5, connectionPool.getTotalConnectionCount().intValue());
+
+		close(borrow(connectionPool, 5));
+		Assert.assertEquals(5, dataSource.getConnectionsOpened());
+		Assert.assertEquals(3, connectionPool.getBurstConnections().size());
+
+		// the burst connections expire together but are retired one per drain interval
+		Set<Integer> burstSizes = new HashSet<>();
+		long deadline = System.currentTimeMillis() + 3000L;
+		while (!connectionPool.getBurstConnections().isEmpty() && System.currentTimeMillis() < deadline) {
+			burstSizes.add(connectionPool.getBurstConnections().size());
+			Thread.sleep(10L);
+		}
+		Assert.assertTrue(connectionPool.getBurstConnections().isEmpty());
+		Assert.assertTrue(burstSizes.contains(2) && burstSizes.contains(1));
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(2, connectionPool.getTotalConnectionCount().intValue());
+		Assert.assertEquals(3, dataSource.getConnectionsClosed());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Returns connections older than the burst linger time, then young ones. Test is successful if the old connections are closed when they come
+	 * back, and the young ones are kept only until they reach the linger time, long before the burst idle time out.
+	 */
+	@Test
+	public void testBurstLingerTime() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).burstIdleTimeOut(10000L).burstLingerTime(200L)
+				.maxIdle(1).maxSize(4).minSize(0).build();
+		List<PooledConnectionImpl> old = borrow(connectionPool, 4);
+		Thread.sleep(300L);
+		close(old);
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		Assert.assertTrue(connectionPool.getBurstConnections().isEmpty());
+		Assert.assertEquals(1, connectionPool.getTotalConnectionCount().intValue());
+
+		// the old connection is idle in the core, the new ones go to the burst tier
+		close(borrow(connectionPool, 3));
+		Assert.assertEquals(6, dataSource.getConnectionsOpened());
+		Assert.assertEquals(2, connectionPool.getBurstConnections().size());
+		PoolTestSupport.waitFor(() -> connectionPool.getBurstConnections().isEmpty());
+		Assert.assertTrue(connectionPool.getBurstConnections().isEmpty());
+		Assert.assertEquals(1, connectionPool.getTotalConnectionCount().intValue());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,121 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionBudget;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for the connection budget shared by several pools
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionBudget {
+
+	private static ConnectionPoolBuilder newBuilder(StandInDataSource dataSource, ConnectionBudget budget) {
+		return PoolTestSupport.newBuilder(dataSource).budget(budget).maxIdle(4).maxSize(4);
+	}
+
+	/**
+	 * Lets one pool take the capacity over the guarantees and then asks for more in another. Test is successful if the pools never hold more
+	 * connections than the budget together, the second pool is denied while the first leases everything, and once the first pool has an idle
+	 * connection it is reclaimed and the waiting borrower of the second pool gets a connection.
+	 */
+	@Test
+	public void testReclaimIdleCapacity() throws Exception {
+		ConnectionBudget budget = new ConnectionBudget(4);
+		StandInDataSource busyDataSource = new StandInDataSource();
+		StandInDataSource quietDataSource = new StandInDataSource();
+		ConnectionPoolImpl busyPool = (ConnectionPoolImpl) newBuilder(busyDataSource, budget).minSize(1).build();
+		ConnectionPoolImpl quietPool = (ConnectionPoolImpl) newBuilder(quietDataSource, budget).minSize(1).build();
+		List<PooledConnectionImpl> connections = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			connections.add(busyPool.getConnection());
+		}
+		Assert.assertNull(busyPool.tryGetConnection());
+		Assert.assertEquals(0, budget.getAvailable());
+		PooledConnectionImpl quietConnection = quietPool.getConnection();
+		Assert.assertNull(quietPool.tryGetConnection());
+		Assert.assertEquals(0L, budget.getReclaimedCount());
+
+		// the busy pool's returned connection goes idle, and is reclaimed for the quiet pool's waiting borrower
+		connections.remove(0).close();
+		PooledConnectionImpl lentConnection = quietPool.getConnection();
+		Assert.assertEquals(1L, budget.getReclaimedCount());
+		Assert.assertEquals(1, busyDataSource.getConnectionsClosed());
+		Assert.assertEquals(2, busyPool.getBudgetShare().getUsed());
+		Assert.assertEquals(2, quietPool.getBudgetShare().getUsed());
+		Assert.assertEquals(4, busyDataSource.getConnectionsOpened() - busyDataSource.getConnectionsClosed() + quietDataSource.getConnectionsOpened());
+
+		quietConnection.close();
+		lentConnection.close();
+		for (PooledConnectionImpl connection : connections) {
+			connection.close();
+		}
+		busyPool.shutdown();
+		quietPool.shutdown();
+		Assert.assertTrue(budget.getShares().isEmpty());
+	}
+
+	/**
+	 * Gives one pool a guarantee it does not use. Test is successful if another pool cannot borrow the guaranteed capacity, the pool with the
+	 * guarantee can, and guarantees over the budget are refused.
+	 */
+	@Test
+	public void testGuaranteeIsHeld() throws Exception {
+		ConnectionBudget budget = new ConnectionBudget(3);
+		ConnectionPoolImpl guaranteedPool =
+				(ConnectionPoolImpl) newBuilder(new StandInDataSource(), budget).budgetGuarantee(2).minSize(0).build();
+		ConnectionPoolImpl otherPool = (ConnectionPoolImpl) newBuilder(new StandInDataSource(), budget).budgetGuarantee(0).minSize(0).build();
+		Assert.assertNotNull(otherPool.tryGetConnection());
+		Assert.assertNull(otherPool.tryGetConnection());
+		Assert.assertEquals(1L, otherPool.getBudgetShare().getDeniedCount());
+		Assert.assertNotNull(guaranteedPool.getConnection());
+		Assert.assertNotNull(guaranteedPool.getConnection());
+		Assert.assertNull(guaranteedPool.tryGetConnection());
+		try {
+			newBuilder(new StandInDataSource(), budget).budgetGuarantee(2).minSize(0).build();
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals(2, budget.getShares().size());
+		}
+		guaranteedPool.shutdown();
+		otherPool.shutdown();
+	}
+
+	/**
+	 * Lets a borrower of one pool time out while the budget is used up by the leases of another, and then gives capacity back. Test is successful
+	 * if the pool of the borrower that timed out does not establish a connection nobody waits for.
+	 */
+	@Test
+	public void testTimedOutWaiterIsNotGrownFor() throws Exception {
+		ConnectionBudget budget = new ConnectionBudget(2);
+		StandInDataSource quietDataSource = new StandInDataSource();
+		ConnectionPoolImpl busyPool = (ConnectionPoolImpl) newBuilder(new StandInDataSource(), budget).minSize(0).build();
+		ConnectionPoolImpl quietPool = (ConnectionPoolImpl) newBuilder(quietDataSource, budget).minSize(0).waitTimeOut(200L).build();
+		PooledConnectionImpl first = busyPool.getConnection();
+		PooledConnectionImpl second = busyPool.getConnection();
+		try {
+			quietPool.getConnection();
+			Assert.fail();
+		} catch (SQLException e) {
+			Assert.assertEquals(1L, quietPool.getBudgetShare().getDeniedCount());
+		}
+
+		// the busy pool's idle connection is disposed when it shuts down, which gives its capacity back
+		first.close();
+		busyPool.shutdown();
+		Thread.sleep(200L);
+		Assert.assertEquals(0, quietDataSource.getConnectionsOpened());
+		Assert.assertEquals(0, quietPool.getBudgetShare().getUsed());
+		second.close();
+		quietPool.shutdown();
+	}
+}
@@ -0,0 +1,120 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit tests for the throttling of connection creation
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionCreationLimiter {
+
+	/**
+	 * Sends ten borrowers at a cold pool at once. Test is successful if every borrower gets a connection, no more than the maximum concurrent
+	 * creations connect at the same time, no more than the burst connect right away, and the throttled creations are measured.
+	 */
+	@Test
+	public void testColdStartIsThrottled() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		dataSource.setConnectLatency(20L);
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).creationBurst(2).creationRate(20D)
+				.maxConcurrentCreations(2).maxIdle(10).maxSize(10).minSize(0).waitTimeOut(5000L).build();
+		ExecutorService executor = Executors.newFixedThreadPool(10);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> borrows = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			borrows.add(executor.submit(() -> {
+				start.await();
+				PooledConnectionImpl connection = connectionPool.getConnection();
+				Thread.sleep(200L);
+				connection.close();
+				return Boolean.TRUE;
+			}));
+		}
+		start.countDown();
+		for (Future<Boolean> borrow : borrows) {
+			Assert.assertTrue(borrow.get(10, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		Assert.assertTrue(dataSource.getMaxConnectsInFlight() <= 2);
+		Assert.assertTrue(connectionPool.getCreationLimiter().getThrottledCount() > 0);
+		Assert.assertTrue(connectionPool.getCreationLimiter().getThrottleTimes().getCount() > 0);
+		Assert.assertTrue(connectionPool.getCreationLimiter().getThrottleTimes().getValueAtPercentile(99) >= TimeUnit.MILLISECONDS.toNanos(10));
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Borrows while the creation rate is spent and returns a connection soon after. Test is successful if the waiting borrower is served with the
+	 * returned connection instead of waiting for the creation rate, and tryGetConnection does not wait at all.
+	 */
+	@Test
+	public void testWaiterTakesFirstAvailableConnection() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).creationRate(0.2D).maxIdle(3).maxSize(3)
+				.minSize(0).waitTimeOut(3000L).build();
+		PooledConnectionImpl first = connectionPool.getConnection();
+		Assert.assertNull(connectionPool.tryGetConnection());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		long borrowStartNanos = System.nanoTime();
+		Future<PooledConnectionImpl> waiter = executor.submit(() -> connectionPool.getConnection());
+		Thread.sleep(100L);
+		first.close();
+		Assert.assertSame(first, waiter.get(2, TimeUnit.SECONDS));
+		Assert.assertTrue(System.nanoTime() - borrowStartNanos < TimeUnit.SECONDS.toNanos(1));
+		Assert.assertEquals(1, dataSource.getConnectionsOpened());
+		executor.shutdown();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Runs the pool maintenance while the only concurrent creation is taken by a background connect that fails after a while. Test is successful
+	 * if the maintenance returns right away instead of waiting for the creation limiter, the failed connect gives its slot back, and the
+	 * maintenance's deferred creation restores MIN_SIZE once the data source is back.
+	 */
+	@Test
+	public void testMaintenanceDoesNotWaitForLimiter() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxConcurrentCreations(1).maxIdle(3)
+				.maxSize(3).minSize(1).build();
+		PooledConnectionImpl leased = connectionPool.getConnection();
+		dataSource.setConnectLatency(300L);
+		dataSource.setFailConnect(true);
+		Assert.assertNull(connectionPool.tryGetIdleConnection());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		long maintainStartNanos = System.nanoTime();
+		executor.submit(() -> {
+			connectionPool.maintain();
+			return null;
+		}).get(2, TimeUnit.SECONDS);
+		Assert.assertTrue(System.nanoTime() - maintainStartNanos < TimeUnit.MILLISECONDS.toNanos(200));
+		Assert.assertEquals(Integer.valueOf(3), connectionPool.getTotalConnectionCount());
+
+		// the failed connect gives its slot back, and the maintenance's creation, started once the limiter let it, connects
+		PoolTestSupport.waitFor(() -> connectionPool.getTotalConnectionCount() <= 2);
+		dataSource.setFailConnect(false);
+		Assert.assertSame(leased, executor.submit(() -> {
+			leased.close();
+			return connectionPool.getConnection();
+		}).get(2, TimeUnit.SECONDS));
+		PoolTestSupport.waitFor(() -> !connectionPool.getAvailableConnections().isEmpty());
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(Integer.valueOf(2), connectionPool.getTotalConnectionCount());
+		Assert.assertEquals(2, dataSource.getConnectionsOpened());
+		executor.shutdown();
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,80 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * JUnit tests for the connection init pipeline
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionInitializer {
+
+	/**
+	 * Builds a pool with init sql and warm statements. Test is successful if every new connection ran the init sql in one batch and prepared the
+	 * warm statements before it was handed out, and the init time is recorded apart from the connect time.
+	 */
+	@Test
+	public void testNewConnectionsAreInitialized() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource)
+				.initSql(Arrays.asList("SET TIME ZONE 'UTC'", "SET search_path TO app")).maxIdle(3).maxSize(3).minSize(2)
+				.warmStatements(Arrays.asList("select * from account where id = ?", "update account set balance = ? where id = ?")).build();
+		Assert.assertEquals(2, dataSource.getConnectionsOpened());
+		Assert.assertEquals(2, dataSource.getBatchesExecuted());
+		Assert.assertEquals(4, dataSource.getStatementsPrepared());
+		Assert.assertEquals(2L, connectionPool.getStatistics().getConnectTimes().getCount());
+		Assert.assertEquals(2L, connectionPool.getStatistics().getInitTimes().getCount());
+
+		// a connection created on demand is initialized before the borrower gets it
+		PooledConnectionImpl first = connectionPool.getConnection();
+		PooledConnectionImpl second = connectionPool.getConnection();
+		PooledConnectionImpl third = connectionPool.getConnection();
+		Assert.assertEquals(3, dataSource.getConnectionsOpened());
+		Assert.assertEquals(3, dataSource.getBatchesExecuted());
+		Assert.assertEquals(6, dataSource.getStatementsPrepared());
+		Assert.assertEquals(3L, connectionPool.getStatistics().getInitTimes().getCount());
+		first.close();
+		second.close();
+		third.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Prepares some statements more often than others. Test is successful if the most prepared statement is learned and a connection created
+	 * later is warmed up with it.
+	 */
+	@Test
+	public void testLearnedStatementsWarmNewConnections() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).learnedWarmStatements(1).maxIdle(2).maxSize(2)
+				.minSize(1).build();
+		Assert.assertTrue(connectionPool.getConnectionInitializer().getWarmStatements().isEmpty());
+
+		PooledConnectionImpl connection = connectionPool.getConnection();
+		for (int i = 0; i < 3; i++) {
+			connection.prepareStatement("select * from orders where customer_id = ?").close();
+		}
+		connection.prepareStatement("select * from audit").close();
+		Assert.assertEquals(Collections.singletonList("select * from orders where customer_id = ?"),
+				connectionPool.getConnectionInitializer().getWarmStatements());
+		Assert.assertEquals(4, dataSource.getStatementsPrepared());
+
+		PooledConnectionImpl another = connectionPool.getConnection();
+		Assert.assertEquals(2, dataSource.getConnectionsOpened());
+		Assert.assertEquals(5, dataSource.getStatementsPrepared());
+
+		// warming up does not count as a prepare by the application
+		Assert.assertEquals(Collections.singletonList("select * from orders where customer_id = ?"),
+				connectionPool.getConnectionInitializer().getWarmStatements());
+		connection.close();
+		another.close();
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,208 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.flow.ConnectionLease;
+import com.cornholio.database.connectionpool.flow.ConnectionLeasePublisher;
+import com.cornholio.database.connectionpool.flow.Flow;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JUnit tests for the connection lease publisher
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionLeasePublisher {
+
+	/**
+	 * Requests more leases than the pool has connections. Test is successful if leases are emitted only while connections are free, a new connection
+	 * is established without blocking the request and the next lease is emitted as soon as a lease is released.
+	 */
+	@Test
+	public void testLeasesFollowReleases() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(2).maxSize(2).minSize(1).build();
+		dataSource.setConnectLatency(200L);
+		List<ConnectionLease> leases = new CopyOnWriteArrayList<>();
+		new ConnectionLeasePublisher(connectionPool).subscribe(new Flow.Subscriber<ConnectionLease>() {
+			@Override
+			public void onComplete() {
+				Assert.fail("The publisher never completes");
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				Assert.fail(throwable.toString());
+			}
+
+			@Override
+			public void onNext(ConnectionLease item) {
+				leases.add(item);
+			}
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(4);
+			}
+		});
+
+		// the second connection is still being established on the connection creator
+		Assert.assertEquals(1, leases.size());
+		PoolTestSupport.waitFor(() -> leases.size() >= 2);
+		Assert.assertEquals(2, leases.size());
+
+		leases.get(0).release();
+		Assert.assertEquals(3, leases.size());
+		leases.get(1).release();
+		Assert.assertEquals(4, leases.size());
+
+		// all four requested leases were emitted: released connections stay in the pool
+		leases.get(2).release();
+		leases.get(3).release();
+		leases.get(3).release();
+		Assert.assertEquals(4, leases.size());
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Runs a pipeline of work items on a thread pool much larger than the connection pool, requesting one lease per finished item. Test is
+	 * successful if every item is processed, no more items run at once than there are connections and no worker waits in getConnection.
+	 */
+	@Test
+	public void testPipelineIsRateLimitedByPool() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(3);
+		ExecutorService workers = Executors.newFixedThreadPool(16);
+		int items = 60;
+		CountDownLatch processed = new CountDownLatch(items);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		new ConnectionLeasePublisher(connectionPool).subscribe(new Flow.Subscriber<ConnectionLease>() {
+			private final AtomicInteger emitted = new AtomicInteger();
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onComplete() {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				Assert.fail(throwable.toString());
+			}
+
+			@Override
+			public void onNext(ConnectionLease lease) {
+				if (this.emitted.incrementAndGet() == items) {
+					this.subscription.cancel();
+				}
+				workers.execute(() -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						lease.getConnection().createStatement().executeUpdate("update items set done = 1");
+						Thread.sleep(2L);
+						running.decrementAndGet();
+						lease.release();
+					} catch (SQLException | InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					processed.countDown();
+					this.subscription.request(1);
+				});
+			}
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(3);
+			}
+		});
+		Assert.assertTrue(processed.await(10, TimeUnit.SECONDS));
+		workers.shutdown();
+		Assert.assertTrue(maxRunning.get() <= 3);
+		Assert.assertEquals(0L, connectionPool.getStatistics().getLimitReachedCount());
+		Assert.assertEquals((long) items, connectionPool.getStatistics().getBorrowCount());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Requests 0 leases. Test is successful if the subscription ends with an error, as the reactive streams rules demand.
+	 */
+	@Test
+	public void testInvalidRequestFails() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(2);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		new ConnectionLeasePublisher(connectionPool).subscribe(new Flow.Subscriber<ConnectionLease>() {
+			@Override
+			public void onComplete() {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				error.set(throwable);
+			}
+
+			@Override
+			public void onNext(ConnectionLease item) {
+				Assert.fail("Nothing was requested");
+			}
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(0);
+			}
+		});
+		Assert.assertTrue(error.get() instanceof IllegalArgumentException);
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Ends a lease behind the publisher's back and lets the connection be borrowed again before the lease is released. Test is successful if the
+	 * stale release leaves the next borrower's lease open.
+	 */
+	@Test
+	public void testStaleReleaseKeepsNextLease() throws Exception {
+		ConnectionPoolImpl connectionPool = PoolTestSupport.newConnectionPool(1);
+		AtomicReference<ConnectionLease> lease = new AtomicReference<>();
+		new ConnectionLeasePublisher(connectionPool).subscribe(new Flow.Subscriber<ConnectionLease>() {
+			@Override
+			public void onComplete() {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				Assert.fail(throwable.toString());
+			}
+
+			@Override
+			public void onNext(ConnectionLease item) {
+				lease.set(item);
+			}
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(1);
+			}
+		});
+		lease.get().getConnection().close();
+		Connection next = connectionPool.getConnection();
+		Assert.assertSame(lease.get().getConnection(), next);
+
+		lease.get().release();
+		Assert.assertTrue(lease.get().isReleased());
+		Assert.assertFalse(next.isClosed());
+		next.close();
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,150 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.event.LatencyHistogram;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * JUnit tests for the connection pool MBean
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionPoolManagement {
+
+	private static final String[] NO_SIGNATURE = new String[0];
+	private static final Object[] NO_PARAMETERS = new Object[0];
+	private ConnectionPoolImpl connectionPool;
+	private StandInDataSource dataSource;
+	private MBeanServer mbeanServer;
+	private ObjectName name;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new StandInDataSource();
+		connectionPool =
+				(ConnectionPoolImpl) new ConnectionPoolBuilder().connectionTimeOut(10000L).dataSource(dataSource).maxIdle(3).maxSize(4).minSize(2)
+						.name("management-test").recordBorrowSite(Boolean.TRUE).timeBetweenPoolMaintenance(10000L).waitTimeOut(100L).build();
+		mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		name = new ObjectName("com.cornholio.database.connectionpool:type=ConnectionPool,name=\"management-test\"");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Borrows and returns connections. Test is successful if the MBean attributes follow the pool.
+	 */
+	@Test
+	public void testAttributes() throws Exception {
+		Assert.assertEquals(name, connectionPool.getMBeanName());
+		Assert.assertEquals(2, mbeanServer.getAttribute(name, "TotalConnections"));
+		Assert.assertEquals(2, mbeanServer.getAttribute(name, "IdleConnections"));
+
+		final Connection first = connectionPool.getConnection();
+		final Connection second = connectionPool.getConnection();
+		final Connection third = connectionPool.getConnection();
+		Assert.assertEquals(3, mbeanServer.getAttribute(name, "ActiveConnections"));
+		Assert.assertEquals(3L, mbeanServer.getAttribute(name, "BorrowCount"));
+		Assert.assertEquals(3L, mbeanServer.getAttribute(name, "CreateCount"));
+
+		final String[] leases = (String[]) mbeanServer.invoke(name, "dumpLeases", NO_PARAMETERS, NO_SIGNATURE);
+		Assert.assertEquals(3, leases.length);
+		Assert.assertTrue(leases[0].contains("TestConnectionPoolManagement.testAttributes"));
+
+		first.close();
+		second.close();
+		third.close();
+		Assert.assertEquals(0, mbeanServer.getAttribute(name, "ActiveConnections"));
+		Assert.assertTrue((Double) mbeanServer.getAttribute(name, "LeaseTime99thPercentile") >= 0.0);
+
+		dataSource.setFailConnect(true);
+		connectionPool.getConnection();
+		connectionPool.getConnection();
+		connectionPool.getConnection();
+		try {
+			connectionPool.getConnection();
+			Assert.fail("Connection failure not thrown");
+		} catch (final SQLException e) {
+			Assert.assertEquals(1L, mbeanServer.getAttribute(name, "CreateFailedCount"));
+		}
+	}
+
+	/**
+	 * Test is successful if the operations resize the pool, evict idle connections and run maintenance.
+	 */
+	@Test
+	public void testOperations() throws Exception {
+		mbeanServer.invoke(name, "resize", new Object[] { 1, 5, 6 }, new String[] { "int", "int", "int" });
+		Assert.assertEquals(6, mbeanServer.getAttribute(name, "MaxSize"));
+		Assert.assertEquals(6, connectionPool.getConfiguration().getMaxSize());
+
+		Assert.assertEquals(2, mbeanServer.invoke(name, "evictIdleConnections", NO_PARAMETERS, NO_SIGNATURE));
+		Assert.assertEquals(2, dataSource.getConnectionsClosed());
+
+		mbeanServer.invoke(name, "maintain", NO_PARAMETERS, NO_SIGNATURE);
+		Assert.assertEquals(1L, mbeanServer.getAttribute(name, "MaintenanceCount"));
+		Assert.assertTrue(connectionPool.getTotalConnectionCount() >= 1);
+	}
+
+	/**
+	 * Suspends borrowing. Test is successful if a borrow times out while suspended and a blocked borrow goes through once borrowing is resumed.
+	 */
+	@Test
+	public void testSuspendAndResume() throws Exception {
+		mbeanServer.invoke(name, "suspend", NO_PARAMETERS, NO_SIGNATURE);
+		Assert.assertEquals(Boolean.TRUE, mbeanServer.getAttribute(name, "Suspended"));
+		try {
+			connectionPool.getConnection();
+			Assert.fail("Connection pool suspended exception not thrown");
+		} catch (final SQLException e) {
+			Assert.assertEquals("Connection pool suspended", e.getMessage());
+		}
+
+		connectionPool.reconfigure(new ConnectionPoolBuilder().configuration(connectionPool.getConfiguration()).waitTimeOut(5000L).buildConfiguration());
+		final Connection[] borrowed = new Connection[1];
+		final Thread borrower = new Thread(() -> {
+			try {
+				borrowed[0] = connectionPool.getConnection();
+			} catch (final SQLException e) {
+				// the assertion below fails
+			}
+		});
+		borrower.start();
+		Thread.sleep(100L);
+		Assert.assertNull(borrowed[0]);
+		mbeanServer.invoke(name, "resume", NO_PARAMETERS, NO_SIGNATURE);
+		borrower.join(5000L);
+		Assert.assertNotNull(borrowed[0]);
+		borrowed[0].close();
+	}
+
+	/**
+	 * Test is successful if percentiles are within the histogram's precision.
+	 */
+	@Test
+	public void testLatencyHistogram() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		Assert.assertEquals(1000L, histogram.getCount());
+		final long median = histogram.getValueAtPercentile(50.0);
+		Assert.assertTrue(median >= 500000L && median <= 500000L * 1125L / 1000L);
+		final long p99 = histogram.getValueAtPercentile(99.0);
+		Assert.assertTrue(p99 >= 990000L && p99 <= 990000L * 1125L / 1000L);
+		Assert.assertEquals(0L, new LatencyHistogram().getValueAtPercentile(99.0));
+	}
+}
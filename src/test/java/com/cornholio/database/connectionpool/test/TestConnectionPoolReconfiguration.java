@@ -0,0 +1,96 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolProperties;
+import com.cornholio.database.connectionpool.ConnectionPoolPropertiesWatcher;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for reconfiguring a running connection pool
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionPoolReconfiguration {
+
+	private StandInDataSource dataSource;
+	private ConnectionPoolImpl connectionPool;
+
+	private static void writeProperties(File file, int maxIdle, int maxSize, int minSize) throws IOException {
+		try (Writer writer = new FileWriter(file)) {
+			writer.write("CONNECTION_TIME_OUT=10000\nMAX_IDLE_SIZE=" + maxIdle + "\nMAX_SIZE=" + maxSize + "\nMIN_SIZE=" + minSize
+					+ "\nTIME_BETWEEN_POOL_MAINTENANCE=10000\nWAIT_TIME_OUT=1000\n");
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new StandInDataSource();
+		connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(5).maxSize(10).minSize(1).build();
+	}
+
+	/**
+	 * Raises MIN_SIZE and MAX_IDLE_SIZE. Test is successful if the pool fills up to the new MIN_SIZE in the background.
+	 */
+	@Test
+	public void testGrowFillsToNewMinSize() throws Exception {
+		connectionPool.reconfigure(new ConnectionPoolBuilder().configuration(connectionPool.getConfiguration()).maxIdle(8).maxSize(12).minSize(6)
+				.buildConfiguration());
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() == 6);
+		Assert.assertEquals(6, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(Integer.valueOf(6), connectionPool.getTotalConnectionCount());
+	}
+
+	/**
+	 * Leases every connection, lowers MAX_SIZE and MAX_IDLE_SIZE and returns the leases. Test is successful if the leases stayed usable while the
+	 * pool was shrunk and the pool ends up within its new limits.
+	 */
+	@Test
+	public void testShrinkLeavesLeasesAloneAndDrains() throws Exception {
+		final List<Connection> leases = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			leases.add(connectionPool.getConnection());
+		}
+		connectionPool.reconfigure(new ConnectionPoolBuilder().configuration(connectionPool.getConfiguration()).maxIdle(2).maxSize(3).minSize(1)
+				.buildConfiguration());
+		for (final Connection lease : leases) {
+			Assert.assertFalse(lease.isClosed());
+			lease.close();
+		}
+		PoolTestSupport.waitFor(() -> connectionPool.getTotalConnectionCount() <= 2);
+		Assert.assertTrue(connectionPool.getAvailableConnections().size() <= 2);
+		Assert.assertTrue(connectionPool.getTotalConnectionCount() <= 3);
+		Assert.assertEquals(dataSource.getConnectionsOpened() - dataSource.getConnectionsClosed(), connectionPool.getTotalConnectionCount()
+				.intValue());
+	}
+
+	/**
+	 * Lets the watcher pick up a changed properties file. Test is successful if the pool runs with the new MAX_SIZE afterwards.
+	 */
+	@Test
+	public void testWatcherReconfiguresPool() throws Exception {
+		final File file = File.createTempFile("connection-pool", ".properties");
+		file.deleteOnExit();
+		writeProperties(file, 5, 10, 1);
+		final ConnectionPoolPropertiesWatcher watcher = new ConnectionPoolPropertiesWatcher(connectionPool, new ConnectionPoolProperties(file));
+		watcher.start();
+		try {
+			writeProperties(file, 5, 20, 1);
+			PoolTestSupport.waitFor(() -> connectionPool.getConfiguration().getMaxSize() == 20);
+			Assert.assertEquals(20, connectionPool.getConfiguration().getMaxSize());
+		} finally {
+			watcher.close();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JUnit tests for scoped connection binding
+ *
+ * @author nikhilagarwal
+ */
+public class TestConnectionScope {
+
+	private static ConnectionPoolImpl newConnectionPool(StandInDataSource dataSource) throws SQLException {
+		return (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(2).maxSize(2).minSize(2).build();
+	}
+
+	/**
+	 * A data access call as layered code would write it: borrow, update, close.
+	 */
+	private static void update(ConnectionPoolImpl connectionPool, String sql) throws SQLException {
+		try (Connection connection = connectionPool.getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate(sql);
+		}
+	}
+
+	/**
+	 * Runs nested data access calls inside one scope, in one transaction. Test is successful if all calls share one borrowed connection, the
+	 * transaction spans them and the connection goes back to the pool when the scope ends.
+	 */
+	@Test
+	public void testNestedCallsShareOneLease() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = newConnectionPool(dataSource);
+		PooledConnectionImpl used = connectionPool.inScope(() -> {
+			PooledConnectionImpl outer = connectionPool.getConnection();
+			outer.setAutoCommit(false);
+			update(connectionPool, "insert into orders values (1)");
+			connectionPool.inScope(() -> {
+				update(connectionPool, "insert into order_lines values (1, 1)");
+				return null;
+			});
+			Assert.assertSame(outer, connectionPool.getConnection());
+			Assert.assertFalse(outer.isClosed());
+			outer.commit();
+			outer.setAutoCommit(true);
+			outer.close();
+			Assert.assertTrue(outer.isOpen());
+			return outer;
+		});
+		Assert.assertFalse(connectionPool.isInScope());
+		Assert.assertTrue(used.isClosed());
+		Assert.assertEquals(1L, connectionPool.getStatistics().getBorrowCount());
+		Assert.assertEquals(1, dataSource.getCommits());
+		Assert.assertEquals(2, dataSource.getStatementsExecuted());
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+
+		// outside of a scope every call is a borrow of its own
+		update(connectionPool, "delete from orders");
+		Assert.assertEquals(2L, connectionPool.getStatistics().getBorrowCount());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Fails inside a scope. Test is successful if the connection is still returned, and a scope that never asks for a connection borrows none.
+	 */
+	@Test
+	public void testScopeReleasesOnFailure() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(new StandInDataSource());
+		try {
+			connectionPool.inScope(() -> {
+				connectionPool.getConnection();
+				throw new SQLException("Operation failed");
+			});
+			Assert.fail("Exception was swallowed by the scope");
+		} catch (SQLException e) {
+			Assert.assertEquals("Operation failed", e.getMessage());
+		}
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+
+		Assert.assertEquals("done", connectionPool.inScope(() -> "done"));
+		Assert.assertEquals(1L, connectionPool.getStatistics().getBorrowCount());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Lets the lease of a scope time out and the connection go to another borrower. Test is successful if the scope refuses to hand the connection
+	 * out again, ending the scope leaves the other borrower's lease open, and a nested call for another session context fails.
+	 */
+	@Test
+	public void testScopeLetsGoOfATimedOutLease() throws Exception {
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).connectionTimeOut(100L)
+				.maxIdle(1).maxSize(1).minSize(1).waitTimeOut(2000L).build();
+		PooledConnectionImpl[] other = new PooledConnectionImpl[1];
+		try {
+			connectionPool.inScope(() -> {
+				PooledConnectionImpl scoped = connectionPool.getConnection();
+				other[0] = CompletableFuture.supplyAsync(() -> {
+					try {
+						return connectionPool.getConnection();
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					}
+				}).join();
+				Assert.assertSame(scoped, other[0]);
+				return connectionPool.getConnection();
+			});
+			Assert.fail("Scope handed out a connection leased to another borrower");
+		} catch (SQLException e) {
+			Assert.assertTrue(other[0].isOpen());
+		}
+		other[0].close();
+
+		connectionPool.inScope(() -> {
+			connectionPool.getConnection("acme");
+			try {
+				connectionPool.getConnection("globex");
+				Assert.fail("Scope served a second session context");
+			} catch (SQLException e) {
+				Assert.assertSame(connectionPool.getConnection("acme"), connectionPool.getConnection());
+			}
+			return null;
+		});
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+}
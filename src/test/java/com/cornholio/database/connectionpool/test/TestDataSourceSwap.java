@@ -0,0 +1,94 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.DrainPolicy;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit tests for swapping the data source of a running pool
+ *
+ * @author nikhilagarwal
+ */
+public class TestDataSourceSwap {
+
+	private static ConnectionPoolBuilder newBuilder(StandInDataSource dataSource) {
+		return PoolTestSupport.newBuilder(dataSource).maxIdle(3).maxSize(4).minSize(3);
+	}
+
+	private static void awaitNoStaleIdleConnections(ConnectionPoolImpl connectionPool) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 3000L;
+		boolean stale = true;
+		while (stale && System.currentTimeMillis() < deadline) {
+			stale = false;
+			for (PooledConnectionImpl connection : connectionPool.getAvailableConnections()) {
+				stale |= connection.getGeneration() < connectionPool.getDataSourceGeneration();
+			}
+			Thread.sleep(10L);
+		}
+	}
+
+	/**
+	 * Swaps the data source gradually while a connection is leased. Test is successful if every idle connection is replaced by one on the new data
+	 * source without the idle count dropping, the leased connection keeps working until it is returned and is only then disposed and replaced to
+	 * keep MIN_SIZE, and borrowing during the swap never connects.
+	 */
+	@Test
+	public void testGradualSwap() throws Exception {
+		StandInDataSource oldDataSource = new StandInDataSource();
+		StandInDataSource newDataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(oldDataSource).build();
+		PooledConnectionImpl leased = connectionPool.getConnection();
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+
+		// replacements take a while to connect, the idle connections keep serving meanwhile
+		newDataSource.setConnectLatency(50L);
+		connectionPool.swapDataSource(newDataSource, DrainPolicy.GRADUAL);
+		Assert.assertEquals(1, connectionPool.getDataSourceGeneration());
+		for (int i = 0; i < 5; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			Assert.assertTrue(connectionPool.getAvailableConnections().size() >= 1);
+			connection.close();
+		}
+		Assert.assertEquals(3, oldDataSource.getConnectionsOpened());
+
+		awaitNoStaleIdleConnections(connectionPool);
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(2, newDataSource.getConnectionsOpened());
+		Assert.assertEquals(2, oldDataSource.getConnectionsClosed());
+
+		// the lease is undisturbed until it is returned
+		leased.createStatement().close();
+		Assert.assertEquals(0, leased.getGeneration());
+		leased.close();
+		Assert.assertEquals(3, oldDataSource.getConnectionsClosed());
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() >= 3);
+		Assert.assertEquals(3, connectionPool.getTotalConnectionCount().intValue());
+		Assert.assertEquals(3, newDataSource.getConnectionsOpened());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Swaps the data source immediately. Test is successful if the idle connections are disposed right away, MIN_SIZE is re-established on the new
+	 * data source, and the leased connection is disposed only when it is returned.
+	 */
+	@Test
+	public void testImmediateSwap() throws Exception {
+		StandInDataSource oldDataSource = new StandInDataSource();
+		StandInDataSource newDataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(oldDataSource).build();
+		PooledConnectionImpl leased = connectionPool.getConnection();
+		connectionPool.swapDataSource(newDataSource, DrainPolicy.IMMEDIATE);
+		Assert.assertEquals(2, oldDataSource.getConnectionsClosed());
+
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() >= 3);
+		Assert.assertEquals(3, newDataSource.getConnectionsOpened());
+		Assert.assertEquals(1, connectionPool.getConnection().getGeneration());
+		leased.close();
+		Assert.assertEquals(3, oldDataSource.getConnectionsClosed());
+		connectionPool.shutdown();
+	}
+}
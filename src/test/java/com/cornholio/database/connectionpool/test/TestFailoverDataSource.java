@@ -0,0 +1,133 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.failover.FailoverDataSource;
+import com.cornholio.database.connectionpool.failover.FailoverDataSourceBuilder;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for the failover data source
+ *
+ * @author nikhilagarwal
+ */
+public class TestFailoverDataSource {
+
+	private static ConnectionPoolBuilder newBuilder(FailoverDataSource dataSource) {
+		return PoolTestSupport.newBuilder(dataSource).maxIdle(4).maxSize(4);
+	}
+
+	/**
+	 * Fails the preferred endpoint while one of its connections is leased and one is idle. Test is successful if no caller sees an error, the data
+	 * source fails over to the backup after the failed attempts, and the pool drains the connections on the failed endpoint: the idle one right
+	 * away, the leased one when it is returned, and MIN_SIZE is restored on the backup.
+	 */
+	@Test
+	public void testFailoverDrainsFailedEndpoint() throws Exception {
+		StandInDataSource primary = new StandInDataSource();
+		StandInDataSource backup = new StandInDataSource();
+		FailoverDataSource dataSource = new FailoverDataSourceBuilder().endpoint("primary", primary).endpoint("backup", backup).build();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).minSize(2).build();
+		Assert.assertEquals(2, primary.getConnectionsOpened());
+		PooledConnectionImpl leased = connectionPool.getConnection();
+		Assert.assertEquals("primary", leased.getHost());
+
+		primary.setFailConnect(true);
+		dataSource.getConnection().close();
+		Assert.assertFalse(dataSource.getEndpoints().get(0).isFailed());
+		Assert.assertEquals("primary", dataSource.getActiveEndpoint().getName());
+
+		// the second failed attempt fails the endpoint over, and the idle primary connection is drained
+		dataSource.getConnection().close();
+		Assert.assertTrue(dataSource.getEndpoints().get(0).isFailed());
+		Assert.assertEquals("backup", dataSource.getActiveEndpoint().getName());
+		Assert.assertEquals(1L, dataSource.getFailovers());
+		Assert.assertEquals(1, primary.getConnectionsClosed());
+		leased.close();
+		Assert.assertEquals(2, primary.getConnectionsClosed());
+
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() >= 2);
+		Assert.assertEquals(2, connectionPool.getTotalConnectionCount().intValue());
+		for (PooledConnectionImpl connection : connectionPool.getAvailableConnections()) {
+			Assert.assertEquals("backup", connection.getHost());
+		}
+		connectionPool.shutdown();
+		dataSource.close();
+	}
+
+	/**
+	 * Fails the preferred endpoint over and brings it back. Test is successful if the pool does not move back before the endpoint has been healthy
+	 * for the failback delay, and then moves back and drains the backup.
+	 */
+	@Test
+	public void testFailbackWithHysteresis() throws Exception {
+		StandInDataSource primary = new StandInDataSource();
+		StandInDataSource backup = new StandInDataSource();
+		FailoverDataSource dataSource = new FailoverDataSourceBuilder().endpoint("primary", primary).endpoint("backup", backup).failbackDelay(500L)
+				.probeInterval(20L).build();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).minSize(0).build();
+		primary.setFailConnect(true);
+		PooledConnectionImpl first = connectionPool.getConnection();
+		PooledConnectionImpl second = connectionPool.getConnection();
+		Assert.assertEquals("backup", dataSource.getActiveEndpoint().getName());
+		second.close();
+
+		// the probes see the endpoint healthy again within a few intervals, but the failback waits for the delay
+		primary.setFailConnect(false);
+		Thread.sleep(250L);
+		Assert.assertEquals("backup", dataSource.getActiveEndpoint().getName());
+		Assert.assertTrue(dataSource.getEndpoints().get(0).isFailed());
+
+		PoolTestSupport.waitFor(() -> "primary".equals(dataSource.getActiveEndpoint().getName()));
+		Assert.assertEquals("primary", dataSource.getActiveEndpoint().getName());
+		Assert.assertEquals(2L, dataSource.getFailovers());
+
+		// the idle backup connection is drained once the failover listeners have run, the leased one goes when it is returned
+		PoolTestSupport.waitFor(() -> backup.getConnectionsClosed() > 0);
+		Assert.assertEquals(1, backup.getConnectionsClosed());
+		first.close();
+		Assert.assertEquals(2, backup.getConnectionsClosed());
+		Assert.assertEquals(0, connectionPool.getTotalConnectionCount().intValue());
+		Assert.assertEquals("primary", connectionPool.getConnection().getHost());
+		connectionPool.shutdown();
+		dataSource.close();
+	}
+
+	/**
+	 * Slows the preferred endpoint down without failing it. Test is successful if its health score drops with its connect latency and new
+	 * connections move to the backup.
+	 */
+	@Test
+	public void testDegradedEndpointFailsOver() throws Exception {
+		StandInDataSource primary = new StandInDataSource();
+		StandInDataSource backup = new StandInDataSource();
+		FailoverDataSource dataSource = new FailoverDataSourceBuilder().endpoint("primary", primary).endpoint("backup", backup)
+				.slowConnectTime(50L).build();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).minSize(0).build();
+		primary.setConnectLatency(200L);
+		List<PooledConnectionImpl> connections = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			connections.add(connectionPool.getConnection());
+		}
+		Assert.assertEquals(1, primary.getConnectionsOpened());
+		Assert.assertTrue(dataSource.getEndpoints().get(0).getHealthScore() < 0.5);
+		Assert.assertEquals(0.0, dataSource.getEndpoints().get(0).getErrorRate());
+		Assert.assertEquals("backup", dataSource.getActiveEndpoint().getName());
+		Assert.assertEquals("backup", connections.get(2).getHost());
+		for (PooledConnectionImpl connection : connections) {
+			connection.close();
+		}
+
+		// the connection established on the primary before it failed over is not kept
+		Assert.assertEquals(1, primary.getConnectionsClosed());
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+		dataSource.close();
+	}
+}
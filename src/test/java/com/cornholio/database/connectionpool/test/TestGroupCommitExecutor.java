@@ -0,0 +1,190 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPool;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import com.cornholio.database.connectionpool.transaction.GroupCommitExecutor;
+import com.cornholio.database.connectionpool.transaction.GroupCommitExecutorBuilder;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit tests for the group commit executor
+ *
+ * @author nikhilagarwal
+ */
+public class TestGroupCommitExecutor {
+
+	private static final String UPDATE_SQL = "update sample set touched = 1 where id = ?";
+	private StandInDataSource dataSource;
+	private ConnectionPool connectionPool;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new StandInDataSource();
+		connectionPool = PoolTestSupport.newBuilder(dataSource).maxIdle(5).maxSize(10).minSize(1).build();
+	}
+
+	private static Integer update(java.sql.Connection connection, int id) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+			statement.setObject(1, id);
+			return statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * Submits three units into one group where the middle one fails. Test is successful if the group was committed once, the failing unit was rolled
+	 * back to its savepoint and only its caller sees the error.
+	 */
+	@Test
+	public void testFailingUnitIsIsolatedBySavepoint() throws Exception {
+		final GroupCommitExecutor executor =
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(3).maxCommitDelay(1000L).build();
+		dataSource.setFailingParameter(-1);
+		final CompletableFuture<Integer> first = executor.submit(connection -> update(connection, 1));
+		final CompletableFuture<Integer> failing = executor.submit(connection -> update(connection, -1));
+		final CompletableFuture<Integer> last = executor.submit(connection -> update(connection, 2));
+
+		Assert.assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(Integer.valueOf(1), last.get(5, TimeUnit.SECONDS));
+		try {
+			failing.get(5, TimeUnit.SECONDS);
+			Assert.fail("Failing unit completed normally");
+		} catch (final ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof SQLException);
+		}
+		Assert.assertEquals(1, dataSource.getCommits());
+		Assert.assertEquals(1, dataSource.getRollbacks());
+		executor.close();
+	}
+
+	/**
+	 * Submits units from several threads. Test is successful if every unit succeeds and they were committed in far fewer transactions than units.
+	 */
+	@Test
+	public void testConcurrentUnitsShareCommits() throws Exception {
+		final GroupCommitExecutor executor =
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(20).maxCommitDelay(20L).build();
+		final List<CompletableFuture<Integer>> results = new ArrayList<>();
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 10; t++) {
+			final Thread thread = new Thread(() -> {
+				for (int i = 0; i < 20; i++) {
+					final int id = i;
+					final CompletableFuture<Integer> result = executor.submit(connection -> update(connection, id));
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		for (final CompletableFuture<Integer> result : results) {
+			Assert.assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+		}
+		executor.close();
+		Assert.assertTrue(dataSource.getCommits() <= 40);
+	}
+
+	/**
+	 * Submits a unit that sets its own savepoint next to a well behaved one. Test is successful if the savepoint call is refused, only that unit
+	 * fails and the group is still committed.
+	 */
+	@Test
+	public void testSavepointCallsAreRefused() throws Exception {
+		final GroupCommitExecutor executor =
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(2).maxCommitDelay(1000L).build();
+		final CompletableFuture<Integer> refused = executor.submit(connection -> {
+			connection.setSavepoint();
+			return update(connection, 1);
+		});
+		final CompletableFuture<Integer> accepted = executor.submit(connection -> update(connection, 2));
+
+		Assert.assertEquals(Integer.valueOf(1), accepted.get(5, TimeUnit.SECONDS));
+		try {
+			refused.get(5, TimeUnit.SECONDS);
+			Assert.fail("Savepoint call was not refused");
+		} catch (final ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof SQLException);
+		}
+		Assert.assertEquals(1, dataSource.getCommits());
+		executor.close();
+	}
+
+	/**
+	 * Makes restoring the auto commit mode fail after the group was committed. Test is successful if the caller still gets its result and the
+	 * connection is disposed instead of going back to the pool.
+	 */
+	@Test
+	public void testCleanupFailureAfterCommit() throws Exception {
+		final GroupCommitExecutor executor =
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(1).maxCommitDelay(1000L).build();
+		final CompletableFuture<Integer> result = executor.submit(connection -> {
+			dataSource.setFailingMethods("setAutoCommit");
+			return update(connection, 1);
+		});
+
+		Assert.assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, dataSource.getCommits());
+		// closing waits for the committer to give the connection back
+		executor.close();
+		dataSource.setFailingMethods();
+		Assert.assertEquals(1, dataSource.getConnectionsClosed());
+	}
+
+	/**
+	 * Makes the commit and the rollback after it fail. Test is successful if the caller sees the commit failure with the rollback failure attached
+	 * to it, and the connection is disposed.
+	 */
+	@Test
+	public void testRollbackFailureIsSuppressed() throws Exception {
+		final GroupCommitExecutor executor =
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(1).maxCommitDelay(1000L).build();
+		final CompletableFuture<Integer> result = executor.submit(connection -> {
+			dataSource.setFailingMethods("commit", "rollback");
+			return update(connection, 1);
+		});
+
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			Assert.fail("Unit completed normally");
+		} catch (final ExecutionException e) {
+			Assert.assertEquals("Failing call: commit", e.getCause().getMessage());
+			Assert.assertEquals(1, e.getCause().getSuppressed().length);
+		}
+		// closing waits for the committer to give the connection back
+		executor.close();
+		dataSource.setFailingMethods();
+		Assert.assertEquals(1, dataSource.getConnectionsClosed());
+	}
+
+	/**
+	 * Test is successful if a commit delay or group size that is not positive is refused when the executor is built.
+	 */
+	@Test
+	public void testInvalidDelayAndGroupSizeAreRefused() throws Exception {
+		final GroupCommitExecutorBuilder[] builders = { new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxCommitDelay(-1L),
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxCommitDelay(0L),
+				new GroupCommitExecutorBuilder().connectionPool(connectionPool).maxGroupSize(0) };
+		for (final GroupCommitExecutorBuilder builder : builders) {
+			try {
+				builder.build().close();
+				Assert.fail("Invalid configuration was accepted");
+			} catch (final IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().contains("group commit executor"));
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for establishing idle connections ahead of demand
+ *
+ * @author nikhilagarwal
+ */
+public class TestIdleConnectionReplenisher {
+
+	private static ConnectionPoolBuilder newBuilder(StandInDataSource dataSource) {
+		return PoolTestSupport.newBuilder(dataSource).minSize(0).replenishHeadroom(2);
+	}
+
+	private static void awaitIdleConnections(ConnectionPoolImpl connectionPool, int idle) throws InterruptedException {
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() >= idle);
+	}
+
+	/**
+	 * Borrows from a pool that starts empty. Test is successful if the headroom is established before the first borrow, the borrows take idle
+	 * connections without waiting for a connect, and the headroom is established again while the connections are leased.
+	 */
+	@Test
+	public void testReplenishAheadOfDemand() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		dataSource.setConnectLatency(20L);
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).maxIdle(4).maxSize(8).build();
+		awaitIdleConnections(connectionPool, 2);
+		Assert.assertEquals(2, connectionPool.getAvailableConnections().size());
+		Assert.assertEquals(2L, connectionPool.getReplenisher().getReplenishedCount());
+
+		List<PooledConnectionImpl> connections = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			connections.add(connectionPool.getConnection());
+		}
+		Assert.assertEquals(0L, connectionPool.getStatistics().getConnectBorrowCount());
+		Assert.assertEquals(1D, connectionPool.getStatistics().getConnectFreeBorrowRatio());
+		awaitIdleConnections(connectionPool, 2);
+
+		// the borrows raised the projected demand, so the replenisher may keep a connection more
+		Assert.assertTrue(connectionPool.getTotalConnectionCount() >= 4);
+		Assert.assertTrue(connectionPool.getReplenisher().getBorrowRate() > 0D);
+		Assert.assertTrue(connectionPool.getReplenisher().getConnectLatency() >= 20D);
+		for (PooledConnectionImpl connection : connections) {
+			connection.close();
+		}
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Leases every connection of a pool whose headroom is larger than MAX_SIZE. Test is successful if the replenisher never goes over MAX_SIZE, and a
+	 * borrow beyond it waits for a returned connection.
+	 */
+	@Test
+	public void testReplenishWithinMaxSize() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).maxIdle(3).maxSize(3).replenishHeadroom(5).build();
+		awaitIdleConnections(connectionPool, 3);
+		List<PooledConnectionImpl> connections = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			connections.add(connectionPool.getConnection());
+		}
+		Thread.sleep(300L);
+		Assert.assertEquals(3, connectionPool.getTotalConnectionCount().intValue());
+		Assert.assertEquals(3, dataSource.getConnectionsOpened());
+		Assert.assertNull(connectionPool.tryGetConnection());
+		for (PooledConnectionImpl connection : connections) {
+			connection.close();
+		}
+		Assert.assertEquals(3, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,148 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.IdleOrdering;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit tests for the idle orderings of the connection pool
+ *
+ * @author nikhilagarwal
+ */
+public class TestIdleOrdering {
+
+	private static ConnectionPoolBuilder newBuilder(IdleOrdering idleOrdering) {
+		return PoolTestSupport.newBuilder(new StandInDataSource()).idleOrdering(idleOrdering).maxIdle(4).maxSize(4).minSize(4);
+	}
+
+	/**
+	 * Borrows and returns one connection at a time. Test is successful if FIFO hands out every idle connection in turn.
+	 */
+	@Test
+	public void testFifoRotates() throws Exception {
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(IdleOrdering.FIFO).build();
+		Set<PooledConnectionImpl> used = new HashSet<>();
+		for (int i = 0; i < 4; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			used.add(connection);
+			connection.close();
+		}
+		Assert.assertEquals(4, used.size());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Borrows and returns one connection at a time, with unfair waiters. Test is successful if LIFO hands out the same connection every time.
+	 */
+	@Test
+	public void testLifoReusesHotConnection() throws Exception {
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(IdleOrdering.LIFO).fairWaiters(Boolean.FALSE).build();
+		PooledConnectionImpl hot = connectionPool.getConnection();
+		hot.close();
+		for (int i = 0; i < 10; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			Assert.assertSame(hot, connection);
+			connection.close();
+		}
+
+		// two connections in use at once: the second one comes from the top of the stack too
+		PooledConnectionImpl first = connectionPool.getConnection();
+		PooledConnectionImpl second = connectionPool.getConnection();
+		second.close();
+		Assert.assertSame(second, connectionPool.getConnection());
+		Assert.assertSame(hot, first);
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Spreads the connections over two hosts and borrows them one at a time. Test is successful if ROUND_ROBIN alternates between the hosts.
+	 */
+	@Test
+	public void testRoundRobinAlternatesHosts() throws Exception {
+		AtomicInteger established = new AtomicInteger();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(IdleOrdering.ROUND_ROBIN)
+				.hostResolver(connection -> established.getAndIncrement() % 2 == 0 ? "db-a:5432" : "db-b:5432").build();
+		String previousHost = null;
+		for (int i = 0; i < 8; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			Assert.assertNotNull(connection.getHost());
+			Assert.assertFalse(connection.getHost().equals(previousHost));
+			previousHost = connection.getHost();
+			connection.close();
+		}
+
+		// two connections in use at once are on different hosts
+		PooledConnectionImpl first = connectionPool.getConnection();
+		PooledConnectionImpl second = connectionPool.getConnection();
+		Assert.assertFalse(first.getHost().equals(second.getHost()));
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Spreads six connections over three hosts and borrows all of them. Test is successful if ROUND_ROBIN takes the hosts in turn and hands out
+	 * each host's connections oldest first.
+	 */
+	@Test
+	public void testRoundRobinRotatesOverHosts() throws Exception {
+		AtomicInteger established = new AtomicInteger();
+		String[] hosts = { "db-a:5432", "db-b:5432", "db-c:5432" };
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(IdleOrdering.ROUND_ROBIN).maxIdle(6).maxSize(6).minSize(6)
+				.hostResolver(connection -> hosts[established.getAndIncrement() % 3]).build();
+		PooledConnectionImpl[] borrowed = new PooledConnectionImpl[6];
+		for (int i = 0; i < 6; i++) {
+			borrowed[i] = connectionPool.getConnection();
+			Assert.assertEquals(hosts[i % 3], borrowed[i].getHost());
+		}
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(borrowed[i].getCreatedNanos() < borrowed[i + 3].getCreatedNanos());
+		}
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Uses one connection of a LIFO pool of four with an idle time out while the other three stay idle. Test is successful if the maintenance closes
+	 * the three cold connections but not the hot one, and never goes below MIN_SIZE.
+	 */
+	@Test
+	public void testLifoShrinksToHotConnections() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool =
+				(ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).fairWaiters(Boolean.FALSE).idleOrdering(IdleOrdering.LIFO)
+						.idleTimeOut(100L).maxIdle(4).maxSize(4).minSize(1).build();
+		PooledConnectionImpl[] connections = new PooledConnectionImpl[4];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = connectionPool.getConnection();
+		}
+		for (int i = connections.length - 1; i >= 0; i--) {
+			connections[i].close();
+		}
+		PooledConnectionImpl hot = connections[0];
+		for (int i = 0; i < 15; i++) {
+			Thread.sleep(20L);
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			Assert.assertSame(hot, connection);
+			connection.close();
+		}
+
+		connectionPool.maintain();
+		Assert.assertEquals(Integer.valueOf(1), connectionPool.getTotalConnectionCount());
+		Assert.assertEquals(3, dataSource.getConnectionsClosed());
+		Assert.assertSame(hot, connectionPool.getConnection());
+
+		// the hot connection is all the pool has left; MIN_SIZE keeps it even once it has been idle too long
+		hot.close();
+		Thread.sleep(150L);
+		connectionPool.maintain();
+		Assert.assertEquals(Integer.valueOf(1), connectionPool.getTotalConnectionCount());
+		Assert.assertEquals(3, dataSource.getConnectionsClosed());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,91 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.event.LeaseFlightRecorder;
+import com.cornholio.database.connection.event.PoolEventCode;
+import com.cornholio.database.connection.event.RateLimitedLogger;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.varia.NullAppender;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JUnit tests for the lease flight recorder
+ *
+ * @author nikhilagarwal
+ */
+public class TestLeaseFlightRecorder {
+
+	/**
+	 * Records more events than the recorder holds. Test is successful if only the newest events are dumped, oldest first.
+	 */
+	@Test
+	public void testOldestEventsAreOverwritten() {
+		final LeaseFlightRecorder recorder = new LeaseFlightRecorder(4);
+		for (int i = 1; i <= 6; i++) {
+			recorder.record(PoolEventCode.BORROWED, i, 0L);
+		}
+		final String[] lines = recorder.dump().split("\n");
+		Assert.assertEquals(6, recorder.getRecordedCount());
+		Assert.assertEquals(4, lines.length);
+		Assert.assertTrue(lines[0].endsWith("BORROWED connection=3"));
+		Assert.assertTrue(lines[3].endsWith("BORROWED connection=6"));
+	}
+
+	/**
+	 * Borrows a connection and lets a second borrow time out. Test is successful if the pool's dump tells the whole story.
+	 */
+	@Test
+	public void testPoolRecordsLeasesAndTimeouts() throws Exception {
+		final ConnectionPoolImpl connectionPool =
+				(ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).maxIdle(1).maxSize(1).minSize(0).waitTimeOut(10L).build();
+		final Connection connection = connectionPool.getConnection();
+		try {
+			connectionPool.getConnection();
+			Assert.fail("Connection wait time out exception not thrown");
+		} catch (final java.sql.SQLException e) {
+			Assert.assertEquals("Connection wait timed out", e.getMessage());
+		}
+		connection.close();
+
+		final String dump = connectionPool.dumpFlightRecorder();
+		Assert.assertTrue(dump.contains("CREATED"));
+		Assert.assertTrue(dump.contains("BORROWED"));
+		Assert.assertTrue(dump.contains("LIMIT_REACHED"));
+		Assert.assertTrue(dump.contains("WAIT_TIMED_OUT"));
+		Assert.assertTrue(dump.contains("LEASED"));
+	}
+
+	/**
+	 * Logs a burst and then nothing. Test is successful if the occurrences after the first line are reported by flush once the interval has passed.
+	 */
+	@Test
+	public void testFlushReportsTheTailOfABurst() throws Exception {
+		final List<String> lines = new CopyOnWriteArrayList<>();
+		final Logger logger = Logger.getLogger("TestRateLimitedLogger");
+		logger.addAppender(new NullAppender() {
+			@Override
+			public void doAppend(final LoggingEvent event) {
+				lines.add(event.getRenderedMessage());
+			}
+		});
+		final RateLimitedLogger log = new RateLimitedLogger(logger, Level.WARN, "Burst", 50L);
+		for (int i = 0; i < 5; i++) {
+			log.log();
+		}
+		Assert.assertEquals(1, lines.size());
+		Assert.assertFalse(log.flush());
+		Thread.sleep(60L);
+		Assert.assertTrue(log.flush());
+		Assert.assertEquals(2, lines.size());
+		Assert.assertTrue(lines.get(1).startsWith("Burst (4 times"));
+		Assert.assertFalse(log.flush());
+	}
+}
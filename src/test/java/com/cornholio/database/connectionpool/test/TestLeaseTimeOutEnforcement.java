@@ -0,0 +1,76 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JUnit tests for aborting timed out leases
+ *
+ * @author nikhilagarwal
+ */
+public class TestLeaseTimeOutEnforcement {
+
+	/**
+	 * Holds a lease past the connection time out. Test is successful if its open statement is cancelled but not the one it closed already, the
+	 * physical connection aborted, the lease fenced and the next borrower gets a fresh connection.
+	 */
+	@Test
+	public void testTimedOutLeaseIsAbortedAndReplaced() throws Exception {
+		final StandInDataSource dataSource = new StandInDataSource();
+		final ConnectionPoolImpl connectionPool =
+				(ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).abortTimedOutLeases(Boolean.TRUE).connectionTimeOut(100L).maxIdle(1)
+						.maxSize(1).minSize(1).waitTimeOut(2000L).build();
+		final PooledConnectionImpl leaked = connectionPool.getConnection();
+		final Statement statement = leaked.createStatement();
+		Assert.assertNotNull(statement);
+		leaked.createStatement().close();
+
+		PoolTestSupport.waitFor(() -> dataSource.getConnectionsClosed() == 1 && connectionPool.getAvailableConnections().size() == 1);
+		Assert.assertEquals(1, dataSource.getStatementsCancelled());
+		Assert.assertEquals(1, dataSource.getConnectionsClosed());
+		Assert.assertEquals(2, dataSource.getConnectionsOpened());
+		Assert.assertEquals(Integer.valueOf(1), connectionPool.getTotalConnectionCount());
+
+		Assert.assertTrue(leaked.isFenced());
+		Assert.assertTrue(leaked.isClosed());
+		try {
+			leaked.createStatement();
+			Assert.fail("Fenced lease accepted a call");
+		} catch (final SQLException e) {
+			Assert.assertTrue(e.getMessage().contains("aborted"));
+		}
+
+		// closing the fenced lease does not give the aborted connection back to the pool
+		leaked.close();
+		final Connection next = connectionPool.getConnection();
+		Assert.assertNotSame(leaked, next);
+		Assert.assertFalse(next.isClosed());
+		next.close();
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Test is successful if a timed out lease is recycled as before when enforcement is off.
+	 */
+	@Test
+	public void testTimedOutLeaseIsRecycledByDefault() throws Exception {
+		final StandInDataSource dataSource = new StandInDataSource();
+		final ConnectionPoolImpl connectionPool =
+				(ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).connectionTimeOut(100L).maxIdle(1).maxSize(1).minSize(1)
+						.waitTimeOut(2000L).build();
+		final PooledConnectionImpl leased = connectionPool.getConnection();
+		PoolTestSupport.waitFor(() -> connectionPool.getAvailableConnections().size() == 1);
+		Assert.assertFalse(leased.isFenced());
+		Assert.assertSame(leased, connectionPool.getConnection());
+		Assert.assertEquals(0, dataSource.getConnectionsClosed());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,61 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * JUnit tests for the flight recorder events of the pool. Runs on the jdk the build runs on, which has JFR.
+ *
+ * @author nikhilagarwal
+ */
+public class TestPoolEventRecording {
+
+	private static final String EVENT_PREFIX = "com.cornholio.database.connectionpool.";
+
+	private static long count(List<RecordedEvent> events, String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals(EVENT_PREFIX + name)).count();
+	}
+
+	/**
+	 * Borrows and returns a connection during a recording. Test is successful if create, borrow and lease events were recorded with the pool name
+	 * and the borrow site.
+	 */
+	@Test
+	public void testBorrowAndLeaseAreRecorded() throws Exception {
+		final File file = File.createTempFile("connection-pool", ".jfr");
+		file.deleteOnExit();
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT_PREFIX + "Borrow");
+			recording.enable(EVENT_PREFIX + "Lease");
+			recording.enable(EVENT_PREFIX + "ConnectionCreate");
+			recording.start();
+
+			final ConnectionPoolImpl connectionPool =
+					(ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).name("testBorrowAndLeaseAreRecorded")
+							.recordBorrowSite(Boolean.TRUE).maxIdle(5).maxSize(10).minSize(1).build();
+			final Connection connection = connectionPool.getConnection();
+			connection.close();
+
+			recording.stop();
+			recording.dump(file.toPath());
+		}
+
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		Assert.assertEquals(1, count(events, "ConnectionCreate"));
+		Assert.assertEquals(1, count(events, "Borrow"));
+		Assert.assertEquals(1, count(events, "Lease"));
+		final RecordedEvent lease =
+				events.stream().filter(event -> event.getEventType().getName().equals(EVENT_PREFIX + "Lease")).findFirst().get();
+		Assert.assertEquals("testBorrowAndLeaseAreRecorded", lease.getString("poolName"));
+		Assert.assertTrue(lease.getString("borrowSite").contains(TestPoolEventRecording.class.getName()));
+	}
+}
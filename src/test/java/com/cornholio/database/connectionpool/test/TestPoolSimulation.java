@@ -0,0 +1,58 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.simulation.ArrivalPattern;
+import com.cornholio.database.connectionpool.simulation.Distribution;
+import com.cornholio.database.connectionpool.simulation.PoolSimulationBuilder;
+import com.cornholio.database.connectionpool.simulation.SimulationReport;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the pool simulation
+ *
+ * @author nikhilagarwal
+ */
+public class TestPoolSimulation {
+
+	/**
+	 * Simulates an hour of bursty load twice with the same seed. Test is successful if both runs produce the same report and the numbers add up.
+	 */
+	@Test
+	public void testSimulatedHourIsReproducible() throws Exception {
+		PoolSimulationBuilder builder = new PoolSimulationBuilder().arrivalPattern(ArrivalPattern.bursts(20.0, 200.0, 2000L, 60000L))
+				.connectFailureRate(0.01).connectLatency(Distribution.logNormal(20.0, 0.5)).duration(3600000L).seed(42L)
+				.serviceTime(Distribution.logNormal(30.0, 1.0));
+		SimulationReport first = builder.build().run();
+		SimulationReport second = builder.build().run();
+		Assert.assertEquals(first.toString(), second.toString());
+
+		// 20 clients a second for 58 seconds and 200 for 2 seconds of every minute
+		double expectedArrivals = (20.0 * 58 + 200.0 * 2) * 60;
+		Assert.assertTrue(first.toString(), Math.abs(first.getArrivals() - expectedArrivals) < expectedArrivals * 0.05);
+
+		// every client got a connection, timed out or failed to connect, except for those still waiting at the end
+		long served = first.getAcquired() + first.getTimeouts() + first.getConnectFailures();
+		Assert.assertTrue(first.toString(), served <= first.getArrivals() && first.getArrivals() - served < 100);
+		Assert.assertTrue(first.toString(), first.getAcquireP50() <= first.getAcquireP99());
+		Assert.assertTrue(first.toString(), first.getAcquireP99() <= first.getAcquireP999());
+		Assert.assertTrue(first.toString(), first.getUtilisation() > 0.0 && first.getUtilisation() <= 1.0);
+		Assert.assertTrue(first.toString(), first.getMeanPoolSize() >= 5.0 && first.getMeanPoolSize() <= 20.0);
+		Assert.assertTrue(first.toString(), first.getPeakCreationsPerSecond() > 0);
+		Assert.assertTrue(first.toString(), first.getWallClockMillis() < 60000L);
+	}
+
+	/**
+	 * Offers more load than a small pool can serve. Test is successful if clients time out on the small pool and not on a pool sized for the load.
+	 */
+	@Test
+	public void testUndersizedPoolTimesOut() throws Exception {
+		// 100 clients a second holding a connection for 50 ms need 5 connections on average
+		PoolSimulationBuilder builder = new PoolSimulationBuilder().arrivalPattern(ArrivalPattern.poisson(100.0)).duration(600000L)
+				.serviceTime(Distribution.constant(50.0)).waitTimeOut(100L);
+		SimulationReport undersized = builder.maxIdle(4).maxSize(4).minSize(4).build().run();
+		SimulationReport sized = builder.maxIdle(10).maxSize(20).minSize(5).build().run();
+		Assert.assertTrue(undersized.toString(), undersized.getTimeouts() > undersized.getArrivals() / 10);
+		Assert.assertEquals(sized.toString(), 0L, sized.getTimeouts());
+		Assert.assertTrue(sized.toString(), sized.getAcquireP99() < undersized.getAcquireP99());
+	}
+}
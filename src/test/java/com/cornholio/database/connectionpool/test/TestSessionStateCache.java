@@ -0,0 +1,97 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.SessionProperty;
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.EnumSet;
+
+/**
+ * JUnit tests for the session state cache of pooled connections
+ *
+ * @author nikhilagarwal
+ */
+public class TestSessionStateCache {
+
+	private static ConnectionPoolBuilder newBuilder(StandInDataSource dataSource) {
+		return PoolTestSupport.newBuilder(dataSource).maxIdle(1).maxSize(1).minSize(1);
+	}
+
+	/**
+	 * Asks for every session property and the meta data many times over several borrows of the same connection. Test is successful if each reaches
+	 * the driver once and the same meta data is returned every time.
+	 */
+	@Test
+	public void testSessionGettersServedFromCache() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).sessionCache(EnumSet.allOf(SessionProperty.class)).build();
+		int readsBefore = dataSource.getSessionReads();
+		DatabaseMetaData metaData = null;
+		for (int borrow = 0; borrow < 3; borrow++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			for (int i = 0; i < 10; i++) {
+				Assert.assertTrue(connection.getAutoCommit());
+				Assert.assertNull(connection.getCatalog());
+				Assert.assertEquals(0, connection.getHoldability());
+				Assert.assertFalse(connection.isReadOnly());
+				Assert.assertNull(connection.getSchema());
+				Assert.assertEquals(Connection.TRANSACTION_READ_COMMITTED, connection.getTransactionIsolation());
+				if (metaData == null) {
+					metaData = connection.getMetaData();
+				}
+				Assert.assertSame(metaData, connection.getMetaData());
+			}
+			connection.close();
+		}
+		Assert.assertEquals(SessionProperty.values().length, dataSource.getSessionReads() - readsBefore);
+
+		// the setters keep the cache current
+		PooledConnectionImpl connection = connectionPool.getConnection();
+		connection.setAutoCommit(false);
+		connection.setSchema("reporting");
+		connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		Assert.assertFalse(connection.getAutoCommit());
+		Assert.assertEquals("reporting", connection.getSchema());
+		Assert.assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+		Assert.assertEquals(SessionProperty.values().length, dataSource.getSessionReads() - readsBefore);
+		connection.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Caches only autocommit. Test is successful if every other getter reaches the driver every time, and the cache is off by default.
+	 */
+	@Test
+	public void testCacheSwitchedOffPerProperty() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).sessionCache(EnumSet.of(SessionProperty.AUTO_COMMIT))
+				.build();
+		PooledConnectionImpl connection = connectionPool.getConnection();
+		int readsBefore = dataSource.getSessionReads();
+		for (int i = 0; i < 5; i++) {
+			connection.getAutoCommit();
+			connection.getSchema();
+			connection.getMetaData();
+		}
+		Assert.assertEquals(1 + 5 + 5, dataSource.getSessionReads() - readsBefore);
+		connection.close();
+		connectionPool.shutdown();
+
+		dataSource = new StandInDataSource();
+		connectionPool = (ConnectionPoolImpl) newBuilder(dataSource).build();
+		connection = connectionPool.getConnection();
+		readsBefore = dataSource.getSessionReads();
+		for (int i = 0; i < 5; i++) {
+			connection.getAutoCommit();
+		}
+		Assert.assertEquals(5, dataSource.getSessionReads() - readsBefore);
+		connection.close();
+		connectionPool.shutdown();
+	}
+}
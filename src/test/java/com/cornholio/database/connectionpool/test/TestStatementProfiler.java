@@ -0,0 +1,144 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.profile.SqlShapes;
+import com.cornholio.database.connection.profile.StatementProfiler;
+import com.cornholio.database.connection.profile.StatementStatistics;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * JUnit tests for statement profiling
+ *
+ * @author nikhilagarwal
+ */
+public class TestStatementProfiler {
+
+	private static ConnectionPoolImpl newConnectionPool(StandInDataSource dataSource, boolean profileStatements) throws Exception {
+		return (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(2).maxSize(2).minSize(1).profileStatements(profileStatements)
+				.slowStatementThreshold(100L).statementProfileSize(2).build();
+	}
+
+	/**
+	 * Test is successful if literals, comments, whitespace and parameter lists are normalised away.
+	 */
+	@Test
+	public void testSqlShapes() {
+		Assert.assertEquals("select * from t1 where a = ? and b = ? and c in (?)",
+				SqlShapes.normalize("select *  from t1\n where a = 'it''s' and b = 42 /* hint */ and c in (1, 2,3)"));
+		Assert.assertEquals("update t set a = ? where id = ?", SqlShapes.normalize("update t set a = ? -- comment\nwhere id = ?"));
+	}
+
+	/**
+	 * Runs queries and updates through a profiled pool. Test is successful if they are profiled per shape with their rows and the slow one is
+	 * captured.
+	 */
+	@Test
+	public void testStatementsAreProfiledPerShape() throws Exception {
+		final StandInDataSource dataSource = new StandInDataSource();
+		final ConnectionPoolImpl connectionPool = newConnectionPool(dataSource, true);
+		final Connection connection = connectionPool.getConnection();
+		dataSource.setQueryRows(3);
+		dataSource.setStatementLatency(10L);
+		for (int i = 0; i < 2; i++) {
+			try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("select * from t where id = " + i)) {
+				while (resultSet.next()) {
+					// fetch every row
+				}
+			}
+		}
+		dataSource.setStatementLatency(0L);
+		try (PreparedStatement statement = connection.prepareStatement("update t set a = ?")) {
+			statement.setInt(1, 1);
+			statement.executeUpdate();
+		}
+		dataSource.setStatementLatency(150L);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("delete from t where id = 7");
+		}
+		connection.close();
+
+		final StatementProfiler profiler = connectionPool.getStatementProfiler();
+		final List<StatementStatistics> top = profiler.getTopStatements();
+
+		// the table holds two shapes: the slow delete took the place of the update, the shape with the least execution time
+		Assert.assertEquals(2, top.size());
+		StatementStatistics select = null;
+		StatementStatistics delete = null;
+		for (final StatementStatistics statistics : top) {
+			if ("select * from t where id = ?".equals(statistics.getShape())) {
+				select = statistics;
+			} else if ("delete from t where id = ?".equals(statistics.getShape())) {
+				delete = statistics;
+			}
+		}
+		Assert.assertNotNull(select);
+		Assert.assertNotNull(delete);
+		Assert.assertEquals(2L, select.getExecutionCount());
+		Assert.assertEquals(6L, select.getRowsFetched());
+		Assert.assertTrue(select.getMeanTimeToFirstRowNanos() > 0L);
+		Assert.assertEquals(1L, delete.getExecutionCount());
+
+		final List<String> slowStatements = profiler.getSlowStatements();
+		Assert.assertEquals(1, slowStatements.size());
+		Assert.assertTrue(slowStatements.get(0).endsWith("delete from t where id = 7"));
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Test is successful if a pool that does not profile hands out the driver's statements.
+	 */
+	@Test
+	public void testProfilingIsOffByDefault() throws Exception {
+		final StandInDataSource dataSource = new StandInDataSource();
+		final ConnectionPoolImpl connectionPool = newConnectionPool(dataSource, false);
+		Assert.assertNull(connectionPool.getStatementProfiler());
+		final Connection connection = connectionPool.getConnection();
+		Assert.assertTrue(connection.createStatement().toString().startsWith("StandInStatement"));
+		connection.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Fills the table with two expensive shapes and then runs many cheap one-off statements and one repeated shape that adds up. Test is successful
+	 * if the one-off statements never enter the table and the repeated shape takes the place of the cheaper resident once it has taken more time.
+	 */
+	@Test
+	public void testNewShapesAreAdmittedOnlyOnceTheyAddUp() throws Exception {
+		final StandInDataSource dataSource = new StandInDataSource();
+		final ConnectionPoolImpl connectionPool = newConnectionPool(dataSource, true);
+		final Connection connection = connectionPool.getConnection();
+		try (Statement statement = connection.createStatement()) {
+			dataSource.setStatementLatency(40L);
+			statement.execute("update a set x = 1");
+			dataSource.setStatementLatency(20L);
+			statement.execute("update b set x = 1");
+			dataSource.setStatementLatency(0L);
+			for (int i = 0; i < 50; i++) {
+				statement.execute("update t" + i + " set x = 1");
+			}
+			Assert.assertEquals(2, connectionPool.getStatementProfiler().getTopStatements().size());
+			Assert.assertEquals("update b set x = ?", connectionPool.getStatementProfiler().getTopStatements().get(1).getShape());
+
+			dataSource.setStatementLatency(10L);
+			for (int i = 0; i < 3; i++) {
+				statement.execute("update c set x = " + i);
+			}
+		}
+		connection.close();
+
+		final List<StatementStatistics> top = connectionPool.getStatementProfiler().getTopStatements();
+		Assert.assertEquals(2, top.size());
+		Assert.assertEquals("update a set x = ?", top.get(0).getShape());
+		Assert.assertEquals("update c set x = ?", top.get(1).getShape());
+		Assert.assertEquals(3L, top.get(1).getExecutionCount());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,194 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connectionpool.ConnectionPoolBuilder;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import com.cornholio.database.connectionpool.tenant.TenantConnectionPool;
+import com.cornholio.database.connectionpool.tenant.TenantConnectionPoolBuilder;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit tests for the tenant connection pool
+ *
+ * @author nikhilagarwal
+ */
+public class TestTenantConnectionPool {
+
+	private static ConnectionPoolImpl newConnectionPool(int size) throws SQLException {
+		return (ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).maxIdle(size).maxSize(size).minSize(size).waitTimeOut(2000L)
+				.build();
+	}
+
+	/**
+	 * Borrows for two tenants in turn. Test is successful if the context is only applied when a connection was last used by another tenant and a
+	 * tenant gets back the connection already set up for it.
+	 */
+	@Test
+	public void testContextAppliedOnlyWhenChanged() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(2);
+		List<String> applied = new ArrayList<>();
+		TenantConnectionPool tenantPool = new TenantConnectionPoolBuilder().connectionPool(connectionPool)
+				.contextApplier((connection, tenant) -> applied.add(tenant)).build();
+
+		Connection first = tenantPool.getConnection("acme");
+		first.close();
+		Connection second = tenantPool.getConnection("globex");
+		second.close();
+		for (int i = 0; i < 5; i++) {
+			tenantPool.getConnection("acme").close();
+			tenantPool.getConnection("globex").close();
+		}
+		Assert.assertEquals(2, applied.size());
+		Assert.assertEquals(2L, tenantPool.getContextSwitchCount());
+		Assert.assertEquals(10L, tenantPool.getAffinityHitCount());
+
+		// a closed handle refuses calls, its pooled connection may belong to another tenant by now
+		try {
+			first.createStatement();
+			Assert.fail("Closed tenant connection accepted a call");
+		} catch (SQLException e) {
+			Assert.assertTrue(first.isClosed());
+		}
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Holds a tenant at its quota. Test is successful if the tenant's next borrow times out while another tenant still gets a connection, and the
+	 * tenant can borrow again once it returned a lease.
+	 */
+	@Test
+	public void testQuotaPerTenant() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(4);
+		TenantConnectionPool tenantPool = new TenantConnectionPoolBuilder().connectionPool(connectionPool)
+				.contextApplier((connection, tenant) -> {
+				}).maxLeases("acme", 1).waitTimeOut(100L).build();
+
+		Connection acme = tenantPool.getConnection("acme");
+		try {
+			tenantPool.getConnection("acme");
+			Assert.fail("Tenant went over its quota");
+		} catch (SQLException e) {
+			Assert.assertTrue(e.getMessage().contains("acme"));
+		}
+		Connection globex = tenantPool.getConnection("globex");
+		Assert.assertEquals(1, tenantPool.getLeasedCount("acme"));
+		Assert.assertEquals(1, tenantPool.getLeasedCount("globex"));
+
+		acme.close();
+		acme.close();
+		Assert.assertEquals(0, tenantPool.getLeasedCount("acme"));
+		tenantPool.getConnection("acme").close();
+		globex.close();
+		Assert.assertEquals(4, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Lets one tenant take the whole pool while another one waits. Test is successful if the busy tenant is held to its fair share and the waiting
+	 * tenant gets the next connection that is returned.
+	 */
+	@Test
+	public void testFairShareWhilePoolExhausted() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(2);
+		TenantConnectionPool tenantPool = new TenantConnectionPoolBuilder().connectionPool(connectionPool)
+				.contextApplier((connection, tenant) -> {
+				}).waitTimeOut(2000L).build();
+
+		Connection acme1 = tenantPool.getConnection("acme");
+		Connection acme2 = tenantPool.getConnection("acme");
+		CompletableFuture<Connection> globex = borrowAsync(tenantPool, "globex");
+		while (connectionPool.getAvailableConnections().getWaitingCount() == 0) {
+			Thread.sleep(5L);
+		}
+
+		// two tenants share a pool of two: acme already holds more than its share of one
+		CompletableFuture<Connection> acme3 = borrowAsync(tenantPool, "acme");
+		Thread.sleep(100L);
+		Assert.assertFalse(acme3.isDone());
+		acme1.close();
+		Connection connection = globex.get(2, TimeUnit.SECONDS);
+		Assert.assertEquals(1, tenantPool.getLeasedCount("globex"));
+		connection.close();
+		acme3.get(2, TimeUnit.SECONDS).close();
+		acme2.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Holds a tenant to its fair share and then raises MAX_SIZE. Test is successful if the waiting tenant is woken up by the pool, not by a lease
+	 * given back, and gets its connection long before its wait times out.
+	 */
+	@Test
+	public void testQuotaWaiterWokenByPool() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(2);
+		TenantConnectionPool tenantPool = new TenantConnectionPoolBuilder().connectionPool(connectionPool)
+				.contextApplier((connection, tenant) -> {
+				}).waitTimeOut(5000L).build();
+
+		Connection acme = tenantPool.getConnection("acme");
+		Connection globex = tenantPool.getConnection("globex");
+		CompletableFuture<Connection> waiting = borrowAsync(tenantPool, "acme");
+		Thread.sleep(100L);
+		Assert.assertFalse(waiting.isDone());
+
+		connectionPool.reconfigure(new ConnectionPoolBuilder().configuration(connectionPool.getConfiguration()).maxSize(3).buildConfiguration());
+		waiting.get(1, TimeUnit.SECONDS).close();
+		Assert.assertEquals(1, tenantPool.getLeasedCount("acme"));
+
+		// a null tenant is refused before it takes a lease
+		try {
+			tenantPool.getConnection(null);
+			Assert.fail("Borrowed for a null tenant");
+		} catch (SQLException e) {
+			Assert.assertEquals(1, tenantPool.getLeasedCount("acme"));
+		}
+		acme.close();
+		globex.close();
+		tenantPool.close();
+		connectionPool.shutdown();
+	}
+
+	private static CompletableFuture<Connection> borrowAsync(TenantConnectionPool tenantPool, String tenant) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return tenantPool.getConnection(tenant);
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * Lets a tenant's lease time out and the pooled connection be borrowed by another tenant before the first tenant closes its handle. Test is
+	 * successful if the stale close leaves the other tenant's lease open and both quotas are right.
+	 */
+	@Test
+	public void testStaleCloseKeepsNextLease() throws Exception {
+		ConnectionPoolImpl connectionPool =
+				(ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).connectionTimeOut(100L).maxIdle(1).maxSize(1).minSize(1)
+						.waitTimeOut(2000L).build();
+		TenantConnectionPool tenantPool = new TenantConnectionPoolBuilder().connectionPool(connectionPool)
+				.contextApplier((connection, tenant) -> {
+				}).build();
+
+		Connection acme = tenantPool.getConnection("acme");
+		PoolTestSupport.waitFor(() -> !connectionPool.getAvailableConnections().isEmpty());
+		Connection globex = tenantPool.getConnection("globex");
+		acme.close();
+		Assert.assertFalse(globex.isClosed());
+		Assert.assertNotNull(globex.createStatement());
+		Assert.assertEquals(0, tenantPool.getLeasedCount("acme"));
+		Assert.assertEquals(1, tenantPool.getLeasedCount("globex"));
+		globex.close();
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		connectionPool.shutdown();
+	}
+}
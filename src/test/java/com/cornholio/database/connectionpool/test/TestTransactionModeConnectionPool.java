@@ -0,0 +1,192 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import com.cornholio.database.connectionpool.transaction.TransactionModeConnectionPool;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JUnit tests for transaction mode pooling
+ *
+ * @author nikhilagarwal
+ */
+public class TestTransactionModeConnectionPool {
+
+	private static ConnectionPoolImpl newConnectionPool(StandInDataSource dataSource) throws SQLException {
+		return (ConnectionPoolImpl) PoolTestSupport.newBuilder(dataSource).maxIdle(1).maxSize(1).minSize(1).waitTimeOut(200L).build();
+	}
+
+	/**
+	 * Holds two logical connections over a pool of one physical connection and runs a transaction on each in turn. Test is successful if the
+	 * physical connection is only held from the first statement until commit or rollback, so both logical connections get to use it.
+	 */
+	@Test
+	public void testPhysicalConnectionHeldPerTransaction() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = newConnectionPool(dataSource);
+		TransactionModeConnectionPool transactionModePool = new TransactionModeConnectionPool(connectionPool);
+		Connection first = transactionModePool.getConnection();
+		Connection second = transactionModePool.getConnection();
+		first.setAutoCommit(false);
+		second.setAutoCommit(false);
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+
+		PreparedStatement statement = first.prepareStatement("update account set balance = ? where id = ?");
+		statement.executeUpdate();
+		statement.close();
+		Assert.assertEquals(1, transactionModePool.getAttachedCount());
+		first.commit();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(1, dataSource.getCommits());
+
+		statement = second.prepareStatement("update account set balance = ? where id = ?");
+		Assert.assertSame(second, statement.getConnection());
+		statement.executeUpdate();
+		statement.close();
+		second.rollback();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(1, dataSource.getRollbacks());
+
+		// in autocommit mode a query holds the physical connection until its statement is closed
+		first.setAutoCommit(true);
+		Statement plain = first.createStatement();
+		plain.execute("select 1");
+		Assert.assertEquals(1, transactionModePool.getAttachedCount());
+		plain.close();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+
+		first.close();
+		second.close();
+		Assert.assertEquals(3L, transactionModePool.getPhysicalAcquireCount());
+		Assert.assertEquals(2L, transactionModePool.getLogicalConnectionCount());
+		Assert.assertEquals(0L, connectionPool.getStatistics().getLimitReachedCount());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Runs one prepared statement in autocommit mode, then in a transaction. Test is successful if the physical connection goes back after each
+	 * update while the statement stays open, its parameters follow it to the next physical connection, and an execute after autocommit is switched
+	 * off holds the physical connection until commit.
+	 */
+	@Test
+	public void testAutocommitReleasesAfterEachStatement() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = newConnectionPool(dataSource);
+		TransactionModeConnectionPool transactionModePool = new TransactionModeConnectionPool(connectionPool);
+		Connection connection = transactionModePool.getConnection();
+		PreparedStatement statement = connection.prepareStatement("update account set balance = ? where id = 1");
+		statement.setInt(1, 100);
+		statement.executeUpdate();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertFalse(statement.isClosed());
+
+		// the pool has one physical connection, so another borrower can only get it if the statement let go of it
+		connectionPool.getConnection().close();
+		statement.executeUpdate();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(2L, transactionModePool.getPhysicalAcquireCount());
+		Assert.assertEquals(2, dataSource.getStatementsExecuted());
+
+		connection.setAutoCommit(false);
+		statement.executeUpdate();
+		Assert.assertEquals(1, transactionModePool.getAttachedCount());
+		connection.commit();
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(1, dataSource.getCommits());
+		statement.close();
+		connection.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Sets session settings on a logical connection before it holds a physical connection. Test is successful if the settings are replayed on
+	 * every physical connection it takes and undone before the physical connection goes back to the pool.
+	 */
+	@Test
+	public void testSessionSettingsReplayed() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(new StandInDataSource());
+		TransactionModeConnectionPool transactionModePool = new TransactionModeConnectionPool(connectionPool);
+		Connection connection = transactionModePool.getConnection();
+		connection.setSchema("tenant_a");
+		connection.setReadOnly(true);
+		connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+
+		for (int i = 0; i < 2; i++) {
+			Statement statement = connection.createStatement();
+			Assert.assertEquals("tenant_a", connection.getSchema());
+			Assert.assertTrue(connection.isReadOnly());
+			Assert.assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+			statement.close();
+
+			PooledConnectionImpl physical = connectionPool.getConnection();
+			Assert.assertNull(physical.getSchema());
+			Assert.assertFalse(physical.isReadOnly());
+			Assert.assertEquals(Connection.TRANSACTION_READ_COMMITTED, physical.getTransactionIsolation());
+			physical.close();
+		}
+		Assert.assertEquals(2L, transactionModePool.getPhysicalAcquireCount());
+		connection.close();
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Closes a logical connection in the middle of a transaction. Test is successful if the open statement is closed, the transaction is rolled
+	 * back and the physical connection goes back to the pool.
+	 */
+	@Test
+	public void testCloseRollsBackOpenTransaction() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = newConnectionPool(dataSource);
+		TransactionModeConnectionPool transactionModePool = new TransactionModeConnectionPool(connectionPool);
+		Connection connection = transactionModePool.getConnection();
+		connection.setAutoCommit(false);
+		PreparedStatement statement = connection.prepareStatement("insert into audit values (?)");
+		statement.executeUpdate();
+		connection.close();
+		Assert.assertTrue(connection.isClosed());
+		Assert.assertEquals(1, dataSource.getRollbacks());
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(1, connectionPool.getAvailableConnections().size());
+		try {
+			connection.createStatement();
+			Assert.fail("A closed logical connection must refuse statements");
+		} catch (SQLException e) {
+			// expected
+		}
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Closes a logical connection in the middle of a transaction whose rollback fails. Test is successful if the rollback failure reaches the caller
+	 * and the physical connection is disposed instead of going back to the pool with its transaction open.
+	 */
+	@Test
+	public void testFailedRollbackInvalidatesPhysicalConnection() throws Exception {
+		StandInDataSource dataSource = new StandInDataSource();
+		ConnectionPoolImpl connectionPool = newConnectionPool(dataSource);
+		TransactionModeConnectionPool transactionModePool = new TransactionModeConnectionPool(connectionPool);
+		Connection connection = transactionModePool.getConnection();
+		connection.setAutoCommit(false);
+		PreparedStatement statement = connection.prepareStatement("insert into audit values (?)");
+		statement.executeUpdate();
+		dataSource.setFailingMethods("rollback");
+		try {
+			connection.close();
+			Assert.fail("The rollback failure was swallowed");
+		} catch (SQLException e) {
+			// expected
+		}
+		dataSource.setFailingMethods();
+		Assert.assertTrue(connection.isClosed());
+		Assert.assertEquals(0, transactionModePool.getAttachedCount());
+		Assert.assertEquals(1, dataSource.getConnectionsClosed());
+		connectionPool.shutdown();
+	}
+}
@@ -0,0 +1,100 @@
+package com.cornholio.database.connectionpool.test;
+
+import com.cornholio.database.connection.impl.PooledConnectionImpl;
+import com.cornholio.database.connectionpool.ConnectionPoolImpl;
+import com.cornholio.database.connectionpool.IdleConnectionQueue;
+import com.cornholio.database.connectionpool.WaitStrategy;
+import com.cornholio.database.connectionpool.mock.StandInDataSource;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JUnit tests for the wait strategies of borrowers
+ *
+ * @author nikhilagarwal
+ */
+public class TestWaitStrategy {
+
+	private static ConnectionPoolImpl newConnectionPool(WaitStrategy waitStrategy) throws Exception {
+		return (ConnectionPoolImpl) PoolTestSupport.newBuilder(new StandInDataSource()).maxIdle(1).maxSize(1).minSize(1).waitStrategy(waitStrategy)
+				.build();
+	}
+
+	/**
+	 * Hands the only connection of a pool from one borrower to a waiting one, returning it as soon as the other borrower waits, and after a while.
+	 *
+	 * @return the queue of idle connections of the pool
+	 */
+	private static IdleConnectionQueue handOff(ConnectionPoolImpl connectionPool, long returnAfter, int times) throws Exception {
+		IdleConnectionQueue availableConnections = connectionPool.getAvailableConnections();
+		for (int i = 0; i < times; i++) {
+			PooledConnectionImpl connection = connectionPool.getConnection();
+			CompletableFuture<PooledConnectionImpl> waiter = CompletableFuture.supplyAsync(() -> {
+				try {
+					return connectionPool.getConnection();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			while (availableConnections.getWaitingCount() == 0) {
+				Thread.yield();
+			}
+			if (returnAfter > 0) {
+				Thread.sleep(returnAfter);
+			}
+			connection.close();
+			waiter.get().close();
+		}
+		return availableConnections;
+	}
+
+	/**
+	 * Hands a connection off in a pool that spins and in one that parks. Test is successful if every handoff is counted as a spin or a park in the
+	 * pool that spins, and the pool that parks never spins.
+	 */
+	@Test
+	public void testHandoffs() throws Exception {
+		ConnectionPoolImpl spinningPool = newConnectionPool(WaitStrategy.SPIN_THEN_PARK);
+		Assert.assertTrue(spinningPool.getAvailableConnections().getSpinLimitNanos() > 0L);
+		IdleConnectionQueue spinning = handOff(spinningPool, 0L, 20);
+		Assert.assertEquals(20L, spinning.getSpinHandoffCount() + spinning.getParkedWaitCount());
+		Assert.assertEquals(0, spinning.getWaitingCount());
+		spinningPool.shutdown();
+
+		ConnectionPoolImpl parkingPool = newConnectionPool(WaitStrategy.PARK);
+		IdleConnectionQueue parking = handOff(parkingPool, 0L, 20);
+		Assert.assertEquals(0L, parking.getSpinLimitNanos());
+		Assert.assertEquals(0L, parking.getSpinHandoffCount());
+		parkingPool.shutdown();
+	}
+
+	/**
+	 * Hands a connection off a few times after holding it for milliseconds. Test is successful if the spin limit adapts to the slow handoffs by
+	 * not spinning at all.
+	 */
+	@Test
+	public void testSpinBacksOffOnSlowHandoffs() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(WaitStrategy.SPIN_THEN_PARK);
+		IdleConnectionQueue availableConnections = handOff(connectionPool, 5L, 3);
+		Assert.assertEquals(3L, availableConnections.getParkedWaitCount());
+		Assert.assertEquals(0L, availableConnections.getSpinLimitNanos());
+		connectionPool.shutdown();
+	}
+
+	/**
+	 * Hands a connection off slowly until the pool stops spinning, and then right away a few hundred times. Test is successful if the pool spins
+	 * again: some of the fast handoffs are caught while spinning.
+	 */
+	@Test
+	public void testSpinResumesOnFastHandoffs() throws Exception {
+		ConnectionPoolImpl connectionPool = newConnectionPool(WaitStrategy.SPIN_THEN_PARK);
+		IdleConnectionQueue availableConnections = handOff(connectionPool, 5L, 3);
+		Assert.assertEquals(0L, availableConnections.getSpinLimitNanos());
+		long spinHandoffs = availableConnections.getSpinHandoffCount();
+		handOff(connectionPool, 0L, 512);
+		Assert.assertTrue(availableConnections.getSpinHandoffCount() > spinHandoffs);
+		connectionPool.shutdown();
+	}
+}